@@ -4,14 +4,20 @@ import org.dataspread.sheetanalyzer.parser.Node;
 import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
 import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
 import org.dataspread.sheetanalyzer.analyzer.SheetAnalyzerImpl;
+import org.dataspread.sheetanalyzer.dependency.CompactionStats;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
 import org.dataspread.sheetanalyzer.data.CellContent;
 import org.dataspread.sheetanalyzer.util.Pair;
 import org.dataspread.sheetanalyzer.util.Ref;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 public abstract class SheetAnalyzer {
 
@@ -26,6 +32,40 @@ public abstract class SheetAnalyzer {
         return new SheetAnalyzerImpl(filePath);
     }
 
+    /**
+     * Creating a SheetAnalyzer from a Spreadsheet File. With isStreaming set,
+     * .xlsx files are read sheet by sheet through the SAX event API and .xls
+     * files through the HSSF record stream, instead of being loaded into
+     * memory as a whole workbook.
+     *
+     * @param filePath
+     * @param isStreaming
+     * @return
+     * @throws SheetNotSupportedException
+     */
+    public static SheetAnalyzer createSheetAnalyzer(String filePath, boolean isStreaming)
+            throws SheetNotSupportedException {
+        return new SheetAnalyzerImpl(filePath, isStreaming);
+    }
+
+    /**
+     * Creating a SheetAnalyzer from a Spreadsheet File, building the graphs
+     * of different sheets in parallel on the given executor (e.g. a
+     * ForkJoinPool). With isStreaming set, .xlsx sheets are also parsed in
+     * parallel. The executor is left running for the caller to shut down.
+     *
+     * @param filePath
+     * @param isStreaming
+     * @param executor
+     * @return
+     * @throws SheetNotSupportedException
+     */
+    public static SheetAnalyzer createSheetAnalyzer(String filePath, boolean isStreaming,
+                                                    ExecutorService executor)
+            throws SheetNotSupportedException {
+        return new SheetAnalyzerImpl(filePath, isStreaming, executor);
+    }
+
     /**
      * Creating a SheetAnalyzer from a map between sheetName and associated
      * cells (String[][]). Used to handle output from Excel's JavaScript API.
@@ -40,6 +80,29 @@ public abstract class SheetAnalyzer {
         return new SheetAnalyzerImpl(spreadsheetContent);
     }
 
+    /**
+     * Loading a SheetAnalyzer saved by {@link #save}, without parsing the
+     * spreadsheet file again. The stream is read through a buffer, so it
+     * may be read past the end of the analyzer.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static SheetAnalyzer load(InputStream in) throws IOException {
+        return SheetAnalyzerImpl.load(in);
+    }
+
+    /**
+     * Save the sheet data and the compressed graphs of all sheets in a
+     * compact binary format, to be read back by {@link #load}. The stream
+     * is flushed but not closed.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public abstract void save(OutputStream out) throws IOException;
+
     /**
      * @return fileName
      */
@@ -77,6 +140,98 @@ public abstract class SheetAnalyzer {
      */
     public abstract Set<Ref> getDependents(String sheetName, Ref ref);
 
+    /**
+     * Get the dependents of any of the references {@link Ref}, e.g. of
+     * the cells of a paste, in one search
+     *
+     * @param sheetName
+     * @param refs
+     * @return
+     */
+    public abstract Set<Ref> getDependents(String sheetName, Collection<Ref> refs);
+
+    /**
+     * Get the formulae that refer to a reference {@link Ref}
+     *
+     * @param sheetName
+     * @param ref
+     * @return
+     */
+    public abstract Set<Ref> getDirectDependents(String sheetName, Ref ref);
+
+    /**
+     * Get the dependents of a reference {@link Ref} that are at most
+     * maxDepth references away from it
+     *
+     * @param sheetName
+     * @param ref
+     * @param maxDepth
+     * @return
+     */
+    public abstract Set<Ref> getDependents(String sheetName, Ref ref, int maxDepth);
+
+    /**
+     * Get the precedents of a reference {@link Ref}, the cells it depends
+     * on directly or through other formulae
+     *
+     * @param sheetName
+     * @param ref
+     * @return
+     */
+    public abstract Set<Ref> getPrecedents(String sheetName, Ref ref);
+
+    /**
+     * Get the cells the formulae of a reference {@link Ref} refer to
+     *
+     * @param sheetName
+     * @param ref
+     * @return
+     */
+    public abstract Set<Ref> getDirectPrecedents(String sheetName, Ref ref);
+
+    /**
+     * Set the content of a cell, a formula if it starts with "=" and a
+     * value otherwise. Only that cell is re-parsed, and its edges in the
+     * graph of the sheet are replaced.
+     *
+     * @param sheetName
+     * @param cell
+     * @param content
+     * @throws SheetNotSupportedException
+     */
+    public abstract void updateCell(String sheetName, Ref cell, String content)
+            throws SheetNotSupportedException;
+
+    /**
+     * Set the contents of many cells of a sheet, e.g. of a paste, at once
+     * {@link #updateCell}
+     *
+     * @param sheetName
+     * @param cellContents
+     * @throws SheetNotSupportedException
+     */
+    public abstract void updateCells(String sheetName, Map<Ref, String> cellContents)
+            throws SheetNotSupportedException;
+
+    /**
+     * Compress the graphs of all sheets anew, undoing the fragmentation
+     * left by updates (see {@link DependencyGraphTACO#compact()}).
+     *
+     * @return a map between sheetnames and the numbers of compressed edges
+     *         and vertices before and after
+     */
+    public abstract Map<String, CompactionStats> compact();
+
+    /**
+     * Compact the graph of a sheet whenever updates have split off more
+     * than maxFragmentation times the compressed edges it had after it was
+     * last compressed (see {@link DependencyGraphTACO#getFragmentation()}).
+     * Off by default.
+     *
+     * @param maxFragmentation
+     */
+    public abstract void setMaxFragmentation(double maxFragmentation);
+
     /**
      * Get the full information of a TACO graph
      *
@@ -137,25 +292,37 @@ public abstract class SheetAnalyzer {
     /**
      * Get the {@link Ref} that has the longest dependency chain
      *
-     * @return
+     * @return a cell where a longest chain of dependents starts and the
+     * number of edges on it, or null if there are no formulae
      */
     public abstract Pair<Ref, Long> getRefWithLongestDepChain();
 
     /**
      * Get the length of the longest path of a reference {@link Ref}
      *
-     * @param startRef
-     * @return
+     * @param startRef a cell or range; without a sheet name it refers to
+     *                 the only sheet of the workbook
+     * @return the number of edges on the longest path from any of its cells
+     * through their dependents
      */
     public abstract long getLongestPathLength(Ref startRef);
 
     /**
      * Get the {@link Ref} that has the most dependents
      *
-     * @return
+     * @return a cell and its number of dependent cells, direct or not, or
+     * null if there are no formulae
      */
     public abstract Pair<Ref, Long> getRefWithMostDeps();
 
+    /**
+     * Get the k cells that have the most dependents
+     *
+     * @param k
+     * @return up to k cells with their number of dependent cells, most first
+     */
+    public abstract List<Pair<Ref, Long>> getRefsWithMostDeps(int k);
+
     /**
      * Check whether this spreadsheet only includes derived column
      *
@@ -1,24 +1,33 @@
 package org.dataspread.sheetanalyzer.analyzer;
 
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.*;
 import org.dataspread.sheetanalyzer.data.SheetData;
 import org.dataspread.sheetanalyzer.dependency.util.PatternType;
 import org.dataspread.sheetanalyzer.parser.Node;
 import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
 import org.dataspread.sheetanalyzer.util.APINotImplementedException;
+import org.dataspread.sheetanalyzer.dependency.CompactionStats;
 import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
 import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
 import org.dataspread.sheetanalyzer.dependency.DependencyGraph;
 import org.dataspread.sheetanalyzer.parser.SpreadsheetParser;
+import org.dataspread.sheetanalyzer.parser.HSSFEventParser;
 import org.dataspread.sheetanalyzer.parser.POIParser;
+import org.dataspread.sheetanalyzer.parser.SavedDataParser;
+import org.dataspread.sheetanalyzer.parser.XSSFSaxParser;
 import org.dataspread.sheetanalyzer.SheetAnalyzer;
 import org.dataspread.sheetanalyzer.data.CellContent;
 import org.dataspread.sheetanalyzer.util.Pair;
 import org.dataspread.sheetanalyzer.util.Ref;
 import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.VarInts;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.*;
 
@@ -28,41 +37,167 @@ public class SheetAnalyzerImpl extends SheetAnalyzer {
 
     private final Map<String, DependencyGraph> depGraphMap = new HashMap<>();
     private final SpreadsheetParser parser;
-    private long numVertices = 0;
-    private long numEdges = 0;
+    private final Map<String, Long> numSheetVertices = new ConcurrentHashMap<>();
+    private final Set<String> editedSheets = new HashSet<>();
+    private final AtomicLong numEdges = new AtomicLong();
+    private double maxFragmentation = Double.POSITIVE_INFINITY;
+
+    // "SANA", at the start of a saved analyzer
+    private static final int FORMAT_MAGIC = 0x53414e41;
+    private static final int FORMAT_VERSION = 1;
+
     private String filePath;
     private int firstRowNum, lastRowNum;
     boolean isTACOSheet;
 
     public SheetAnalyzerImpl(String filePath) throws SheetNotSupportedException {
+        this(filePath, false);
+    }
+
+    public SheetAnalyzerImpl(String filePath, boolean isStreaming) throws SheetNotSupportedException {
+        this(filePath, isStreaming, null);
+    }
+
+    /**
+     * With a non-null executor, sheets are parsed (streaming .xlsx only) and
+     * their graphs are built as independent tasks on it. The executor is not
+     * shut down.
+     */
+    public SheetAnalyzerImpl(String filePath, boolean isStreaming,
+                             ExecutorService executor) throws SheetNotSupportedException {
         this.filePath = filePath;
-        this.parser = new POIParser(filePath);
-        genDepGraphFromSheetData(this.depGraphMap);
+        this.parser = isStreaming ? createStreamingParser(filePath, executor) : new POIParser(filePath);
+        genDepGraphFromSheetData(this.depGraphMap, executor);
     }
 
     public SheetAnalyzerImpl(Map<String, String[][]> sheetContent) throws SheetNotSupportedException {
         this.parser = new POIParser(sheetContent);
-        genDepGraphFromSheetData(this.depGraphMap);
+        genDepGraphFromSheetData(this.depGraphMap, null);
+    }
+
+    private SheetAnalyzerImpl(String filePath, SpreadsheetParser parser,
+                              Map<String, DependencyGraph> depGraphMap) {
+        this.filePath = filePath;
+        this.parser = parser;
+        this.depGraphMap.putAll(depGraphMap);
+        parser.getSheetData().values().forEach(sheetData -> sheetData.getDepSet().forEach(dep ->
+                this.numEdges.addAndGet(sheetData.getRefMetadata(dep).getDependents().size())));
+        // Vertices are counted when they are first asked for
+        this.editedSheets.addAll(depGraphMap.keySet());
+    }
+
+    /**
+     * Reads an analyzer written by {@link #save}. The sheet data and the
+     * compressed graphs are read back as they were; nothing is parsed or
+     * compressed again.
+     */
+    public static SheetAnalyzerImpl load(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+        if (dataIn.readInt() != FORMAT_MAGIC) {
+            throw new IOException("Not a saved sheet analyzer");
+        }
+        int version = VarInts.readCount(dataIn);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported sheet analyzer version " + version);
+        }
+        String filePath = VarInts.readString(dataIn);
+        String fileName = VarInts.readString(dataIn);
+        int numSheets = VarInts.readCount(dataIn);
+        Map<String, SheetData> sheetDataMap = new LinkedHashMap<>();
+        Map<String, DependencyGraph> depGraphMap = new HashMap<>();
+        for (int i = 0; i < numSheets; i++) {
+            SheetData sheetData = SheetData.readFrom(dataIn);
+            sheetDataMap.put(sheetData.getSheetName(), sheetData);
+            depGraphMap.put(sheetData.getSheetName(), DependencyGraphTACO.readFrom(dataIn));
+        }
+        return new SheetAnalyzerImpl(filePath, new SavedDataParser(fileName, sheetDataMap), depGraphMap);
+    }
+
+    /**
+     * One section per sheet, its {@link SheetData} followed by its graph.
+     */
+    @Override
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        dataOut.writeInt(FORMAT_MAGIC);
+        VarInts.writeUnsigned(dataOut, FORMAT_VERSION);
+        VarInts.writeString(dataOut, this.filePath);
+        VarInts.writeString(dataOut, this.parser.getFileName());
+        Map<String, SheetData> sheetDataMap = this.parser.getSheetData();
+        VarInts.writeUnsigned(dataOut, this.depGraphMap.size());
+        for (Map.Entry<String, DependencyGraph> entry : this.depGraphMap.entrySet()) {
+            sheetDataMap.get(entry.getKey()).writeTo(dataOut);
+            ((DependencyGraphTACO) entry.getValue()).writeTo(dataOut);
+        }
+        dataOut.flush();
+    }
+
+    private static SpreadsheetParser createStreamingParser(String filePath,
+                                                           ExecutorService executor) throws SheetNotSupportedException {
+        FileMagic fileMagic;
+        try {
+            fileMagic = FileMagic.valueOf(new File(filePath));
+        } catch (IOException err) {
+            throw new SheetNotSupportedException("Could not load workbook " + filePath, err);
+        }
+        if (fileMagic == FileMagic.OOXML) {
+            return new XSSFSaxParser(filePath, executor);
+        } else if (fileMagic == FileMagic.OLE2) {
+            return new HSSFEventParser(filePath);
+        }
+        return new POIParser(filePath);
     }
 
-    private void genDepGraphFromSheetData(Map<String, DependencyGraph> inputDepGraphMap) {
+    private void genDepGraphFromSheetData(Map<String, DependencyGraph> inputDepGraphMap,
+                                          ExecutorService executor) throws SheetNotSupportedException {
+        Map<String, SheetData> sheetDataMap = this.parser.getSheetData();
+        if (executor == null) {
+            sheetDataMap.forEach((sheetName, sheetData) ->
+                    inputDepGraphMap.put(sheetName, genDepGraphFromOneSheet(sheetName, sheetData)));
+            return;
+        }
+
+        // Sheets share nothing, so each graph is built on its own task and
+        // only the map is filled in on this thread.
+        Map<String, Future<DependencyGraph>> futures = new LinkedHashMap<>();
+        sheetDataMap.forEach((sheetName, sheetData) ->
+                futures.put(sheetName, executor.submit(() -> genDepGraphFromOneSheet(sheetName, sheetData))));
+        for (Map.Entry<String, Future<DependencyGraph>> entry : futures.entrySet()) {
+            try {
+                inputDepGraphMap.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(future -> future.cancel(true));
+                throw new SheetNotSupportedException("Interrupted while building the graph of " + entry.getKey());
+            } catch (ExecutionException e) {
+                futures.values().forEach(future -> future.cancel(true));
+                throw new SheetNotSupportedException("Building the graph of " + entry.getKey() + " failed: "
+                        + e.getCause());
+            }
+        }
+    }
+
+    private DependencyGraph genDepGraphFromOneSheet(String sheetName, SheetData sheetData) {
         boolean isRowWise = false;
-        this.parser.getSheetData().forEach((sheetName, sheetData) -> {
-            DependencyGraphTACO depGraph = new DependencyGraphTACO();
-            HashSet<Ref> refSet = new HashSet<>();
-            sheetData.getSortedDepPairs(isRowWise).forEach(depPair -> {
-                Ref dep = depPair.first;
-                List<Ref> precList = depPair.second;
-                precList.forEach(prec -> {
-                    depGraph.add(prec, dep);
-                    this.numEdges += 1;
-                });
-                refSet.add(dep);
-                refSet.addAll(precList);
-            });
-            inputDepGraphMap.put(sheetName, depGraph);
-            this.numVertices += refSet.size();
-        });
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        HashSet<Ref> refSet = new HashSet<>();
+        long numSheetEdges = 0;
+        List<Pair<Ref, List<Ref>>> sortedDepPairs = sheetData.getSortedDepPairs(isRowWise);
+        depGraph.bulkLoad(sortedDepPairs);
+        for (Pair<Ref, List<Ref>> depPair : sortedDepPairs) {
+            numSheetEdges += depPair.second.size();
+            refSet.add(depPair.first);
+            refSet.addAll(depPair.second);
+        }
+        this.numEdges.addAndGet(numSheetEdges);
+        this.numSheetVertices.put(sheetName, (long) refSet.size());
+        return depGraph;
+    }
+
+    private static long countVertices(SheetData sheetData) {
+        HashSet<Ref> refSet = new HashSet<>(sheetData.getDepSet());
+        sheetData.getDepSet().forEach(dep -> refSet.addAll(sheetData.getRefMetadata(dep).getDependents()));
+        return refSet.size();
     }
 
     @Override
@@ -98,6 +233,86 @@ public class SheetAnalyzerImpl extends SheetAnalyzer {
         return this.depGraphMap.get(sheetName).getDependents(ref);
     }
 
+    @Override
+    public Set<Ref> getDependents(String sheetName, Collection<Ref> refs) {
+        return this.depGraphMap.get(sheetName).getDependents(refs);
+    }
+
+    @Override
+    public Set<Ref> getDirectDependents(String sheetName, Ref ref) {
+        return this.depGraphMap.get(sheetName).getDirectDependents(ref);
+    }
+
+    @Override
+    public Set<Ref> getDependents(String sheetName, Ref ref, int maxDepth) {
+        return this.depGraphMap.get(sheetName).getDependents(ref, maxDepth);
+    }
+
+    @Override
+    public Set<Ref> getPrecedents(String sheetName, Ref ref) {
+        return this.depGraphMap.get(sheetName).getPrecedents(ref);
+    }
+
+    @Override
+    public Set<Ref> getDirectPrecedents(String sheetName, Ref ref) {
+        return this.depGraphMap.get(sheetName).getDirectPrecedents(ref);
+    }
+
+    @Override
+    public void updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException {
+        updateCells(sheetName, Collections.singletonMap(cell, content));
+    }
+
+    /**
+     * The edges of all cells are cleared before the new ones are added in
+     * one batch. The number of edges follows every edit, the number of
+     * vertices of an edited sheet is counted again when it is asked for.
+     */
+    @Override
+    public void updateCells(String sheetName, Map<Ref, String> cellContents) throws SheetNotSupportedException {
+        DependencyGraph depGraph = this.depGraphMap.get(sheetName);
+        SheetData sheetData = this.parser.getSheetData().get(sheetName);
+        if (depGraph == null || sheetData == null) {
+            throw new SheetNotSupportedException("No sheet " + sheetName);
+        }
+
+        List<Pair<Ref, Ref>> edgeBatch = new ArrayList<>();
+        long numEdgeChange = 0;
+        for (Map.Entry<Ref, String> cellContent : cellContents.entrySet()) {
+            Ref dep = new RefImpl(cellContent.getKey().getRow(), cellContent.getKey().getColumn());
+            if (sheetData.getDepSet().contains(dep)) {
+                numEdgeChange -= sheetData.getRefMetadata(dep).getDependents().size();
+            }
+            List<Ref> precList = this.parser.updateCell(sheetName, dep, cellContent.getValue());
+            numEdgeChange += precList.size();
+            depGraph.clearDependents(dep);
+            precList.forEach(prec -> edgeBatch.add(new Pair<>(prec, dep)));
+        }
+        depGraph.addBatch(edgeBatch);
+        this.numEdges.addAndGet(numEdgeChange);
+        this.editedSheets.add(sheetName);
+        if (depGraph instanceof DependencyGraphTACO
+                && ((DependencyGraphTACO) depGraph).getFragmentation() > this.maxFragmentation) {
+            ((DependencyGraphTACO) depGraph).compact();
+        }
+    }
+
+    @Override
+    public Map<String, CompactionStats> compact() {
+        Map<String, CompactionStats> compactionStats = new HashMap<>();
+        this.depGraphMap.forEach((sheetName, depGraph) -> {
+            if (depGraph instanceof DependencyGraphTACO) {
+                compactionStats.put(sheetName, ((DependencyGraphTACO) depGraph).compact());
+            }
+        });
+        return compactionStats;
+    }
+
+    @Override
+    public void setMaxFragmentation(double maxFragmentation) {
+        this.maxFragmentation = maxFragmentation;
+    }
+
     @Override
     public Map<String, Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>>> getTACODepGraphs() {
         Map<String, Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>>> tacoDepGraphs = new HashMap<>();
@@ -255,12 +470,19 @@ public class SheetAnalyzerImpl extends SheetAnalyzer {
 
     @Override
     public long getNumEdges() {
-        return this.numEdges;
+        return this.numEdges.get();
     }
 
     @Override
     public long getNumVertices() {
-        return this.numVertices;
+        this.editedSheets.forEach(sheetName ->
+                this.numSheetVertices.put(sheetName, countVertices(this.parser.getSheetData().get(sheetName))));
+        this.editedSheets.clear();
+        long numVertices = 0;
+        for (long numVerticesOfSheet : this.numSheetVertices.values()) {
+            numVertices += numVerticesOfSheet;
+        }
+        return numVertices;
     }
 
     @Override
@@ -274,17 +496,46 @@ public class SheetAnalyzerImpl extends SheetAnalyzer {
 
     @Override
     public Pair<Ref, Long> getRefWithLongestDepChain() {
-        throw new APINotImplementedException();
+        Pair<Ref, Long> longest = null;
+        for (DependencyGraph depGraph : this.depGraphMap.values()) {
+            Pair<Ref, Long> sheetLongest = ((DependencyGraphTACO) depGraph).getRefWithLongestDepChain();
+            if (sheetLongest != null && (longest == null || sheetLongest.second > longest.second)) {
+                longest = sheetLongest;
+            }
+        }
+        return longest;
     }
 
     @Override
     public long getLongestPathLength(Ref startRef) {
-        throw new APINotImplementedException();
+        DependencyGraph depGraph = findDepGraph(startRef);
+        if (depGraph == null) {
+            return 0;
+        }
+        return ((DependencyGraphTACO) depGraph).getLongestPathLength(startRef);
+    }
+
+    // A ref without a sheet name belongs to the only sheet, if there is one
+    private DependencyGraph findDepGraph(Ref ref) {
+        if (ref.getSheetName() == null && this.depGraphMap.size() == 1) {
+            return this.depGraphMap.values().iterator().next();
+        }
+        return this.depGraphMap.get(ref.getSheetName());
     }
 
     @Override
     public Pair<Ref, Long> getRefWithMostDeps() {
-        throw new APINotImplementedException();
+        List<Pair<Ref, Long>> mostDeps = getRefsWithMostDeps(1);
+        return mostDeps.isEmpty() ? null : mostDeps.get(0);
+    }
+
+    @Override
+    public List<Pair<Ref, Long>> getRefsWithMostDeps(int k) {
+        List<Pair<Ref, Long>> mostDeps = new ArrayList<>();
+        this.depGraphMap.forEach((sheetName, depGraph) ->
+                mostDeps.addAll(((DependencyGraphTACO) depGraph).getRefsWithMostDeps(k)));
+        mostDeps.sort((a, b) -> Long.compare(b.second, a.second));
+        return mostDeps.size() > k ? new ArrayList<>(mostDeps.subList(0, k)) : mostDeps;
     }
 
     @Override
@@ -2,6 +2,12 @@ package org.dataspread.sheetanalyzer.data;
 
 import org.dataspread.sheetanalyzer.util.Pair;
 import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.VarInts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.Comparator;
 import java.util.ArrayList;
@@ -84,6 +90,90 @@ public class SheetData {
         }
     }
 
+    /**
+     * Writes the cells of the sheet as one section of a saved analyzer:
+     * the sheet name, the distinct formula templates, then every cell
+     * sorted by column with its precedents, number of references and
+     * content. Cells are stored relative to the one before and precedents
+     * relative to their cell, as varints (see {@link VarInts}); a cell
+     * refers to its template by number. The cache of accessed areas is not
+     * written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        VarInts.writeString(out, this.sheetName);
+        List<Ref> cells = new ArrayList<>(this.refMetadata.keySet());
+        cells.sort(Comparator.comparingInt(Ref::getColumn).thenComparingInt(Ref::getRow));
+        Map<String, Integer> templateIds = new HashMap<>();
+        List<String> templates = new ArrayList<>();
+        cells.forEach(cell -> templateIds.computeIfAbsent(
+                this.refMetadata.get(cell).getContent().getFormulaTemplate(), template -> {
+                    templates.add(template);
+                    return templates.size() - 1;
+                }));
+        VarInts.writeUnsigned(out, templates.size());
+        for (String template : templates) {
+            VarInts.writeString(out, template);
+        }
+
+        VarInts.writeUnsigned(out, cells.size());
+        int lastRow = 0, lastCol = 0;
+        for (Ref cell : cells) {
+            int row = cell.getRow(), col = cell.getColumn();
+            VarInts.writeSigned(out, (long) col - lastCol);
+            VarInts.writeSigned(out, (long) row - lastRow);
+            CellWithMeta metadata = this.refMetadata.get(cell);
+            VarInts.writeUnsigned(out, metadata.getDependents().size());
+            for (Ref prec : metadata.getDependents()) {
+                VarInts.writeSigned(out, (long) prec.getRow() - row);
+                VarInts.writeSigned(out, (long) prec.getColumn() - col);
+                VarInts.writeUnsigned(out, (long) prec.getLastRow() - prec.getRow());
+                VarInts.writeUnsigned(out, (long) prec.getLastColumn() - prec.getColumn());
+            }
+            VarInts.writeUnsigned(out, metadata.getNumFormulaRefs());
+            CellContent content = metadata.getContent();
+            out.writeBoolean(content.isFormula());
+            VarInts.writeString(out, content.getValue());
+            VarInts.writeString(out, content.getFormula());
+            VarInts.writeUnsigned(out, templateIds.get(content.getFormulaTemplate()));
+            lastRow = row;
+            lastCol = col;
+        }
+    }
+
+    public static SheetData readFrom(DataInput in) throws IOException {
+        SheetData sheetData = new SheetData(VarInts.readString(in));
+        String[] templates = new String[VarInts.readCount(in)];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = VarInts.readString(in);
+        }
+
+        int numCells = VarInts.readCount(in);
+        int row = 0, col = 0;
+        for (int i = 0; i < numCells; i++) {
+            col += VarInts.readSignedInt(in);
+            row += VarInts.readSignedInt(in);
+            int numPrecs = VarInts.readCount(in);
+            List<Ref> precList = new ArrayList<>(numPrecs);
+            for (int j = 0; j < numPrecs; j++) {
+                int precRow = row + VarInts.readSignedInt(in);
+                int precCol = col + VarInts.readSignedInt(in);
+                precList.add(new RefImpl(precRow, precCol,
+                        precRow + VarInts.readCount(in), precCol + VarInts.readCount(in)));
+            }
+            int numFormulaRefs = VarInts.readCount(in);
+            boolean isFormula = in.readBoolean();
+            String value = VarInts.readString(in);
+            String formula = VarInts.readString(in);
+            int templateId = VarInts.readCount(in);
+            if (templateId >= templates.length) {
+                throw new IOException("Unknown formula template " + templateId);
+            }
+            sheetData.refMetadata.put(new RefImpl(row, col), new CellWithMeta(precList,
+                    new CellContent(value, formula, templates[templateId], isFormula), numFormulaRefs));
+        }
+        return sheetData;
+    }
+
     public void addOneAccess(Ref areaRef) {
         this.accessAreaCache.add(areaRef);
     }
@@ -0,0 +1,226 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.dependency.util.RefUtils;
+import org.dataspread.sheetanalyzer.dependency.util.RegionSet;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A {@link DependencyGraph} that keeps the answers to recent dependents
+ * queries of another graph. Queries are keyed on their range alone, without
+ * book or sheet, and on their depth. Answers are handed out as unmodifiable
+ * sets.
+ *
+ * The least recently used answers are evicted once there are more than
+ * maxEntries of them, or once their total weight, one per answer plus one
+ * per range in it, goes over maxWeight.
+ *
+ * Changes through this graph drop exactly the answers they can change:
+ * adding an edge, those whose query or dependents overlap its precedent,
+ * and clearing the dependents of a range, those whose dependents overlap
+ * it. Changes made to the wrapped graph directly, e.g. a bulkLoad or an
+ * insertRows, need an invalidateAll.
+ */
+public class CachedDependencyGraph implements DependencyGraph {
+
+    private static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final DependencyGraph depGraph;
+    private final int maxEntries;
+    private final long maxWeight;
+
+    private final LinkedHashMap<QueryKey, CachedAnswer> answers = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    private static class QueryKey {
+        final Ref range;
+        final int maxDepth;
+
+        QueryKey(Ref ref, int maxDepth) {
+            this.range = new RefImpl(ref.getRow(), ref.getColumn(), ref.getLastRow(), ref.getLastColumn());
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey other = (QueryKey) o;
+            return maxDepth == other.maxDepth && range.equals(other.range);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * range.hashCode() + maxDepth;
+        }
+    }
+
+    private static class CachedAnswer {
+        final Set<Ref> dependents;
+        final RegionSet dependentRegion;
+        final long weight;
+
+        CachedAnswer(Set<Ref> dependents) {
+            this.dependents = Collections.unmodifiableSet(dependents);
+            this.dependentRegion = new RegionSet(dependents);
+            this.weight = 1L + dependents.size();
+        }
+    }
+
+    public CachedDependencyGraph(DependencyGraph depGraph, int maxEntries, long maxWeight) {
+        this.depGraph = depGraph;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    public Set<Ref> getDependents(Ref precedent) {
+        return getCachedDependents(precedent, UNLIMITED_DEPTH);
+    }
+
+    public Set<Ref> getDirectDependents(Ref precedent) {
+        return getCachedDependents(precedent, 1);
+    }
+
+    public Set<Ref> getDependents(Ref precedent, int maxDepth) {
+        return getCachedDependents(precedent, maxDepth);
+    }
+
+    private Set<Ref> getCachedDependents(Ref precedent, int maxDepth) {
+        if (!RefUtils.isValidRef(precedent) || maxDepth <= 0) {
+            return Collections.emptySet();
+        }
+        QueryKey key = new QueryKey(precedent, maxDepth);
+        CachedAnswer answer = answers.get(key);
+        if (answer != null) {
+            hitCount += 1;
+            return answer.dependents;
+        }
+
+        missCount += 1;
+        Set<Ref> dependents = maxDepth == UNLIMITED_DEPTH
+                ? depGraph.getDependents(precedent)
+                : depGraph.getDependents(precedent, maxDepth);
+        answer = new CachedAnswer(dependents);
+        answers.put(key, answer);
+        totalWeight += answer.weight;
+        evict();
+        return answer.dependents;
+    }
+
+    private void evict() {
+        Iterator<CachedAnswer> leastRecentlyUsed = answers.values().iterator();
+        while (leastRecentlyUsed.hasNext() && (answers.size() > maxEntries || totalWeight > maxWeight)) {
+            totalWeight -= leastRecentlyUsed.next().weight;
+            leastRecentlyUsed.remove();
+            evictionCount += 1;
+        }
+    }
+
+    public Set<Ref> getDependents(Collection<Ref> precedents) {
+        return depGraph.getDependents(precedents);
+    }
+
+    public Set<Ref> getPrecedents(Ref dependent) {
+        return depGraph.getPrecedents(dependent);
+    }
+
+    public Set<Ref> getDirectPrecedents(Ref dependent) {
+        return depGraph.getDirectPrecedents(dependent);
+    }
+
+    public void add(Ref precedent, Ref dependent) {
+        depGraph.add(precedent, dependent);
+        invalidateAnswers(key -> overlaps(key.range, precedent),
+                answer -> answer.dependentRegion.intersects(precedent));
+    }
+
+    public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
+        depGraph.addBatch(edgeBatch);
+        RegionSet precedents = new RegionSet();
+        edgeBatch.forEach(edge -> precedents.add(edge.first));
+        invalidateAnswers(key -> precedents.intersects(key.range),
+                answer -> answer.dependents.stream().anyMatch(precedents::intersects));
+    }
+
+    public void clearDependents(Ref dependent) {
+        depGraph.clearDependents(dependent);
+        invalidateAnswers(key -> false, answer -> answer.dependentRegion.intersects(dependent));
+    }
+
+    private void invalidateAnswers(Predicate<QueryKey> isKeyChanged, Predicate<CachedAnswer> isAnswerChanged) {
+        Iterator<Map.Entry<QueryKey, CachedAnswer>> entries = answers.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<QueryKey, CachedAnswer> entry = entries.next();
+            if (isKeyChanged.test(entry.getKey()) || isAnswerChanged.test(entry.getValue())) {
+                totalWeight -= entry.getValue().weight;
+                entries.remove();
+                invalidationCount += 1;
+            }
+        }
+    }
+
+    private static boolean overlaps(Ref refA, Ref refB) {
+        return refA.getRow() <= refB.getLastRow() && refB.getRow() <= refA.getLastRow()
+                && refA.getColumn() <= refB.getLastColumn() && refB.getColumn() <= refA.getLastColumn();
+    }
+
+    public void invalidateAll() {
+        invalidationCount += answers.size();
+        answers.clear();
+        totalWeight = 0;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public int getNumCachedAnswers() {
+        return answers.size();
+    }
+
+    public long getCachedWeight() {
+        return totalWeight;
+    }
+
+    public String getCompressInfo() {
+        return depGraph.getCompressInfo();
+    }
+
+    public long getNumVertices() {
+        return depGraph.getNumVertices();
+    }
+
+    public long getNumEdges() {
+        return depGraph.getNumEdges();
+    }
+
+    public Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> getCompressedGraph() {
+        return depGraph.getCompressedGraph();
+    }
+}
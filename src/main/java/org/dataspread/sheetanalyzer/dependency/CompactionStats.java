@@ -0,0 +1,27 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+/**
+ * The size of a compressed graph before and after a compaction, see
+ * {@link DependencyGraphTACO#compact()}.
+ */
+public class CompactionStats {
+
+    public final long numEdgesBefore;
+    public final long numEdgesAfter;
+    public final long numVerticesBefore;
+    public final long numVerticesAfter;
+
+    public CompactionStats(long numEdgesBefore, long numEdgesAfter,
+            long numVerticesBefore, long numVerticesAfter) {
+        this.numEdgesBefore = numEdgesBefore;
+        this.numEdgesAfter = numEdgesAfter;
+        this.numVerticesBefore = numVerticesBefore;
+        this.numVerticesAfter = numVerticesAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "Edges:" + numEdgesBefore + "->" + numEdgesAfter
+                + ",Vertices:" + numVerticesBefore + "->" + numVerticesAfter;
+    }
+}
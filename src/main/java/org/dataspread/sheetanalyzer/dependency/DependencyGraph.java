@@ -4,6 +4,7 @@ import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
 import org.dataspread.sheetanalyzer.util.Pair;
 import org.dataspread.sheetanalyzer.util.Ref;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,6 +16,16 @@ public interface DependencyGraph {
 
   Set<Ref> getDependents(Ref precedent);
 
+  Set<Ref> getDependents(Collection<Ref> precedents);
+
+  Set<Ref> getDirectDependents(Ref precedent);
+
+  Set<Ref> getDependents(Ref precedent, int maxDepth);
+
+  Set<Ref> getPrecedents(Ref dependent);
+
+  Set<Ref> getDirectPrecedents(Ref dependent);
+
   void clearDependents(Ref dependent);
 
   String getCompressInfo();
@@ -1,103 +1,335 @@
 package org.dataspread.sheetanalyzer.dependency;
 
-import com.github.davidmoten.rtree.Entry;
-import com.github.davidmoten.rtree.RTree;
-import com.github.davidmoten.rtree.geometry.Rectangle;
-import com.google.common.base.Function;
-import com.google.common.collect.Iterators;
-import org.checkerframework.checker.nullness.qual.Nullable;
 import org.dataspread.sheetanalyzer.dependency.util.*;
 import org.dataspread.sheetanalyzer.util.Pair;
 import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.VarInts;
 
+import java.io.*;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static org.dataspread.sheetanalyzer.dependency.util.PatternTools.*;
 
 public class DependencyGraphTACO implements DependencyGraph {
 
-    protected Map<Ref, List<RefWithMeta>> precToDepList = new HashMap<>();
-    protected Map<Ref, List<RefWithMeta>> depToPrecList = new HashMap<>();
-    private RTree<Ref, Rectangle> _rectToRef = RTree.create();
+    // Ranges are kept packed (see PackedRange); they only become Refs, with
+    // the book and sheet of refTemplate, when the algorithms look at them.
+    // Not final, as compact swaps in those of a graph built anew
+    private EdgeStore precToDepList;
+    private EdgeStore depToPrecList;
+    private long numEdges = 0;
+    // Edges with the same pattern and offsets share one EdgeMeta. Entries
+    // stay after their edges are gone; there are few distinct EdgeMetas.
+    private Map<EdgeMeta, EdgeMeta> edgeMetaPool = new HashMap<>();
+    private SpatialIndex _rectToRef;
+    private Ref refTemplate = new RefImpl(0, 0);
+    private final boolean isOffHeap;
+
+    // Only set while bulkLoad runs, when it replaces _rectToRef for lookups
+    private BulkLoadIndex bulkLoadIndex = null;
+    // Only set while a row or column edit rewrites the maps, after which
+    // _rectToRef is packed anew from them
+    private boolean isIndexStale = false;
+    // Only set while compact(Ref) runs: what undoes each change to the
+    // maps, the latest first
+    private Deque<Runnable> undoLog = null;
+
+    // The number of edges right after the last bulkLoad or compact, and
+    // the edges clearDependents has split off or added back cell by cell
+    // since then
+    private long numCompactEdges = 0;
+    private long numFragmentEdges = 0;
+
+    // "TACO", at the start of a saved graph
+    private static final int FORMAT_MAGIC = 0x5441434f;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+    // Between the dependents of the pattern with the widest gap
+    private static final int MAX_STEP = getStep(PatternType.TYPEELEVEN);
 
     private final CompressInfoComparator compressInfoComparator = new CompressInfoComparator();
 
+    public DependencyGraphTACO() {
+        this(false);
+    }
+
+    /**
+     * @param isOffHeap keep the adjacency lists and the R-tree in direct
+     * memory instead of objects on the heap (see OffHeapEdgeStore and
+     * OffHeapRTreeIndex). The heap then holds about nothing per edge, so
+     * collections no longer take longer as the graph grows, at the cost of
+     * a new EdgeList for every range looked up. The direct memory is freed
+     * once the graph is collected, and counts against
+     * -XX:MaxDirectMemorySize.
+     */
+    public DependencyGraphTACO(boolean isOffHeap) {
+        this.isOffHeap = isOffHeap;
+        this.precToDepList = isOffHeap ? new OffHeapEdgeStore() : new HeapEdgeStore();
+        this.depToPrecList = isOffHeap ? new OffHeapEdgeStore() : new HeapEdgeStore();
+        this._rectToRef = isOffHeap ? new OffHeapRTreeIndex() : new RTreeIndex();
+    }
+
+    public boolean isOffHeap() {
+        return isOffHeap;
+    }
+
+    private Ref toRef(long start, long end) {
+        return PackedRange.toRef(refTemplate, start, end);
+    }
+
+    /**
+     * Materializes both adjacency maps as Refs, so every call builds new maps.
+     */
     public Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> getCompressedGraph() {
-        return new Pair<>(this.precToDepList, this.depToPrecList);
+        return new Pair<>(toRefMap(this.precToDepList), toRefMap(this.depToPrecList));
+    }
+
+    private Map<Ref, List<RefWithMeta>> toRefMap(EdgeStore edgeStore) {
+        Map<Ref, List<RefWithMeta>> refMap = new HashMap<>();
+        edgeStore.forEach((start, end, edgeList) -> refMap.put(toRef(start, end), toRefWithMetaList(edgeList)));
+        return refMap;
+    }
+
+    private List<RefWithMeta> toRefWithMetaList(EdgeList edgeList) {
+        List<RefWithMeta> refWithMetaList = new ArrayList<>(edgeList.size());
+        for (int i = 0; i < edgeList.size(); i++) {
+            refWithMetaList.add(new RefWithMeta(toRef(edgeList.getStart(i), edgeList.getEnd(i)),
+                    edgeList.getEdgeMeta(i)));
+        }
+        return refWithMetaList;
     }
 
     public Set<Ref> getDependents(Ref precedent) {
         LinkedHashSet<Ref> result = new LinkedHashSet<>();
         if (RefUtils.isValidRef(precedent)) {
-            final boolean isDirectDep = false;
-            getDependentsInternal(precedent, result, isDirectDep);
+            getDependentsInternal(Collections.singletonList(precedent), result, UNLIMITED_DEPTH);
+        }
+        return result;
+    }
+
+    /**
+     * The dependents of any of the precedents, from one search seeded with
+     * all of them, after merging the precedents that touch.
+     */
+    public Set<Ref> getDependents(Collection<Ref> precedents) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        List<Ref> validPrecs = new ArrayList<>(precedents.size());
+        precedents.forEach(precedent -> {
+            if (RefUtils.isValidRef(precedent)) {
+                validPrecs.add(precedent);
+            }
+        });
+        if (!validPrecs.isEmpty()) {
+            getDependentsInternal(RefUtils.coalesceRefs(validPrecs), result, UNLIMITED_DEPTH);
+        }
+        return result;
+    }
+
+    public Set<Ref> getDirectDependents(Ref precedent) {
+        return getDependents(precedent, 1);
+    }
+
+    /**
+     * The dependents at most maxDepth edges away from the precedent. A
+     * limited search goes one edge at a time, so it cannot jump down
+     * RR-chains the way getDependents(Ref) does.
+     */
+    public Set<Ref> getDependents(Ref precedent, int maxDepth) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(precedent) && maxDepth > 0) {
+            getDependentsInternal(Collections.singletonList(precedent), result, maxDepth);
+        }
+        return result;
+    }
+
+    private void getDependentsInternal(List<Ref> precUpdates,
+            LinkedHashSet<Ref> result,
+            int maxDepth) {
+        RegionSet resultSet = new RegionSet();
+        boolean isTransitive = maxDepth == UNLIMITED_DEPTH;
+        // Breadth first, one level of dependents per depth. The new cells of
+        // a level are merged into as few ranges as possible before the next.
+        List<Ref> updateLevel = precUpdates;
+        RegionSet nextLevel = new RegionSet();
+        List<Ref> newRefs = new ArrayList<>();
+        List<Ref> precRefs = new ArrayList<>();
+        for (int depth = 1; !updateLevel.isEmpty() && depth <= maxDepth; depth++) {
+            for (Ref updateRef : updateLevel) {
+                precRefs.clear();
+                findOverlappingRefs(updateRef, precRefs);
+                for (Ref precRef : precRefs) {
+                    EdgeList depList = precToDepList.get(PackedRange.start(precRef), PackedRange.end(precRef));
+                    if (depList == null) {
+                        continue;
+                    }
+                    Ref realUpdateRef = updateRef.getOverlap(precRef);
+                    for (int i = 0; i < depList.size(); i++) {
+                        EdgeMeta edgeMeta = depList.getEdgeMeta(i);
+                        if (!isTransitive && edgeMeta.patternType == PatternType.TYPEZERO) {
+                            // findUpdateDepRef follows a whole chain
+                            edgeMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+                        }
+                        Ref depRef = toRef(depList.getStart(i), depList.getEnd(i));
+                        for (Ref depUpdateRef : findUpdateDepRef(precRef, depRef, edgeMeta, realUpdateRef)) {
+                            if (depUpdateRef == null) {
+                                continue;
+                            }
+                            newRefs.clear();
+                            resultSet.add(depUpdateRef, newRefs);
+                            newRefs.forEach(nextLevel::add);
+                        }
+                    }
+                }
+            }
+            updateLevel = nextLevel.toRefs();
+            nextLevel.clear();
+        }
+        result.addAll(resultSet.toRefs());
+    }
+
+    public Set<Ref> getPrecedents(Ref dependent) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(dependent)) {
+            final boolean isDirectPrec = false;
+            getPrecedentsInternal(dependent, result, isDirectPrec);
+        }
+        return result;
+    }
+
+    public Set<Ref> getDirectPrecedents(Ref dependent) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(dependent)) {
+            final boolean isDirectPrec = true;
+            getPrecedentsInternal(dependent, result, isDirectPrec);
         }
         return result;
     }
 
-    private void getDependentsInternal(Ref precUpdate,
+    private void getPrecedentsInternal(Ref depUpdate,
             LinkedHashSet<Ref> result,
-            boolean isDirectDep) {
-        AtomicReference<RTree<Ref, Rectangle>> resultSet = new AtomicReference<>(RTree.create());
-        Queue<Ref> updateQueue = new LinkedList<>();
-        updateQueue.add(precUpdate);
+            boolean isDirectPrec) {
+        RegionSet resultSet = new RegionSet();
+        List<Ref> newRefs = new ArrayList<>();
+        Queue<Ref> updateQueue = new ArrayDeque<>();
+        updateQueue.add(depUpdate);
         while (!updateQueue.isEmpty()) {
             Ref updateRef = updateQueue.remove();
-            Iterator<Ref> refIter = findOverlappingRefs(updateRef);
-            while (refIter.hasNext()) {
-                Ref precRef = refIter.next();
-                Ref realUpdateRef = updateRef.getOverlap(precRef);
-                findDeps(precRef).forEach(depRefWithMeta -> {
-                    Set<Ref> depUpdateRefSet = findUpdateDepRef(precRef, depRefWithMeta.getRef(),
-                            depRefWithMeta.getEdgeMeta(), realUpdateRef);
-                    depUpdateRefSet.forEach(depUpdateRef -> {
-                        LinkedList<Ref> overlapRef = getNonOverlapRef(resultSet.get(), depUpdateRef);
-                        overlapRef.forEach(olRef -> {
-                            resultSet.set(resultSet.get().add(olRef, RefUtils.refToRect(olRef)));
-                            result.add(olRef);
-                            if (!isDirectDep) {
-                                updateQueue.add(olRef);
-                            }
-                        });
+            for (Ref depRef : findOverlappingRefs(updateRef)) {
+                Ref realUpdateRef = updateRef.getOverlap(depRef);
+                findPrecs(depRef).forEach(precRefWithMeta -> {
+                    Set<Ref> precUpdateRefSet = findUpdatePrecRefs(precRefWithMeta.getRef(), depRef,
+                            precRefWithMeta.getEdgeMeta(), realUpdateRef, isDirectPrec);
+                    precUpdateRefSet.forEach(precUpdateRef -> {
+                        newRefs.clear();
+                        resultSet.add(precUpdateRef, newRefs);
+                        if (!isDirectPrec) {
+                            updateQueue.addAll(newRefs);
+                        }
                     });
                 });
             }
         }
+        result.addAll(resultSet.toRefs());
     }
 
-    private LinkedList<Ref> getNonOverlapRef(RTree<Ref, Rectangle> resultSet, Ref input) {
-        LinkedList<Ref> retRefList = new LinkedList<>();
-        retRefList.addLast(input);
-        resultSet.search(getRectangleFromRef(input)).forEach(refRectangleEntry -> {
-            Ref ref = refRectangleEntry.value();
-            int length = retRefList.size();
-            for (int i = 0; i < length; i++) {
-                Ref inputRef = retRefList.removeFirst();
-                inputRef.getNonOverlap(ref).forEach(retRefList::addLast);
+    /**
+     * Like findUpdatePrecRef, but a gap pattern only has formulae in every
+     * (gapSize + 1)th cell of its dep, so those are looked up one by one.
+     */
+    static Set<Ref> findUpdatePrecRefs(Ref prec, Ref dep, EdgeMeta edgeMeta,
+            Ref depRange, boolean isDirectPrec) {
+        PatternType patternType = edgeMeta.patternType;
+        if (patternType.ordinal() < PatternType.TYPEFIVE.ordinal()
+                || patternType.ordinal() > PatternType.TYPEELEVEN.ordinal()) {
+            Ref precRange = findUpdatePrecRef(prec, dep, edgeMeta, depRange, isDirectPrec);
+            return precRange == null ? Collections.emptySet() : Collections.singleton(precRange);
+        }
+
+        int step = patternType.ordinal() - PatternType.TYPEFIVE.ordinal() + 2;
+        EdgeMeta cellEdgeMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+        Set<Ref> precRanges = new HashSet<>();
+        boolean isColumnWise = dep.getColumn() == dep.getLastColumn();
+        int first = isColumnWise ? dep.getRow() : dep.getColumn();
+        int rangeFirst = isColumnWise ? depRange.getRow() : depRange.getColumn();
+        int rangeLast = isColumnWise ? depRange.getLastRow() : depRange.getLastColumn();
+        int firstFormula = first + (Math.max(rangeFirst - first, 0) + step - 1) / step * step;
+        for (int i = firstFormula; i <= rangeLast; i += step) {
+            Ref depCell = isColumnWise ? RefUtils.coordToRef(dep, i, dep.getColumn(), i, dep.getColumn())
+                    : RefUtils.coordToRef(dep, dep.getRow(), i, dep.getRow(), i);
+            Ref precRange = findUpdatePrecRef(prec, dep, cellEdgeMeta, depCell, true);
+            if (precRange != null) {
+                precRanges.add(precRange);
             }
-        });
-        return retRefList;
+        }
+        return precRanges;
+    }
+
+    /**
+     * @return the number of edges on the longest path from any cell of the
+     * area through its dependents, 0 if none of its cells has dependents
+     */
+    public long getLongestPathLength(Ref area) {
+        if (!RefUtils.isValidRef(area)) {
+            return 0;
+        }
+        return new LongestPathFinder(this).getLongestPathLength(area);
+    }
+
+    /**
+     * @return a cell where a longest dependency path of the graph starts and
+     * the number of edges on that path, or null if the graph is empty
+     */
+    public Pair<Ref, Long> getRefWithLongestDepChain() {
+        return new LongestPathFinder(this).getRefWithLongestDepChain();
+    }
+
+    /**
+     * @return the number of cells that depend on the ref, directly or not
+     */
+    public long getNumDependents(Ref ref) {
+        return new DependentCounter(this).getNumDependents(ref);
+    }
+
+    /**
+     * @return up to k cells with the most dependents and their number of
+     * dependents, most first
+     */
+    public List<Pair<Ref, Long>> getRefsWithMostDeps(int k) {
+        return new DependentCounter(this).getRefsWithMostDeps(k);
+    }
+
+    // Read in place by the writers of other formats, see MappedDependencyGraph
+    void forEachPrecRange(RangeMap.Visitor<EdgeList> visitor) {
+        precToDepList.forEach(visitor);
+    }
+
+    void forEachDepRange(RangeMap.Visitor<EdgeList> visitor) {
+        depToPrecList.forEach(visitor);
+    }
+
+    Ref getRefTemplate() {
+        return refTemplate;
+    }
+
+    List<Ref> getPrecRanges() {
+        List<Ref> precRanges = new ArrayList<>(precToDepList.size());
+        precToDepList.forEach((start, end, depList) -> precRanges.add(toRef(start, end)));
+        return precRanges;
     }
 
     public long getNumEdges() {
-        AtomicLong numEdges = new AtomicLong(0);
-        depToPrecList.forEach((dep, precSet) -> {
-            numEdges.addAndGet(precSet.size());
-        });
-        return numEdges.get();
+        return numEdges;
     }
 
     public long getNumVertices() {
-        HashSet<Ref> refSet = new HashSet<>();
-        depToPrecList.forEach((dep, precSet) -> {
-            refSet.add(dep);
-            precSet.forEach(refWithMeta -> {
-                refSet.add(refWithMeta.getRef());
-            });
-        });
-        return refSet.size();
+        RangeMap<Boolean> vertices = new RangeMap<>(depToPrecList.size() + precToDepList.size());
+        depToPrecList.forEach((start, end, precList) -> vertices.put(start, end, Boolean.TRUE));
+        precToDepList.forEach((start, end, depList) -> vertices.put(start, end, Boolean.TRUE));
+        return vertices.size();
     }
 
     public void add(Ref precedent, Ref dependent) {
@@ -110,26 +342,831 @@ public class DependencyGraphTACO implements DependencyGraph {
         }
     }
 
-    public void clearDependents(Ref delDep) {
-        assert (delDep.getRow() == delDep.getLastRow() && delDep.getColumn() == delDep.getLastColumn());
-        findOverlappingRefs(delDep).forEachRemaining(depRange -> {
+    /**
+     * Removes the edges into every cell of a cell or range. Each compressed
+     * edge into the range is split once around it, and the pieces left over
+     * keep their pattern; only single cells are compressed again. The cost
+     * follows the number of compressed edges into the range, not its area.
+     */
+    public void clearDependents(Ref delDeps) {
+        // Remove every edge into delDeps before adding back what is left of
+        // them, as those could otherwise be compressed into the edges still
+        // to be removed
+        List<Pair<Ref, RefWithMeta>> newEdges = new ArrayList<>();
+        findOverlappingRefs(delDeps).forEach(depRange -> {
             findPrecs(depRange).forEach(precRangeWithMeta -> {
                 Ref precRange = precRangeWithMeta.getRef();
                 EdgeMeta edgeMeta = precRangeWithMeta.getEdgeMeta();
-                List<Pair<Ref, RefWithMeta>> newEdges = deleteOneCell(precRange, depRange, edgeMeta, delDep);
+                int step = getStep(edgeMeta.patternType);
+                if (step > 1 && findValidGapRef(depRange, depRange.getOverlap(delDeps), step) == null) {
+                    // delDeps lies between the formulae of a gap edge
+                    return;
+                }
+                newEdges.addAll(deleteDeps(precRange, depRange, edgeMeta, delDeps));
                 deleteMemEntry(precRange, depRange, edgeMeta);
-                newEdges.forEach(pair -> {
-                    Ref newPrec = pair.first;
-                    Ref newDep = pair.second.getRef();
-                    EdgeMeta newEdgeMeta = pair.second.getEdgeMeta();
-                    if (newDep.getType() == Ref.RefType.CELL) {
-                        add(newPrec, newDep);
-                    } else {
-                        insertMemEntry(newPrec, newDep, newEdgeMeta);
+            });
+        });
+        numFragmentEdges += newEdges.size();
+        newEdges.forEach(pair -> {
+            Ref newPrec = pair.first;
+            Ref newDep = pair.second.getRef();
+            EdgeMeta newEdgeMeta = pair.second.getEdgeMeta();
+            if (newDep.getType() == Ref.RefType.CELL) {
+                add(newPrec, newDep);
+            } else {
+                insertMemEntry(newPrec, newDep, newEdgeMeta);
+            }
+        });
+    }
+
+    /**
+     * Inserts count empty rows before the given row, which moves the cells
+     * from that row on down. Ranges spanning the new rows grow around them.
+     */
+    public void insertRows(int row, int count) {
+        shiftCells(new AxisShift(true, row, count, false));
+    }
+
+    /**
+     * Deletes count rows from the given row on, which moves the cells below
+     * them up. Ranges partly in the deleted rows shrink; the formulae in
+     * them go, and so do the edges from ranges that lie in them entirely.
+     */
+    public void deleteRows(int row, int count) {
+        shiftCells(new AxisShift(true, row, count, true));
+    }
+
+    /**
+     * Inserts count empty columns, see {@link #insertRows}.
+     */
+    public void insertColumns(int col, int count) {
+        shiftCells(new AxisShift(false, col, count, false));
+    }
+
+    /**
+     * Deletes count columns, see {@link #deleteRows}.
+     */
+    public void deleteColumns(int col, int count) {
+        shiftCells(new AxisShift(false, col, count, true));
+    }
+
+    /**
+     * Rewrites the edges that reach the moved cells in place. A compressed
+     * edge keeps its pattern, with new offsets, along each run of its
+     * dependents over which the edit moves the dependent and both ends of
+     * its precedent alike; it is only split where that changes. Dependents
+     * left as single cells are compressed again, and so are those whose
+     * precedents start or end in deleted rows or columns, but the R-tree
+     * is packed once for all other edges. Changes cost the number of
+     * compressed edges after the edit, not the number of cells.
+     */
+    private void shiftCells(AxisShift shift) {
+        if (shift.at < 0 || shift.count < 0) {
+            throw new IllegalArgumentException("Cannot move " + shift.count + " cells at " + shift.at);
+        }
+        if (shift.count == 0) {
+            return;
+        }
+
+        List<Pair<Ref, RefWithMeta>> movedEdges = new ArrayList<>();
+        depToPrecList.forEach((depStart, depEnd, precList) -> {
+            Ref dep = toRef(depStart, depEnd);
+            for (int i = 0; i < precList.size(); i++) {
+                Ref prec = toRef(precList.getStart(i), precList.getEnd(i));
+                if (!shift.isBefore(prec) || !shift.isBefore(dep)) {
+                    movedEdges.add(new Pair<>(prec, new RefWithMeta(dep, precList.getEdgeMeta(i))));
+                }
+            }
+        });
+        if (movedEdges.isEmpty()) {
+            return;
+        }
+
+        List<Pair<Ref, RefWithMeta>> newEdges = new ArrayList<>();
+        List<Pair<Ref, Ref>> newCellEdges = new ArrayList<>();
+        isIndexStale = true;
+        try {
+            movedEdges.forEach(edge -> {
+                Ref prec = edge.first;
+                Ref dep = edge.second.getRef();
+                EdgeMeta edgeMeta = edge.second.getEdgeMeta();
+                deleteMemEntry(prec, dep, edgeMeta);
+                shiftEdge(prec, dep, edgeMeta, shift, newEdges, newCellEdges);
+            });
+            newEdges.forEach(edge -> {
+                if (!hasMemEntry(edge.first, edge.second.getRef(), edge.second.getEdgeMeta())) {
+                    insertMemEntry(edge.first, edge.second.getRef(), edge.second.getEdgeMeta());
+                }
+            });
+        } finally {
+            isIndexStale = false;
+            packIndex();
+        }
+        addBatch(newCellEdges);
+        if (shift.isDelete) {
+            joinRunsAtSeam(shift);
+        }
+    }
+
+    /**
+     * Joins the runs of one edge that a delete brought together again, e.g.
+     * rows inserted before: runs down a column, or along a row, with the
+     * same pattern and offsets whose dependents are one step apart and whose
+     * precedents still follow the pattern across the join.
+     */
+    private void joinRunsAtSeam(AxisShift shift) {
+        Ref seam = shift.restrict(RefUtils.coordToRef(refTemplate, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
+                Math.max(0, shift.at - MAX_STEP), shift.at + MAX_STEP - 1);
+        List<Pair<Ref, RefWithMeta>> runs = new ArrayList<>();
+        for (Ref dep : new HashSet<>(findOverlappingRefs(seam))) {
+            if (shift.first(dep) != shift.last(dep) && shift.isLine(dep)) {
+                findPrecs(dep).forEach(precWithMeta -> {
+                    if (precWithMeta.getEdgeMeta().patternType != PatternType.NOTYPE) {
+                        runs.add(new Pair<>(precWithMeta.getRef(), new RefWithMeta(dep, precWithMeta.getEdgeMeta())));
                     }
                 });
+            }
+        }
+        List<Pair<Ref, RefWithMeta>> joinedRuns = joinRuns(runs, shift);
+        if (joinedRuns.size() == runs.size()) {
+            return;
+        }
+        runs.forEach(run -> deleteMemEntry(run.first, run.second.getRef(), run.second.getEdgeMeta()));
+        joinedRuns.forEach(run -> insertMemEntry(run.first, run.second.getRef(), run.second.getEdgeMeta()));
+    }
+
+    private static int getStep(PatternType patternType) {
+        if (patternType.ordinal() >= PatternType.TYPEFIVE.ordinal()
+                && patternType.ordinal() <= PatternType.TYPEELEVEN.ordinal()) {
+            return patternType.ordinal() - PatternType.TYPEFIVE.ordinal() + 2;
+        }
+        return 1;
+    }
+
+    // Gap patterns reach their precedents like RR edges with the same offsets
+    private static EdgeMeta toPrecEdgeMeta(EdgeMeta edgeMeta) {
+        if (getStep(edgeMeta.patternType) > 1) {
+            return new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+        }
+        return edgeMeta;
+    }
+
+    // Joins each run to the one right before it where it can
+    private List<Pair<Ref, RefWithMeta>> joinRuns(List<Pair<Ref, RefWithMeta>> runs, AxisShift shift) {
+        List<Pair<Ref, RefWithMeta>> sortedRuns = new ArrayList<>(runs);
+        sortedRuns.sort(Comparator.comparingInt(run -> shift.first(run.second.getRef())));
+        Map<List<Object>, Pair<Ref, RefWithMeta>> lastRuns = new LinkedHashMap<>();
+        List<Pair<Ref, RefWithMeta>> joinedRuns = new ArrayList<>();
+        for (Pair<Ref, RefWithMeta> run : sortedRuns) {
+            Ref dep = run.second.getRef();
+            List<Object> key = Arrays.asList(run.second.getEdgeMeta(),
+                    shift.isRowAxis ? dep.getColumn() : dep.getRow());
+            Pair<Ref, RefWithMeta> lastRun = lastRuns.get(key);
+            Pair<Ref, RefWithMeta> joinedRun = lastRun == null ? null : joinRun(lastRun, run, shift);
+            if (joinedRun != null) {
+                lastRuns.put(key, joinedRun);
+            } else {
+                if (lastRun != null) {
+                    joinedRuns.add(lastRun);
+                }
+                lastRuns.put(key, run);
+            }
+        }
+        joinedRuns.addAll(lastRuns.values());
+        return joinedRuns;
+    }
+
+    private Pair<Ref, RefWithMeta> joinRun(Pair<Ref, RefWithMeta> before, Pair<Ref, RefWithMeta> after,
+            AxisShift shift) {
+        Ref beforeDep = before.second.getRef();
+        Ref afterDep = after.second.getRef();
+        EdgeMeta edgeMeta = before.second.getEdgeMeta();
+        if (shift.first(afterDep) - shift.last(beforeDep) != getStep(edgeMeta.patternType)) {
+            return null;
+        }
+        Ref prec = before.first.getBoundingBox(after.first);
+        Ref dep = beforeDep.getBoundingBox(afterDep);
+        EdgeMeta precEdgeMeta = toPrecEdgeMeta(edgeMeta);
+        Ref lastBeforeDep = RefUtils.coordToRef(beforeDep, beforeDep.getLastRow(), beforeDep.getLastColumn(),
+                beforeDep.getLastRow(), beforeDep.getLastColumn());
+        Ref firstAfterDep = RefUtils.coordToRef(afterDep, afterDep.getRow(), afterDep.getColumn(),
+                afterDep.getRow(), afterDep.getColumn());
+        if (!findUpdatePrecRef(prec, dep, precEdgeMeta, lastBeforeDep, true)
+                .equals(findUpdatePrecRef(before.first, beforeDep, precEdgeMeta, lastBeforeDep, true))
+                || !findUpdatePrecRef(prec, dep, precEdgeMeta, firstAfterDep, true)
+                .equals(findUpdatePrecRef(after.first, afterDep, precEdgeMeta, firstAfterDep, true))) {
+            return null;
+        }
+        return new Pair<>(prec, new RefWithMeta(dep, edgeMeta));
+    }
+
+    private void shiftEdge(Ref prec, Ref dep,
+            EdgeMeta edgeMeta,
+            AxisShift shift,
+            List<Pair<Ref, RefWithMeta>> newEdges,
+            List<Pair<Ref, Ref>> newCellEdges) {
+        PatternType patternType = edgeMeta.patternType;
+        int step = getStep(patternType);
+        boolean isGap = step > 1;
+        boolean isRelativeStart = isGap || patternType == PatternType.TYPEZERO
+                || patternType == PatternType.TYPEONE || patternType == PatternType.TYPETWO;
+        boolean isRelativeEnd = isGap || patternType == PatternType.TYPEZERO
+                || patternType == PatternType.TYPEONE || patternType == PatternType.TYPETHREE;
+        EdgeMeta precEdgeMeta = toPrecEdgeMeta(edgeMeta);
+
+        // Cut the dependents where the edit starts moving them, or the
+        // starts or ends of their precedents, differently
+        TreeSet<Integer> cuts = new TreeSet<>();
+        shift.addCuts(cuts, 0);
+        if (isRelativeStart) {
+            shift.addCuts(cuts, shift.along(edgeMeta.startOffset));
+        }
+        if (isRelativeEnd) {
+            shift.addCuts(cuts, shift.along(edgeMeta.endOffset));
+        }
+        int runStart = shift.first(dep);
+        for (int cut : cuts.subSet(runStart, false, shift.last(dep), true)) {
+            shiftRun(prec, dep, edgeMeta, precEdgeMeta, step, isRelativeStart, isRelativeEnd,
+                    shift.restrict(dep, runStart, cut - 1), shift, newEdges, newCellEdges);
+            runStart = cut;
+        }
+        shiftRun(prec, dep, edgeMeta, precEdgeMeta, step, isRelativeStart, isRelativeEnd,
+                shift.restrict(dep, runStart, shift.last(dep)), shift, newEdges, newCellEdges);
+    }
+
+    private void shiftRun(Ref prec, Ref dep,
+            EdgeMeta edgeMeta, EdgeMeta precEdgeMeta,
+            int step, boolean isRelativeStart, boolean isRelativeEnd,
+            Ref runDep,
+            AxisShift shift,
+            List<Pair<Ref, RefWithMeta>> newEdges,
+            List<Pair<Ref, Ref>> newCellEdges) {
+        if (step > 1) {
+            runDep = findValidGapRef(dep, runDep, step);
+        }
+        if (runDep == null || shift.isDeleted(shift.first(runDep))) {
+            return;
+        }
+        Ref firstDep = RefUtils.coordToRef(runDep, runDep.getRow(), runDep.getColumn(),
+                runDep.getRow(), runDep.getColumn());
+        Ref lastDep = RefUtils.coordToRef(runDep, runDep.getLastRow(), runDep.getLastColumn(),
+                runDep.getLastRow(), runDep.getLastColumn());
+        Ref firstPrec = findUpdatePrecRef(prec, dep, precEdgeMeta, firstDep, true);
+        Ref lastPrec = findUpdatePrecRef(prec, dep, precEdgeMeta, lastDep, true);
+
+        // A relative start or end in deleted cells stays put while the
+        // dependents move, which no pattern keeps
+        if (shift.first(runDep) != shift.last(runDep)
+                && ((isRelativeStart && shift.isDeleted(shift.first(firstPrec)))
+                || (isRelativeEnd && shift.isDeleted(shift.last(firstPrec))))) {
+            for (int row = runDep.getRow(); row <= runDep.getLastRow(); row += shift.isRowAxis ? step : 1) {
+                for (int col = runDep.getColumn(); col <= runDep.getLastColumn(); col += shift.isRowAxis ? 1 : step) {
+                    Ref cell = RefUtils.coordToRef(runDep, row, col, row, col);
+                    Ref newPrec = shift.apply(findUpdatePrecRef(prec, dep, precEdgeMeta, cell, true));
+                    if (newPrec != null) {
+                        newCellEdges.add(new Pair<>(newPrec, shift.apply(cell)));
+                    }
+                }
+            }
+            return;
+        }
+
+        Ref newFirstPrec = shift.apply(firstPrec);
+        Ref newLastPrec = shift.apply(lastPrec);
+        if (newFirstPrec == null || newLastPrec == null) {
+            return;
+        }
+        Ref newPrec = newFirstPrec.getBoundingBox(newLastPrec);
+        Ref newDep = shift.apply(runDep);
+        if (newDep.getType() == Ref.RefType.CELL) {
+            newCellEdges.add(new Pair<>(newPrec, newDep));
+        } else if (edgeMeta.patternType == PatternType.NOTYPE) {
+            newEdges.add(new Pair<>(newPrec, new RefWithMeta(newDep, edgeMeta)));
+        } else {
+            PatternType patternType = edgeMeta.patternType;
+            Pair<Offset, Offset> offsetPair = computeOffset(newPrec, newDep, patternType);
+            // Precedents no longer next to their dependents make no chain
+            if (patternType == PatternType.TYPEZERO && (!offsetPair.first.equals(edgeMeta.startOffset)
+                    || !offsetPair.second.equals(edgeMeta.endOffset))) {
+                patternType = PatternType.TYPEONE;
+            }
+            newEdges.add(new Pair<>(newPrec, new RefWithMeta(newDep,
+                    new EdgeMeta(patternType, offsetPair.first, offsetPair.second))));
+        }
+    }
+
+    /**
+     * How fragmented the graph is since it was last compressed as a whole,
+     * by bulkLoad or compact: the edges clearDependents has split off or
+     * added back one cell at a time over the number of edges it had then,
+     * or 0 if it never was. New formulae that grow the graph do not count,
+     * only the pieces left by updates that a load in order would have kept
+     * together.
+     */
+    public double getFragmentation() {
+        return numCompactEdges == 0 ? 0.0 : (double) numFragmentEdges / numCompactEdges;
+    }
+
+    /**
+     * Compresses the whole graph anew: its edges are expanded to those of
+     * the cells and loaded into a new graph, which then replaces the maps
+     * and the R-tree of this one. This takes as long as a bulkLoad of the
+     * cells, and undoes the fragmentation of incremental changes.
+     */
+    public CompactionStats compact() {
+        long numEdgesBefore = numEdges;
+        long numVerticesBefore = getNumVertices();
+
+        DependencyGraphTACO compacted = new DependencyGraphTACO(isOffHeap);
+        compacted.bulkLoad(toCellDepPairs(findAllEdges(), null));
+        precToDepList = compacted.precToDepList;
+        depToPrecList = compacted.depToPrecList;
+        edgeMetaPool = compacted.edgeMetaPool;
+        _rectToRef = compacted._rectToRef;
+        refTemplate = compacted.refTemplate;
+        numEdges = compacted.numEdges;
+        numCompactEdges = numEdges;
+        numFragmentEdges = 0;
+
+        return new CompactionStats(numEdgesBefore, numEdges, numVerticesBefore, getNumVertices());
+    }
+
+    /**
+     * Compresses the edges into the cells of a region anew, like compact
+     * does for the whole graph. The compressed edges reaching out of the
+     * region are split around it as in clearDependents, so only the cells
+     * in the region are expanded. The cells are added back in column order,
+     * so they continue the pieces left above and left of the region, and
+     * the runs and cells at its four borders are joined again. The splits
+     * are not counted as fragmentation. Should the region still come out
+     * in more edges than it went in, the changes are undone, so a graph
+     * that was compressed as a whole keeps its edges.
+     */
+    public CompactionStats compact(Ref region) {
+        long numEdgesBefore = numEdges;
+        long numVerticesBefore = getNumVertices();
+
+        List<Pair<Ref, RefWithMeta>> edges = new ArrayList<>();
+        for (Ref dep : new HashSet<>(findOverlappingRefs(region))) {
+            findPrecs(dep).forEach(precWithMeta -> edges.add(new Pair<>(precWithMeta.getRef(),
+                    new RefWithMeta(dep, precWithMeta.getEdgeMeta()))));
+        }
+        undoLog = new ArrayDeque<>();
+        List<Pair<Ref, Ref>> cellEdges = new ArrayList<>();
+        toCellDepPairs(edges, region).forEach(depPair ->
+                depPair.second.forEach(prec -> cellEdges.add(new Pair<>(prec, depPair.first))));
+        long numFragmentEdgesBefore = numFragmentEdges;
+        clearDependents(region);
+        numFragmentEdges = numFragmentEdgesBefore;
+        addBatch(cellEdges);
+
+        int row = region.getRow();
+        int col = region.getColumn();
+        int lastRow = region.getLastRow();
+        int lastCol = region.getLastColumn();
+        // Gap runs continue up to MAX_STEP lines past the border
+        stitchSeam(new AxisShift(true, row, 0, true),
+                RefUtils.coordToRef(region, Math.max(0, row - MAX_STEP), col, row + MAX_STEP - 1, lastCol));
+        stitchSeam(new AxisShift(true, lastRow + 1, 0, true),
+                RefUtils.coordToRef(region, Math.max(0, lastRow + 1 - MAX_STEP), col, lastRow + MAX_STEP, lastCol));
+        stitchSeam(new AxisShift(false, col, 0, true),
+                RefUtils.coordToRef(region, row, Math.max(0, col - MAX_STEP), lastRow, col + MAX_STEP - 1));
+        stitchSeam(new AxisShift(false, lastCol + 1, 0, true),
+                RefUtils.coordToRef(region, row, Math.max(0, lastCol + 1 - MAX_STEP), lastRow, lastCol + MAX_STEP));
+
+        Deque<Runnable> changes = undoLog;
+        undoLog = null;
+        if (numEdges > numEdgesBefore) {
+            // The cells were compressed along other lines than the edges
+            // they came from, so the region is better left as it was
+            changes.forEach(Runnable::run);
+        }
+
+        return new CompactionStats(numEdgesBefore, numEdges, numVerticesBefore, getNumVertices());
+    }
+
+    private List<Pair<Ref, RefWithMeta>> findAllEdges() {
+        List<Pair<Ref, RefWithMeta>> edges = new ArrayList<>((int) numEdges);
+        depToPrecList.forEach((depStart, depEnd, precList) -> {
+            Ref dep = toRef(depStart, depEnd);
+            for (int i = 0; i < precList.size(); i++) {
+                edges.add(new Pair<>(toRef(precList.getStart(i), precList.getEnd(i)),
+                        new RefWithMeta(dep, precList.getEdgeMeta(i))));
+            }
+        });
+        return edges;
+    }
+
+    /**
+     * The precedents of each dependent cell of the edges, in the region if
+     * there is one, sorted by column as bulkLoad needs them.
+     */
+    private static List<Pair<Ref, List<Ref>>> toCellDepPairs(List<Pair<Ref, RefWithMeta>> edges, Ref region) {
+        Comparator<Ref> byColumn = Comparator.comparingInt(Ref::getColumn).thenComparingInt(Ref::getRow);
+        Comparator<Ref> byRange = Comparator.comparingInt(Ref::getRow).thenComparingInt(Ref::getColumn)
+                .thenComparingInt(Ref::getLastRow).thenComparingInt(Ref::getLastColumn);
+        TreeMap<Ref, Set<Ref>> cellPrecs = new TreeMap<>(byColumn);
+        edges.forEach(edge -> {
+            Ref prec = edge.first;
+            Ref dep = edge.second.getRef();
+            EdgeMeta edgeMeta = edge.second.getEdgeMeta();
+            Ref cells = region == null ? dep : dep.getOverlap(region);
+            int step = getStep(edgeMeta.patternType);
+            if (cells != null && step > 1) {
+                cells = findValidGapRef(dep, cells, step);
+            }
+            if (cells == null) {
+                return;
+            }
+            boolean isColumn = dep.getColumn() == dep.getLastColumn();
+            EdgeMeta precEdgeMeta = toPrecEdgeMeta(edgeMeta);
+            for (int row = cells.getRow(); row <= cells.getLastRow(); row += isColumn ? step : 1) {
+                for (int col = cells.getColumn(); col <= cells.getLastColumn(); col += isColumn ? 1 : step) {
+                    Ref cell = RefUtils.coordToRef(dep, row, col, row, col);
+                    cellPrecs.computeIfAbsent(cell, key -> new TreeSet<>(byRange))
+                            .add(findUpdatePrecRef(prec, dep, precEdgeMeta, cell, true));
+                }
+            }
+        });
+
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>(cellPrecs.size());
+        cellPrecs.forEach((cell, precs) -> depPairs.add(new Pair<>(cell, new ArrayList<>(precs))));
+        return depPairs;
+    }
+
+    /**
+     * Builds the graph from dependency pairs sorted column by column (as
+     * returned by getSortedDepPairs(false) of SheetData), each dependent
+     * being a single cell. Edges are compressed exactly as if they were
+     * added one by one in that order, but compression candidates are looked
+     * up in hash indexes over the ends of the compressed ranges, and the
+     * R-tree is packed once at the end instead of being updated per edge.
+     *
+     * If the graph already holds edges, this falls back to {@link #add}.
+     */
+    public void bulkLoad(List<Pair<Ref, List<Ref>>> sortedDepPairs) {
+        if (!depToPrecList.isEmpty()) {
+            sortedDepPairs.forEach(depPair -> depPair.second.forEach(prec -> add(prec, depPair.first)));
+            return;
+        }
+        if (!sortedDepPairs.isEmpty()) {
+            refTemplate = sortedDepPairs.get(0).first;
+        }
+
+        bulkLoadIndex = new BulkLoadIndex();
+        try {
+            Ref lastDep = null;
+            for (Pair<Ref, List<Ref>> depPair : sortedDepPairs) {
+                Ref dep = depPair.first;
+                if (dep.getType() != Ref.RefType.CELL) {
+                    throw new IllegalArgumentException("Dependent " + dep + " is not a cell");
+                }
+                if (lastDep != null && (lastDep.getColumn() > dep.getColumn() ||
+                        (lastDep.getColumn() == dep.getColumn() && lastDep.getRow() > dep.getRow()))) {
+                    throw new IllegalArgumentException("Dependents are not sorted by column: "
+                            + lastDep + " before " + dep);
+                }
+                depPair.second.forEach(prec -> add(prec, dep));
+                lastDep = dep;
+            }
+        } catch (IllegalArgumentException e) {
+            precToDepList.clear();
+            depToPrecList.clear();
+            edgeMetaPool.clear();
+            numEdges = 0;
+            throw e;
+        } finally {
+            bulkLoadIndex = null;
+        }
+
+        packIndex();
+        numCompactEdges = numEdges;
+        numFragmentEdges = 0;
+    }
+
+    /**
+     * Builds the graph as {@link #bulkLoad} would, but on the given pool:
+     * the sorted pairs are cut into numBlocks blocks of whole columns with
+     * about as many dependents each, every block is bulk loaded into a graph
+     * of its own on a fork-join task, and the graphs are then merged with
+     * the compression stitched across the block borders (see
+     * mergeColumnStripes).
+     *
+     * Compression is greedy, and a run that crosses a border is put together
+     * from the pieces on both sides rather than edge by edge, so the graph
+     * answers every query as the sequential one does but may keep a few
+     * more edges, at most about one per pattern and border.
+     */
+    public static DependencyGraphTACO bulkLoad(List<Pair<Ref, List<Ref>>> sortedDepPairs, int numBlocks,
+            ForkJoinPool pool) {
+        if (numBlocks <= 0) {
+            throw new IllegalArgumentException("At least one block is needed: " + numBlocks);
+        }
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>(sortedDepPairs);
+        List<Integer> blockStarts = new ArrayList<>();
+        blockStarts.add(0);
+        for (int i = 1; i < numBlocks; i++) {
+            int lastStart = blockStarts.get(blockStarts.size() - 1);
+            int start = Math.max(lastStart, (int) ((long) depPairs.size() * i / numBlocks));
+            // Move the border to the first dependent of a column
+            while (start > 0 && start < depPairs.size()
+                    && depPairs.get(start - 1).first.getColumn() == depPairs.get(start).first.getColumn()) {
+                start += 1;
+            }
+            if (start > lastStart && start < depPairs.size()) {
+                blockStarts.add(start);
+            }
+        }
+        blockStarts.add(depPairs.size());
+
+        List<DependencyGraphTACO> blocks = pool.invoke(new BlockLoadTask(depPairs, blockStarts, 0,
+                blockStarts.size() - 1));
+        List<Integer> seams = new ArrayList<>();
+        for (int i = 1; i < blockStarts.size() - 1; i++) {
+            seams.add(depPairs.get(blockStarts.get(i)).first.getColumn());
+        }
+        return mergeColumnStripes(blocks, seams, false);
+    }
+
+    // Bulk loads the blocks from firstBlock up to lastBlock, halving the
+    // range until one block is left
+    private static class BlockLoadTask extends RecursiveTask<List<DependencyGraphTACO>> {
+        private static final long serialVersionUID = 1L;
+        private final List<Pair<Ref, List<Ref>>> depPairs;
+        private final List<Integer> blockStarts;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        BlockLoadTask(List<Pair<Ref, List<Ref>>> depPairs, List<Integer> blockStarts, int firstBlock,
+                      int lastBlock) {
+            this.depPairs = depPairs;
+            this.blockStarts = blockStarts;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected List<DependencyGraphTACO> compute() {
+            if (lastBlock - firstBlock <= 1) {
+                DependencyGraphTACO depGraph = new DependencyGraphTACO();
+                depGraph.bulkLoad(depPairs.subList(blockStarts.get(firstBlock), blockStarts.get(lastBlock)));
+                return new ArrayList<>(Collections.singletonList(depGraph));
+            }
+            int middle = (firstBlock + lastBlock) / 2;
+            BlockLoadTask right = new BlockLoadTask(depPairs, blockStarts, middle, lastBlock);
+            right.fork();
+            List<DependencyGraphTACO> blocks = new BlockLoadTask(depPairs, blockStarts, firstBlock, middle).compute();
+            blocks.addAll(right.join());
+            return blocks;
+        }
+    }
+
+    // Replaces whatever _rectToRef holds with both ends of every edge
+    private void packIndex() {
+        int numEndpoints = (int) (2 * getNumEdges());
+        long[] starts = new long[numEndpoints];
+        long[] ends = new long[numEndpoints];
+        int[] numLoaded = new int[1];
+        depToPrecList.forEach((depStart, depEnd, precList) -> {
+            for (int j = 0; j < precList.size(); j++) {
+                int i = numLoaded[0];
+                starts[i] = precList.getStart(j);
+                ends[i] = precList.getEnd(j);
+                starts[i + 1] = depStart;
+                ends[i + 1] = depEnd;
+                numLoaded[0] += 2;
+            }
+        });
+        _rectToRef.clear();
+        _rectToRef.load(starts, ends);
+    }
+
+    /**
+     * Builds a graph from graphs over disjoint stripes of columns, e.g. built
+     * by different threads. Their compressed edges are put in as they are,
+     * the R-tree is packed once, and then each seam, the first column of a
+     * stripe after the first, is stitched: runs along a row that the seam
+     * cut are joined as after a column delete, and the edges into single
+     * cells next to the seam are added again, so they compress with their
+     * neighbours on the other side.
+     */
+    static DependencyGraphTACO mergeColumnStripes(List<DependencyGraphTACO> stripes, List<Integer> seams,
+            boolean isOffHeap) {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO(isOffHeap);
+        for (DependencyGraphTACO stripe : stripes) {
+            if (stripe.depToPrecList.isEmpty()) {
+                continue;
+            }
+            if (depGraph.depToPrecList.isEmpty()) {
+                depGraph.refTemplate = stripe.refTemplate;
+            }
+            stripe.depToPrecList.forEach((depStart, depEnd, precList) -> {
+                for (int i = 0; i < precList.size(); i++) {
+                    depGraph.insertPackedEntry(precList.getStart(i), precList.getEnd(i),
+                            depStart, depEnd, depGraph.poolEdgeMeta(precList.getEdgeMeta(i)));
+                }
             });
+        }
+        depGraph.packIndex();
+        seams.forEach(depGraph::stitchColumnSeam);
+        depGraph.numCompactEdges = depGraph.numEdges;
+        depGraph.numFragmentEdges = 0;
+        return depGraph;
+    }
+
+    private void stitchColumnSeam(int col) {
+        stitchSeam(new AxisShift(false, col, 0, true),
+                RefUtils.coordToRef(refTemplate, 0, Math.max(0, col - 1), Integer.MAX_VALUE, col));
+    }
+
+    // Joins the runs that continue across a seam, and compresses the
+    // single-cell edges in the lines next to it again
+    private void stitchSeam(AxisShift seam, Ref seamLines) {
+        joinRunsAtSeam(seam);
+
+        List<Pair<Ref, Ref>> cellEdges = new ArrayList<>();
+        for (Ref dep : new HashSet<>(findOverlappingRefs(seamLines))) {
+            if (dep.getType() == Ref.RefType.CELL) {
+                findPrecs(dep).forEach(precWithMeta -> {
+                    deleteMemEntry(precWithMeta.getRef(), dep, precWithMeta.getEdgeMeta());
+                    cellEdges.add(new Pair<>(precWithMeta.getRef(), dep));
+                });
+            }
+        }
+        addBatch(cellEdges);
+    }
+
+    /**
+     * A graph with copies of the maps and the R-tree of this one, in the
+     * same storage mode, that changes independently.
+     */
+    DependencyGraphTACO copy() {
+        DependencyGraphTACO copy = new DependencyGraphTACO(isOffHeap);
+        copy.precToDepList = precToDepList.copy();
+        copy.depToPrecList = depToPrecList.copy();
+        copy.edgeMetaPool.putAll(edgeMetaPool);
+        copy._rectToRef = _rectToRef.copy();
+        copy.refTemplate = refTemplate;
+        copy.numEdges = numEdges;
+        copy.numCompactEdges = numCompactEdges;
+        copy.numFragmentEdges = numFragmentEdges;
+        return copy;
+    }
+
+    /**
+     * Writes the compressed graph in a compact binary format that
+     * {@link #load(InputStream)} reads back. The stream is flushed but not
+     * closed.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    /**
+     * Writes the graph as one section of a larger stream.
+     *
+     * The format is a magic number and a version, the book and sheet
+     * names, a table of the distinct EdgeMetas, then every dependent range
+     * with its precedents. Numbers are varints (see {@link VarInts});
+     * dependents are sorted by column and each is stored relative to the
+     * one before, its precedents relative to it, so the ranges of a
+     * compressed graph take a few bytes each.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_MAGIC);
+        VarInts.writeUnsigned(out, FORMAT_VERSION);
+        VarInts.writeString(out, refTemplate.getBookName());
+        VarInts.writeString(out, refTemplate.getSheetName());
+
+        Map<EdgeMeta, Integer> edgeMetaIds = new HashMap<>();
+        List<EdgeMeta> edgeMetas = new ArrayList<>();
+        List<long[]> deps = new ArrayList<>(depToPrecList.size());
+        depToPrecList.forEach((depStart, depEnd, precList) -> {
+            deps.add(new long[]{depStart, depEnd});
+            for (int i = 0; i < precList.size(); i++) {
+                edgeMetaIds.computeIfAbsent(precList.getEdgeMeta(i), edgeMeta -> {
+                    edgeMetas.add(edgeMeta);
+                    return edgeMetas.size() - 1;
+                });
+            }
         });
+        VarInts.writeUnsigned(out, edgeMetas.size());
+        for (EdgeMeta edgeMeta : edgeMetas) {
+            VarInts.writeUnsigned(out, edgeMeta.patternType.ordinal());
+            VarInts.writeSigned(out, edgeMeta.startOffset.getRowOffset());
+            VarInts.writeSigned(out, edgeMeta.startOffset.getColOffset());
+            VarInts.writeSigned(out, edgeMeta.endOffset.getRowOffset());
+            VarInts.writeSigned(out, edgeMeta.endOffset.getColOffset());
+        }
+
+        deps.sort(Comparator.<long[]>comparingInt(dep -> PackedRange.col(dep[0]))
+                .thenComparingInt(dep -> PackedRange.row(dep[0]))
+                .thenComparingLong(dep -> dep[1]));
+        VarInts.writeUnsigned(out, deps.size());
+        int lastRow = 0, lastCol = 0;
+        for (long[] dep : deps) {
+            int row = PackedRange.row(dep[0]), col = PackedRange.col(dep[0]);
+            VarInts.writeSigned(out, (long) col - lastCol);
+            VarInts.writeSigned(out, (long) row - lastRow);
+            writeSize(out, dep[0], dep[1]);
+            EdgeList precList = depToPrecList.get(dep[0], dep[1]);
+            VarInts.writeUnsigned(out, precList.size());
+            for (int i = 0; i < precList.size(); i++) {
+                long precStart = precList.getStart(i);
+                VarInts.writeSigned(out, (long) PackedRange.row(precStart) - row);
+                VarInts.writeSigned(out, (long) PackedRange.col(precStart) - col);
+                writeSize(out, precStart, precList.getEnd(i));
+                VarInts.writeUnsigned(out, edgeMetaIds.get(precList.getEdgeMeta(i)));
+            }
+            lastRow = row;
+            lastCol = col;
+        }
+    }
+
+    private static void writeSize(DataOutput out, long start, long end) throws IOException {
+        VarInts.writeUnsigned(out, (long) PackedRange.row(end) - PackedRange.row(start));
+        VarInts.writeUnsigned(out, (long) PackedRange.col(end) - PackedRange.col(start));
+    }
+
+    private static long readEnd(DataInput in, int row, int col) throws IOException {
+        return PackedRange.pack(row + VarInts.readCount(in), col + VarInts.readCount(in));
+    }
+
+    /**
+     * Reads a graph written by {@link #save(OutputStream)}. The stream is
+     * buffered, so it may be read past the end of the graph; use
+     * {@link #readFrom(DataInput)} for a graph in the middle of a stream.
+     * The edges are put into the maps as they were saved, without
+     * compressing them again, and the R-tree is packed once at the end.
+     */
+    public static DependencyGraphTACO load(InputStream in) throws IOException {
+        return load(in, false);
+    }
+
+    /**
+     * @param isOffHeap see {@link #DependencyGraphTACO(boolean)}
+     */
+    public static DependencyGraphTACO load(InputStream in, boolean isOffHeap) throws IOException {
+        return readFrom(new DataInputStream(new BufferedInputStream(in)), isOffHeap);
+    }
+
+    public static DependencyGraphTACO readFrom(DataInput in) throws IOException {
+        return readFrom(in, false);
+    }
+
+    public static DependencyGraphTACO readFrom(DataInput in, boolean isOffHeap) throws IOException {
+        if (in.readInt() != FORMAT_MAGIC) {
+            throw new IOException("Not a saved dependency graph");
+        }
+        int version = VarInts.readCount(in);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported dependency graph version " + version);
+        }
+        DependencyGraphTACO depGraph = new DependencyGraphTACO(isOffHeap);
+        String bookName = VarInts.readString(in);
+        String sheetName = VarInts.readString(in);
+        depGraph.refTemplate = new RefImpl(bookName, sheetName, 0, 0);
+
+        PatternType[] patternTypes = PatternType.values();
+        EdgeMeta[] edgeMetas = new EdgeMeta[VarInts.readCount(in)];
+        for (int i = 0; i < edgeMetas.length; i++) {
+            int ordinal = VarInts.readCount(in);
+            if (ordinal >= patternTypes.length) {
+                throw new IOException("Unknown pattern type " + ordinal);
+            }
+            Offset startOffset = Offset.of(VarInts.readSignedInt(in), VarInts.readSignedInt(in));
+            Offset endOffset = Offset.of(VarInts.readSignedInt(in), VarInts.readSignedInt(in));
+            edgeMetas[i] = new EdgeMeta(patternTypes[ordinal], startOffset, endOffset);
+            depGraph.edgeMetaPool.put(edgeMetas[i], edgeMetas[i]);
+        }
+
+        int numDeps = VarInts.readCount(in);
+        int row = 0, col = 0;
+        for (int i = 0; i < numDeps; i++) {
+            col += VarInts.readSignedInt(in);
+            row += VarInts.readSignedInt(in);
+            long depStart = PackedRange.pack(row, col);
+            long depEnd = readEnd(in, row, col);
+            int numPrecs = VarInts.readCount(in);
+            for (int j = 0; j < numPrecs; j++) {
+                int precRow = row + VarInts.readSignedInt(in);
+                int precCol = col + VarInts.readSignedInt(in);
+                long precEnd = readEnd(in, precRow, precCol);
+                int edgeMetaId = VarInts.readCount(in);
+                if (edgeMetaId >= edgeMetas.length) {
+                    throw new IOException("Unknown edge meta " + edgeMetaId);
+                }
+                depGraph.insertPackedEntry(PackedRange.pack(precRow, precCol), precEnd,
+                        depStart, depEnd, edgeMetas[edgeMetaId]);
+            }
+        }
+
+        depGraph.packIndex();
+        depGraph.numCompactEdges = depGraph.numEdges;
+        depGraph.numFragmentEdges = 0;
+        return depGraph;
     }
 
     public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
@@ -154,139 +1191,163 @@ public class DependencyGraphTACO implements DependencyGraph {
     private void insertMemEntry(Ref prec,
             Ref dep,
             EdgeMeta edgeMeta) {
-        List<RefWithMeta> depList = precToDepList.getOrDefault(prec, new LinkedList<>());
-        depList.add(new RefWithMeta(dep, edgeMeta));
-        precToDepList.put(prec, depList);
+        if (depToPrecList.isEmpty()) {
+            refTemplate = dep;
+        }
+        long precStart = PackedRange.start(prec), precEnd = PackedRange.end(prec);
+        long depStart = PackedRange.start(dep), depEnd = PackedRange.end(dep);
 
-        List<RefWithMeta> precList = depToPrecList.getOrDefault(dep, new LinkedList<>());
-        precList.add(new RefWithMeta(prec, edgeMeta));
-        depToPrecList.put(dep, precList);
+        boolean isNewDep = insertPackedEntry(precStart, precEnd, depStart, depEnd, poolEdgeMeta(edgeMeta));
+        if (undoLog != null) {
+            undoLog.push(() -> deleteMemEntry(prec, dep, edgeMeta));
+        }
+        if (isNewDep && bulkLoadIndex != null) {
+            bulkLoadIndex.addDep(dep);
+        }
 
-        _rectToRef = _rectToRef.add(prec, RefUtils.refToRect(prec));
-        _rectToRef = _rectToRef.add(dep, RefUtils.refToRect(dep));
+        if (bulkLoadIndex == null && !isIndexStale) {
+            _rectToRef.add(precStart, precEnd);
+            _rectToRef.add(depStart, depEnd);
+        }
     }
 
+    private EdgeMeta poolEdgeMeta(EdgeMeta edgeMeta) {
+        EdgeMeta pooledEdgeMeta = edgeMetaPool.putIfAbsent(edgeMeta, edgeMeta);
+        return pooledEdgeMeta != null ? pooledEdgeMeta : edgeMeta;
+    }
+
+    // Adds the edge to both maps only; true if the dependent had no edges
+    private boolean insertPackedEntry(long precStart, long precEnd,
+            long depStart, long depEnd,
+            EdgeMeta edgeMeta) {
+        precToDepList.add(precStart, precEnd, depStart, depEnd, edgeMeta);
+        boolean isNewDep = depToPrecList.add(depStart, depEnd, precStart, precEnd, edgeMeta);
+        numEdges += 1;
+        return isNewDep;
+    }
+
+
     private void deleteMemEntry(Ref prec,
             Ref dep,
             EdgeMeta edgeMeta) {
-        List<RefWithMeta> depList = precToDepList.get(prec);
-        if (depList != null) {
-            depList.remove(new RefWithMeta(dep, edgeMeta));
-            if (depList.isEmpty()) {
-                precToDepList.remove(prec);
+        long precStart = PackedRange.start(prec), precEnd = PackedRange.end(prec);
+        long depStart = PackedRange.start(dep), depEnd = PackedRange.end(dep);
+
+        precToDepList.remove(precStart, precEnd, depStart, depEnd, edgeMeta);
+        if (depToPrecList.remove(depStart, depEnd, precStart, precEnd, edgeMeta)) {
+            numEdges -= 1;
+            if (undoLog != null) {
+                undoLog.push(() -> insertMemEntry(prec, dep, edgeMeta));
             }
-        }
-
-        List<RefWithMeta> precList = depToPrecList.get(dep);
-        if (precList != null) {
-            precList.remove(new RefWithMeta(prec, edgeMeta));
-            if (precList.isEmpty()) {
-                depToPrecList.remove(dep);
+            if (bulkLoadIndex != null && !depToPrecList.containsKey(depStart, depEnd)) {
+                bulkLoadIndex.removeDep(dep);
             }
         }
 
-        _rectToRef = _rectToRef.delete(prec, RefUtils.refToRect(prec));
-        _rectToRef = _rectToRef.delete(dep, RefUtils.refToRect(dep));
+        if (bulkLoadIndex == null && !isIndexStale) {
+            _rectToRef.delete(precStart, precEnd);
+            _rectToRef.delete(depStart, depEnd);
+        }
     }
 
-    private Iterator<Ref> findOverlappingRefs(Ref updateRef) {
-        Iterator<Ref> refIter = null;
+    private boolean hasMemEntry(Ref prec, Ref dep, EdgeMeta edgeMeta) {
+        EdgeList depList = precToDepList.get(PackedRange.start(prec), PackedRange.end(prec));
+        if (depList == null) {
+            return false;
+        }
+        long depStart = PackedRange.start(dep), depEnd = PackedRange.end(dep);
+        for (int i = 0; i < depList.size(); i++) {
+            if (depList.getStart(i) == depStart && depList.getEnd(i) == depEnd
+                    && depList.getEdgeMeta(i).equals(edgeMeta)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    // A copy, so callers may update the graph while going through it
+    List<Ref> findOverlappingRefs(Ref updateRef) {
         if (updateRef == null) {
-            return new Iterator<Ref>() {
-                @Override
-                public boolean hasNext() {
-                    return false;
-                }
-
-                @Override
-                public Ref next() {
-                    return null;
-                }
-            };
+            return Collections.emptyList();
         }
+        List<Ref> refs = new ArrayList<>();
+        findOverlappingRefs(updateRef, refs);
+        return refs;
+    }
 
-        Iterator<Entry<Ref, Rectangle>> entryIter = _rectToRef.search(getRectangleFromRef(updateRef)).toBlocking()
-                .getIterator();
-        refIter = Iterators.transform(entryIter, new Function<Entry<Ref, Rectangle>, Ref>() {
-            @Override
-            public @Nullable Ref apply(@Nullable Entry<Ref, Rectangle> refRectangleEntry) {
-                return refRectangleEntry.value();
-            }
-        });
-
-        return refIter;
+    private void findOverlappingRefs(Ref updateRef, List<Ref> refs) {
+        _rectToRef.search(PackedRange.start(updateRef), PackedRange.end(updateRef),
+                (start, end) -> refs.add(toRef(start, end)));
     }
 
-    private Iterable<RefWithMeta> findPrecs(Ref dep) {
-        List<RefWithMeta> precIter;
-        precIter = depToPrecList.getOrDefault(dep, new LinkedList<>());
-        return precIter;
+    // Copies as well, see findOverlappingRefs
+    Iterable<RefWithMeta> findPrecs(Ref dep) {
+        EdgeList precList = depToPrecList.get(PackedRange.start(dep), PackedRange.end(dep));
+        return precList == null ? Collections.emptyList() : toRefWithMetaList(precList);
     }
 
-    private Iterable<RefWithMeta> findDeps(Ref prec) {
-        List<RefWithMeta> depIter = null;
-        depIter = precToDepList.getOrDefault(prec, new LinkedList<>());
-        return depIter;
+    Iterable<RefWithMeta> findDeps(Ref prec) {
+        EdgeList depList = precToDepList.get(PackedRange.start(prec), PackedRange.end(prec));
+        return depList == null ? Collections.emptyList() : toRefWithMetaList(depList);
     }
 
-    private List<Pair<Ref, RefWithMeta>> deleteOneCell(Ref prec, Ref dep,
+    private List<Pair<Ref, RefWithMeta>> deleteDeps(Ref prec, Ref dep,
             EdgeMeta edgeMeta,
-            Ref delDep) {
+            Ref delDeps) {
         List<Pair<Ref, RefWithMeta>> ret = new LinkedList<>();
         boolean isDirectPrec = true;
-        splitRangeByOneCell(dep, delDep).forEach(splitDep -> {
+        splitRangeByRange(dep, delDeps).forEach(splitDep -> {
             Ref newSplitDep = splitDep;
+            EdgeMeta precEdgeMeta = edgeMeta;
             PatternType patternType = edgeMeta.patternType;
             if (patternType.ordinal() >= PatternType.TYPEFIVE.ordinal()
                     && patternType.ordinal() <= PatternType.TYPEELEVEN.ordinal()) {
+                // Formulae are gapSize + 1 cells apart, and refer to their
+                // precedents like RR edges with the same offsets
                 int gapSize = patternType.ordinal() - PatternType.TYPEFIVE.ordinal() + 1;
-                newSplitDep = findValidGapRef(dep, splitDep, gapSize);
+                newSplitDep = findValidGapRef(dep, splitDep, gapSize + 1);
+                precEdgeMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
             }
             if (newSplitDep != null) {
-                Ref splitPrec = findUpdatePrecRef(prec, dep, edgeMeta, newSplitDep, isDirectPrec);
-                ret.add(new Pair<>(splitPrec, new RefWithMeta(splitDep, edgeMeta)));
+                Ref splitPrec = findUpdatePrecRef(prec, dep, precEdgeMeta, newSplitDep, isDirectPrec);
+                ret.add(new Pair<>(splitPrec, new RefWithMeta(newSplitDep, edgeMeta)));
             }
         });
-        if (ret.isEmpty()) {
-            ret.add(new Pair<>(prec, new RefWithMeta(dep, edgeMeta)));
-        }
+        // Nothing is left when delDeps covers all of dep
         return ret;
     }
 
-    private List<Ref> splitRangeByOneCell(Ref dep, Ref delDep) {
+    // The parts of dep outside delDeps: the rows above and below it, and
+    // the cells left and right of it in its rows
+    private List<Ref> splitRangeByRange(Ref dep, Ref delDeps) {
         int firstRow = dep.getRow();
         int firstCol = dep.getColumn();
         int lastRow = dep.getLastRow();
         int lastCol = dep.getLastColumn();
 
-        int delRow = delDep.getRow();
-        int delCol = delDep.getColumn();
+        int delRow = Math.max(delDeps.getRow(), firstRow);
+        int delCol = Math.max(delDeps.getColumn(), firstCol);
+        int delLastRow = Math.min(delDeps.getLastRow(), lastRow);
+        int delLastCol = Math.min(delDeps.getLastColumn(), lastCol);
 
-        assert (firstRow == lastRow || firstCol == lastCol);
         List<Ref> refList = new LinkedList<>();
-
-        // This range is actually a cell
-        if (firstRow == lastRow && firstCol == lastCol) {
+        if (delRow > delLastRow || delCol > delLastCol) {
+            refList.add(dep);
             return refList;
         }
 
-        if (firstRow == lastRow) { // Row range
-            if (delCol != firstCol) {
-                refList.add(RefUtils.coordToRef(dep, firstRow, firstCol, lastRow, delCol - 1));
-            }
-            if (delCol != lastCol) {
-                refList.add(RefUtils.coordToRef(dep, firstRow, delCol + 1, lastRow, lastCol));
-            }
-        } else { // Column range
-            if (delRow != firstRow) {
-                refList.add(RefUtils.coordToRef(dep, firstRow, firstCol, delRow - 1, lastCol));
-            }
-            if (delRow != lastRow) {
-                refList.add(RefUtils.coordToRef(dep, delRow + 1, firstCol, lastRow, lastCol));
-            }
+        if (delRow != firstRow) {
+            refList.add(RefUtils.coordToRef(dep, firstRow, firstCol, delRow - 1, lastCol));
+        }
+        if (delCol != firstCol) {
+            refList.add(RefUtils.coordToRef(dep, delRow, firstCol, delLastRow, delCol - 1));
+        }
+        if (delLastCol != lastCol) {
+            refList.add(RefUtils.coordToRef(dep, delRow, delLastCol + 1, delLastRow, lastCol));
+        }
+        if (delLastRow != lastRow) {
+            refList.add(RefUtils.coordToRef(dep, delLastRow + 1, firstCol, lastRow, lastCol));
         }
-
         return refList;
     }
 
@@ -329,30 +1390,23 @@ public class DependencyGraphTACO implements DependencyGraph {
     private CompressInfo findCompressionPatternWithGap(Ref prec, Ref dep,
             Ref candPrec, Ref candDep, EdgeMeta metaData,
             int gapSize, PatternType patternType) {
-        if (dep.getColumn() == candDep.getColumn() && candDep.getLastRow() - dep.getRow() == -(gapSize + 1)) {
-            if (metaData.patternType == PatternType.NOTYPE) {
-                Offset offsetStartA = RefUtils.refToOffset(prec, dep, true);
-                Offset offsetStartB = RefUtils.refToOffset(candPrec, candDep, true);
-
-                Offset offsetEndA = RefUtils.refToOffset(prec, dep, false);
-                Offset offsetEndB = RefUtils.refToOffset(candPrec, candDep, false);
-
-                if (offsetStartA.equals(offsetStartB) &&
-                        offsetEndA.equals(offsetEndB)) {
-                    return new CompressInfo(false, Direction.TODOWN, patternType,
-                            prec, dep, candPrec, candDep, metaData);
-                }
-            } else if (metaData.patternType == patternType) {
-                Offset offsetStartA = RefUtils.refToOffset(prec, dep, true);
-                Offset offsetEndA = RefUtils.refToOffset(prec, dep, false);
-
-                if (offsetStartA.equals(metaData.startOffset) &&
-                        offsetEndA.equals(metaData.endOffset)) {
-                    return new CompressInfo(false, Direction.TODOWN, patternType,
-                            prec, dep, candPrec, candDep, metaData);
-                }
+        // The cell may continue the run on either side, as when it is added
+        // back above a run that clearDependents has split
+        Direction direction = Direction.NODIRECTION;
+        if (dep.getColumn() == candDep.getColumn()) {
+            if (candDep.getLastRow() - dep.getRow() == -(gapSize + 1)) {
+                direction = Direction.TODOWN;
+            } else if (candDep.getRow() - dep.getLastRow() == gapSize + 1) {
+                direction = Direction.TOUP;
+            }
+        } else if (dep.getRow() == candDep.getRow()) {
+            if (candDep.getLastColumn() - dep.getColumn() == -(gapSize + 1)) {
+                direction = Direction.TORIGHT;
+            } else if (candDep.getColumn() - dep.getLastColumn() == gapSize + 1) {
+                direction = Direction.TOLEFT;
             }
-        } else if (dep.getRow() == candDep.getRow() && candDep.getLastColumn() - dep.getColumn() == -(gapSize + 1)) {
+        }
+        if (direction != Direction.NODIRECTION) {
             if (metaData.patternType == PatternType.NOTYPE) {
                 Offset offsetStartA = RefUtils.refToOffset(prec, dep, true);
                 Offset offsetStartB = RefUtils.refToOffset(candPrec, candDep, true);
@@ -362,7 +1416,7 @@ public class DependencyGraphTACO implements DependencyGraph {
 
                 if (offsetStartA.equals(offsetStartB) &&
                         offsetEndA.equals(offsetEndB)) {
-                    return new CompressInfo(false, Direction.TORIGHT, patternType,
+                    return new CompressInfo(false, direction, patternType,
                             prec, dep, candPrec, candDep, metaData);
                 }
             } else if (metaData.patternType == patternType) {
@@ -371,7 +1425,7 @@ public class DependencyGraphTACO implements DependencyGraph {
 
                 if (offsetStartA.equals(metaData.startOffset) &&
                         offsetEndA.equals(metaData.endOffset)) {
-                    return new CompressInfo(false, Direction.TORIGHT, patternType,
+                    return new CompressInfo(false, direction, patternType,
                             prec, dep, candPrec, candDep, metaData);
                 }
             }
@@ -423,12 +1477,32 @@ public class DependencyGraphTACO implements DependencyGraph {
         }
     }
 
+    // Only a fixed range is a precedent of every cell of its dependent
+    // range, other patterns cover the edge if the dependent reaches it
+    private boolean isCoveredEdge(Ref prec, Ref dep,
+            Ref candPrec, Ref candDep, EdgeMeta metaData) {
+        PatternType patternType = metaData.patternType;
+        if (patternType == PatternType.NOTYPE || patternType == PatternType.TYPEFOUR) {
+            return true;
+        }
+        if (dep.getType() != Ref.RefType.CELL) {
+            return false;
+        }
+        for (Ref precRange : findUpdatePrecRefs(candPrec, candDep, metaData, dep, true)) {
+            if (isSubsume(precRange, prec)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private CompressInfo findCompressionPattern(Ref prec, Ref dep,
             Ref candPrec, Ref candDep, EdgeMeta metaData) {
         PatternType curCompType = metaData.patternType;
 
         // Check the duplicate edge
-        if (isSubsume(candPrec, prec) && isSubsume(candDep, dep)) {
+        if (isSubsume(candPrec, prec) && isSubsume(candDep, dep)
+                && isCoveredEdge(prec, dep, candPrec, candDep, metaData)) {
             return new CompressInfo(true, Direction.NODIRECTION, curCompType,
                     prec, dep, candPrec, candDep, metaData);
         }
@@ -485,10 +1559,15 @@ public class DependencyGraphTACO implements DependencyGraph {
         LinkedList<Ref> res = new LinkedList<>();
         int shift_step = gapSize + DEAULT_SHIFT_STEP;
 
-        findOverlappingRefs(ref).forEachRemaining(res::addLast);
+        if (bulkLoadIndex != null) {
+            bulkLoadIndex.findOverlapAndAdjacency(ref, shift_step, res);
+            return res;
+        }
+
+        res.addAll(findOverlappingRefs(ref));
         Arrays.stream(Direction.values()).filter(direction -> direction != Direction.NODIRECTION)
                 .forEach(direction -> findOverlappingRefs(shiftRef(ref, direction, shift_step))
-                        .forEachRemaining(adjRef -> {
+                        .forEach(adjRef -> {
                             if (isValidAdjacency(adjRef, ref, shift_step)) {
                                 res.addLast(adjRef); // valid adjacency
                             }
@@ -499,16 +1578,19 @@ public class DependencyGraphTACO implements DependencyGraph {
 
     public String getCompressInfo() {
         Map<PatternType, Integer> typeCount = new HashMap<>();
-        depToPrecList.keySet().forEach(dep -> {
-            List<RefWithMeta> precWithMetaList = depToPrecList.get(dep);
-            precWithMetaList.forEach(precWithMeta -> {
-                PatternType pType = precWithMeta.getPatternType();
+        depToPrecList.forEach((depStart, depEnd, precList) -> {
+            for (int i = 0; i < precList.size(); i++) {
+                PatternType pType = precList.getEdgeMeta(i).patternType;
                 int count = typeCount.getOrDefault(pType, 0);
                 count += 1;
                 typeCount.put(pType, count);
-            });
+            }
         });
+        return formatCompressInfo(typeCount);
+    }
 
+    // All gap patterns are counted together, as RRGap
+    static String formatCompressInfo(Map<PatternType, Integer> typeCount) {
         StringBuilder stringBuilder = new StringBuilder();
         int gapCount = 0;
         for (PatternType pType : PatternType.values()) {
@@ -533,6 +1615,159 @@ public class DependencyGraphTACO implements DependencyGraph {
         return stringBuilder.toString();
     }
 
+    /**
+     * Where a row or column edit moves the rows or columns: those before at
+     * stay, and those from at on move down or right by count for an insert.
+     * A delete removes the count rows or columns from at on, and moves the
+     * ones after them back.
+     */
+    private static class AxisShift {
+        private final boolean isRowAxis;
+        private final int at;
+        private final int count;
+        private final boolean isDelete;
+
+        AxisShift(boolean isRowAxis, int at, int count, boolean isDelete) {
+            this.isRowAxis = isRowAxis;
+            this.at = at;
+            this.count = count;
+            this.isDelete = isDelete;
+        }
+
+        int first(Ref ref) {
+            return isRowAxis ? ref.getRow() : ref.getColumn();
+        }
+
+        int last(Ref ref) {
+            return isRowAxis ? ref.getLastRow() : ref.getLastColumn();
+        }
+
+        int along(Offset offset) {
+            return isRowAxis ? offset.getRowOffset() : offset.getColOffset();
+        }
+
+        // Down one column for rows, along one row for columns
+        boolean isLine(Ref ref) {
+            return isRowAxis ? ref.getColumn() == ref.getLastColumn() : ref.getRow() == ref.getLastRow();
+        }
+
+        boolean isBefore(Ref ref) {
+            return last(ref) < at;
+        }
+
+        boolean isDeleted(int x) {
+            return isDelete && x >= at && x < at + count;
+        }
+
+        private int move(int x) {
+            if (x < at) {
+                return x;
+            }
+            return isDelete ? x - count : x + count;
+        }
+
+        // Where x - offset, e.g. a relative start, starts moving differently
+        void addCuts(Set<Integer> cuts, int offset) {
+            cuts.add(at + offset);
+            if (isDelete) {
+                cuts.add(at + count + offset);
+            }
+        }
+
+        Ref restrict(Ref ref, int first, int last) {
+            return isRowAxis
+                    ? RefUtils.coordToRef(ref, first, ref.getColumn(), last, ref.getLastColumn())
+                    : RefUtils.coordToRef(ref, ref.getRow(), first, ref.getLastRow(), last);
+        }
+
+        /**
+         * @return the moved ref, or null if it lies in deleted cells entirely
+         */
+        Ref apply(Ref ref) {
+            int first = isDeleted(first(ref)) ? at : move(first(ref));
+            int last = isDeleted(last(ref)) ? at - 1 : move(last(ref));
+            if (first > last) {
+                return null;
+            }
+            return restrict(ref, first, last);
+        }
+    }
+
+    /**
+     * Stands in for the R-tree during bulkLoad. Dependents arrive column by
+     * column and top-down, so a compressed dependent can only overlap or be
+     * adjacent to the incoming cell if it is a column range (or cell) ending
+     * right above it or a row range ending right to its left. Dependents are
+     * therefore indexed by where they end.
+     */
+    private static class BulkLoadIndex {
+        // Column ranges and cells, by (column, last row)
+        private final Map<Long, List<Ref>> columnEnds = new HashMap<>();
+        // Row ranges, by (row, last column)
+        private final Map<Long, List<Ref>> rowEnds = new HashMap<>();
+
+        private static long key(int a, int b) {
+            return ((long) a << 32) | (b & 0xffffffffL);
+        }
+
+        private static boolean isColumnShaped(Ref dep) {
+            return dep.getColumn() == dep.getLastColumn();
+        }
+
+        void addDep(Ref dep) {
+            if (isColumnShaped(dep)) {
+                columnEnds.computeIfAbsent(key(dep.getColumn(), dep.getLastRow()),
+                        k -> new ArrayList<>()).add(dep);
+            } else if (dep.getRow() == dep.getLastRow()) {
+                rowEnds.computeIfAbsent(key(dep.getRow(), dep.getLastColumn()),
+                        k -> new ArrayList<>()).add(dep);
+            }
+        }
+
+        void removeDep(Ref dep) {
+            Map<Long, List<Ref>> ends;
+            long endKey;
+            if (isColumnShaped(dep)) {
+                ends = columnEnds;
+                endKey = key(dep.getColumn(), dep.getLastRow());
+            } else {
+                ends = rowEnds;
+                endKey = key(dep.getRow(), dep.getLastColumn());
+            }
+            List<Ref> depList = ends.get(endKey);
+            if (depList != null) {
+                depList.remove(dep);
+                if (depList.isEmpty()) {
+                    ends.remove(endKey);
+                }
+            }
+        }
+
+        /**
+         * Same candidates, in the same direction order, as the R-tree search
+         * in findOverlapAndAdjacency: the overlapping dependents, the ones
+         * ending shiftStep rows above, and the ones ending shiftStep columns
+         * to the left.
+         */
+        void findOverlapAndAdjacency(Ref cell, int shiftStep, List<Ref> res) {
+            int row = cell.getRow();
+            int col = cell.getColumn();
+            res.addAll(columnEnds.getOrDefault(key(col, row), Collections.emptyList()));
+            res.addAll(rowEnds.getOrDefault(key(row, col), Collections.emptyList()));
+            if (row - shiftStep >= 0) {
+                res.addAll(columnEnds.getOrDefault(key(col, row - shiftStep), Collections.emptyList()));
+            }
+            if (col - shiftStep >= 0) {
+                columnEnds.getOrDefault(key(col - shiftStep, row), Collections.emptyList()).forEach(dep -> {
+                    if (dep.getRow() == dep.getLastRow()) {
+                        res.add(dep);
+                    }
+                });
+                res.addAll(rowEnds.getOrDefault(key(row, col - shiftStep), Collections.emptyList()));
+            }
+        }
+    }
+
     private class CompressInfoComparator implements Comparator<CompressInfo> {
 
         @Override
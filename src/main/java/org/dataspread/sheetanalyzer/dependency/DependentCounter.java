@@ -0,0 +1,355 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.dependency.util.EdgeMeta;
+import org.dataspread.sheetanalyzer.dependency.util.PatternType;
+import org.dataspread.sheetanalyzer.dependency.util.RefUtils;
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.*;
+
+import static org.dataspread.sheetanalyzer.dependency.util.PatternTools.findUpdateDepRef;
+import static org.dataspread.sheetanalyzer.dependency.util.PatternTools.findUpdatePrecRef;
+
+/**
+ * Finds the cells with the most dependents of a {@link DependencyGraphTACO}.
+ *
+ * Dependents are counted from the disjoint ranges getDependents returns, by
+ * their areas, so no cell is expanded. Not every cell is counted either.
+ * Within a precedent range only candidate cells are counted: the cells
+ * where another range starts or ends, and the cells whose edges start or
+ * stop reaching a break of their dependent range. The breaks of a range
+ * are its first and last cells, those of the ranges overlapping its
+ * dependent ranges, and, mapped back along its edges, the breaks of those
+ * ranges in turn. Between candidates the dependents of a cell only shift,
+ * so the counts peak at candidates.
+ *
+ * Ranges and cells are also skipped when an upper bound on their number of
+ * dependents cannot beat the cells found so far. The bound of a range adds
+ * up the areas of its dependent ranges and the bounds of the ranges that
+ * overlap those, so it takes one pass over the compressed graph; ranges on
+ * a circle are unbounded. The cells of a range are bounded by the sum of
+ * the bounds of all ranges overlapping it, as their dependents may come
+ * through any of them.
+ *
+ * The graph must not change while a counter is in use.
+ */
+class DependentCounter {
+
+    private static final Comparator<Pair<Ref, Long>> mostDepsFirst =
+            Comparator.<Pair<Ref, Long>>comparingLong(refWithCount -> refWithCount.second).reversed()
+                    .thenComparingInt(refWithCount -> refWithCount.first.getRow())
+                    .thenComparingInt(refWithCount -> refWithCount.first.getColumn());
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+    private static final long IN_PROGRESS = -1;
+
+    private final DependencyGraphTACO depGraph;
+    private final Map<Ref, Long> rangeBounds = new HashMap<>();
+    private final Map<Ref, Long> overlapBounds = new HashMap<>();
+    private final Map<Ref, Breaks> rangeBreaks = new HashMap<>();
+    private static final Breaks BREAKS_IN_PROGRESS = new Breaks();
+
+    DependentCounter(DependencyGraphTACO depGraph) {
+        this.depGraph = depGraph;
+    }
+
+    long getNumDependents(Ref ref) {
+        long numDependents = 0;
+        for (Ref dep : depGraph.getDependents(ref)) {
+            numDependents += getArea(dep);
+        }
+        return numDependents;
+    }
+
+    /**
+     * @return up to k cells with their number of dependents, most first
+     */
+    List<Pair<Ref, Long>> getRefsWithMostDeps(int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Dependents of the ranges overlapping a range bound those of each
+        // of its cells
+        List<Pair<Ref, Long>> precBounds = new ArrayList<>();
+        depGraph.getPrecRanges().forEach(precRange ->
+                precBounds.add(new Pair<>(precRange, getOverlapBound(precRange))));
+        precBounds.sort(mostDepsFirst);
+
+        PriorityQueue<Pair<Ref, Long>> mostDeps = new PriorityQueue<>(mostDepsFirst.reversed());
+        Set<Ref> countedCells = new HashSet<>();
+        for (Pair<Ref, Long> precBound : precBounds) {
+            Ref precRange = precBound.first;
+            if (precBound.second <= leastOfMostDeps(mostDeps, k)) {
+                break;
+            }
+            // Ranges on a circle have no bound, count theirs instead
+            if (precBound.second == UNBOUNDED && precRange.getType() != Ref.RefType.CELL) {
+                long numDependents = getNumDependents(precRange);
+                rangeBounds.put(precRange, numDependents);
+                if (numDependents <= leastOfMostDeps(mostDeps, k)) {
+                    continue;
+                }
+            }
+            // Best bounds first, so the rest are more likely to be skipped
+            List<Pair<Ref, Long>> cellBounds = new ArrayList<>();
+            for (Ref cell : findCandidateCells(precRange)) {
+                if (countedCells.add(cell)) {
+                    cellBounds.add(new Pair<>(cell, getCellBound(cell)));
+                }
+            }
+            cellBounds.sort(mostDepsFirst);
+            for (Pair<Ref, Long> cellBound : cellBounds) {
+                if (cellBound.second <= leastOfMostDeps(mostDeps, k)) {
+                    break;
+                }
+                mostDeps.add(new Pair<>(cellBound.first, getNumDependents(cellBound.first)));
+                if (mostDeps.size() > k) {
+                    mostDeps.poll();
+                }
+            }
+        }
+
+        List<Pair<Ref, Long>> result = new ArrayList<>(mostDeps);
+        result.sort(mostDepsFirst);
+        return result;
+    }
+
+    private static long leastOfMostDeps(PriorityQueue<Pair<Ref, Long>> mostDeps, int k) {
+        return mostDeps.size() < k ? -1 : mostDeps.peek().second;
+    }
+
+    private static long addBound(long bound, long increment) {
+        long sum = bound + increment;
+        return sum < 0 ? UNBOUNDED : sum;
+    }
+
+    private static long getArea(Ref ref) {
+        return (long) (ref.getLastRow() - ref.getRow() + 1) * (ref.getLastColumn() - ref.getColumn() + 1);
+    }
+
+    private static class Frame {
+        final Ref range;
+        final List<Ref> overlappingRanges = new ArrayList<>();
+        int next = 0;
+        long bound = 0;
+
+        Frame(Ref range) {
+            this.range = range;
+        }
+    }
+
+    private Frame createFrame(Ref range) {
+        Frame frame = new Frame(range);
+        for (RefWithMeta depWithMeta : depGraph.findDeps(range)) {
+            Ref depRange = depWithMeta.getRef();
+            frame.bound = addBound(frame.bound, getArea(depRange));
+            frame.overlappingRanges.addAll(new HashSet<>(depGraph.findOverlappingRefs(depRange)));
+        }
+        return frame;
+    }
+
+    private long getRangeBound(Ref range) {
+        Long knownBound = rangeBounds.get(range);
+        if (knownBound != null) {
+            return knownBound == IN_PROGRESS ? UNBOUNDED : knownBound;
+        }
+
+        Deque<Frame> stack = new ArrayDeque<>();
+        rangeBounds.put(range, IN_PROGRESS);
+        stack.push(createFrame(range));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.next == frame.overlappingRanges.size()) {
+                stack.pop();
+                rangeBounds.put(frame.range, frame.bound);
+                continue;
+            }
+            Ref overlappingRange = frame.overlappingRanges.get(frame.next);
+            Long overlappingBound = rangeBounds.get(overlappingRange);
+            if (overlappingBound == null) {
+                rangeBounds.put(overlappingRange, IN_PROGRESS);
+                stack.push(createFrame(overlappingRange));
+                continue;
+            }
+            frame.bound = addBound(frame.bound, overlappingBound == IN_PROGRESS ? UNBOUNDED : overlappingBound);
+            frame.next += 1;
+        }
+        return rangeBounds.get(range);
+    }
+
+    // The sum of the bounds of the ranges that overlap the given range
+    private long getOverlapBound(Ref range) {
+        Long knownBound = overlapBounds.get(range);
+        if (knownBound == null) {
+            long bound = 0;
+            for (Ref overlappingRange : new HashSet<>(depGraph.findOverlappingRefs(range))) {
+                bound = addBound(bound, getRangeBound(overlappingRange));
+            }
+            knownBound = bound;
+            overlapBounds.put(range, knownBound);
+        }
+        return knownBound;
+    }
+
+    /**
+     * The direct dependents of the cell, and the bounds of the ranges that
+     * overlap the dependent ranges of its edges. Those contain the direct
+     * dependents and are the same for every cell of a precedent range.
+     */
+    private long getCellBound(Ref cell) {
+        long bound = 0;
+        for (Ref precRange : new HashSet<>(depGraph.findOverlappingRefs(cell))) {
+            for (RefWithMeta depWithMeta : depGraph.findDeps(precRange)) {
+                EdgeMeta edgeMeta = depWithMeta.getEdgeMeta();
+                if (edgeMeta.patternType == PatternType.TYPEZERO) {
+                    edgeMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+                }
+                for (Ref dep : findUpdateDepRef(precRange, depWithMeta.getRef(), edgeMeta, cell)) {
+                    if (dep != null) {
+                        bound = addBound(bound, getArea(dep));
+                    }
+                }
+                bound = addBound(bound, getOverlapBound(depWithMeta.getRef()));
+            }
+        }
+        return bound;
+    }
+
+    private List<Ref> findCandidateCells(Ref precRange) {
+        if (precRange.getType() == Ref.RefType.CELL) {
+            return Collections.singletonList(precRange);
+        }
+
+        Breaks breaks = new Breaks();
+        breaks.addAll(getBreaks(precRange));
+        for (Ref otherRange : new HashSet<>(depGraph.findOverlappingRefs(precRange))) {
+            breaks.add(otherRange);
+            breaks.addAll(getBreaks(otherRange));
+        }
+
+        List<Ref> cells = new ArrayList<>();
+        for (int row : breaks.rows.subSet(precRange.getRow(), true, precRange.getLastRow(), true)) {
+            for (int col : breaks.cols.subSet(precRange.getColumn(), true, precRange.getLastColumn(), true)) {
+                cells.add(RefUtils.coordToRef(precRange, row, col, row, col));
+            }
+        }
+        return cells;
+    }
+
+    // Rows and columns next to which the number of dependents of the cells
+    // of a range may change
+    private static class Breaks {
+        final TreeSet<Integer> rows = new TreeSet<>();
+        final TreeSet<Integer> cols = new TreeSet<>();
+
+        // A count changes its slope at the first and last cell of a range,
+        // so the cells next to them are breaks as well
+        void add(Ref ref) {
+            addRows(ref);
+            addCols(ref);
+        }
+
+        void addRows(Ref ref) {
+            for (int delta = -1; delta <= 1; delta++) {
+                rows.add(ref.getRow() + delta);
+                rows.add(ref.getLastRow() + delta);
+            }
+        }
+
+        void addCols(Ref ref) {
+            for (int delta = -1; delta <= 1; delta++) {
+                cols.add(ref.getColumn() + delta);
+                cols.add(ref.getLastColumn() + delta);
+            }
+        }
+
+        void addAll(Breaks other) {
+            rows.addAll(other.rows);
+            cols.addAll(other.cols);
+        }
+    }
+
+    private static class BreaksFrame {
+        final Ref range;
+        final List<Ref> overlappingRanges = new ArrayList<>();
+        int next = 0;
+
+        BreaksFrame(Ref range, DependencyGraphTACO depGraph) {
+            this.range = range;
+            for (RefWithMeta depWithMeta : depGraph.findDeps(range)) {
+                overlappingRanges.addAll(new HashSet<>(depGraph.findOverlappingRefs(depWithMeta.getRef())));
+            }
+        }
+    }
+
+    /**
+     * The breaks of a range, after those of the ranges overlapping its
+     * dependent ranges. Ranges on a circle see the breaks of those still
+     * in progress as empty.
+     */
+    private Breaks getBreaks(Ref range) {
+        Breaks knownBreaks = rangeBreaks.get(range);
+        if (knownBreaks != null) {
+            return knownBreaks;
+        }
+
+        Deque<BreaksFrame> stack = new ArrayDeque<>();
+        rangeBreaks.put(range, BREAKS_IN_PROGRESS);
+        stack.push(new BreaksFrame(range, depGraph));
+        while (!stack.isEmpty()) {
+            BreaksFrame frame = stack.peek();
+            if (frame.next == frame.overlappingRanges.size()) {
+                stack.pop();
+                rangeBreaks.put(frame.range, findBreaks(frame.range));
+                continue;
+            }
+            Ref overlappingRange = frame.overlappingRanges.get(frame.next);
+            if (!rangeBreaks.containsKey(overlappingRange)) {
+                rangeBreaks.put(overlappingRange, BREAKS_IN_PROGRESS);
+                stack.push(new BreaksFrame(overlappingRange, depGraph));
+                continue;
+            }
+            frame.next += 1;
+        }
+        return rangeBreaks.get(range);
+    }
+
+    // Maps the breaks of each dependent range back to the precedent cells
+    // that start or stop reaching them, a row or a column at a time
+    private Breaks findBreaks(Ref precRange) {
+        Breaks breaks = new Breaks();
+        breaks.add(precRange);
+        for (RefWithMeta depWithMeta : depGraph.findDeps(precRange)) {
+            Ref depRange = depWithMeta.getRef();
+            EdgeMeta edgeMeta = toDirectEdgeMeta(depWithMeta.getEdgeMeta());
+            Breaks depBreaks = new Breaks();
+            depBreaks.add(depRange);
+            for (Ref overlappingRange : new HashSet<>(depGraph.findOverlappingRefs(depRange))) {
+                depBreaks.add(overlappingRange);
+                depBreaks.addAll(rangeBreaks.get(overlappingRange));
+            }
+            for (int row : depBreaks.rows.subSet(depRange.getRow(), true, depRange.getLastRow(), true)) {
+                Ref depCell = new RefImpl(row, depRange.getColumn());
+                breaks.addRows(findUpdatePrecRef(precRange, depRange, edgeMeta, depCell, true));
+            }
+            for (int col : depBreaks.cols.subSet(depRange.getColumn(), true, depRange.getLastColumn(), true)) {
+                Ref depCell = new RefImpl(depRange.getRow(), col);
+                breaks.addCols(findUpdatePrecRef(precRange, depRange, edgeMeta, depCell, true));
+            }
+        }
+        return breaks;
+    }
+
+    // Gap patterns reach their precedents like RR edges with the same offsets
+    private static EdgeMeta toDirectEdgeMeta(EdgeMeta edgeMeta) {
+        if (edgeMeta.patternType.ordinal() >= PatternType.TYPEFIVE.ordinal()
+                && edgeMeta.patternType.ordinal() <= PatternType.TYPEELEVEN.ordinal()) {
+            return new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+        }
+        return edgeMeta;
+    }
+}
@@ -0,0 +1,274 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.dependency.util.EdgeMeta;
+import org.dataspread.sheetanalyzer.dependency.util.PatternType;
+import org.dataspread.sheetanalyzer.dependency.util.RefUtils;
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.*;
+
+import static org.dataspread.sheetanalyzer.dependency.util.PatternTools.findUpdateDepRef;
+
+/**
+ * Longest dependency paths over the compressed graph of a
+ * {@link DependencyGraphTACO}, without expanding it into cells.
+ *
+ * The length of a range is the number of edges on the longest path from any
+ * of its cells through their dependents. It follows the same recurrence as
+ * the length of a cell, 1 + the largest length among the direct dependents
+ * of the range (0 without dependents), so lengths are memoised per range.
+ *
+ * RR-chains (TYPEZERO) are not walked cell by cell. A chain cell whose only
+ * dependent is the next one adds exactly one to it, so the length from a
+ * chain cell is its distance to the next cell where the chain can be left,
+ * plus the length from there.
+ *
+ * The graph must not change while a finder is in use. Circular references
+ * are cut where the search closes them.
+ */
+class LongestPathFinder {
+
+    private static final long IN_PROGRESS = -1;
+
+    private final DependencyGraphTACO depGraph;
+    private final Map<Ref, Long> lengths = new HashMap<>();
+    private final Map<Pair<Ref, Ref>, ChainExits> chainExits = new HashMap<>();
+
+    LongestPathFinder(DependencyGraphTACO depGraph) {
+        this.depGraph = depGraph;
+    }
+
+    // Going to target adds length edges to the length of target
+    private static class Step {
+        final Ref target;
+        final long length;
+
+        Step(Ref target, long length) {
+            this.target = target;
+            this.length = length;
+        }
+    }
+
+    private static class Frame {
+        final Ref area;
+        final List<Step> steps;
+        int next = 0;
+        long longest = 0;
+
+        Frame(Ref area, List<Step> steps) {
+            this.area = area;
+            this.steps = steps;
+        }
+    }
+
+    long getLongestPathLength(Ref area) {
+        Long knownLength = lengths.get(area);
+        if (knownLength != null) {
+            return Math.max(knownLength, 0);
+        }
+
+        // Explicit stack, chains can be far longer than the call stack allows
+        Deque<Frame> stack = new ArrayDeque<>();
+        lengths.put(area, IN_PROGRESS);
+        stack.push(new Frame(area, findSteps(area)));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.next == frame.steps.size()) {
+                stack.pop();
+                lengths.put(frame.area, frame.longest);
+                continue;
+            }
+            Step step = frame.steps.get(frame.next);
+            Long targetLength = lengths.get(step.target);
+            if (targetLength == null) {
+                // Come back to this step once the target is done
+                lengths.put(step.target, IN_PROGRESS);
+                stack.push(new Frame(step.target, findSteps(step.target)));
+                continue;
+            }
+            if (targetLength != IN_PROGRESS) {
+                frame.longest = Math.max(frame.longest, step.length + targetLength);
+            }
+            frame.next += 1;
+        }
+        return lengths.get(area);
+    }
+
+    /**
+     * @return a cell where a longest path of the graph starts and the
+     * length of that path, or null if the graph has no edges
+     */
+    Pair<Ref, Long> getRefWithLongestDepChain() {
+        Ref longestArea = null;
+        long longestLength = -1;
+        for (Ref precRange : depGraph.getPrecRanges()) {
+            long length = getLongestPathLength(precRange);
+            if (length > longestLength) {
+                longestArea = precRange;
+                longestLength = length;
+            }
+        }
+        if (longestArea == null) {
+            return null;
+        }
+
+        // One half of an area always has the length of the whole area
+        while (longestArea.getRow() != longestArea.getLastRow()
+                || longestArea.getColumn() != longestArea.getLastColumn()) {
+            Ref firstHalf;
+            Ref secondHalf;
+            if (longestArea.getRow() != longestArea.getLastRow()) {
+                int midRow = longestArea.getRow() + (longestArea.getLastRow() - longestArea.getRow()) / 2;
+                firstHalf = RefUtils.coordToRef(longestArea, longestArea.getRow(), longestArea.getColumn(),
+                        midRow, longestArea.getLastColumn());
+                secondHalf = RefUtils.coordToRef(longestArea, midRow + 1, longestArea.getColumn(),
+                        longestArea.getLastRow(), longestArea.getLastColumn());
+            } else {
+                int midCol = longestArea.getColumn() + (longestArea.getLastColumn() - longestArea.getColumn()) / 2;
+                firstHalf = RefUtils.coordToRef(longestArea, longestArea.getRow(), longestArea.getColumn(),
+                        longestArea.getLastRow(), midCol);
+                secondHalf = RefUtils.coordToRef(longestArea, longestArea.getRow(), midCol + 1,
+                        longestArea.getLastRow(), longestArea.getLastColumn());
+            }
+            longestArea = getLongestPathLength(firstHalf) == longestLength ? firstHalf : secondHalf;
+        }
+        return new Pair<>(longestArea, longestLength);
+    }
+
+    private List<Step> findSteps(Ref area) {
+        List<Step> steps = new ArrayList<>();
+        for (Ref precRange : new HashSet<>(depGraph.findOverlappingRefs(area))) {
+            Ref realArea = area.getOverlap(precRange);
+            for (RefWithMeta depWithMeta : depGraph.findDeps(precRange)) {
+                Ref depRange = depWithMeta.getRef();
+                EdgeMeta edgeMeta = depWithMeta.getEdgeMeta();
+                if (edgeMeta.patternType == PatternType.TYPEZERO) {
+                    // findUpdateDepRef follows a whole chain, its direct
+                    // dependents are those of an RR edge with the same offsets
+                    EdgeMeta directMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+                    for (Ref dep : findUpdateDepRef(precRange, depRange, directMeta, realArea)) {
+                        if (dep != null) {
+                            steps.add(findChainStep(precRange, depRange, edgeMeta, dep));
+                        }
+                    }
+                } else {
+                    for (Ref dep : findUpdateDepRef(precRange, depRange, edgeMeta, realArea)) {
+                        if (dep != null) {
+                            steps.add(new Step(dep, 1));
+                        }
+                    }
+                }
+            }
+        }
+        return steps;
+    }
+
+    // Cells of a chain are numbered by their row or column, negated when
+    // the chain runs up or left, so the chain always goes to higher numbers
+    private static boolean isColumnChain(EdgeMeta edgeMeta) {
+        return edgeMeta.startOffset.getRowOffset() != 0;
+    }
+
+    private static int chainDirection(EdgeMeta edgeMeta) {
+        int offset = isColumnChain(edgeMeta) ? edgeMeta.startOffset.getRowOffset()
+                : edgeMeta.startOffset.getColOffset();
+        return offset > 0 ? 1 : -1;
+    }
+
+    /**
+     * The longest path from dep, a part of the chain, runs down the chain
+     * from its first cell at least to the next exit.
+     */
+    private Step findChainStep(Ref precRange, Ref depRange, EdgeMeta edgeMeta, Ref dep) {
+        boolean isColumnChain = isColumnChain(edgeMeta);
+        int direction = chainDirection(edgeMeta);
+        int first = isColumnChain ? Math.min(direction * dep.getRow(), direction * dep.getLastRow())
+                : Math.min(direction * dep.getColumn(), direction * dep.getLastColumn());
+
+        ChainExits exits = chainExits.computeIfAbsent(new Pair<>(precRange, depRange),
+                chain -> findChainExits(precRange, depRange, edgeMeta));
+        int exit = exits.findNext(first);
+        Ref exitCell = isColumnChain
+                ? RefUtils.coordToRef(depRange, direction * exit, depRange.getColumn(),
+                direction * exit, depRange.getColumn())
+                : RefUtils.coordToRef(depRange, depRange.getRow(), direction * exit,
+                depRange.getRow(), direction * exit);
+        return new Step(exitCell, 1L + exit - first);
+    }
+
+    /**
+     * Exits are the chain cells with dependents other than the next chain
+     * cell, and the cells of the chain with no next cell.
+     */
+    private ChainExits findChainExits(Ref precRange, Ref depRange, EdgeMeta edgeMeta) {
+        boolean isColumnChain = isColumnChain(edgeMeta);
+        int direction = chainDirection(edgeMeta);
+        List<int[]> intervals = new ArrayList<>();
+        for (Ref otherPrec : new HashSet<>(depGraph.findOverlappingRefs(depRange))) {
+            for (RefWithMeta depWithMeta : depGraph.findDeps(otherPrec)) {
+                boolean isChainEdge = otherPrec.equals(precRange)
+                        && depWithMeta.getRef().equals(depRange)
+                        && depWithMeta.getEdgeMeta().equals(edgeMeta);
+                if (!isChainEdge) {
+                    intervals.add(toInterval(depRange.getOverlap(otherPrec), isColumnChain, direction));
+                }
+            }
+        }
+        depRange.getNonOverlap(precRange).forEach(chainEnd ->
+                intervals.add(toInterval(chainEnd, isColumnChain, direction)));
+        return new ChainExits(intervals, toInterval(depRange, isColumnChain, direction)[1]);
+    }
+
+    private static int[] toInterval(Ref ref, boolean isColumnChain, int direction) {
+        int first = isColumnChain ? direction * ref.getRow() : direction * ref.getColumn();
+        int last = isColumnChain ? direction * ref.getLastRow() : direction * ref.getLastColumn();
+        return new int[]{Math.min(first, last), Math.max(first, last)};
+    }
+
+    private static class ChainExits {
+        private final int[] firsts;
+        private final int[] lasts;
+        private final int chainEnd;
+
+        ChainExits(List<int[]> intervals, int chainEnd) {
+            intervals.sort(Comparator.comparingInt(interval -> interval[0]));
+            List<int[]> merged = new ArrayList<>();
+            for (int[] interval : intervals) {
+                int[] lastMerged = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (lastMerged != null && interval[0] <= lastMerged[1] + 1) {
+                    lastMerged[1] = Math.max(lastMerged[1], interval[1]);
+                } else {
+                    merged.add(new int[]{interval[0], interval[1]});
+                }
+            }
+            this.firsts = new int[merged.size()];
+            this.lasts = new int[merged.size()];
+            for (int i = 0; i < merged.size(); i++) {
+                firsts[i] = merged.get(i)[0];
+                lasts[i] = merged.get(i)[1];
+            }
+            this.chainEnd = chainEnd;
+        }
+
+        // The first exit at or after the cell
+        int findNext(int cell) {
+            int low = 0;
+            int high = lasts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lasts[mid] < cell) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == lasts.length) {
+                // Only a chain that closes a circle has no end
+                return Math.max(cell, chainEnd);
+            }
+            return Math.max(cell, firsts[low]);
+        }
+    }
+}
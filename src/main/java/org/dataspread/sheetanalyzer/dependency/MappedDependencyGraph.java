@@ -0,0 +1,541 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.dependency.util.*;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.dataspread.sheetanalyzer.dependency.util.PatternTools.findUpdateDepRef;
+
+/**
+ * A read-only {@link DependencyGraph} over a compressed graph saved by
+ * {@link #save} and memory-mapped from the file. Edges and the R-tree are
+ * read in place from the mapping, so JVMs opening the same file share it
+ * through the page cache and keep almost nothing of it on their heap.
+ * Opening reads the header only. Queries give the same answers as the
+ * {@link DependencyGraphTACO} that was saved, and may run concurrently.
+ *
+ * The file holds a header with the book and sheet names and the distinct
+ * EdgeMetas, then two sides: the precedent ranges with the edges to their
+ * dependents, and the dependent ranges with the edges to their precedents.
+ * Each side keeps its ranges in sort-tile-recursive order, followed by
+ * the edges of each range and a packed R-tree built bottom up over the
+ * ranges, FANOUT nodes at a time. All numbers are big-endian ints.
+ */
+public class MappedDependencyGraph implements DependencyGraph {
+
+    // "TACM", at the start of a mapped graph
+    private static final int FORMAT_MAGIC = 0x5441434d;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int FANOUT = 16;
+    private static final int RANGE_BYTES = 4 * Integer.BYTES;
+    private static final int EDGE_BYTES = 5 * Integer.BYTES;
+    private static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private final ByteBuffer buffer;
+    private final String bookName;
+    private final String sheetName;
+    private final EdgeMeta[] edgeMetas;
+    private final long numEdges;
+    private final long numVertices;
+    private final Side precSide;
+    private final Side depSide;
+
+    private MappedDependencyGraph(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        try {
+            if (header.getInt() != FORMAT_MAGIC) {
+                throw new IOException("Not a mapped dependency graph");
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported mapped dependency graph version " + version);
+            }
+            bookName = readString(header);
+            sheetName = readString(header);
+            numEdges = header.getLong();
+            numVertices = header.getLong();
+
+            PatternType[] patternTypes = PatternType.values();
+            edgeMetas = new EdgeMeta[header.getInt()];
+            for (int i = 0; i < edgeMetas.length; i++) {
+                int ordinal = header.getInt();
+                if (ordinal < 0 || ordinal >= patternTypes.length) {
+                    throw new IOException("Unknown pattern type " + ordinal);
+                }
+                Offset startOffset = Offset.of(header.getInt(), header.getInt());
+                Offset endOffset = Offset.of(header.getInt(), header.getInt());
+                edgeMetas[i] = new EdgeMeta(patternTypes[ordinal], startOffset, endOffset);
+            }
+            precSide = new Side(header);
+            depSide = new Side(header);
+        } catch (RuntimeException e) {
+            // A truncated file runs out of bytes, or yields bad counts
+            throw new IOException("Malformed mapped dependency graph", e);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #save}. The mapping stays valid after
+     * the channel is closed, until the graph is garbage collected.
+     */
+    public static MappedDependencyGraph open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Mapped dependency graph over 2 GB: " + path);
+            }
+            return new MappedDependencyGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the compressed edges of the graph to a file for {@link #open}.
+     */
+    public static void save(DependencyGraphTACO depGraph, Path path) throws IOException {
+        Map<EdgeMeta, Integer> edgeMetaIds = new HashMap<>();
+        List<EdgeMeta> edgeMetaList = new ArrayList<>();
+        List<RangeEdges> precRanges = new ArrayList<>();
+        List<RangeEdges> depRanges = new ArrayList<>();
+        depGraph.forEachPrecRange((start, end, edgeList) -> precRanges.add(new RangeEdges(start, end, edgeList)));
+        depGraph.forEachDepRange((start, end, edgeList) -> {
+            depRanges.add(new RangeEdges(start, end, edgeList));
+            for (int i = 0; i < edgeList.size(); i++) {
+                edgeMetaIds.computeIfAbsent(edgeList.getEdgeMeta(i), edgeMeta -> {
+                    edgeMetaList.add(edgeMeta);
+                    return edgeMetaList.size() - 1;
+                });
+            }
+        });
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(FORMAT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, depGraph.getRefTemplate().getBookName());
+            writeString(out, depGraph.getRefTemplate().getSheetName());
+            out.writeLong(depGraph.getNumEdges());
+            out.writeLong(depGraph.getNumVertices());
+            out.writeInt(edgeMetaList.size());
+            for (EdgeMeta edgeMeta : edgeMetaList) {
+                out.writeInt(edgeMeta.patternType.ordinal());
+                out.writeInt(edgeMeta.startOffset.getRowOffset());
+                out.writeInt(edgeMeta.startOffset.getColOffset());
+                out.writeInt(edgeMeta.endOffset.getRowOffset());
+                out.writeInt(edgeMeta.endOffset.getColOffset());
+            }
+            writeSide(out, precRanges, edgeMetaIds);
+            writeSide(out, depRanges, edgeMetaIds);
+            // size() stops counting there
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Mapped dependency graph over 2 GB: " + path);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer header) {
+        int length = header.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        header.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeSide(DataOutputStream out, List<RangeEdges> ranges,
+            Map<EdgeMeta, Integer> edgeMetaIds) throws IOException {
+        sortTileRecursive(ranges);
+        int[] boxes = new int[4 * ranges.size()];
+        out.writeInt(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            RangeEdges range = ranges.get(i);
+            boxes[4 * i] = PackedRange.row(range.start);
+            boxes[4 * i + 1] = PackedRange.col(range.start);
+            boxes[4 * i + 2] = PackedRange.row(range.end);
+            boxes[4 * i + 3] = PackedRange.col(range.end);
+            writeRange(out, range.start, range.end);
+        }
+        int edgeStart = 0;
+        for (RangeEdges range : ranges) {
+            out.writeInt(edgeStart);
+            edgeStart += range.edgeList.size();
+        }
+        out.writeInt(edgeStart);
+        for (RangeEdges range : ranges) {
+            for (int i = 0; i < range.edgeList.size(); i++) {
+                writeRange(out, range.edgeList.getStart(i), range.edgeList.getEnd(i));
+                out.writeInt(edgeMetaIds.get(range.edgeList.getEdgeMeta(i)));
+            }
+        }
+
+        List<int[]> levels = new ArrayList<>();
+        while (boxes.length > 4) {
+            boxes = packLevel(boxes);
+            levels.add(boxes);
+        }
+        out.writeInt(levels.size());
+        for (int[] level : levels) {
+            out.writeInt(level.length / 4);
+            for (int coord : level) {
+                out.writeInt(coord);
+            }
+        }
+    }
+
+    private static void writeRange(DataOutputStream out, long start, long end) throws IOException {
+        out.writeInt(PackedRange.row(start));
+        out.writeInt(PackedRange.col(start));
+        out.writeInt(PackedRange.row(end));
+        out.writeInt(PackedRange.col(end));
+    }
+
+    // The bounding boxes of every FANOUT consecutive boxes
+    private static int[] packLevel(int[] boxes) {
+        int numBoxes = boxes.length / 4;
+        int numParents = (numBoxes + FANOUT - 1) / FANOUT;
+        int[] parents = new int[4 * numParents];
+        for (int parent = 0; parent < numParents; parent++) {
+            int first = parent * FANOUT;
+            int last = Math.min(first + FANOUT, numBoxes);
+            int row = Integer.MAX_VALUE, col = Integer.MAX_VALUE;
+            int lastRow = Integer.MIN_VALUE, lastCol = Integer.MIN_VALUE;
+            for (int child = first; child < last; child++) {
+                row = Math.min(row, boxes[4 * child]);
+                col = Math.min(col, boxes[4 * child + 1]);
+                lastRow = Math.max(lastRow, boxes[4 * child + 2]);
+                lastCol = Math.max(lastCol, boxes[4 * child + 3]);
+            }
+            parents[4 * parent] = row;
+            parents[4 * parent + 1] = col;
+            parents[4 * parent + 2] = lastRow;
+            parents[4 * parent + 3] = lastCol;
+        }
+        return parents;
+    }
+
+    // Slabs of columns, each sorted by row, so that every FANOUT
+    // consecutive ranges lie close together. Ranges are sorted by their
+    // centers; ties on the column are broken by row, or the slabs of a
+    // sheet with a single long column would each span all its rows.
+    private static void sortTileRecursive(List<RangeEdges> ranges) {
+        Comparator<RangeEdges> byCol = Comparator.comparingLong(
+                range -> (long) PackedRange.col(range.start) + PackedRange.col(range.end));
+        Comparator<RangeEdges> byRow = Comparator.comparingLong(
+                range -> (long) PackedRange.row(range.start) + PackedRange.row(range.end));
+        ranges.sort(byCol.thenComparing(byRow));
+        int numLeaves = (ranges.size() + FANOUT - 1) / FANOUT;
+        int slabSize = FANOUT * (int) Math.ceil(Math.sqrt(numLeaves));
+        for (int first = 0; first < ranges.size(); first += slabSize) {
+            ranges.subList(first, Math.min(first + slabSize, ranges.size())).sort(byRow.thenComparing(byCol));
+        }
+    }
+
+    private static final class RangeEdges {
+        final long start;
+        final long end;
+        final EdgeList edgeList;
+
+        RangeEdges(long start, long end, EdgeList edgeList) {
+            this.start = start;
+            this.end = end;
+            this.edgeList = edgeList;
+        }
+    }
+
+    /**
+     * Where the parts of one side are in the mapping. Level 0 of the
+     * R-tree is the ranges themselves.
+     */
+    private static final class Side {
+        final int numRanges;
+        final int edgeStartsAt;
+        final int edgesAt;
+        final int[] levelCounts;
+        final int[] levelsAt;
+
+        Side(ByteBuffer header) throws IOException {
+            numRanges = header.getInt();
+            int rangesAt = header.position();
+            edgeStartsAt = skip(header, rangesAt, numRanges, RANGE_BYTES);
+            edgesAt = skip(header, edgeStartsAt, numRanges + 1, Integer.BYTES);
+            int numEdges = header.getInt(edgesAt - Integer.BYTES);
+            header.position(skip(header, edgesAt, numEdges, EDGE_BYTES));
+
+            int numLevels = header.getInt();
+            if (numLevels < 0 || numLevels > 32) {
+                throw new IOException("Bad number of R-tree levels " + numLevels);
+            }
+            levelCounts = new int[numLevels + 1];
+            levelsAt = new int[numLevels + 1];
+            levelCounts[0] = numRanges;
+            levelsAt[0] = rangesAt;
+            for (int level = 1; level <= numLevels; level++) {
+                levelCounts[level] = header.getInt();
+                levelsAt[level] = header.position();
+                header.position(skip(header, levelsAt[level], levelCounts[level], RANGE_BYTES));
+            }
+        }
+
+        private static int skip(ByteBuffer header, int at, int count, int bytes) throws IOException {
+            long end = at + (long) count * bytes;
+            if (count < 0 || end > header.limit()) {
+                throw new IOException("Truncated mapped dependency graph");
+            }
+            return (int) end;
+        }
+
+        int getEdgeStart(ByteBuffer buffer, int range) {
+            return buffer.getInt(edgeStartsAt + range * Integer.BYTES);
+        }
+    }
+
+    private Ref readRef(int at) {
+        return new RefImpl(bookName, sheetName, buffer.getInt(at), buffer.getInt(at + 4),
+                buffer.getInt(at + 8), buffer.getInt(at + 12));
+    }
+
+    private Ref getRange(Side side, int range) {
+        return readRef(side.levelsAt[0] + range * RANGE_BYTES);
+    }
+
+    private Ref getEdgeRef(Side side, int edge) {
+        return readRef(side.edgesAt + edge * EDGE_BYTES);
+    }
+
+    private EdgeMeta getEdgeMeta(Side side, int edge) {
+        return edgeMetas[buffer.getInt(side.edgesAt + edge * EDGE_BYTES + RANGE_BYTES)];
+    }
+
+    // The ranges of the side that overlap the area, by number
+    private void search(Side side, Ref area, List<Integer> ranges) {
+        int top = side.levelCounts.length - 1;
+        for (int node = 0; node < side.levelCounts[top]; node++) {
+            search(side, top, node, area, ranges);
+        }
+    }
+
+    private void search(Side side, int level, int node, Ref area, List<Integer> ranges) {
+        int at = side.levelsAt[level] + node * RANGE_BYTES;
+        if (buffer.getInt(at) > area.getLastRow() || buffer.getInt(at + 4) > area.getLastColumn()
+                || buffer.getInt(at + 8) < area.getRow() || buffer.getInt(at + 12) < area.getColumn()) {
+            return;
+        }
+        if (level == 0) {
+            ranges.add(node);
+            return;
+        }
+        int first = node * FANOUT;
+        int last = Math.min(first + FANOUT, side.levelCounts[level - 1]);
+        for (int child = first; child < last; child++) {
+            search(side, level - 1, child, area, ranges);
+        }
+    }
+
+    @Override
+    public Set<Ref> getDependents(Ref precedent) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(precedent)) {
+            getDependentsInternal(Collections.singletonList(precedent), result, UNLIMITED_DEPTH);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Ref> getDependents(Collection<Ref> precedents) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        List<Ref> validPrecs = new ArrayList<>(precedents.size());
+        precedents.forEach(precedent -> {
+            if (RefUtils.isValidRef(precedent)) {
+                validPrecs.add(precedent);
+            }
+        });
+        if (!validPrecs.isEmpty()) {
+            getDependentsInternal(RefUtils.coalesceRefs(validPrecs), result, UNLIMITED_DEPTH);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Ref> getDirectDependents(Ref precedent) {
+        return getDependents(precedent, 1);
+    }
+
+    @Override
+    public Set<Ref> getDependents(Ref precedent, int maxDepth) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(precedent) && maxDepth > 0) {
+            getDependentsInternal(Collections.singletonList(precedent), result, maxDepth);
+        }
+        return result;
+    }
+
+    // As in DependencyGraphTACO, one level of dependents per depth
+    private void getDependentsInternal(List<Ref> precUpdates,
+            LinkedHashSet<Ref> result,
+            int maxDepth) {
+        RegionSet resultSet = new RegionSet();
+        boolean isTransitive = maxDepth == UNLIMITED_DEPTH;
+        List<Ref> updateLevel = precUpdates;
+        RegionSet nextLevel = new RegionSet();
+        List<Ref> newRefs = new ArrayList<>();
+        List<Integer> precRanges = new ArrayList<>();
+        for (int depth = 1; !updateLevel.isEmpty() && depth <= maxDepth; depth++) {
+            for (Ref updateRef : updateLevel) {
+                precRanges.clear();
+                search(precSide, updateRef, precRanges);
+                for (int precRange : precRanges) {
+                    Ref precRef = getRange(precSide, precRange);
+                    Ref realUpdateRef = updateRef.getOverlap(precRef);
+                    int lastEdge = precSide.getEdgeStart(buffer, precRange + 1);
+                    for (int edge = precSide.getEdgeStart(buffer, precRange); edge < lastEdge; edge++) {
+                        EdgeMeta edgeMeta = getEdgeMeta(precSide, edge);
+                        if (!isTransitive && edgeMeta.patternType == PatternType.TYPEZERO) {
+                            edgeMeta = new EdgeMeta(PatternType.TYPEONE, edgeMeta.startOffset, edgeMeta.endOffset);
+                        }
+                        Ref depRef = getEdgeRef(precSide, edge);
+                        for (Ref depUpdateRef : findUpdateDepRef(precRef, depRef, edgeMeta, realUpdateRef)) {
+                            if (depUpdateRef == null) {
+                                continue;
+                            }
+                            newRefs.clear();
+                            resultSet.add(depUpdateRef, newRefs);
+                            newRefs.forEach(nextLevel::add);
+                        }
+                    }
+                }
+            }
+            updateLevel = nextLevel.toRefs();
+            nextLevel.clear();
+        }
+        result.addAll(resultSet.toRefs());
+    }
+
+    @Override
+    public Set<Ref> getPrecedents(Ref dependent) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(dependent)) {
+            final boolean isDirectPrec = false;
+            getPrecedentsInternal(dependent, result, isDirectPrec);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Ref> getDirectPrecedents(Ref dependent) {
+        LinkedHashSet<Ref> result = new LinkedHashSet<>();
+        if (RefUtils.isValidRef(dependent)) {
+            final boolean isDirectPrec = true;
+            getPrecedentsInternal(dependent, result, isDirectPrec);
+        }
+        return result;
+    }
+
+    private void getPrecedentsInternal(Ref depUpdate,
+            LinkedHashSet<Ref> result,
+            boolean isDirectPrec) {
+        RegionSet resultSet = new RegionSet();
+        List<Ref> newRefs = new ArrayList<>();
+        List<Integer> depRanges = new ArrayList<>();
+        Queue<Ref> updateQueue = new ArrayDeque<>();
+        updateQueue.add(depUpdate);
+        while (!updateQueue.isEmpty()) {
+            Ref updateRef = updateQueue.remove();
+            depRanges.clear();
+            search(depSide, updateRef, depRanges);
+            for (int depRange : depRanges) {
+                Ref depRef = getRange(depSide, depRange);
+                Ref realUpdateRef = updateRef.getOverlap(depRef);
+                int lastEdge = depSide.getEdgeStart(buffer, depRange + 1);
+                for (int edge = depSide.getEdgeStart(buffer, depRange); edge < lastEdge; edge++) {
+                    Ref precRef = getEdgeRef(depSide, edge);
+                    for (Ref precUpdateRef : DependencyGraphTACO.findUpdatePrecRefs(precRef, depRef,
+                            getEdgeMeta(depSide, edge), realUpdateRef, isDirectPrec)) {
+                        newRefs.clear();
+                        resultSet.add(precUpdateRef, newRefs);
+                        if (!isDirectPrec) {
+                            updateQueue.addAll(newRefs);
+                        }
+                    }
+                }
+            }
+        }
+        result.addAll(resultSet.toRefs());
+    }
+
+    @Override
+    public String getCompressInfo() {
+        Map<PatternType, Integer> typeCount = new HashMap<>();
+        for (int edge = 0; edge < depSide.getEdgeStart(buffer, depSide.numRanges); edge++) {
+            typeCount.merge(getEdgeMeta(depSide, edge).patternType, 1, Integer::sum);
+        }
+        return DependencyGraphTACO.formatCompressInfo(typeCount);
+    }
+
+    @Override
+    public long getNumVertices() {
+        return numVertices;
+    }
+
+    @Override
+    public long getNumEdges() {
+        return numEdges;
+    }
+
+    /**
+     * Materializes both sides on the heap, so every call builds new maps.
+     */
+    @Override
+    public Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> getCompressedGraph() {
+        return new Pair<>(toRefMap(precSide), toRefMap(depSide));
+    }
+
+    private Map<Ref, List<RefWithMeta>> toRefMap(Side side) {
+        Map<Ref, List<RefWithMeta>> refMap = new HashMap<>();
+        for (int range = 0; range < side.numRanges; range++) {
+            int lastEdge = side.getEdgeStart(buffer, range + 1);
+            List<RefWithMeta> refWithMetaList = new ArrayList<>();
+            for (int edge = side.getEdgeStart(buffer, range); edge < lastEdge; edge++) {
+                refWithMetaList.add(new RefWithMeta(getEdgeRef(side, edge), getEdgeMeta(side, edge)));
+            }
+            refMap.put(getRange(side, range), refWithMetaList);
+        }
+        return refMap;
+    }
+
+    @Override
+    public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
+        throw new UnsupportedOperationException("A mapped dependency graph is read-only");
+    }
+
+    @Override
+    public void add(Ref precedent, Ref dependent) {
+        throw new UnsupportedOperationException("A mapped dependency graph is read-only");
+    }
+
+    @Override
+    public void clearDependents(Ref dependent) {
+        throw new UnsupportedOperationException("A mapped dependency graph is read-only");
+    }
+}
@@ -0,0 +1,218 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A {@link DependencyGraphTACO} that any number of threads can query while
+ * another one changes it. The graph is kept in versions that never change
+ * once published: queries go to the current version without taking a
+ * lock, and {@link #snapshot} hands it out for a series of queries that
+ * have to agree with each other.
+ *
+ * Changes are serialized. Each one copies the current version, applies
+ * the change to the copy and publishes the copy with a volatile write, so
+ * readers see either all of a change or none of it. As a change costs a
+ * copy of the whole graph, edits that go together should go through one
+ * {@link #update}.
+ */
+public class SnapshotDependencyGraph implements DependencyGraph {
+
+    private final Object updateLock = new Object();
+    private volatile Snapshot current;
+
+    /**
+     * Starts from a copy of the graph, which the caller may go on changing.
+     */
+    public SnapshotDependencyGraph(DependencyGraphTACO depGraph) {
+        this.current = new Snapshot(depGraph.copy(), 0);
+    }
+
+    /**
+     * @return the current version, which later changes do not reach
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Applies the edit to a copy of the current version and publishes the
+     * copy. If the edit throws, the current version stays.
+     */
+    public void update(Consumer<DependencyGraphTACO> edit) {
+        synchronized (updateLock) {
+            Snapshot previous = current;
+            DependencyGraphTACO next = previous.depGraph.copy();
+            edit.accept(next);
+            current = new Snapshot(next, previous.version + 1);
+        }
+    }
+
+    @Override
+    public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
+        update(depGraph -> depGraph.addBatch(edgeBatch));
+    }
+
+    @Override
+    public void add(Ref precedent, Ref dependent) {
+        update(depGraph -> depGraph.add(precedent, dependent));
+    }
+
+    @Override
+    public void clearDependents(Ref dependent) {
+        update(depGraph -> depGraph.clearDependents(dependent));
+    }
+
+    @Override
+    public Set<Ref> getDependents(Ref precedent) {
+        return current.getDependents(precedent);
+    }
+
+    @Override
+    public Set<Ref> getDependents(Collection<Ref> precedents) {
+        return current.getDependents(precedents);
+    }
+
+    @Override
+    public Set<Ref> getDirectDependents(Ref precedent) {
+        return current.getDirectDependents(precedent);
+    }
+
+    @Override
+    public Set<Ref> getDependents(Ref precedent, int maxDepth) {
+        return current.getDependents(precedent, maxDepth);
+    }
+
+    @Override
+    public Set<Ref> getPrecedents(Ref dependent) {
+        return current.getPrecedents(dependent);
+    }
+
+    @Override
+    public Set<Ref> getDirectPrecedents(Ref dependent) {
+        return current.getDirectPrecedents(dependent);
+    }
+
+    @Override
+    public String getCompressInfo() {
+        return current.getCompressInfo();
+    }
+
+    @Override
+    public long getNumVertices() {
+        return current.getNumVertices();
+    }
+
+    @Override
+    public long getNumEdges() {
+        return current.getNumEdges();
+    }
+
+    @Override
+    public Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> getCompressedGraph() {
+        return current.getCompressedGraph();
+    }
+
+    /**
+     * One published version. Queries on a graph that nobody changes only
+     * read its maps and R-tree, so they are safe from any thread; changes
+     * are refused.
+     */
+    public static final class Snapshot implements DependencyGraph {
+
+        private final DependencyGraphTACO depGraph;
+        private final long version;
+
+        private Snapshot(DependencyGraphTACO depGraph, long version) {
+            this.depGraph = depGraph;
+            this.version = version;
+        }
+
+        /**
+         * @return the number of updates published before this version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public long getLongestPathLength(Ref area) {
+            return depGraph.getLongestPathLength(area);
+        }
+
+        public long getNumDependents(Ref ref) {
+            return depGraph.getNumDependents(ref);
+        }
+
+        @Override
+        public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
+            throw new UnsupportedOperationException("A snapshot of a dependency graph is read-only");
+        }
+
+        @Override
+        public void add(Ref precedent, Ref dependent) {
+            throw new UnsupportedOperationException("A snapshot of a dependency graph is read-only");
+        }
+
+        @Override
+        public void clearDependents(Ref dependent) {
+            throw new UnsupportedOperationException("A snapshot of a dependency graph is read-only");
+        }
+
+        @Override
+        public Set<Ref> getDependents(Ref precedent) {
+            return depGraph.getDependents(precedent);
+        }
+
+        @Override
+        public Set<Ref> getDependents(Collection<Ref> precedents) {
+            return depGraph.getDependents(precedents);
+        }
+
+        @Override
+        public Set<Ref> getDirectDependents(Ref precedent) {
+            return depGraph.getDirectDependents(precedent);
+        }
+
+        @Override
+        public Set<Ref> getDependents(Ref precedent, int maxDepth) {
+            return depGraph.getDependents(precedent, maxDepth);
+        }
+
+        @Override
+        public Set<Ref> getPrecedents(Ref dependent) {
+            return depGraph.getPrecedents(dependent);
+        }
+
+        @Override
+        public Set<Ref> getDirectPrecedents(Ref dependent) {
+            return depGraph.getDirectPrecedents(dependent);
+        }
+
+        @Override
+        public String getCompressInfo() {
+            return depGraph.getCompressInfo();
+        }
+
+        @Override
+        public long getNumVertices() {
+            return depGraph.getNumVertices();
+        }
+
+        @Override
+        public long getNumEdges() {
+            return depGraph.getNumEdges();
+        }
+
+        @Override
+        public Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> getCompressedGraph() {
+            return depGraph.getCompressedGraph();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.dataspread.sheetanalyzer.dependency;
+
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the {@link DependencyGraphTACO} of one sheet from many threads.
+ * The sheet is cut into stripes of stripeWidth columns, and each stripe
+ * has a graph of its own behind a lock of its own. An edge goes to the
+ * stripe of the first column of its dependent, so threads adding formulae
+ * of different stripes do not wait on each other, and runs down a column
+ * compress as they would in one graph. Threads should work on stripes of
+ * their own, e.g. a block of columns each.
+ *
+ * {@link #build} merges the stripes into one graph and stitches the
+ * compression across the stripe borders (see
+ * DependencyGraphTACO.mergeColumnStripes). It must not run while edges are
+ * still being added. The built graph answers every query as one graph fed
+ * the same edges would, but compression is greedy, and a stripe sees none
+ * of the cells it could have compressed with across its borders, so it may
+ * keep a few more edges, at most about one per border.
+ */
+public class StripedGraphBuilder {
+
+    private final int stripeWidth;
+    private final boolean isOffHeap;
+    private final ConcurrentHashMap<Integer, DependencyGraphTACO> stripes = new ConcurrentHashMap<>();
+
+    public StripedGraphBuilder(int stripeWidth) {
+        this(stripeWidth, false);
+    }
+
+    /**
+     * @param isOffHeap the storage mode of the built graph, see
+     * {@link DependencyGraphTACO#DependencyGraphTACO(boolean)}; the stripes
+     * are on the heap
+     */
+    public StripedGraphBuilder(int stripeWidth, boolean isOffHeap) {
+        if (stripeWidth <= 0) {
+            throw new IllegalArgumentException("Stripes have to be at least one column wide: " + stripeWidth);
+        }
+        this.stripeWidth = stripeWidth;
+        this.isOffHeap = isOffHeap;
+    }
+
+    private DependencyGraphTACO getStripe(Ref dependent) {
+        return stripes.computeIfAbsent(dependent.getColumn() / stripeWidth, stripe -> new DependencyGraphTACO());
+    }
+
+    public void add(Ref precedent, Ref dependent) {
+        DependencyGraphTACO stripe = getStripe(dependent);
+        synchronized (stripe) {
+            stripe.add(precedent, dependent);
+        }
+    }
+
+    /**
+     * Adds the edges in order, taking the lock of each stripe once.
+     */
+    public void addBatch(List<Pair<Ref, Ref>> edgeBatch) {
+        Map<DependencyGraphTACO, List<Pair<Ref, Ref>>> stripeBatches = new LinkedHashMap<>();
+        edgeBatch.forEach(edge ->
+                stripeBatches.computeIfAbsent(getStripe(edge.second), stripe -> new ArrayList<>()).add(edge));
+        stripeBatches.forEach((stripe, stripeBatch) -> {
+            synchronized (stripe) {
+                stripe.addBatch(stripeBatch);
+            }
+        });
+    }
+
+    public DependencyGraphTACO build() {
+        List<Integer> stripeIds = new ArrayList<>(stripes.keySet());
+        Collections.sort(stripeIds);
+        List<DependencyGraphTACO> sortedStripes = new ArrayList<>(stripeIds.size());
+        List<Integer> seams = new ArrayList<>();
+        for (int stripeId : stripeIds) {
+            sortedStripes.add(stripes.get(stripeId));
+            if (stripeId > 0) {
+                seams.add(stripeId * stripeWidth);
+            }
+        }
+        return DependencyGraphTACO.mergeColumnStripes(sortedStripes, seams, isOffHeap);
+    }
+}
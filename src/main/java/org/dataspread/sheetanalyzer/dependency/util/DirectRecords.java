@@ -0,0 +1,119 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fixed-size records in direct ByteBuffers, outside the Java heap. Records
+ * are numbered from 0 and fields are addressed by their byte offset in the
+ * record. Past the first, chunks of about a megabyte are added as the
+ * capacity grows, so records never move and the heap only holds the chunk
+ * objects. The first chunk starts small and is copied while it grows, so
+ * small tables take little memory. New records are zeroed.
+ */
+final class DirectRecords {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int MIN_RECORDS = 16;
+
+    private final int recordSize;
+    private final int chunkShift;
+    private final int chunkMask;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int capacity = 0;
+
+    DirectRecords(int recordSize) {
+        this.recordSize = recordSize;
+        int recordsPerChunk = Integer.highestOneBit(Math.max(MIN_RECORDS, CHUNK_BYTES / recordSize));
+        this.chunkShift = Integer.numberOfTrailingZeros(recordsPerChunk);
+        this.chunkMask = recordsPerChunk - 1;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Makes records 0 to numRecords - 1 addressable.
+     */
+    void ensureCapacity(int numRecords) {
+        if (numRecords <= capacity) {
+            return;
+        }
+        int recordsPerChunk = chunkMask + 1;
+        if (capacity < recordsPerChunk) {
+            int firstRecords = Math.min(recordsPerChunk, Math.max(numRecords, Math.max(MIN_RECORDS, 2 * capacity)));
+            ByteBuffer first = allocate(firstRecords);
+            if (chunks.length != 0) {
+                ByteBuffer old = chunks[0];
+                for (int i = 0; i < old.capacity(); i += 4) {
+                    first.putInt(i, old.getInt(i));
+                }
+            } else {
+                chunks = new ByteBuffer[1];
+            }
+            chunks[0] = first;
+            capacity = firstRecords;
+        }
+        while (capacity < numRecords) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = allocate(recordsPerChunk);
+            capacity += recordsPerChunk;
+        }
+    }
+
+    DirectRecords copy() {
+        DirectRecords copy = new DirectRecords(recordSize);
+        copy.chunks = new ByteBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuffer chunk = chunks[i];
+            ByteBuffer chunkCopy = ByteBuffer.allocateDirect(chunk.capacity()).order(ByteOrder.nativeOrder());
+            for (int offset = 0; offset < chunk.capacity(); offset += 4) {
+                chunkCopy.putInt(offset, chunk.getInt(offset));
+            }
+            copy.chunks[i] = chunkCopy;
+        }
+        copy.capacity = capacity;
+        return copy;
+    }
+
+    private ByteBuffer allocate(int numRecords) {
+        return ByteBuffer.allocateDirect(numRecords * recordSize).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Drops all chunks; their memory is freed once they are collected.
+     */
+    void clear() {
+        chunks = new ByteBuffer[0];
+        capacity = 0;
+    }
+
+    private int offset(int record, int field) {
+        return (record & chunkMask) * recordSize + field;
+    }
+
+    long getLong(int record, int field) {
+        return chunks[record >>> chunkShift].getLong(offset(record, field));
+    }
+
+    void putLong(int record, int field, long value) {
+        chunks[record >>> chunkShift].putLong(offset(record, field), value);
+    }
+
+    int getInt(int record, int field) {
+        return chunks[record >>> chunkShift].getInt(offset(record, field));
+    }
+
+    void putInt(int record, int field, int value) {
+        chunks[record >>> chunkShift].putInt(offset(record, field), value);
+    }
+
+    // Record sizes are multiples of four
+    void copy(int from, int to) {
+        for (int field = 0; field < recordSize; field += 4) {
+            putInt(to, field, getInt(from, field));
+        }
+    }
+}
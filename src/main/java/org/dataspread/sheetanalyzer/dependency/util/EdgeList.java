@@ -0,0 +1,107 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.util.Arrays;
+
+/**
+ * The edges of one range of the graph, with the range on the other end of
+ * each edge packed as in {@link PackedRange}. Most ranges have a single
+ * edge, so the first one is kept in fields and only the others go to
+ * arrays. Removal swaps the last edge into the gap; edges do not keep
+ * their insertion order.
+ */
+public final class EdgeList {
+
+    private long firstStart;
+    private long firstEnd;
+    private EdgeMeta firstEdgeMeta;
+
+    // Edge i > 0 is at ranges[2 * (i - 1)], ranges[2 * (i - 1) + 1]
+    private long[] ranges;
+    private EdgeMeta[] edgeMetas;
+    private int size = 0;
+
+    public void add(long start, long end, EdgeMeta edgeMeta) {
+        if (size == 0) {
+            firstStart = start;
+            firstEnd = end;
+            firstEdgeMeta = edgeMeta;
+        } else {
+            int i = size - 1;
+            if (edgeMetas == null) {
+                ranges = new long[4];
+                edgeMetas = new EdgeMeta[2];
+            } else if (i == edgeMetas.length) {
+                int capacity = i + (i >> 1) + 1;
+                ranges = Arrays.copyOf(ranges, 2 * capacity);
+                edgeMetas = Arrays.copyOf(edgeMetas, capacity);
+            }
+            ranges[2 * i] = start;
+            ranges[2 * i + 1] = end;
+            edgeMetas[i] = edgeMeta;
+        }
+        size += 1;
+    }
+
+    /**
+     * Removes one edge to the range with an equal edgeMeta.
+     *
+     * @return false if there is no such edge
+     */
+    public boolean remove(long start, long end, EdgeMeta edgeMeta) {
+        for (int i = 0; i < size; i++) {
+            if (getStart(i) == start && getEnd(i) == end && getEdgeMeta(i).equals(edgeMeta)) {
+                int last = size - 1;
+                set(i, getStart(last), getEnd(last), getEdgeMeta(last));
+                set(last, 0, 0, null);
+                size = last;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void set(int i, long start, long end, EdgeMeta edgeMeta) {
+        if (i == 0) {
+            firstStart = start;
+            firstEnd = end;
+            firstEdgeMeta = edgeMeta;
+        } else {
+            ranges[2 * (i - 1)] = start;
+            ranges[2 * (i - 1) + 1] = end;
+            edgeMetas[i - 1] = edgeMeta;
+        }
+    }
+
+    public EdgeList copy() {
+        EdgeList copy = new EdgeList();
+        copy.firstStart = firstStart;
+        copy.firstEnd = firstEnd;
+        copy.firstEdgeMeta = firstEdgeMeta;
+        if (size > 1) {
+            copy.ranges = Arrays.copyOf(ranges, 2 * (size - 1));
+            copy.edgeMetas = Arrays.copyOf(edgeMetas, size - 1);
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getStart(int i) {
+        return i == 0 ? firstStart : ranges[2 * (i - 1)];
+    }
+
+    public long getEnd(int i) {
+        return i == 0 ? firstEnd : ranges[2 * (i - 1) + 1];
+    }
+
+    public EdgeMeta getEdgeMeta(int i) {
+        return i == 0 ? firstEdgeMeta : edgeMetas[i - 1];
+    }
+}
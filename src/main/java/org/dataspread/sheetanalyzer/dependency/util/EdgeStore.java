@@ -0,0 +1,52 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+/**
+ * The adjacency lists of a graph: the edges of each range, keyed by the
+ * range at one end and holding the range at the other, all packed as in
+ * {@link PackedRange}. A range is only stored while it has edges.
+ */
+public interface EdgeStore {
+
+    /**
+     * Adds an edge from the range to the other range. Equal edges are
+     * stored twice.
+     *
+     * @return true if the range had no edges before
+     */
+    boolean add(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta);
+
+    /**
+     * Removes one edge from the range to the other range with an equal
+     * edgeMeta, and the range with its last edge.
+     *
+     * @return false if there is no such edge
+     */
+    boolean remove(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta);
+
+    /**
+     * @return the edges of the range, or null if it has none. The list must
+     * not be changed; it may be a copy, which later updates do not reach.
+     */
+    EdgeList get(long start, long end);
+
+    boolean containsKey(long start, long end);
+
+    /**
+     * @return the number of ranges
+     */
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * @return a store with the same edges that changes independently
+     */
+    EdgeStore copy();
+
+    /**
+     * The store must not be changed from within the visitor.
+     */
+    void forEach(RangeMap.Visitor<EdgeList> visitor);
+}
@@ -0,0 +1,80 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+/**
+ * Keeps an EdgeList per range in a {@link RangeMap}; get returns the list
+ * itself.
+ */
+public class HeapEdgeStore implements EdgeStore {
+
+    private final RangeMap<EdgeList> edgeLists;
+
+    public HeapEdgeStore() {
+        this(new RangeMap<>());
+    }
+
+    private HeapEdgeStore(RangeMap<EdgeList> edgeLists) {
+        this.edgeLists = edgeLists;
+    }
+
+    @Override
+    public boolean add(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta) {
+        EdgeList edgeList = edgeLists.get(start, end);
+        boolean isNew = edgeList == null;
+        if (isNew) {
+            edgeList = new EdgeList();
+            edgeLists.put(start, end, edgeList);
+        }
+        edgeList.add(otherStart, otherEnd, edgeMeta);
+        return isNew;
+    }
+
+    @Override
+    public boolean remove(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta) {
+        EdgeList edgeList = edgeLists.get(start, end);
+        if (edgeList == null) {
+            return false;
+        }
+        boolean isRemoved = edgeList.remove(otherStart, otherEnd, edgeMeta);
+        if (edgeList.isEmpty()) {
+            edgeLists.remove(start, end);
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public EdgeList get(long start, long end) {
+        return edgeLists.get(start, end);
+    }
+
+    @Override
+    public boolean containsKey(long start, long end) {
+        return edgeLists.containsKey(start, end);
+    }
+
+    @Override
+    public int size() {
+        return edgeLists.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return edgeLists.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        edgeLists.clear();
+    }
+
+    @Override
+    public EdgeStore copy() {
+        RangeMap<EdgeList> copy = new RangeMap<>(edgeLists.size());
+        edgeLists.forEach((start, end, edgeList) -> copy.put(start, end, edgeList.copy()));
+        return new HeapEdgeStore(copy);
+    }
+
+    @Override
+    public void forEach(RangeMap.Visitor<EdgeList> visitor) {
+        edgeLists.forEach(visitor);
+    }
+}
@@ -0,0 +1,257 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the edges in direct memory (see {@link DirectRecords}), so the
+ * heap holds no object per range or edge and the garbage collector has
+ * nothing to trace however large the graph grows. The ranges are in a hash
+ * table with linear probing as in {@link RangeMap}, each slot pointing to
+ * a linked list of its edges in a pool of edge records. EdgeMetas are
+ * few, and stay on the heap with an id each.
+ *
+ * get and forEach build a new EdgeList for every range they return, with
+ * the edges in the order they were added.
+ */
+public class OffHeapEdgeStore implements EdgeStore {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    // A slot of the table: the range, its first and last edge and the
+    // number of edges. Slots without edges are empty.
+    private static final int SLOT_START = 0;
+    private static final int SLOT_END = 8;
+    private static final int SLOT_FIRST = 16;
+    private static final int SLOT_LAST = 20;
+    private static final int SLOT_SIZE = 24;
+    private static final int SLOT_BYTES = 32;
+
+    // An edge: the range on the other end, the id of its EdgeMeta and the
+    // next edge of the same range, or of the free list
+    private static final int EDGE_START = 0;
+    private static final int EDGE_END = 8;
+    private static final int EDGE_META = 16;
+    private static final int EDGE_NEXT = 20;
+    private static final int EDGE_BYTES = 24;
+
+    private DirectRecords slots;
+    private int mask;
+    private int size = 0;
+
+    private DirectRecords edges = new DirectRecords(EDGE_BYTES);
+    private int numEdgeRecords = 0;
+    private int freeEdge = NONE;
+
+    private List<EdgeMeta> edgeMetas = new ArrayList<>();
+    private Map<EdgeMeta, Integer> edgeMetaIds = new HashMap<>();
+
+    public OffHeapEdgeStore() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        slots = new DirectRecords(SLOT_BYTES);
+        slots.ensureCapacity(capacity);
+        mask = capacity - 1;
+    }
+
+    private boolean isEmptySlot(int slot) {
+        return slots.getInt(slot, SLOT_SIZE) == 0;
+    }
+
+    private int findSlot(long start, long end) {
+        int slot = RangeMap.hash(start, end) & mask;
+        while (!isEmptySlot(slot)) {
+            if (slots.getLong(slot, SLOT_START) == start && slots.getLong(slot, SLOT_END) == end) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1 - slot;
+    }
+
+    private int getEdgeMetaId(EdgeMeta edgeMeta) {
+        Integer id = edgeMetaIds.get(edgeMeta);
+        if (id == null) {
+            id = edgeMetas.size();
+            edgeMetas.add(edgeMeta);
+            edgeMetaIds.put(edgeMeta, id);
+        }
+        return id;
+    }
+
+    private int newEdge(long start, long end, int edgeMetaId) {
+        int edge = freeEdge;
+        if (edge != NONE) {
+            freeEdge = edges.getInt(edge, EDGE_NEXT);
+        } else {
+            edge = numEdgeRecords;
+            edges.ensureCapacity(edge + 1);
+            numEdgeRecords += 1;
+        }
+        edges.putLong(edge, EDGE_START, start);
+        edges.putLong(edge, EDGE_END, end);
+        edges.putInt(edge, EDGE_META, edgeMetaId);
+        edges.putInt(edge, EDGE_NEXT, NONE);
+        return edge;
+    }
+
+    @Override
+    public boolean add(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta) {
+        int edge = newEdge(otherStart, otherEnd, getEdgeMetaId(edgeMeta));
+        int slot = findSlot(start, end);
+        if (slot >= 0) {
+            edges.putInt(slots.getInt(slot, SLOT_LAST), EDGE_NEXT, edge);
+            slots.putInt(slot, SLOT_LAST, edge);
+            slots.putInt(slot, SLOT_SIZE, slots.getInt(slot, SLOT_SIZE) + 1);
+            return false;
+        }
+
+        slot = -1 - slot;
+        slots.putLong(slot, SLOT_START, start);
+        slots.putLong(slot, SLOT_END, end);
+        slots.putInt(slot, SLOT_FIRST, edge);
+        slots.putInt(slot, SLOT_LAST, edge);
+        slots.putInt(slot, SLOT_SIZE, 1);
+        size += 1;
+        if (size * 4 > (mask + 1) * 3) {
+            rehash(2 * (mask + 1));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(long start, long end, long otherStart, long otherEnd, EdgeMeta edgeMeta) {
+        int slot = findSlot(start, end);
+        Integer edgeMetaId = edgeMetaIds.get(edgeMeta);
+        if (slot < 0 || edgeMetaId == null) {
+            return false;
+        }
+        int previous = NONE;
+        for (int edge = slots.getInt(slot, SLOT_FIRST); edge != NONE; edge = edges.getInt(edge, EDGE_NEXT)) {
+            if (edges.getLong(edge, EDGE_START) == otherStart && edges.getLong(edge, EDGE_END) == otherEnd
+                    && edges.getInt(edge, EDGE_META) == edgeMetaId) {
+                int next = edges.getInt(edge, EDGE_NEXT);
+                if (previous == NONE) {
+                    slots.putInt(slot, SLOT_FIRST, next);
+                } else {
+                    edges.putInt(previous, EDGE_NEXT, next);
+                }
+                if (next == NONE) {
+                    slots.putInt(slot, SLOT_LAST, previous);
+                }
+                edges.putInt(edge, EDGE_NEXT, freeEdge);
+                freeEdge = edge;
+
+                int numEdges = slots.getInt(slot, SLOT_SIZE) - 1;
+                slots.putInt(slot, SLOT_SIZE, numEdges);
+                if (numEdges == 0) {
+                    removeSlot(slot);
+                }
+                return true;
+            }
+            previous = edge;
+        }
+        return false;
+    }
+
+    // The slot is already empty; the rest of its probe chain is shifted
+    // back, so no tombstones are needed
+    private void removeSlot(int slot) {
+        size -= 1;
+        int gap = slot;
+        int next = (slot + 1) & mask;
+        while (!isEmptySlot(next)) {
+            int home = RangeMap.hash(slots.getLong(next, SLOT_START), slots.getLong(next, SLOT_END)) & mask;
+            boolean isMovable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (isMovable) {
+                slots.copy(next, gap);
+                slots.putInt(next, SLOT_SIZE, 0);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        DirectRecords oldSlots = slots;
+        int oldCapacity = mask + 1;
+        allocate(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            if (oldSlots.getInt(i, SLOT_SIZE) != 0) {
+                int slot = -1 - findSlot(oldSlots.getLong(i, SLOT_START), oldSlots.getLong(i, SLOT_END));
+                slots.putLong(slot, SLOT_START, oldSlots.getLong(i, SLOT_START));
+                slots.putLong(slot, SLOT_END, oldSlots.getLong(i, SLOT_END));
+                slots.putInt(slot, SLOT_FIRST, oldSlots.getInt(i, SLOT_FIRST));
+                slots.putInt(slot, SLOT_LAST, oldSlots.getInt(i, SLOT_LAST));
+                slots.putInt(slot, SLOT_SIZE, oldSlots.getInt(i, SLOT_SIZE));
+            }
+        }
+    }
+
+    private EdgeList toEdgeList(int slot) {
+        EdgeList edgeList = new EdgeList();
+        for (int edge = slots.getInt(slot, SLOT_FIRST); edge != NONE; edge = edges.getInt(edge, EDGE_NEXT)) {
+            edgeList.add(edges.getLong(edge, EDGE_START), edges.getLong(edge, EDGE_END),
+                    edgeMetas.get(edges.getInt(edge, EDGE_META)));
+        }
+        return edgeList;
+    }
+
+    @Override
+    public EdgeList get(long start, long end) {
+        int slot = findSlot(start, end);
+        return slot >= 0 ? toEdgeList(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(long start, long end) {
+        return findSlot(start, end) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        edges.clear();
+        numEdgeRecords = 0;
+        freeEdge = NONE;
+    }
+
+    @Override
+    public EdgeStore copy() {
+        OffHeapEdgeStore copy = new OffHeapEdgeStore();
+        copy.slots = slots.copy();
+        copy.mask = mask;
+        copy.size = size;
+        copy.edges = edges.copy();
+        copy.numEdgeRecords = numEdgeRecords;
+        copy.freeEdge = freeEdge;
+        copy.edgeMetas = new ArrayList<>(edgeMetas);
+        copy.edgeMetaIds = new HashMap<>(edgeMetaIds);
+        return copy;
+    }
+
+    @Override
+    public void forEach(RangeMap.Visitor<EdgeList> visitor) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (!isEmptySlot(slot)) {
+                visitor.visit(slots.getLong(slot, SLOT_START), slots.getLong(slot, SLOT_END), toEdgeList(slot));
+            }
+        }
+    }
+}
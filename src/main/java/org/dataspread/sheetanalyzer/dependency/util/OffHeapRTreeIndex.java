@@ -0,0 +1,458 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.dataspread.sheetanalyzer.dependency.util.PackedRange.*;
+
+/**
+ * The R-tree of {@link RTreeIndex}, with the same inserts, splits, deletes
+ * and packing, but with its nodes in direct memory (see
+ * {@link DirectRecords}) instead of objects on the heap. A node is a record
+ * numbered from 0; the nodes a delete drops go to a free list and are
+ * reused.
+ */
+public class OffHeapRTreeIndex implements SpatialIndex {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+    private static final int NONE = -1;
+
+    // A node: whether it is a leaf, its number of entries, then one slot
+    // more than allowed of entries, each its bounds and the child node of
+    // an inner node. A free node keeps the next free node in its count.
+    private static final int NODE_IS_LEAF = 0;
+    private static final int NODE_COUNT = 4;
+    private static final int ENTRIES = 8;
+    private static final int ROW = 0;
+    private static final int COL = 4;
+    private static final int LAST_ROW = 8;
+    private static final int LAST_COL = 12;
+    private static final int CHILD = 16;
+    private static final int ENTRY_BYTES = 20;
+    private static final int NODE_BYTES = ENTRIES + (MAX_ENTRIES + 1) * ENTRY_BYTES;
+
+    private DirectRecords nodes = new DirectRecords(NODE_BYTES);
+    private int numNodes = 0;
+    private int freeNode = NONE;
+
+    private int root;
+    private int size = 0;
+
+    public OffHeapRTreeIndex() {
+        root = newNode(true);
+    }
+
+    private int newNode(boolean isLeaf) {
+        int node = freeNode;
+        if (node != NONE) {
+            freeNode = nodes.getInt(node, NODE_COUNT);
+        } else {
+            node = numNodes;
+            nodes.ensureCapacity(node + 1);
+            numNodes += 1;
+        }
+        nodes.putInt(node, NODE_IS_LEAF, isLeaf ? 1 : 0);
+        nodes.putInt(node, NODE_COUNT, 0);
+        return node;
+    }
+
+    private void freeNode(int node) {
+        nodes.putInt(node, NODE_COUNT, freeNode);
+        freeNode = node;
+    }
+
+    private boolean isLeaf(int node) {
+        return nodes.getInt(node, NODE_IS_LEAF) != 0;
+    }
+
+    private int count(int node) {
+        return nodes.getInt(node, NODE_COUNT);
+    }
+
+    private void setCount(int node, int count) {
+        nodes.putInt(node, NODE_COUNT, count);
+    }
+
+    private int get(int node, int i, int field) {
+        return nodes.getInt(node, ENTRIES + i * ENTRY_BYTES + field);
+    }
+
+    private void set(int node, int i, int row, int col, int lastRow, int lastCol, int child) {
+        int entry = ENTRIES + i * ENTRY_BYTES;
+        nodes.putInt(node, entry + ROW, row);
+        nodes.putInt(node, entry + COL, col);
+        nodes.putInt(node, entry + LAST_ROW, lastRow);
+        nodes.putInt(node, entry + LAST_COL, lastCol);
+        nodes.putInt(node, entry + CHILD, child);
+    }
+
+    private void append(int node, int row, int col, int lastRow, int lastCol, int child) {
+        int count = count(node);
+        set(node, count, row, col, lastRow, lastCol, child);
+        setCount(node, count + 1);
+    }
+
+    private void appendNode(int node, int child) {
+        append(node, minRow(child), minCol(child), maxRow(child), maxCol(child), child);
+    }
+
+    private void updateBounds(int node, int i) {
+        int child = get(node, i, CHILD);
+        set(node, i, minRow(child), minCol(child), maxRow(child), maxCol(child), child);
+    }
+
+    private void removeAt(int node, int i) {
+        int last = count(node) - 1;
+        set(node, i, get(node, last, ROW), get(node, last, COL),
+                get(node, last, LAST_ROW), get(node, last, LAST_COL), get(node, last, CHILD));
+        setCount(node, last);
+    }
+
+    private boolean overlaps(int node, int i, int row, int col, int lastRow, int lastCol) {
+        return get(node, i, ROW) <= lastRow && row <= get(node, i, LAST_ROW)
+                && get(node, i, COL) <= lastCol && col <= get(node, i, LAST_COL);
+    }
+
+    private boolean contains(int node, int i, int row, int col, int lastRow, int lastCol) {
+        return get(node, i, ROW) <= row && lastRow <= get(node, i, LAST_ROW)
+                && get(node, i, COL) <= col && lastCol <= get(node, i, LAST_COL);
+    }
+
+    private int minRow(int node) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < count(node); i++) {
+            min = Math.min(min, get(node, i, ROW));
+        }
+        return min;
+    }
+
+    private int minCol(int node) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < count(node); i++) {
+            min = Math.min(min, get(node, i, COL));
+        }
+        return min;
+    }
+
+    private int maxRow(int node) {
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count(node); i++) {
+            max = Math.max(max, get(node, i, LAST_ROW));
+        }
+        return max;
+    }
+
+    private int maxCol(int node) {
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count(node); i++) {
+            max = Math.max(max, get(node, i, LAST_COL));
+        }
+        return max;
+    }
+
+    @Override
+    public void add(long start, long end) {
+        insert(row(start), col(start), row(end), col(end));
+        size += 1;
+    }
+
+    private void insert(int row, int col, int lastRow, int lastCol) {
+        int split = insert(root, row, col, lastRow, lastCol);
+        if (split != NONE) {
+            int newRoot = newNode(false);
+            appendNode(newRoot, root);
+            appendNode(newRoot, split);
+            root = newRoot;
+        }
+    }
+
+    // Returns the new sibling if the node had to be split
+    private int insert(int node, int row, int col, int lastRow, int lastCol) {
+        if (isLeaf(node)) {
+            append(node, row, col, lastRow, lastCol, NONE);
+        } else {
+            int i = chooseSubtree(node, row, col, lastRow, lastCol);
+            int split = insert(get(node, i, CHILD), row, col, lastRow, lastCol);
+            updateBounds(node, i);
+            if (split != NONE) {
+                appendNode(node, split);
+            }
+        }
+        return count(node) > MAX_ENTRIES ? split(node) : NONE;
+    }
+
+    private static long area(int row, int col, int lastRow, int lastCol) {
+        return (long) (lastRow - row + 1) * (lastCol - col + 1);
+    }
+
+    private int chooseSubtree(int node, int row, int col, int lastRow, int lastCol) {
+        int best = 0;
+        long bestEnlargement = Long.MAX_VALUE;
+        long bestArea = Long.MAX_VALUE;
+        for (int i = 0; i < count(node); i++) {
+            int entryRow = get(node, i, ROW), entryCol = get(node, i, COL);
+            int entryLastRow = get(node, i, LAST_ROW), entryLastCol = get(node, i, LAST_COL);
+            long area = area(entryRow, entryCol, entryLastRow, entryLastCol);
+            long enlargement = area(Math.min(entryRow, row), Math.min(entryCol, col),
+                    Math.max(entryLastRow, lastRow), Math.max(entryLastCol, lastCol)) - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    // The quadratic split of RTreeIndex, on copies of the entries
+    private int split(int node) {
+        int total = count(node);
+        int[] rows = new int[total];
+        int[] cols = new int[total];
+        int[] lastRows = new int[total];
+        int[] lastCols = new int[total];
+        int[] children = new int[total];
+        for (int i = 0; i < total; i++) {
+            rows[i] = get(node, i, ROW);
+            cols[i] = get(node, i, COL);
+            lastRows[i] = get(node, i, LAST_ROW);
+            lastCols[i] = get(node, i, LAST_COL);
+            children[i] = get(node, i, CHILD);
+        }
+
+        int seedA = 0, seedB = 1;
+        long worstWaste = Long.MIN_VALUE;
+        for (int i = 0; i < total; i++) {
+            for (int j = i + 1; j < total; j++) {
+                long waste = area(Math.min(rows[i], rows[j]), Math.min(cols[i], cols[j]),
+                        Math.max(lastRows[i], lastRows[j]), Math.max(lastCols[i], lastCols[j]))
+                        - area(rows[i], cols[i], lastRows[i], lastCols[i])
+                        - area(rows[j], cols[j], lastRows[j], lastCols[j]);
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+
+        int sibling = newNode(isLeaf(node));
+        setCount(node, 0);
+        append(node, rows[seedA], cols[seedA], lastRows[seedA], lastCols[seedA], children[seedA]);
+        append(sibling, rows[seedB], cols[seedB], lastRows[seedB], lastCols[seedB], children[seedB]);
+
+        boolean[] assigned = new boolean[total];
+        assigned[seedA] = true;
+        assigned[seedB] = true;
+        int remaining = total - 2;
+        while (remaining > 0) {
+            int target = NONE;
+            if (count(node) + remaining <= MIN_ENTRIES) {
+                target = node;
+            } else if (count(sibling) + remaining <= MIN_ENTRIES) {
+                target = sibling;
+            }
+
+            int next = -1;
+            long nextDiff = -1;
+            long nextGrowA = 0, nextGrowB = 0;
+            for (int i = 0; i < total; i++) {
+                if (!assigned[i]) {
+                    long growA = growth(node, rows[i], cols[i], lastRows[i], lastCols[i]);
+                    long growB = growth(sibling, rows[i], cols[i], lastRows[i], lastCols[i]);
+                    long diff = Math.abs(growA - growB);
+                    if (diff > nextDiff) {
+                        next = i;
+                        nextDiff = diff;
+                        nextGrowA = growA;
+                        nextGrowB = growB;
+                    }
+                }
+            }
+            if (target == NONE) {
+                if (nextGrowA != nextGrowB) {
+                    target = nextGrowA < nextGrowB ? node : sibling;
+                } else {
+                    target = count(node) <= count(sibling) ? node : sibling;
+                }
+            }
+            append(target, rows[next], cols[next], lastRows[next], lastCols[next], children[next]);
+            assigned[next] = true;
+            remaining -= 1;
+        }
+        return sibling;
+    }
+
+    private long growth(int group, int row, int col, int lastRow, int lastCol) {
+        int minRow = minRow(group), minCol = minCol(group);
+        int maxRow = maxRow(group), maxCol = maxCol(group);
+        return area(Math.min(minRow, row), Math.min(minCol, col), Math.max(maxRow, lastRow), Math.max(maxCol, lastCol))
+                - area(minRow, minCol, maxRow, maxCol);
+    }
+
+    @Override
+    public boolean delete(long start, long end) {
+        List<Integer> orphans = new ArrayList<>();
+        boolean isDeleted = delete(root, row(start), col(start), row(end), col(end), orphans);
+        if (!isDeleted) {
+            return false;
+        }
+        size -= 1;
+
+        while (!isLeaf(root) && count(root) == 1) {
+            int oldRoot = root;
+            root = get(root, 0, CHILD);
+            freeNode(oldRoot);
+        }
+        if (!isLeaf(root) && count(root) == 0) {
+            freeNode(root);
+            root = newNode(true);
+        }
+        // The entries are copied out before their nodes are freed, as the
+        // inserts may reuse them
+        List<int[]> orphanEntries = new ArrayList<>();
+        orphans.forEach(orphan -> collectEntries(orphan, orphanEntries));
+        orphanEntries.forEach(entry -> insert(entry[0], entry[1], entry[2], entry[3]));
+        return true;
+    }
+
+    private boolean delete(int node, int row, int col, int lastRow, int lastCol, List<Integer> orphans) {
+        for (int i = 0; i < count(node); i++) {
+            if (isLeaf(node)) {
+                if (get(node, i, ROW) == row && get(node, i, COL) == col
+                        && get(node, i, LAST_ROW) == lastRow && get(node, i, LAST_COL) == lastCol) {
+                    removeAt(node, i);
+                    return true;
+                }
+            } else if (contains(node, i, row, col, lastRow, lastCol)) {
+                int child = get(node, i, CHILD);
+                if (delete(child, row, col, lastRow, lastCol, orphans)) {
+                    if (count(child) < MIN_ENTRIES) {
+                        removeAt(node, i);
+                        orphans.add(child);
+                    } else {
+                        updateBounds(node, i);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Copies the leaf entries under the node and frees the whole subtree
+    private void collectEntries(int node, List<int[]> entries) {
+        for (int i = 0; i < count(node); i++) {
+            if (isLeaf(node)) {
+                entries.add(new int[]{get(node, i, ROW), get(node, i, COL),
+                        get(node, i, LAST_ROW), get(node, i, LAST_COL)});
+            } else {
+                collectEntries(get(node, i, CHILD), entries);
+            }
+        }
+        freeNode(node);
+    }
+
+    @Override
+    public void search(long start, long end, Visitor visitor) {
+        if (size != 0) {
+            search(root, row(start), col(start), row(end), col(end), visitor);
+        }
+    }
+
+    private void search(int node, int row, int col, int lastRow, int lastCol, Visitor visitor) {
+        boolean isLeaf = isLeaf(node);
+        for (int i = 0; i < count(node); i++) {
+            if (overlaps(node, i, row, col, lastRow, lastCol)) {
+                if (isLeaf) {
+                    visitor.visit(pack(get(node, i, ROW), get(node, i, COL)),
+                            pack(get(node, i, LAST_ROW), get(node, i, LAST_COL)));
+                } else {
+                    search(get(node, i, CHILD), row, col, lastRow, lastCol, visitor);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        numNodes = 0;
+        freeNode = NONE;
+        root = newNode(true);
+        size = 0;
+    }
+
+    @Override
+    public SpatialIndex copy() {
+        OffHeapRTreeIndex copy = new OffHeapRTreeIndex();
+        copy.nodes = nodes.copy();
+        copy.numNodes = numNodes;
+        copy.freeNode = freeNode;
+        copy.root = root;
+        copy.size = size;
+        return copy;
+    }
+
+    // Packs the tree with Sort-Tile-Recursive as RTreeIndex.load does
+    @Override
+    public void load(long[] starts, long[] ends) {
+        if (size != 0 || starts.length == 0) {
+            for (int i = 0; i < starts.length; i++) {
+                add(starts[i], ends[i]);
+            }
+            return;
+        }
+
+        List<Integer> entries = new ArrayList<>(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            entries.add(i);
+        }
+        freeNode(root);
+        List<Integer> level = new ArrayList<>();
+        for (List<Integer> group : tile(entries,
+                Comparator.comparingLong(i -> (long) row(starts[i]) + row(ends[i])),
+                Comparator.comparingLong(i -> (long) col(starts[i]) + col(ends[i])))) {
+            int leaf = newNode(true);
+            group.forEach(i -> append(leaf, row(starts[i]), col(starts[i]), row(ends[i]), col(ends[i]), NONE));
+            level.add(leaf);
+        }
+        while (level.size() > 1) {
+            List<Integer> parents = new ArrayList<>();
+            for (List<Integer> group : tile(level,
+                    Comparator.comparingLong(node -> (long) minRow(node) + maxRow(node)),
+                    Comparator.comparingLong(node -> (long) minCol(node) + maxCol(node)))) {
+                int parent = newNode(false);
+                group.forEach(child -> appendNode(parent, child));
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        root = level.get(0);
+        size = starts.length;
+    }
+
+    private static <T> List<List<T>> tile(List<T> items, Comparator<T> byRow, Comparator<T> byCol) {
+        int numGroups = (items.size() + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int numSlices = (int) Math.ceil(Math.sqrt(numGroups));
+        int sliceSize = numSlices * MAX_ENTRIES;
+
+        items.sort(byRow);
+        List<List<T>> groups = new ArrayList<>(numGroups);
+        for (int sliceStart = 0; sliceStart < items.size(); sliceStart += sliceSize) {
+            List<T> slice = items.subList(sliceStart, Math.min(items.size(), sliceStart + sliceSize));
+            slice.sort(byCol);
+            for (int start = 0; start < slice.size(); start += MAX_ENTRIES) {
+                groups.add(slice.subList(start, Math.min(slice.size(), start + MAX_ENTRIES)));
+            }
+        }
+        return groups;
+    }
+}
@@ -8,11 +8,36 @@ public class Offset {
     private final int rowOffset;
     private final int colOffset;
 
+    // Small offsets, filled in as they are asked for
+    private static final int CACHE_RADIUS = 32;
+    private static final Offset[] cache = new Offset[4 * CACHE_RADIUS * CACHE_RADIUS];
+
     public Offset(int rowOffset, int colOffset) {
         this.rowOffset = rowOffset;
         this.colOffset = colOffset;
     }
 
+    /**
+     * Returns a shared instance for small offsets, a new one otherwise.
+     */
+    public static Offset of(int rowOffset, int colOffset) {
+        if (rowOffset == 0 && colOffset == 0) {
+            return noOffset;
+        }
+        if (rowOffset < -CACHE_RADIUS || rowOffset >= CACHE_RADIUS
+                || colOffset < -CACHE_RADIUS || colOffset >= CACHE_RADIUS) {
+            return new Offset(rowOffset, colOffset);
+        }
+        int slot = (rowOffset + CACHE_RADIUS) * 2 * CACHE_RADIUS + colOffset + CACHE_RADIUS;
+        Offset offset = cache[slot];
+        // Racing threads may both create one, which is harmless
+        if (offset == null) {
+            offset = new Offset(rowOffset, colOffset);
+            cache[slot] = offset;
+        }
+        return offset;
+    }
+
     public int getColOffset() {
         return this.colOffset;
     }
@@ -0,0 +1,44 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+/**
+ * Packs a range of one sheet into two longs, its first cell and its last
+ * cell, each holding the row in the high and the column in the low 32 bits.
+ * Book and sheet names are left out; they are the same for every range of
+ * a graph and only come back when a range is turned into a {@link Ref}.
+ */
+public final class PackedRange {
+
+    private PackedRange() {
+    }
+
+    public static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    public static long start(Ref ref) {
+        return pack(ref.getRow(), ref.getColumn());
+    }
+
+    public static long end(Ref ref) {
+        return pack(ref.getLastRow(), ref.getLastColumn());
+    }
+
+    public static int row(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int col(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * @param template a ref of the same book and sheet
+     */
+    public static Ref toRef(Ref template, long start, long end) {
+        return new RefImpl(template.getBookName(), template.getSheetName(),
+                row(start), col(start), row(end), col(end));
+    }
+}
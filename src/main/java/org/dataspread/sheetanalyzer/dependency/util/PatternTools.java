@@ -5,6 +5,7 @@ import com.github.davidmoten.rtree.geometry.Rectangle;
 import org.dataspread.sheetanalyzer.util.RefImpl;
 import org.dataspread.sheetanalyzer.util.Ref;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -201,7 +202,6 @@ public class PatternTools {
     }
 
     public static Set<Ref> findUpdateDepRef(Ref prec, Ref dep, EdgeMeta edgeMeta, Ref precRange) {
-        Set<Ref> retSet = new HashSet<>();
         int row = -1;
         int col = -1;
         int lastRow = -1;
@@ -253,7 +253,7 @@ public class PatternTools {
                 lastCol = inputLastCol + startColOffset;
                 if (patternType != PatternType.TYPEONE) {
                     int gapSize = patternType.ordinal() - PatternType.TYPEFIVE.ordinal() + 1;
-                    retSet = findRefSetForGapType(
+                    return findRefSetForGapType(
                             prec.getBookName(),
                             prec.getSheetName(),
                             Math.max(row, dep.getRow()),
@@ -265,7 +265,6 @@ public class PatternTools {
                             dep.getLastRow(),
                             dep.getLastColumn(),
                             gapSize);
-                    return retSet;
                 }
                 break;
 
@@ -302,9 +301,8 @@ public class PatternTools {
                 lastRow,
                 lastCol).getOverlap(dep);
 
-        retSet.add(result);
-
-        return retSet;
+        // Most edges update one range, no need for a HashSet
+        return Collections.singleton(result);
     }
 
     public static Set<Ref> findRefSetForGapType(
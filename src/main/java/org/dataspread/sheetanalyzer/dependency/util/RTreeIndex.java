@@ -0,0 +1,428 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.dataspread.sheetanalyzer.dependency.util.PackedRange.*;
+
+/**
+ * A mutable R-tree over int row and column bounds. Nodes keep the bounds of
+ * their entries in int arrays, and a leaf entry is nothing but its bounds.
+ * Updates happen in place (quadratic split on overflow, reinsertion on
+ * underflow) and searches only walk the arrays.
+ * {@link #load} packs an empty tree with Sort-Tile-Recursive.
+ */
+public class RTreeIndex implements SpatialIndex {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+
+    private Node root = new Node(true);
+    private int size = 0;
+
+    private static final class Node {
+        final boolean isLeaf;
+        int count = 0;
+        // One slot more than allowed, so a node can overflow before it splits
+        final int[] rows = new int[MAX_ENTRIES + 1];
+        final int[] cols = new int[MAX_ENTRIES + 1];
+        final int[] lastRows = new int[MAX_ENTRIES + 1];
+        final int[] lastCols = new int[MAX_ENTRIES + 1];
+        // Only used by inner nodes, leaf entries are just their bounds
+        final Node[] children;
+
+        Node(boolean isLeaf) {
+            this.isLeaf = isLeaf;
+            this.children = isLeaf ? null : new Node[MAX_ENTRIES + 1];
+        }
+
+        void append(int row, int col, int lastRow, int lastCol, Node child) {
+            set(count, row, col, lastRow, lastCol, child);
+            count += 1;
+        }
+
+        void append(Node child) {
+            append(child.minRow(), child.minCol(), child.maxRow(), child.maxCol(), child);
+        }
+
+        void set(int i, int row, int col, int lastRow, int lastCol, Node child) {
+            rows[i] = row;
+            cols[i] = col;
+            lastRows[i] = lastRow;
+            lastCols[i] = lastCol;
+            if (children != null) {
+                children[i] = child;
+            }
+        }
+
+        void updateBounds(int i) {
+            Node child = children[i];
+            set(i, child.minRow(), child.minCol(), child.maxRow(), child.maxCol(), child);
+        }
+
+        void removeAt(int i) {
+            count -= 1;
+            if (children != null) {
+                set(i, rows[count], cols[count], lastRows[count], lastCols[count], children[count]);
+                children[count] = null;
+            } else {
+                set(i, rows[count], cols[count], lastRows[count], lastCols[count], null);
+            }
+        }
+
+        boolean overlaps(int i, int row, int col, int lastRow, int lastCol) {
+            return rows[i] <= lastRow && row <= lastRows[i]
+                    && cols[i] <= lastCol && col <= lastCols[i];
+        }
+
+        boolean contains(int i, int row, int col, int lastRow, int lastCol) {
+            return rows[i] <= row && lastRow <= lastRows[i]
+                    && cols[i] <= col && lastCol <= lastCols[i];
+        }
+
+        int minRow() {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, rows[i]);
+            }
+            return min;
+        }
+
+        int minCol() {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, cols[i]);
+            }
+            return min;
+        }
+
+        int maxRow() {
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                max = Math.max(max, lastRows[i]);
+            }
+            return max;
+        }
+
+        int maxCol() {
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                max = Math.max(max, lastCols[i]);
+            }
+            return max;
+        }
+    }
+
+    @Override
+    public void add(long start, long end) {
+        insert(row(start), col(start), row(end), col(end));
+        size += 1;
+    }
+
+    private void insert(int row, int col, int lastRow, int lastCol) {
+        Node split = insert(root, row, col, lastRow, lastCol);
+        if (split != null) {
+            Node newRoot = new Node(false);
+            newRoot.append(root);
+            newRoot.append(split);
+            root = newRoot;
+        }
+    }
+
+    // Returns the new sibling if the node had to be split
+    private static Node insert(Node node, int row, int col, int lastRow, int lastCol) {
+        if (node.isLeaf) {
+            node.append(row, col, lastRow, lastCol, null);
+        } else {
+            int i = chooseSubtree(node, row, col, lastRow, lastCol);
+            Node child = node.children[i];
+            Node split = insert(child, row, col, lastRow, lastCol);
+            node.updateBounds(i);
+            if (split != null) {
+                node.append(split);
+            }
+        }
+        return node.count > MAX_ENTRIES ? split(node) : null;
+    }
+
+    private static long area(int row, int col, int lastRow, int lastCol) {
+        return (long) (lastRow - row + 1) * (lastCol - col + 1);
+    }
+
+    private static long enlargedArea(Node node, int i, int row, int col, int lastRow, int lastCol) {
+        return area(Math.min(node.rows[i], row), Math.min(node.cols[i], col),
+                Math.max(node.lastRows[i], lastRow), Math.max(node.lastCols[i], lastCol));
+    }
+
+    private static int chooseSubtree(Node node, int row, int col, int lastRow, int lastCol) {
+        int best = 0;
+        long bestEnlargement = Long.MAX_VALUE;
+        long bestArea = Long.MAX_VALUE;
+        for (int i = 0; i < node.count; i++) {
+            long area = area(node.rows[i], node.cols[i], node.lastRows[i], node.lastCols[i]);
+            long enlargement = enlargedArea(node, i, row, col, lastRow, lastCol) - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Quadratic split: the two entries that would waste the most area
+     * together seed the groups, then the remaining entries go one by one,
+     * most decided first, to the group they enlarge least.
+     */
+    private static Node split(Node node) {
+        int total = node.count;
+        int[] rows = node.rows.clone();
+        int[] cols = node.cols.clone();
+        int[] lastRows = node.lastRows.clone();
+        int[] lastCols = node.lastCols.clone();
+        Node[] children = node.isLeaf ? new Node[total] : node.children.clone();
+
+        int seedA = 0, seedB = 1;
+        long worstWaste = Long.MIN_VALUE;
+        for (int i = 0; i < total; i++) {
+            for (int j = i + 1; j < total; j++) {
+                long waste = area(Math.min(rows[i], rows[j]), Math.min(cols[i], cols[j]),
+                        Math.max(lastRows[i], lastRows[j]), Math.max(lastCols[i], lastCols[j]))
+                        - area(rows[i], cols[i], lastRows[i], lastCols[i])
+                        - area(rows[j], cols[j], lastRows[j], lastCols[j]);
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+
+        Node sibling = new Node(node.isLeaf);
+        node.count = 0;
+        if (!node.isLeaf) {
+            Arrays.fill(node.children, null);
+        }
+        node.append(rows[seedA], cols[seedA], lastRows[seedA], lastCols[seedA], children[seedA]);
+        sibling.append(rows[seedB], cols[seedB], lastRows[seedB], lastCols[seedB], children[seedB]);
+
+        boolean[] assigned = new boolean[total];
+        assigned[seedA] = true;
+        assigned[seedB] = true;
+        int remaining = total - 2;
+        while (remaining > 0) {
+            Node target = null;
+            if (node.count + remaining <= MIN_ENTRIES) {
+                target = node;
+            } else if (sibling.count + remaining <= MIN_ENTRIES) {
+                target = sibling;
+            }
+
+            int next = -1;
+            long nextDiff = -1;
+            long nextGrowA = 0, nextGrowB = 0;
+            for (int i = 0; i < total; i++) {
+                if (!assigned[i]) {
+                    long growA = growth(node, rows[i], cols[i], lastRows[i], lastCols[i]);
+                    long growB = growth(sibling, rows[i], cols[i], lastRows[i], lastCols[i]);
+                    long diff = Math.abs(growA - growB);
+                    if (diff > nextDiff) {
+                        next = i;
+                        nextDiff = diff;
+                        nextGrowA = growA;
+                        nextGrowB = growB;
+                    }
+                }
+            }
+            if (target == null) {
+                if (nextGrowA != nextGrowB) {
+                    target = nextGrowA < nextGrowB ? node : sibling;
+                } else {
+                    target = node.count <= sibling.count ? node : sibling;
+                }
+            }
+            target.append(rows[next], cols[next], lastRows[next], lastCols[next], children[next]);
+            assigned[next] = true;
+            remaining -= 1;
+        }
+        return sibling;
+    }
+
+    private static long growth(Node group, int row, int col, int lastRow, int lastCol) {
+        int minRow = group.minRow(), minCol = group.minCol();
+        int maxRow = group.maxRow(), maxCol = group.maxCol();
+        return area(Math.min(minRow, row), Math.min(minCol, col), Math.max(maxRow, lastRow), Math.max(maxCol, lastCol))
+                - area(minRow, minCol, maxRow, maxCol);
+    }
+
+    @Override
+    public boolean delete(long start, long end) {
+        List<Node> orphans = new ArrayList<>();
+        boolean isDeleted = delete(root, row(start), col(start), row(end), col(end), orphans);
+        if (!isDeleted) {
+            return false;
+        }
+        size -= 1;
+
+        while (!root.isLeaf && root.count == 1) {
+            root = root.children[0];
+        }
+        if (!root.isLeaf && root.count == 0) {
+            root = new Node(true);
+        }
+        List<Node> orphanLeaves = new ArrayList<>();
+        orphans.forEach(orphan -> collectLeaves(orphan, orphanLeaves));
+        orphanLeaves.forEach(leaf -> {
+            for (int i = 0; i < leaf.count; i++) {
+                insert(leaf.rows[i], leaf.cols[i], leaf.lastRows[i], leaf.lastCols[i]);
+            }
+        });
+        return true;
+    }
+
+    private static boolean delete(Node node, int row, int col, int lastRow, int lastCol, List<Node> orphans) {
+        for (int i = 0; i < node.count; i++) {
+            if (node.isLeaf) {
+                if (node.rows[i] == row && node.cols[i] == col
+                        && node.lastRows[i] == lastRow && node.lastCols[i] == lastCol) {
+                    node.removeAt(i);
+                    return true;
+                }
+            } else if (node.contains(i, row, col, lastRow, lastCol)) {
+                Node child = node.children[i];
+                if (delete(child, row, col, lastRow, lastCol, orphans)) {
+                    if (child.count < MIN_ENTRIES) {
+                        node.removeAt(i);
+                        orphans.add(child);
+                    } else {
+                        node.updateBounds(i);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void collectLeaves(Node node, List<Node> leaves) {
+        if (node.isLeaf) {
+            leaves.add(node);
+        } else {
+            for (int i = 0; i < node.count; i++) {
+                collectLeaves(node.children[i], leaves);
+            }
+        }
+    }
+
+    @Override
+    public void search(long start, long end, Visitor visitor) {
+        if (size != 0) {
+            search(root, row(start), col(start), row(end), col(end), visitor);
+        }
+    }
+
+    private static void search(Node node, int row, int col, int lastRow, int lastCol, Visitor visitor) {
+        for (int i = 0; i < node.count; i++) {
+            if (node.overlaps(i, row, col, lastRow, lastCol)) {
+                if (node.isLeaf) {
+                    visitor.visit(pack(node.rows[i], node.cols[i]), pack(node.lastRows[i], node.lastCols[i]));
+                } else {
+                    search(node.children[i], row, col, lastRow, lastCol, visitor);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        root = new Node(true);
+        size = 0;
+    }
+
+    @Override
+    public SpatialIndex copy() {
+        RTreeIndex copy = new RTreeIndex();
+        copy.root = copy(root);
+        copy.size = size;
+        return copy;
+    }
+
+    private static Node copy(Node node) {
+        Node copy = new Node(node.isLeaf);
+        copy.count = node.count;
+        System.arraycopy(node.rows, 0, copy.rows, 0, node.count);
+        System.arraycopy(node.cols, 0, copy.cols, 0, node.count);
+        System.arraycopy(node.lastRows, 0, copy.lastRows, 0, node.count);
+        System.arraycopy(node.lastCols, 0, copy.lastCols, 0, node.count);
+        if (!node.isLeaf) {
+            for (int i = 0; i < node.count; i++) {
+                copy.children[i] = copy(node.children[i]);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public void load(long[] starts, long[] ends) {
+        if (size != 0 || starts.length == 0) {
+            for (int i = 0; i < starts.length; i++) {
+                add(starts[i], ends[i]);
+            }
+            return;
+        }
+
+        List<Integer> entries = new ArrayList<>(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            entries.add(i);
+        }
+        List<Node> level = new ArrayList<>();
+        for (List<Integer> group : tile(entries,
+                Comparator.comparingLong(i -> (long) row(starts[i]) + row(ends[i])),
+                Comparator.comparingLong(i -> (long) col(starts[i]) + col(ends[i])))) {
+            Node leaf = new Node(true);
+            group.forEach(i -> leaf.append(row(starts[i]), col(starts[i]), row(ends[i]), col(ends[i]), null));
+            level.add(leaf);
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (List<Node> group : tile(level,
+                    Comparator.comparingLong(node -> (long) node.minRow() + node.maxRow()),
+                    Comparator.comparingLong(node -> (long) node.minCol() + node.maxCol()))) {
+                Node parent = new Node(false);
+                group.forEach(parent::append);
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        root = level.get(0);
+        size = starts.length;
+    }
+    /**
+     * Sort-Tile-Recursive: cut the items sorted by row into vertical slices,
+     * sort each slice by column and cut it into groups of MAX_ENTRIES.
+     */
+    private static <T> List<List<T>> tile(List<T> items, Comparator<T> byRow, Comparator<T> byCol) {
+        int numGroups = (items.size() + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int numSlices = (int) Math.ceil(Math.sqrt(numGroups));
+        int sliceSize = numSlices * MAX_ENTRIES;
+
+        items.sort(byRow);
+        List<List<T>> groups = new ArrayList<>(numGroups);
+        for (int sliceStart = 0; sliceStart < items.size(); sliceStart += sliceSize) {
+            List<T> slice = items.subList(sliceStart, Math.min(items.size(), sliceStart + sliceSize));
+            slice.sort(byCol);
+            for (int start = 0; start < slice.size(); start += MAX_ENTRIES) {
+                groups.add(slice.subList(start, Math.min(slice.size(), start + MAX_ENTRIES)));
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,157 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map keyed by ranges packed as in {@link PackedRange}. Keys live in
+ * two long arrays with linear probing, so lookups neither box nor hash
+ * book and sheet names. Values must not be null.
+ */
+public class RangeMap<V> {
+
+    public interface Visitor<V> {
+        void visit(long start, long end, V value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] starts;
+    private long[] ends;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public RangeMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public RangeMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.starts = new long[capacity];
+        this.ends = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    static int hash(long start, long end) {
+        long h = start * 0x9E3779B97F4A7C15L + end;
+        h ^= h >>> 32;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private int findSlot(long start, long end) {
+        int slot = hash(start, end) & mask;
+        while (values[slot] != null) {
+            if (starts[slot] == start && ends[slot] == end) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1 - slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long start, long end) {
+        int slot = findSlot(start, end);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    public boolean containsKey(long start, long end) {
+        return findSlot(start, end) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long start, long end, V value) {
+        int slot = findSlot(start, end);
+        if (slot >= 0) {
+            V oldValue = (V) values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        slot = -1 - slot;
+        starts[slot] = start;
+        ends[slot] = end;
+        values[slot] = value;
+        size += 1;
+        if (size * 4 > values.length * 3) {
+            rehash(values.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long start, long end) {
+        int slot = findSlot(start, end);
+        if (slot < 0) {
+            return null;
+        }
+        V oldValue = (V) values[slot];
+        values[slot] = null;
+        size -= 1;
+
+        // Shift the rest of the probe chain back, so no tombstones are needed
+        int gap = slot;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(starts[next], ends[next]) & mask;
+            boolean isMovable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (isMovable) {
+                starts[gap] = starts[next];
+                ends[gap] = ends[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return oldValue;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldStarts = starts;
+        long[] oldEnds = ends;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = -1 - findSlot(oldStarts[i], oldEnds[i]);
+                starts[slot] = oldStarts[i];
+                ends[slot] = oldEnds[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * The map must not be changed from within the visitor.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                visitor.visit(starts[i], ends[i], (V) values[i]);
+            }
+        }
+    }
+}
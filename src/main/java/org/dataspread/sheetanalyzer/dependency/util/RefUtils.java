@@ -5,6 +5,11 @@ import com.github.davidmoten.rtree.geometry.Rectangle;
 import org.dataspread.sheetanalyzer.util.RefImpl;
 import org.dataspread.sheetanalyzer.util.Ref;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
 public class RefUtils {
     public static boolean isValidRef(Ref ref) {
         return ref.getRow() >= 0
@@ -33,9 +38,58 @@ public class RefUtils {
 
     public static Offset refToOffset(Ref prec, Ref dep, boolean isStart) {
         if (isStart) {
-            return new Offset(dep.getRow() - prec.getRow(), dep.getColumn() - prec.getColumn());
+            return Offset.of(dep.getRow() - prec.getRow(), dep.getColumn() - prec.getColumn());
+        } else {
+            return Offset.of(dep.getLastRow() - prec.getLastRow(), dep.getLastColumn() - prec.getLastColumn());
+        }
+    }
+
+    /**
+     * Merges ranges that overlap or touch into fewer ranges covering the
+     * same cells: first down columns of ranges with the same columns, then
+     * across rows of ranges with the same rows. Ranges that only partly
+     * overlap are left as they are.
+     */
+    public static List<Ref> coalesceRefs(Collection<Ref> refs) {
+        List<Ref> columnMerged = mergeRuns(refs, true);
+        return mergeRuns(columnMerged, false);
+    }
+
+    private static List<Ref> mergeRuns(Collection<Ref> refs, boolean isColumnWise) {
+        List<Ref> sorted = new ArrayList<>(refs);
+        if (isColumnWise) {
+            sorted.sort(Comparator.comparingInt(Ref::getColumn)
+                    .thenComparingInt(Ref::getLastColumn)
+                    .thenComparingInt(Ref::getRow));
         } else {
-            return new Offset(dep.getLastRow() - prec.getLastRow(), dep.getLastColumn() - prec.getLastColumn());
+            sorted.sort(Comparator.comparingInt(Ref::getRow)
+                    .thenComparingInt(Ref::getLastRow)
+                    .thenComparingInt(Ref::getColumn));
+        }
+
+        List<Ref> merged = new ArrayList<>();
+        Ref run = null;
+        for (Ref ref : sorted) {
+            if (run != null && isColumnWise
+                    && ref.getColumn() == run.getColumn() && ref.getLastColumn() == run.getLastColumn()
+                    && ref.getRow() <= run.getLastRow() + 1) {
+                run = coordToRef(run, run.getRow(), run.getColumn(),
+                        Math.max(run.getLastRow(), ref.getLastRow()), run.getLastColumn());
+            } else if (run != null && !isColumnWise
+                    && ref.getRow() == run.getRow() && ref.getLastRow() == run.getLastRow()
+                    && ref.getColumn() <= run.getLastColumn() + 1) {
+                run = coordToRef(run, run.getRow(), run.getColumn(),
+                        run.getLastRow(), Math.max(run.getLastColumn(), ref.getLastColumn()));
+            } else {
+                if (run != null) {
+                    merged.add(run);
+                }
+                run = ref;
+            }
+        }
+        if (run != null) {
+            merged.add(run);
         }
+        return merged;
     }
 }
@@ -0,0 +1,476 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of cells, kept per column as sorted, disjoint row intervals, with
+ * union and subtraction of ranges and of other sets.
+ *
+ * toRefs turns the set into ranges in one canonical way, whatever order
+ * the cells were added and removed in: every maximal interval of a column
+ * is stretched over the neighbouring columns that have the same interval.
+ * So the number of ranges depends on the shape of the set, not on how
+ * many ranges were added or subtracted to get it.
+ *
+ * Everything is updated in place, so adding and removing only allocate
+ * the occasional larger array.
+ */
+public class RegionSet {
+
+    private ColumnIntervals[] columns = new ColumnIntervals[16];
+    private int firstColumn = Integer.MAX_VALUE;
+    private int lastColumn = -1;
+    // The book and sheet of the ranges toRefs returns
+    private Ref refTemplate = null;
+
+    // Row intervals of the previous and the current column, as first/last
+    // pairs, and the columns where they started, reused between calls
+    private int[] prevRows = new int[8];
+    private int[] prevStarts = new int[4];
+    private int numPrevRows = 0;
+    private int[] rows = new int[8];
+    private int[] starts = new int[4];
+    private int numRows = 0;
+
+    public RegionSet() {
+    }
+
+    public RegionSet(Collection<Ref> refs) {
+        refs.forEach(this::add);
+    }
+
+    public void add(Ref ref) {
+        add(ref, null);
+    }
+
+    /**
+     * Adds the cells of the range.
+     *
+     * @param ref      the range to add
+     * @param newRefs  if not null, receives the parts of the range that were
+     *                 not in the set before, over runs of columns with the
+     *                 same new rows
+     */
+    public void add(Ref ref, List<Ref> newRefs) {
+        if (refTemplate == null) {
+            refTemplate = ref;
+        }
+        ensureColumns(ref.getColumn(), ref.getLastColumn());
+        numPrevRows = 0;
+        int openColumn = ref.getColumn();
+        for (int col = ref.getColumn(); col <= ref.getLastColumn(); col++) {
+            ColumnIntervals column = getOrCreateColumn(col);
+            if (newRefs != null) {
+                numRows = 0;
+                column.findGaps(ref.getRow(), ref.getLastRow(), this);
+                if (!sameRows()) {
+                    flushPrevRows(ref, openColumn, col - 1, newRefs);
+                    swapRows();
+                    openColumn = col;
+                }
+            }
+            column.add(ref.getRow(), ref.getLastRow());
+        }
+        if (newRefs != null) {
+            flushPrevRows(ref, openColumn, ref.getLastColumn(), newRefs);
+        }
+    }
+
+    public void addAll(RegionSet other) {
+        if (refTemplate == null) {
+            refTemplate = other.refTemplate;
+        }
+        for (int col = other.firstColumn; col <= other.lastColumn; col++) {
+            ColumnIntervals otherColumn = other.columns[col];
+            if (otherColumn == null || otherColumn.isEmpty()) {
+                continue;
+            }
+            ensureColumns(col, col);
+            ColumnIntervals column = getOrCreateColumn(col);
+            numRows = 0;
+            otherColumn.collect(this);
+            for (int i = 0; i < numRows; i++) {
+                column.add(rows[2 * i], rows[2 * i + 1]);
+            }
+        }
+    }
+
+    public void remove(Ref ref) {
+        int lastCol = Math.min(ref.getLastColumn(), lastColumn);
+        for (int col = Math.max(ref.getColumn(), firstColumn); col <= lastCol; col++) {
+            if (columns[col] != null) {
+                columns[col].remove(ref.getRow(), ref.getLastRow());
+            }
+        }
+    }
+
+    public void removeAll(RegionSet other) {
+        int lastCol = Math.min(other.lastColumn, lastColumn);
+        for (int col = Math.max(other.firstColumn, firstColumn); col <= lastCol; col++) {
+            ColumnIntervals otherColumn = other.columns[col];
+            if (columns[col] == null || otherColumn == null) {
+                continue;
+            }
+            numRows = 0;
+            otherColumn.collect(this);
+            for (int i = 0; i < numRows; i++) {
+                columns[col].remove(rows[2 * i], rows[2 * i + 1]);
+            }
+        }
+    }
+
+    public boolean contains(int row, int col) {
+        return col >= 0 && col < columns.length && columns[col] != null && columns[col].contains(row);
+    }
+
+    /**
+     * @return whether the set has any cell of the range
+     */
+    public boolean intersects(Ref ref) {
+        int lastCol = Math.min(ref.getLastColumn(), lastColumn);
+        for (int col = Math.max(ref.getColumn(), firstColumn); col <= lastCol; col++) {
+            if (columns[col] != null && columns[col].intersects(ref.getRow(), ref.getLastRow())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (int col = firstColumn; col <= lastColumn; col++) {
+            if (columns[col] != null && !columns[col].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int col = firstColumn; col <= lastColumn; col++) {
+            if (columns[col] != null) {
+                columns[col].clear();
+            }
+        }
+        firstColumn = Integer.MAX_VALUE;
+        lastColumn = -1;
+    }
+
+    /**
+     * @return the set as disjoint ranges, see the class comment
+     */
+    public List<Ref> toRefs() {
+        List<Ref> refs = new ArrayList<>();
+        numPrevRows = 0;
+        for (int col = firstColumn; col <= lastColumn + 1; col++) {
+            numRows = 0;
+            if (col <= lastColumn && columns[col] != null) {
+                columns[col].collect(this);
+            }
+            if (starts.length < numRows) {
+                starts = new int[Math.max(numRows, 2 * starts.length)];
+            }
+
+            // Both are sorted, so matching intervals are found by merging
+            int prev = 0;
+            int cur = 0;
+            while (prev < numPrevRows || cur < numRows) {
+                if (prev < numPrevRows && cur < numRows
+                        && prevRows[2 * prev] == rows[2 * cur] && prevRows[2 * prev + 1] == rows[2 * cur + 1]) {
+                    starts[cur++] = prevStarts[prev++];
+                } else if (cur == numRows || (prev < numPrevRows && prevRows[2 * prev] <= rows[2 * cur])) {
+                    refs.add(RefUtils.coordToRef(refTemplate, prevRows[2 * prev], prevStarts[prev],
+                            prevRows[2 * prev + 1], col - 1));
+                    prev++;
+                } else {
+                    starts[cur++] = col;
+                }
+            }
+            swapRows();
+        }
+        numPrevRows = 0;
+        return refs;
+    }
+
+    private ColumnIntervals getOrCreateColumn(int col) {
+        ColumnIntervals column = columns[col];
+        if (column == null) {
+            column = new ColumnIntervals();
+            columns[col] = column;
+        }
+        return column;
+    }
+
+    private boolean sameRows() {
+        if (numRows != numPrevRows) {
+            return false;
+        }
+        for (int i = 0; i < 2 * numRows; i++) {
+            if (rows[i] != prevRows[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void swapRows() {
+        int[] swap = prevRows;
+        prevRows = rows;
+        rows = swap;
+        swap = prevStarts;
+        prevStarts = starts;
+        starts = swap;
+        numPrevRows = numRows;
+    }
+
+    private void flushPrevRows(Ref ref, int firstCol, int lastCol, List<Ref> newRefs) {
+        for (int i = 0; i < numPrevRows; i++) {
+            newRefs.add(RefUtils.coordToRef(ref, prevRows[2 * i], firstCol, prevRows[2 * i + 1], lastCol));
+        }
+        numPrevRows = 0;
+    }
+
+    private void addRows(int first, int last) {
+        if (2 * numRows == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * rows.length);
+        }
+        rows[2 * numRows] = first;
+        rows[2 * numRows + 1] = last;
+        numRows += 1;
+    }
+
+    private void ensureColumns(int firstCol, int lastCol) {
+        if (lastCol >= columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(lastCol + 1, 2 * columns.length));
+        }
+        firstColumn = Math.min(firstColumn, firstCol);
+        lastColumn = Math.max(lastColumn, lastCol);
+    }
+
+    /**
+     * The intervals of a column, in chunks of at most CHUNK_SIZE so that
+     * inserting one only moves the rest of its chunk.
+     */
+    private static class ColumnIntervals {
+        private static final int CHUNK_SIZE = 64;
+
+        private Chunk[] chunks = new Chunk[1];
+        private int numChunks = 0;
+        // An emptied chunk, kept for the next one needed
+        private Chunk spareChunk = null;
+
+        // Where a search ended, a chunk and an interval within it
+        private int chunkIndex;
+        private int index;
+
+        private static class Chunk {
+            final int[] firsts = new int[CHUNK_SIZE];
+            final int[] lasts = new int[CHUNK_SIZE];
+            int size = 0;
+        }
+
+        // Moves to the first interval that ends at or after row
+        private void seek(int row) {
+            int low = 0;
+            int high = numChunks;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Chunk chunk = chunks[mid];
+                if (chunk.lasts[chunk.size - 1] < row) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            chunkIndex = low;
+            index = 0;
+            if (low < numChunks) {
+                Chunk chunk = chunks[low];
+                int high2 = chunk.size;
+                while (index < high2) {
+                    int mid = (index + high2) >>> 1;
+                    if (chunk.lasts[mid] < row) {
+                        index = mid + 1;
+                    } else {
+                        high2 = mid;
+                    }
+                }
+            }
+        }
+
+        boolean contains(int row) {
+            return intersects(row, row);
+        }
+
+        boolean intersects(int first, int last) {
+            seek(first);
+            return chunkIndex < numChunks && chunks[chunkIndex].firsts[index] <= last;
+        }
+
+        void findGaps(int first, int last, RegionSet regionSet) {
+            int row = first;
+            seek(first);
+            for (int c = chunkIndex, i = index; c < numChunks; c++, i = 0) {
+                Chunk chunk = chunks[c];
+                for (; i < chunk.size; i++) {
+                    if (chunk.firsts[i] > last) {
+                        c = numChunks;
+                        break;
+                    }
+                    if (chunk.firsts[i] > row) {
+                        regionSet.addRows(row, chunk.firsts[i] - 1);
+                    }
+                    row = chunk.lasts[i] + 1;
+                }
+            }
+            if (row <= last) {
+                regionSet.addRows(row, last);
+            }
+        }
+
+        // Adds the interval and merges it with those it overlaps or touches
+        void add(int first, int last) {
+            seek(first - 1);
+            if (chunkIndex == numChunks || chunks[chunkIndex].firsts[index] > last + 1) {
+                insertAt(first, last);
+                return;
+            }
+
+            // Grow the first interval it touches, then take in the rest
+            Chunk merged = chunks[chunkIndex];
+            int mergedIndex = index;
+            merged.firsts[mergedIndex] = Math.min(first, merged.firsts[mergedIndex]);
+            last = Math.max(last, merged.lasts[mergedIndex]);
+            next();
+            while (chunkIndex < numChunks && chunks[chunkIndex].firsts[index] <= last + 1) {
+                Chunk chunk = chunks[chunkIndex];
+                last = Math.max(last, chunk.lasts[index]);
+                removeAt(chunk);
+            }
+            merged.lasts[mergedIndex] = last;
+        }
+
+        void remove(int first, int last) {
+            seek(first);
+            while (chunkIndex < numChunks) {
+                Chunk chunk = chunks[chunkIndex];
+                int intervalFirst = chunk.firsts[index];
+                int intervalLast = chunk.lasts[index];
+                if (intervalFirst > last) {
+                    break;
+                }
+                if (intervalFirst < first && intervalLast > last) {
+                    // Split in two
+                    chunk.lasts[index] = first - 1;
+                    next();
+                    insertAt(last + 1, intervalLast);
+                    break;
+                } else if (intervalFirst < first) {
+                    chunk.lasts[index] = first - 1;
+                    next();
+                } else if (intervalLast > last) {
+                    chunk.firsts[index] = last + 1;
+                    break;
+                } else {
+                    removeAt(chunk);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return numChunks == 0;
+        }
+
+        void clear() {
+            if (numChunks > 0) {
+                spareChunk = chunks[0];
+                spareChunk.size = 0;
+            }
+            Arrays.fill(chunks, 0, numChunks, null);
+            numChunks = 0;
+        }
+
+        private Chunk newChunk() {
+            Chunk chunk = spareChunk != null ? spareChunk : new Chunk();
+            spareChunk = null;
+            return chunk;
+        }
+
+        void collect(RegionSet regionSet) {
+            for (int c = 0; c < numChunks; c++) {
+                Chunk chunk = chunks[c];
+                for (int i = 0; i < chunk.size; i++) {
+                    regionSet.addRows(chunk.firsts[i], chunk.lasts[i]);
+                }
+            }
+        }
+
+        private void next() {
+            index += 1;
+            if (index == chunks[chunkIndex].size) {
+                chunkIndex += 1;
+                index = 0;
+            }
+        }
+
+        private void removeAt(Chunk chunk) {
+            System.arraycopy(chunk.firsts, index + 1, chunk.firsts, index, chunk.size - index - 1);
+            System.arraycopy(chunk.lasts, index + 1, chunk.lasts, index, chunk.size - index - 1);
+            chunk.size -= 1;
+            if (chunk.size == 0) {
+                spareChunk = chunk;
+                System.arraycopy(chunks, chunkIndex + 1, chunks, chunkIndex, numChunks - chunkIndex - 1);
+                numChunks -= 1;
+                chunks[numChunks] = null;
+                index = 0;
+            } else if (index == chunk.size) {
+                chunkIndex += 1;
+                index = 0;
+            }
+        }
+
+        private void insertAt(int first, int last) {
+            if (chunkIndex == numChunks) {
+                // Past the end, append to the last chunk
+                if (numChunks == 0 || chunks[numChunks - 1].size == CHUNK_SIZE) {
+                    insertChunk(numChunks, newChunk());
+                }
+                chunkIndex = numChunks - 1;
+                index = chunks[chunkIndex].size;
+            }
+            Chunk chunk = chunks[chunkIndex];
+            if (chunk.size == CHUNK_SIZE) {
+                // Split, the new interval goes into one of the halves
+                Chunk secondHalf = newChunk();
+                int half = CHUNK_SIZE / 2;
+                System.arraycopy(chunk.firsts, half, secondHalf.firsts, 0, CHUNK_SIZE - half);
+                System.arraycopy(chunk.lasts, half, secondHalf.lasts, 0, CHUNK_SIZE - half);
+                secondHalf.size = CHUNK_SIZE - half;
+                chunk.size = half;
+                insertChunk(chunkIndex + 1, secondHalf);
+                if (index > half) {
+                    chunk = secondHalf;
+                    index -= half;
+                }
+            }
+            System.arraycopy(chunk.firsts, index, chunk.firsts, index + 1, chunk.size - index);
+            System.arraycopy(chunk.lasts, index, chunk.lasts, index + 1, chunk.size - index);
+            chunk.firsts[index] = first;
+            chunk.lasts[index] = last;
+            chunk.size += 1;
+        }
+
+        private void insertChunk(int at, Chunk chunk) {
+            if (numChunks == chunks.length) {
+                chunks = Arrays.copyOf(chunks, 2 * numChunks);
+            }
+            System.arraycopy(chunks, at, chunks, at + 1, numChunks - at);
+            chunks[at] = chunk;
+            numChunks += 1;
+        }
+    }
+}
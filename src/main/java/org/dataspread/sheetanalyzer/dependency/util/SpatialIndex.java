@@ -0,0 +1,74 @@
+package org.dataspread.sheetanalyzer.dependency.util;
+
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * A multiset of ranges, packed as in {@link PackedRange}, indexed by their
+ * row and column bounds. Adding the same range twice stores it twice, and
+ * delete removes one copy.
+ */
+public interface SpatialIndex {
+
+    interface Visitor {
+        void visit(long start, long end);
+    }
+
+    void add(long start, long end);
+
+    /**
+     * Adds all ranges at once, which lets an empty index pack them instead
+     * of inserting them one by one.
+     */
+    void load(long[] starts, long[] ends);
+
+    /**
+     * @return false if the range is not in the index
+     */
+    boolean delete(long start, long end);
+
+    /**
+     * Calls the visitor for every stored range that overlaps the area. The
+     * index must not be modified from within the visitor.
+     */
+    void search(long start, long end, Visitor visitor);
+
+    int size();
+
+    void clear();
+
+    /**
+     * @return an index with the same ranges that changes independently
+     */
+    SpatialIndex copy();
+
+    default void add(Ref ref) {
+        add(PackedRange.start(ref), PackedRange.end(ref));
+    }
+
+    default void load(Collection<Ref> refs) {
+        long[] starts = new long[refs.size()];
+        long[] ends = new long[refs.size()];
+        int i = 0;
+        for (Ref ref : refs) {
+            starts[i] = PackedRange.start(ref);
+            ends[i] = PackedRange.end(ref);
+            i += 1;
+        }
+        load(starts, ends);
+    }
+
+    default boolean delete(Ref ref) {
+        return delete(PackedRange.start(ref), PackedRange.end(ref));
+    }
+
+    /**
+     * The refs passed to the visitor take their book and sheet from the area.
+     */
+    default void search(Ref area, Consumer<Ref> visitor) {
+        search(PackedRange.start(area), PackedRange.end(area),
+                (start, end) -> visitor.accept(PackedRange.toRef(area, start, end)));
+    }
+}
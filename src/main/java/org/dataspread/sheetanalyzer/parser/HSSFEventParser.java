@@ -0,0 +1,290 @@
+package org.dataspread.sheetanalyzer.parser;
+
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder.SheetRecordCollectingListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.ptg.ExpPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.dataspread.sheetanalyzer.data.CellContent;
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A {@link SpreadsheetParser} for legacy .xls files built on the HSSF event
+ * model. BIFF8 stores every formula already tokenized, so the {@link Ptg}
+ * arrays of {@link FormulaRecord}s (and of the {@link SharedFormulaRecord}s
+ * and {@link ArrayRecord}s they point to) are fed into {@link SheetData}
+ * directly instead of re-parsing the formula strings.
+ */
+public class HSSFEventParser implements SpreadsheetParser {
+
+    private final Map<String, SheetData> sheetDataMap = new HashMap<>();
+    private final String filename;
+    private Ptg[] lastFormulaTokens;
+    private Node root;
+    private int totalRows = 0;
+    // Built from the workbook globals, to render formulae and parse edits
+    private HSSFEvaluationWorkbook renderBook;
+
+    public HSSFEventParser(String filePath) throws SheetNotSupportedException {
+        File file = new File(filePath);
+        this.filename = file.getName();
+        RecordHandler recordHandler = new RecordHandler();
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            recordHandler.collector = new SheetRecordCollectingListener(recordHandler);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(recordHandler.collector);
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        } catch (IOException | RuntimeException err) {
+            throw new SheetNotSupportedException("Could not load workbook " + this.filename, err);
+        }
+        if (recordHandler.error != null) {
+            throw new SheetNotSupportedException("Parsing " + filePath + " failed", recordHandler.error);
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return this.filename;
+    }
+
+    /**
+     * Like {@link POIParser}, the tree is the one of the last formula in the
+     * workbook. It is only built on request.
+     */
+    @Override
+    public Node getFormulaTree() {
+        if (this.root == null && this.lastFormulaTokens != null) {
+            this.root = PtgTools.buildFormulaTree(this.lastFormulaTokens);
+        }
+        return this.root;
+    }
+
+    @Override
+    public Map<String, SheetData> getSheetData() {
+        return this.sheetDataMap;
+    }
+
+    @Override
+    public boolean skipParsing(int threshold) {
+        return this.totalRows <= threshold;
+    }
+
+    @Override
+    public List<Ref> updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException {
+        SheetData sheetData = this.sheetDataMap.get(sheetName);
+        if (sheetData == null) {
+            throw new SheetNotSupportedException("No sheet " + sheetName + " in " + this.filename);
+        }
+        return PtgTools.updateCell(sheetData, this.renderBook, this.renderBook.getSheetIndex(sheetName), cell, content);
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+
+    private class RecordHandler implements HSSFListener {
+        private SheetRecordCollectingListener collector;
+        private SheetNotSupportedException error;
+
+        private final List<BoundSheetRecord> boundSheetRecords = new ArrayList<>();
+        private BoundSheetRecord[] orderedBSRs;
+        private SSTRecord sstRecord;
+        // BoundSheetRecords name every sheet, charts and macro sheets too,
+        // in the order of their substreams; charts embedded in a sheet are
+        // substreams within its substream
+        private int sheetIndex = -1;
+        private int substreamDepth = 0;
+        private SheetData sheetData;
+
+        // Shared and array formulae of the current sheet, keyed by their
+        // first cell, and the formula cells still waiting for theirs.
+        private final Map<Long, SharedValueRecordBase> sharedValues = new HashMap<>();
+        private final List<FormulaRecord> pendingFormulae = new LinkedList<>();
+
+        @Override
+        public void processRecord(org.apache.poi.hssf.record.Record record) {
+            if (this.error != null) {
+                return;
+            }
+            try {
+                handleRecord(record);
+            } catch (SheetNotSupportedException e) {
+                this.error = e;
+            }
+        }
+
+        private void handleRecord(org.apache.poi.hssf.record.Record record) throws SheetNotSupportedException {
+            if (this.substreamDepth > 1 && record.getSid() != BOFRecord.sid && record.getSid() != EOFRecord.sid) {
+                // Inside a chart embedded in a sheet
+                return;
+            }
+            switch (record.getSid()) {
+                case BoundSheetRecord.sid:
+                    this.boundSheetRecords.add((BoundSheetRecord) record);
+                    break;
+                case SSTRecord.sid:
+                    this.sstRecord = (SSTRecord) record;
+                    break;
+                case BOFRecord.sid:
+                    startSubstream((BOFRecord) record);
+                    break;
+                case EOFRecord.sid:
+                    this.substreamDepth -= 1;
+                    if (this.substreamDepth == 0 && this.sheetData != null) {
+                        endSheet();
+                    }
+                    break;
+                case RowRecord.sid:
+                    if (this.sheetData != null) {
+                        totalRows += 1;
+                    }
+                    break;
+                case FormulaRecord.sid:
+                    handleFormula((FormulaRecord) record);
+                    break;
+                case SharedFormulaRecord.sid:
+                case ArrayRecord.sid:
+                    handleSharedValue((SharedValueRecordBase) record);
+                    break;
+                case NumberRecord.sid:
+                    NumberRecord numberRecord = (NumberRecord) record;
+                    addValueCell(numberRecord, String.valueOf(numberRecord.getValue()));
+                    break;
+                case LabelSSTRecord.sid:
+                    LabelSSTRecord labelSSTRecord = (LabelSSTRecord) record;
+                    addValueCell(labelSSTRecord,
+                            this.sstRecord.getString(labelSSTRecord.getSSTIndex()).getString());
+                    break;
+                case LabelRecord.sid:
+                    LabelRecord labelRecord = (LabelRecord) record;
+                    addValueCell(labelRecord.getRow(), labelRecord.getColumn(), labelRecord.getValue());
+                    break;
+                case BoolErrRecord.sid:
+                    BoolErrRecord boolErrRecord = (BoolErrRecord) record;
+                    addValueCell(boolErrRecord, boolErrRecord.isBoolean()
+                            ? String.valueOf(boolErrRecord.getBooleanValue())
+                            : String.valueOf(boolErrRecord.getErrorValue()));
+                    break;
+                case BlankRecord.sid:
+                    BlankRecord blankRecord = (BlankRecord) record;
+                    addValueCell(blankRecord.getRow(), blankRecord.getColumn(), "");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void startSubstream(BOFRecord bofRecord) {
+            this.substreamDepth += 1;
+            if (this.substreamDepth == 1 && bofRecord.getType() != BOFRecord.TYPE_WORKBOOK) {
+                this.sheetIndex += 1;
+                if (bofRecord.getType() == BOFRecord.TYPE_WORKSHEET) {
+                    startSheet();
+                }
+            }
+        }
+
+        private void startSheet() {
+            if (this.orderedBSRs == null) {
+                this.orderedBSRs = BoundSheetRecord.orderByBofPosition(this.boundSheetRecords);
+                renderBook = HSSFEvaluationWorkbook.create(this.collector.getStubHSSFWorkbook());
+            }
+            String sheetName = this.orderedBSRs[this.sheetIndex].getSheetname();
+            this.sheetData = new SheetData(sheetName);
+            sheetDataMap.put(sheetName, this.sheetData);
+        }
+
+        private void endSheet() throws SheetNotSupportedException {
+            // Shared formulae without a matching SharedFormulaRecord
+            for (FormulaRecord formulaRecord : this.pendingFormulae) {
+                addFormulaCell(formulaRecord, null);
+            }
+            this.pendingFormulae.clear();
+            this.sharedValues.clear();
+            this.sheetData = null;
+        }
+
+        private void addValueCell(CellRecord record, String value) {
+            addValueCell(record.getRow(), record.getColumn(), value);
+        }
+
+        private void addValueCell(int row, int col, String value) {
+            if (this.sheetData != null) {
+                CellContent cellContent = new CellContent(value, "", " ", false);
+                this.sheetData.addContent(new RefImpl(row, col), cellContent);
+            }
+        }
+
+        private void handleFormula(FormulaRecord formulaRecord) throws SheetNotSupportedException {
+            if (this.sheetData == null) {
+                return;
+            }
+            Ptg[] tokens = formulaRecord.getParsedExpression();
+            if (tokens.length == 1 && tokens[0] instanceof ExpPtg) {
+                ExpPtg expPtg = (ExpPtg) tokens[0];
+                SharedValueRecordBase sharedValue =
+                        this.sharedValues.get(cellKey(expPtg.getRow(), expPtg.getColumn()));
+                if (sharedValue == null) {
+                    // The master cell of a shared range precedes its record
+                    this.pendingFormulae.add(formulaRecord);
+                } else {
+                    addSharedFormulaCell(formulaRecord, sharedValue);
+                }
+            } else {
+                addFormulaCell(formulaRecord, tokens);
+            }
+        }
+
+        private void handleSharedValue(SharedValueRecordBase sharedValue) throws SheetNotSupportedException {
+            if (this.sheetData == null) {
+                return;
+            }
+            this.sharedValues.put(cellKey(sharedValue.getFirstRow(), sharedValue.getFirstColumn()), sharedValue);
+            Iterator<FormulaRecord> pendingIter = this.pendingFormulae.iterator();
+            while (pendingIter.hasNext()) {
+                FormulaRecord formulaRecord = pendingIter.next();
+                if (sharedValue.isInRange(formulaRecord.getRow(), formulaRecord.getColumn())) {
+                    pendingIter.remove();
+                    addSharedFormulaCell(formulaRecord, sharedValue);
+                }
+            }
+        }
+
+        private void addSharedFormulaCell(FormulaRecord formulaRecord,
+                                          SharedValueRecordBase sharedValue) throws SheetNotSupportedException {
+            Ptg[] tokens;
+            if (sharedValue instanceof SharedFormulaRecord) {
+                tokens = ((SharedFormulaRecord) sharedValue).getFormulaTokens(formulaRecord);
+            } else {
+                tokens = ((ArrayRecord) sharedValue).getFormulaTokens();
+            }
+            addFormulaCell(formulaRecord, tokens);
+        }
+
+        private void addFormulaCell(FormulaRecord formulaRecord, Ptg[] tokens) throws SheetNotSupportedException {
+            if (this.sheetData == null) {
+                return;
+            }
+            String formula = "";
+            if (tokens != null) {
+                formula = FormulaRenderer.toFormulaString(renderBook, tokens);
+                lastFormulaTokens = tokens;
+                root = null;
+            }
+            PtgTools.addFormulaCell(this.sheetData, formulaRecord.getRow(), formulaRecord.getColumn(),
+                    tokens, formula);
+        }
+    }
+}
@@ -76,6 +76,14 @@ public class POIParser implements SpreadsheetParser {
         return totalRows <= threshold;
     }
 
+    public List<Ref> updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException {
+        SheetData sheetData = this.sheetDataMap.get(sheetName);
+        if (sheetData == null) {
+            throw new SheetNotSupportedException("No sheet " + sheetName + " in " + this.filename);
+        }
+        return PtgTools.updateCell(sheetData, this.evalbook, this.workbook.getSheetIndex(sheetName), cell, content);
+    }
+
     /**
      * Parses formula matrix (String[][]) from Excel's JavaScript API into
      * workbook.
@@ -157,110 +165,9 @@ public class POIParser implements SpreadsheetParser {
         }
     }
 
-    private String extractFormulaTemplate(Ptg[] ptgs) {
-        StringBuilder cleanedFormula = new StringBuilder();
-        for (Ptg ptg : ptgs) {
-            if (ptg instanceof OperationPtg) {
-                // Include mathematical operators in the cleaned formula
-                OperationPtg tok = (OperationPtg) ptg;
-                String[] operands = new String[tok.getNumberOfOperands()];
-                Arrays.fill(operands, "");
-                cleanedFormula.append(tok.toFormulaString(operands));
-            } else if (ptg instanceof OperandPtg) {
-                // Only exclude the references in the cleaned formula
-                continue;
-            } else {
-                // Include ArrayPtg, UnknownPtg, and ControlPtg in the cleaned formula
-                cleanedFormula.append(ptg.toFormulaString());
-            }
-        }
-        return cleanedFormula.toString();
-    }
-
-    private Node buildFormulaTree(Ptg[] ptgs) {
-        Stack<Node> stack = new Stack<>();
-
-        for (Ptg token : ptgs) {
-            if (token instanceof OperationPtg) {
-                String val;
-                if (token instanceof AddPtg) {
-                    val = "+";
-                } else if (token instanceof SubtractPtg) {
-                    val = "-";
-                } else if (token instanceof MultiplyPtg) {
-                    val = "*";
-                } else if (token instanceof DividePtg) {
-                    val = "/";
-                } else {
-                    val = token.toFormulaString();
-                }
-                OperationPtg tok = (OperationPtg) token;
-                int num = tok.getNumberOfOperands();
-                List<Node> children = new ArrayList<>(num);
-                for (int i = 0; i < num; i++) {
-                    children.add(stack.pop());
-                }
-                Collections.reverse(children);
-                Node node = new OperatorNode(val, children);
-                stack.push(node);
-            } else if (token instanceof OperandPtg) {
-                if (token instanceof Area2DPtgBase) {
-                    Area2DPtgBase ptg = (Area2DPtgBase) token;
-                    int rowStart = ptg.getFirstRow();
-                    int colStart = ptg.getFirstColumn();
-                    int rowEnd = ptg.getLastRow();
-                    int colEnd = ptg.getLastColumn();
-                    boolean startRelative = ptg.isFirstRowRelative();
-                    boolean endRelative = ptg.isLastRowRelative();
-                    Node node = new RefNode(rowStart, colStart, rowEnd, colEnd, startRelative, endRelative);
-                    stack.push(node);
-                } else if (token instanceof RefPtg) {
-                    RefPtg ptg = (RefPtg) token;
-                    int row = ptg.getRow();
-                    int col = ptg.getColumn();
-                    boolean relative = ptg.isRowRelative();
-                    Node node = new RefNode(row, col, row, col, relative, relative);
-                    stack.push(node);
-                } else if (token instanceof Area3DPtg ||
-                        token instanceof Area3DPxg ||
-                        token instanceof Ref3DPtg ||
-                        token instanceof Ref3DPxg) {
-                    // Not supported
-                }
-            } else if (token instanceof ScalarConstantPtg) {
-                // Literal Value
-                double value;
-                if (token instanceof IntPtg) {
-                    IntPtg ptg = (IntPtg) token;
-                    value = ptg.getValue();
-                    LiteralNode node = new LiteralNode(value);
-                    stack.push(node);
-                } else if (token instanceof NumberPtg) {
-                    NumberPtg ptg = (NumberPtg) token;
-                    value = ptg.getValue();
-                    LiteralNode node = new LiteralNode(value);
-                    stack.push(node);
-                }
-            }
-            else {
-                // ArrayPtg, UnknownPtg, and ControlPtg
-                if (token instanceof AttrPtg && ((AttrPtg) token).isSum()) {
-                    // special treatment for SUM
-                    List<Node> children = new ArrayList<>(1);
-                    children.add(stack.pop());
-                    Collections.reverse(children);
-                    Node node = new OperatorNode("SUM", children);
-                    stack.push(node);
-                }
-            }
-        }
-
-        return stack.pop();
-    }
-
     private void parseOneFormulaCell(SheetData sheetData, Cell cell) throws SheetNotSupportedException {
         Ptg[] tokens = this.getTokens(cell);
-        this.root = buildFormulaTree(tokens);
+        this.root = PtgTools.buildFormulaTree(tokens);
 //        Ref dep = new RefImpl(cell.getRowIndex(), cell.getColumnIndex());
 //        List<Ref> precList = new LinkedList<>();
 //        int numRefs = 0;
@@ -281,7 +188,7 @@ public class POIParser implements SpreadsheetParser {
 //            sheetData.addDeps(dep, precList);
 //        }
 //        sheetData.addFormulaNumRef(dep, numRefs);
-//        String formulaTemplate = extractFormulaTemplate(tokens);
+//        String formulaTemplate = PtgTools.extractFormulaTemplate(tokens);
 //        CellContent cellContent = new CellContent("", cell.getCellFormula(),
 //                formulaTemplate, true);
 //        sheetData.addContent(dep, cellContent);
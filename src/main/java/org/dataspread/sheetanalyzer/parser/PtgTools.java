@@ -0,0 +1,229 @@
+package org.dataspread.sheetanalyzer.parser;
+
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.*;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.data.CellContent;
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+
+import java.util.*;
+
+/**
+ * Helpers shared by the parsers for turning the parsed tokens ({@link Ptg})
+ * of one formula cell into {@link SheetData} entries.
+ */
+class PtgTools {
+
+    static String extractFormulaTemplate(Ptg[] ptgs) {
+        StringBuilder cleanedFormula = new StringBuilder();
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof OperationPtg) {
+                // Include mathematical operators in the cleaned formula
+                OperationPtg tok = (OperationPtg) ptg;
+                String[] operands = new String[tok.getNumberOfOperands()];
+                Arrays.fill(operands, "");
+                cleanedFormula.append(tok.toFormulaString(operands));
+            } else if (ptg instanceof OperandPtg) {
+                // Only exclude the references in the cleaned formula
+                continue;
+            } else {
+                // Include ArrayPtg, UnknownPtg, and ControlPtg in the cleaned formula
+                cleanedFormula.append(ptg.toFormulaString());
+            }
+        }
+        return cleanedFormula.toString();
+    }
+
+    static Node buildFormulaTree(Ptg[] ptgs) {
+        Stack<Node> stack = new Stack<>();
+
+        for (Ptg token : ptgs) {
+            if (token instanceof OperationPtg) {
+                String val;
+                if (token instanceof AddPtg) {
+                    val = "+";
+                } else if (token instanceof SubtractPtg) {
+                    val = "-";
+                } else if (token instanceof MultiplyPtg) {
+                    val = "*";
+                } else if (token instanceof DividePtg) {
+                    val = "/";
+                } else {
+                    val = token.toFormulaString();
+                }
+                OperationPtg tok = (OperationPtg) token;
+                int num = tok.getNumberOfOperands();
+                List<Node> children = new ArrayList<>(num);
+                for (int i = 0; i < num; i++) {
+                    children.add(stack.pop());
+                }
+                Collections.reverse(children);
+                Node node = new OperatorNode(val, children);
+                stack.push(node);
+            } else if (token instanceof OperandPtg) {
+                if (token instanceof Area2DPtgBase) {
+                    Area2DPtgBase ptg = (Area2DPtgBase) token;
+                    int rowStart = ptg.getFirstRow();
+                    int colStart = ptg.getFirstColumn();
+                    int rowEnd = ptg.getLastRow();
+                    int colEnd = ptg.getLastColumn();
+                    boolean startRelative = ptg.isFirstRowRelative();
+                    boolean endRelative = ptg.isLastRowRelative();
+                    Node node = new RefNode(rowStart, colStart, rowEnd, colEnd, startRelative, endRelative);
+                    stack.push(node);
+                } else if (token instanceof RefPtg) {
+                    RefPtg ptg = (RefPtg) token;
+                    int row = ptg.getRow();
+                    int col = ptg.getColumn();
+                    boolean relative = ptg.isRowRelative();
+                    Node node = new RefNode(row, col, row, col, relative, relative);
+                    stack.push(node);
+                } else if (token instanceof Area3DPtg ||
+                        token instanceof Area3DPxg ||
+                        token instanceof Ref3DPtg ||
+                        token instanceof Ref3DPxg) {
+                    // Not supported
+                }
+            } else if (token instanceof ScalarConstantPtg) {
+                // Literal Value
+                double value;
+                if (token instanceof IntPtg) {
+                    IntPtg ptg = (IntPtg) token;
+                    value = ptg.getValue();
+                    LiteralNode node = new LiteralNode(value);
+                    stack.push(node);
+                } else if (token instanceof NumberPtg) {
+                    NumberPtg ptg = (NumberPtg) token;
+                    value = ptg.getValue();
+                    LiteralNode node = new LiteralNode(value);
+                    stack.push(node);
+                }
+            }
+            else {
+                // ArrayPtg, UnknownPtg, and ControlPtg
+                if (token instanceof AttrPtg && ((AttrPtg) token).isSum()) {
+                    // special treatment for SUM
+                    List<Node> children = new ArrayList<>(1);
+                    children.add(stack.pop());
+                    Collections.reverse(children);
+                    Node node = new OperatorNode("SUM", children);
+                    stack.push(node);
+                }
+            }
+        }
+
+        return stack.pop();
+    }
+
+    /**
+     * Records one formula cell: its precedents, the number of references,
+     * and its content. Referenced cells that have not been seen yet get a
+     * null content, which is overwritten if the cell shows up later in the
+     * sheet.
+     */
+    static void addFormulaCell(SheetData sheetData, int row, int col,
+                               Ptg[] tokens, String formula) throws SheetNotSupportedException {
+        Ref dep = new RefImpl(row, col);
+        List<Ref> precList = new LinkedList<>();
+        int numRefs = 0;
+        String formulaTemplate = "";
+        if (tokens != null) {
+            for (Ptg token : tokens) {
+                if (token instanceof OperandPtg) {
+                    Ref prec = parseOneToken((OperandPtg) token, sheetData);
+                    if (prec != null) {
+                        numRefs += 1;
+                        precList.add(prec);
+                    }
+                }
+            }
+            formulaTemplate = extractFormulaTemplate(tokens);
+        }
+
+        // Also drops the precedents of an edited cell's old formula
+        sheetData.addDeps(dep, precList);
+        sheetData.addFormulaNumRef(dep, numRefs);
+        sheetData.addContent(dep, new CellContent("", formula, formulaTemplate, true));
+    }
+
+    /**
+     * Formulae are parsed against an empty workbook that only carries the
+     * sheet names, which is all {@link FormulaParser} needs to resolve
+     * references.
+     */
+    static XSSFEvaluationWorkbook createEvalBook(Collection<String> sheetNames) {
+        XSSFWorkbook stubBook = new XSSFWorkbook();
+        sheetNames.forEach(stubBook::createSheet);
+        return XSSFEvaluationWorkbook.create(stubBook);
+    }
+
+    /**
+     * Records the new content of an edited cell, a formula if it starts
+     * with "=" and a value otherwise, as if the sheet had been parsed with
+     * it. A formula that does not parse has no precedents, like one that
+     * fails to parse while reading a file.
+     *
+     * @return the precedents of the cell
+     */
+    static List<Ref> updateCell(SheetData sheetData, FormulaParsingWorkbook evalbook, int sheetIndex,
+                                Ref cell, String content) throws SheetNotSupportedException {
+        Ref dep = new RefImpl(cell.getRow(), cell.getColumn());
+        if (!content.startsWith("=")) {
+            sheetData.addDeps(dep, new LinkedList<>());
+            sheetData.addFormulaNumRef(dep, 0);
+            sheetData.addContent(dep, new CellContent(content, "", " ", false));
+            return Collections.emptyList();
+        }
+
+        String formula = content.substring(1);
+        Ptg[] tokens;
+        try {
+            tokens = FormulaParser.parse(formula, evalbook, FormulaType.CELL, sheetIndex, cell.getRow());
+        } catch (Exception e) {
+            tokens = null;
+        }
+        addFormulaCell(sheetData, cell.getRow(), cell.getColumn(), tokens, formula);
+        return sheetData.getPrecList(dep);
+    }
+
+    private static Ref parseOneToken(OperandPtg token,
+                                     SheetData sheetData) throws SheetNotSupportedException {
+        if (token instanceof Area2DPtgBase) {
+            Area2DPtgBase ptg = (Area2DPtgBase) token;
+            Ref areaRef = new RefImpl(ptg.getFirstRow(), ptg.getFirstColumn(),
+                    ptg.getLastRow(), ptg.getLastColumn());
+            if (!sheetData.areaAccessed(areaRef)) {
+                sheetData.addOneAccess(areaRef);
+                for (int r = ptg.getFirstRow(); r <= ptg.getLastRow(); r++) {
+                    for (int c = ptg.getFirstColumn(); c <= ptg.getLastColumn(); c++) {
+                        addNullContentIfAbsent(sheetData, new RefImpl(r, c));
+                    }
+                }
+            }
+            return areaRef;
+        } else if (token instanceof RefPtg) {
+            RefPtg ptg = (RefPtg) token;
+            Ref cellRef = new RefImpl(ptg.getRow(), ptg.getColumn());
+            addNullContentIfAbsent(sheetData, cellRef);
+            return new RefImpl(ptg.getRow(), ptg.getColumn(), ptg.getRow(), ptg.getColumn());
+        } else if (token instanceof Area3DPtg ||
+                token instanceof Area3DPxg ||
+                token instanceof Ref3DPtg ||
+                token instanceof Ref3DPxg) {
+            throw new SheetNotSupportedException();
+        }
+        return null;
+    }
+
+    private static void addNullContentIfAbsent(SheetData sheetData, Ref cellRef) {
+        if (!sheetData.getDepSet().contains(cellRef)) {
+            sheetData.addContent(cellRef, CellContent.getNullCellContent());
+        }
+    }
+}
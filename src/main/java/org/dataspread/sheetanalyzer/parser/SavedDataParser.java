@@ -0,0 +1,67 @@
+package org.dataspread.sheetanalyzer.parser;
+
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link SpreadsheetParser} over {@link SheetData} read back from a saved
+ * analyzer instead of a spreadsheet file. Edited cells are parsed like
+ * those of {@link XSSFSaxParser}; there is no formula tree.
+ */
+public class SavedDataParser implements SpreadsheetParser {
+
+    private final Map<String, SheetData> sheetDataMap;
+    private final String filename;
+    private XSSFEvaluationWorkbook editBook;
+
+    public SavedDataParser(String filename, Map<String, SheetData> sheetDataMap) {
+        this.filename = filename;
+        this.sheetDataMap = sheetDataMap;
+    }
+
+    @Override
+    public String getFileName() {
+        return this.filename;
+    }
+
+    @Override
+    public Node getFormulaTree() {
+        return null;
+    }
+
+    @Override
+    public Map<String, SheetData> getSheetData() {
+        return this.sheetDataMap;
+    }
+
+    // Counts the rows holding a cell, as the streaming parsers do
+    @Override
+    public boolean skipParsing(int threshold) {
+        int totalRows = 0;
+        for (SheetData sheetData : this.sheetDataMap.values()) {
+            Set<Integer> rows = new HashSet<>();
+            sheetData.getDepSet().forEach(cell -> rows.add(cell.getRow()));
+            totalRows += rows.size();
+        }
+        return totalRows <= threshold;
+    }
+
+    @Override
+    public List<Ref> updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException {
+        SheetData sheetData = this.sheetDataMap.get(sheetName);
+        if (sheetData == null) {
+            throw new SheetNotSupportedException("No sheet " + sheetName + " in " + this.filename);
+        }
+        if (this.editBook == null) {
+            this.editBook = PtgTools.createEvalBook(this.sheetDataMap.keySet());
+        }
+        return PtgTools.updateCell(sheetData, this.editBook, this.editBook.getSheetIndex(sheetName), cell, content);
+    }
+}
@@ -1,7 +1,10 @@
 package org.dataspread.sheetanalyzer.parser;
 
 import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
 
+import java.util.List;
 import java.util.Map;
 
 public interface SpreadsheetParser {
@@ -12,4 +15,13 @@ public interface SpreadsheetParser {
     public Map<String, SheetData> getSheetData();
 
     public boolean skipParsing(int threshold);
+
+    /**
+     * Re-parses one cell of a sheet after an edit, replacing what its
+     * {@link SheetData} holds for the cell. Content starting with "=" is a
+     * formula, anything else a value.
+     *
+     * @return the precedents of the cell, empty for a value
+     */
+    public List<Ref> updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException;
 }
@@ -0,0 +1,442 @@
+package org.dataspread.sheetanalyzer.parser;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.SharedFormula;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.dataspread.sheetanalyzer.data.CellContent;
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link SpreadsheetParser} for .xlsx files that streams each sheet's XML
+ * through SAX instead of loading the workbook into the XSSF user model.
+ * Formula text and cell values go straight into {@link SheetData}; no
+ * XSSFCell is ever created.
+ */
+public class XSSFSaxParser implements SpreadsheetParser {
+
+    private final Map<String, SheetData> sheetDataMap = new HashMap<>();
+    private final String filename;
+    private Ptg[] lastFormulaTokens;
+    private Node root;
+    private int totalRows = 0;
+    private XSSFEvaluationWorkbook editBook;
+
+    public XSSFSaxParser(String filePath) throws SheetNotSupportedException {
+        this(filePath, null);
+    }
+
+    /**
+     * With a non-null executor every sheet is parsed on its own task, each
+     * with its own formula parsing workbook.
+     */
+    public XSSFSaxParser(String filePath, ExecutorService executor) throws SheetNotSupportedException {
+        File file = new File(filePath);
+        this.filename = file.getName();
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(pkg);
+            List<String> sheetNames = getSheetNames(reader);
+            if (executor == null) {
+                parseSequentially(reader, sst, sheetNames);
+            } else {
+                parseInParallel(reader, sst, sheetNames, executor);
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException err) {
+            if (err instanceof SAXException && err.getCause() instanceof SheetNotSupportedException) {
+                throw new SheetNotSupportedException("Parsing " + filePath + " failed", err.getCause());
+            }
+            throw new SheetNotSupportedException("Could not load workbook " + this.filename, err);
+        }
+    }
+
+    private void parseSequentially(XSSFReader reader, ReadOnlySharedStringsTable sst, List<String> sheetNames)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        XSSFEvaluationWorkbook evalbook = PtgTools.createEvalBook(sheetNames);
+        XSSFReader.SheetIterator sheetIter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        int sheetIndex = 0;
+        while (sheetIter.hasNext()) {
+            try (InputStream sheetStream = sheetIter.next()) {
+                SheetHandler handler = new SheetHandler(new SheetData(sheetIter.getSheetName()),
+                        sheetIndex, sst, evalbook);
+                parseOneSheet(sheetStream, handler);
+                collectSheet(handler);
+            }
+            sheetIndex += 1;
+        }
+    }
+
+    private void parseInParallel(XSSFReader reader, ReadOnlySharedStringsTable sst, List<String> sheetNames,
+                                 ExecutorService executor)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        // The sheet iterator is not thread-safe, so the parts are opened here
+        // and every task closes its own stream.
+        List<Future<SheetHandler>> futures = new ArrayList<>();
+        XSSFReader.SheetIterator sheetIter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        int sheetIndex = 0;
+        try {
+            while (sheetIter.hasNext()) {
+                InputStream sheetStream = sheetIter.next();
+                SheetData sheetData = new SheetData(sheetIter.getSheetName());
+                int index = sheetIndex;
+                futures.add(executor.submit(() -> {
+                    try (InputStream stream = sheetStream) {
+                        SheetHandler handler = new SheetHandler(sheetData, index, sst,
+                                PtgTools.createEvalBook(sheetNames));
+                        parseOneSheet(stream, handler);
+                        return handler;
+                    }
+                }));
+                sheetIndex += 1;
+            }
+            for (Future<SheetHandler> future : futures) {
+                collectSheet(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing " + this.filename, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static List<String> getSheetNames(XSSFReader reader) throws IOException, OpenXML4JException {
+        List<String> sheetNames = new ArrayList<>();
+        XSSFReader.SheetIterator nameIter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (nameIter.hasNext()) {
+            nameIter.next().close();
+            sheetNames.add(nameIter.getSheetName());
+        }
+        return sheetNames;
+    }
+
+    private static void parseOneSheet(InputStream sheetStream, SheetHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(new InputSource(sheetStream));
+    }
+
+    /**
+     * Sheets are collected in workbook order, so the last formula is the
+     * same whether or not they were parsed in parallel.
+     */
+    private void collectSheet(SheetHandler handler) {
+        this.sheetDataMap.put(handler.sheetData.getSheetName(), handler.sheetData);
+        this.totalRows += handler.numRows;
+        if (handler.lastFormulaTokens != null) {
+            this.lastFormulaTokens = handler.lastFormulaTokens;
+            this.root = null;
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return this.filename;
+    }
+
+    /**
+     * Like {@link POIParser}, the tree is the one of the last formula in the
+     * workbook. It is only built on request.
+     */
+    @Override
+    public Node getFormulaTree() {
+        if (this.root == null && this.lastFormulaTokens != null) {
+            this.root = PtgTools.buildFormulaTree(this.lastFormulaTokens);
+        }
+        return this.root;
+    }
+
+    @Override
+    public Map<String, SheetData> getSheetData() {
+        return this.sheetDataMap;
+    }
+
+    @Override
+    public boolean skipParsing(int threshold) {
+        return this.totalRows <= threshold;
+    }
+
+    @Override
+    public List<Ref> updateCell(String sheetName, Ref cell, String content) throws SheetNotSupportedException {
+        SheetData sheetData = this.sheetDataMap.get(sheetName);
+        if (sheetData == null) {
+            throw new SheetNotSupportedException("No sheet " + sheetName + " in " + this.filename);
+        }
+        if (this.editBook == null) {
+            this.editBook = PtgTools.createEvalBook(this.sheetDataMap.keySet());
+        }
+        return PtgTools.updateCell(sheetData, this.editBook, this.editBook.getSheetIndex(sheetName), cell, content);
+    }
+
+    private static class SharedFormulaMaster {
+        final Ptg[] tokens;
+        final int row;
+        final int col;
+
+        SharedFormulaMaster(Ptg[] tokens, int row, int col) {
+            this.tokens = tokens;
+            this.row = row;
+            this.col = col;
+        }
+    }
+
+    // Only the first cell of an array formula's range carries the formula;
+    // the other cells of the range just hold their values
+    private static class ArrayFormula {
+        final Ptg[] tokens;
+        final String formula;
+        final CellRangeAddress range;
+
+        ArrayFormula(Ptg[] tokens, String formula, CellRangeAddress range) {
+            this.tokens = tokens;
+            this.formula = formula;
+            this.range = range;
+        }
+    }
+
+    private static class SheetHandler extends DefaultHandler {
+        private final SheetData sheetData;
+        private final int sheetIndex;
+        private final ReadOnlySharedStringsTable sst;
+        private final XSSFEvaluationWorkbook evalbook;
+        private final SharedFormula sharedFormula = new SharedFormula(SpreadsheetVersion.EXCEL2007);
+        private final Map<String, SharedFormulaMaster> sharedMasters = new HashMap<>();
+        private final List<ArrayFormula> arrayFormulas = new ArrayList<>();
+        private final StringBuilder valueText = new StringBuilder();
+        private final StringBuilder formulaText = new StringBuilder();
+        private int numRows = 0;
+        private Ptg[] lastFormulaTokens;
+
+        private int rowIdx = -1;
+        private int nextColIdx = 0;
+        private int cellRow;
+        private int cellCol;
+        private String cellType;
+        private boolean hasFormula;
+        private String formulaType;
+        private String sharedIndex;
+        private String formulaRange;
+        private boolean inValue;
+        private boolean inFormula;
+        private boolean inInlineString;
+
+        SheetHandler(SheetData sheetData, int sheetIndex, ReadOnlySharedStringsTable sst,
+                     XSSFEvaluationWorkbook evalbook) {
+            this.sheetData = sheetData;
+            this.sheetIndex = sheetIndex;
+            this.sst = sst;
+            this.evalbook = evalbook;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowNum = attributes.getValue("r");
+                    this.rowIdx = rowNum != null ? Integer.parseInt(rowNum) - 1 : this.rowIdx + 1;
+                    this.nextColIdx = 0;
+                    this.numRows += 1;
+                    // Rows come in order, so the ranges of array formulae
+                    // that end above this row are done with
+                    this.arrayFormulas.removeIf(arrayFormula -> arrayFormula.range.getLastRow() < this.rowIdx);
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    if (cellRef != null) {
+                        CellReference ref = new CellReference(cellRef);
+                        this.cellRow = ref.getRow();
+                        this.cellCol = ref.getCol();
+                    } else {
+                        this.cellRow = this.rowIdx;
+                        this.cellCol = this.nextColIdx;
+                    }
+                    this.cellType = attributes.getValue("t");
+                    this.hasFormula = false;
+                    this.formulaType = null;
+                    this.sharedIndex = null;
+                    this.formulaRange = null;
+                    this.valueText.setLength(0);
+                    this.formulaText.setLength(0);
+                    break;
+                case "f":
+                    this.inFormula = true;
+                    this.hasFormula = true;
+                    this.formulaType = attributes.getValue("t");
+                    this.sharedIndex = attributes.getValue("si");
+                    this.formulaRange = attributes.getValue("ref");
+                    break;
+                case "v":
+                    this.inValue = true;
+                    break;
+                case "is":
+                    this.inInlineString = true;
+                    break;
+                case "t":
+                    this.inValue = this.inInlineString;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (this.inFormula) {
+                this.formulaText.append(ch, start, length);
+            } else if (this.inValue) {
+                this.valueText.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "f":
+                    this.inFormula = false;
+                    break;
+                case "v":
+                case "t":
+                    this.inValue = false;
+                    break;
+                case "is":
+                    this.inInlineString = false;
+                    break;
+                case "c":
+                    try {
+                        endCell();
+                    } catch (SheetNotSupportedException e) {
+                        throw new SAXException(e);
+                    }
+                    this.nextColIdx = this.cellCol + 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void endCell() throws SheetNotSupportedException {
+            ArrayFormula arrayFormula;
+            if (this.hasFormula) {
+                endFormulaCell();
+            } else if ((arrayFormula = findArrayFormula()) != null) {
+                if (arrayFormula.tokens != null) {
+                    this.lastFormulaTokens = arrayFormula.tokens;
+                }
+                PtgTools.addFormulaCell(this.sheetData, this.cellRow, this.cellCol,
+                        arrayFormula.tokens, arrayFormula.formula);
+            } else {
+                CellContent cellContent = new CellContent(getCellValue(), "", " ", false);
+                this.sheetData.addContent(new RefImpl(this.cellRow, this.cellCol), cellContent);
+            }
+        }
+
+        private void endFormulaCell() throws SheetNotSupportedException {
+            Ptg[] tokens;
+            String formula;
+            if ("shared".equals(this.formulaType) && this.formulaText.length() == 0) {
+                SharedFormulaMaster master = this.sharedMasters.get(this.sharedIndex);
+                if (master == null || master.tokens == null) {
+                    tokens = null;
+                    formula = "";
+                } else {
+                    tokens = this.sharedFormula.convertSharedFormulas(master.tokens,
+                            this.cellRow - master.row, this.cellCol - master.col);
+                    formula = FormulaRenderer.toFormulaString(this.evalbook, tokens);
+                }
+            } else {
+                formula = this.formulaText.toString();
+                tokens = getTokens(formula);
+                if ("shared".equals(this.formulaType)) {
+                    this.sharedMasters.put(this.sharedIndex,
+                            new SharedFormulaMaster(tokens, this.cellRow, this.cellCol));
+                } else if ("array".equals(this.formulaType) && this.formulaRange != null) {
+                    // Every cell of the range has the same, unshifted formula
+                    this.arrayFormulas.add(new ArrayFormula(tokens, formula,
+                            CellRangeAddress.valueOf(this.formulaRange)));
+                }
+            }
+            if (tokens != null) {
+                this.lastFormulaTokens = tokens;
+            }
+            PtgTools.addFormulaCell(this.sheetData, this.cellRow, this.cellCol, tokens, formula);
+        }
+
+        private ArrayFormula findArrayFormula() {
+            for (ArrayFormula arrayFormula : this.arrayFormulas) {
+                if (arrayFormula.range.isInRange(this.cellRow, this.cellCol)) {
+                    return arrayFormula;
+                }
+            }
+            return null;
+        }
+
+        private Ptg[] getTokens(String formula) {
+            try {
+                return FormulaParser.parse(formula, this.evalbook, FormulaType.CELL,
+                        this.sheetIndex, this.cellRow);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private String getCellValue() {
+            String value = this.valueText.toString();
+            if (this.cellType == null || this.cellType.equals("n")) {
+                return value.isEmpty() ? "" : String.valueOf(Double.parseDouble(value));
+            }
+            switch (this.cellType) {
+                case "s":
+                    return this.sst.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return String.valueOf(value.equals("1"));
+                case "e":
+                    try {
+                        return String.valueOf(FormulaError.forString(value).getCode());
+                    } catch (IllegalArgumentException e) {
+                        return value;
+                    }
+                default: // inlineStr, str
+                    return value;
+            }
+        }
+    }
+}
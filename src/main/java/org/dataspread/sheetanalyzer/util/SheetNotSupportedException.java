@@ -7,4 +7,8 @@ public class SheetNotSupportedException extends Exception {
     public SheetNotSupportedException(String message) {
         super(message);
     }
+
+    public SheetNotSupportedException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,93 @@
+package org.dataspread.sheetanalyzer.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Variable-length integers for the saved graphs and analyzers: seven bits
+ * per byte, low bits first, the high bit set on all bytes but the last.
+ * Signed values are zigzag-encoded first, so small negative numbers stay
+ * short too.
+ */
+public final class VarInts {
+
+    private VarInts() {
+    }
+
+    public static void writeUnsigned(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readUnsigned(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeSigned(DataOutput out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSigned(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an unsigned value that has to fit an int, such as a count.
+     */
+    public static int readCount(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Count out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public static int readSignedInt(DataInput in) throws IOException {
+        long value = readSigned(in);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes the UTF-8 bytes after their length plus one, zero standing
+     * for null. Unlike writeUTF, this has no limit of 64K bytes.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeUnsigned(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readCount(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length == 1) {
+            return "";
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
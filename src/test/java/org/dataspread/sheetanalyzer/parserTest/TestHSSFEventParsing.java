@@ -0,0 +1,109 @@
+package org.dataspread.sheetanalyzer.parserTest;
+
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Assertions;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.io.File;
+
+public class TestHSSFEventParsing {
+
+    private static SheetAnalyzer sheetAnalyzer;
+    private static final String sheetName = "XLSSheet";
+    private static final String otherSheetName = "OtherSheet";
+    private static final int maxRows = 1000;
+
+    private static File createXLSSheet() throws IOException {
+        Workbook workbook = new HSSFWorkbook();
+        Sheet sheet = workbook.createSheet(sheetName);
+        int colA = 0, colB = 1, colC = 2;
+        for (int i = 0; i < maxRows; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(colA).setCellValue(1);
+            row.createCell(colB).setCellFormula("A" + (i + 1) + "+A" + (i + 2));
+            row.createCell(colC).setCellFormula("SUM(A$1:A$2)");
+        }
+        TestUtil.createAnEmptyRowWithTwoCols(sheet, maxRows, colA, colB);
+        Sheet otherSheet = workbook.createSheet(otherSheetName);
+        otherSheet.createRow(0).createCell(0).setCellValue("text");
+        otherSheet.createRow(1).createCell(0).setCellFormula("LEN(A1)");
+
+        File xlsTempFile = TestUtil.createXlsTempFile();
+        FileOutputStream outputStream = new FileOutputStream(xlsTempFile);
+        workbook.write(outputStream);
+        workbook.close();
+
+        return xlsTempFile;
+    }
+
+    @BeforeAll
+    public static void setUp() throws IOException, SheetNotSupportedException {
+        File xlsTempFile = createXLSSheet();
+        boolean isStreaming = true;
+        sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(xlsTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    @Test
+    public void verifyDependencyA() {
+        Ref queryRef = new RefImpl(1, 0);
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheetName, queryRef);
+
+        Set<Ref> groundTruth = new HashSet<>();
+        // A2 is reached through both references of B1 and B2
+        groundTruth.add(new RefImpl(0, 1, 1, 1));
+        groundTruth.add(new RefImpl(0, 2, maxRows - 1, 2));
+
+        Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth, queryResult));
+    }
+
+    @Test
+    public void verifyDependencyB() {
+        Ref queryRef = new RefImpl(maxRows - 1, 0);
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheetName, queryRef);
+
+        Set<Ref> groundTruth = new HashSet<>();
+        groundTruth.add(new RefImpl(maxRows - 2, 1, maxRows - 1, 1));
+
+        Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth, queryResult));
+    }
+
+    @Test
+    public void verifySecondSheet() {
+        Assertions.assertEquals(2, sheetAnalyzer.getNumSheets());
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(otherSheetName, new RefImpl(0, 0));
+
+        Set<Ref> groundTruth = new HashSet<>();
+        groundTruth.add(new RefImpl(1, 0));
+
+        Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth, queryResult));
+    }
+
+    @Test
+    public void verifyBrokenWorkbook() throws IOException {
+        // An OLE2 file, but without a workbook stream
+        File xlsTempFile = TestUtil.createXlsTempFile();
+        try (POIFSFileSystem fs = new POIFSFileSystem();
+             FileOutputStream outputStream = new FileOutputStream(xlsTempFile)) {
+            fs.createDocument(new ByteArrayInputStream(new byte[16]), "Readme");
+            fs.writeFilesystem(outputStream);
+        }
+        SheetNotSupportedException e = Assertions.assertThrows(SheetNotSupportedException.class,
+                () -> SheetAnalyzer.createSheetAnalyzer(xlsTempFile.getAbsolutePath(), true));
+        Assertions.assertNotNull(e.getCause(), e.getMessage());
+    }
+}
@@ -0,0 +1,228 @@
+package org.dataspread.sheetanalyzer.parserTest;
+
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.IOUtils;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Record layouts that HSSFWorkbook does not write, made by patching the
+ * BIFF records of a workbook it wrote: a chart sheet before the
+ * worksheets, a chart embedded at the top of a worksheet, and a shared
+ * formula. The array formula is written by HSSFWorkbook itself.
+ */
+public class TestHSSFRecordLayouts {
+
+    private static SheetAnalyzer sheetAnalyzer;
+    private static final String chartSheetName = "ChartSheet";
+    private static final String sheetName = "DataSheet";
+    private static final String lastSheetName = "LastSheet";
+    private static final int numRows = 4;
+
+    private static final int FORMULA_HEADER_SIZE = 20;
+    private static final int FORMULA_SHARED_FLAG = 0x0008;
+    private static final int BOF_TYPE_OFFSET = 2;
+    private static final int BOUND_SHEET_TYPE_OFFSET = 5;
+    private static final int BOUND_SHEET_TYPE_CHART = 2;
+
+    private static class BiffRecord {
+        final int sid;
+        final byte[] data;
+        final int offset;
+
+        BiffRecord(int sid, byte[] data, int offset) {
+            this.sid = sid;
+            this.data = data;
+            this.offset = offset;
+        }
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static List<BiffRecord> readRecords(byte[] stream) {
+        List<BiffRecord> records = new ArrayList<>();
+        ByteBuffer in = littleEndian(stream);
+        while (in.remaining() >= 4) {
+            int offset = in.position();
+            int sid = in.getShort() & 0xffff;
+            byte[] data = new byte[in.getShort() & 0xffff];
+            in.get(data);
+            records.add(new BiffRecord(sid, data, offset));
+        }
+        return records;
+    }
+
+    // BoundSheetRecords point at the BOFs of their sheets, which move
+    private static byte[] writeRecords(List<BiffRecord> records) {
+        Map<Integer, Integer> newOffsets = new HashMap<>();
+        int size = 0;
+        for (BiffRecord record : records) {
+            if (record.sid == BOFRecord.sid && record.offset >= 0) {
+                newOffsets.put(record.offset, size);
+            }
+            size += 4 + record.data.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (BiffRecord record : records) {
+            if (record.sid == BoundSheetRecord.sid) {
+                ByteBuffer data = littleEndian(record.data);
+                data.putInt(0, newOffsets.get(data.getInt(0)));
+            }
+            out.putShort((short) record.sid).putShort((short) record.data.length).put(record.data);
+        }
+        return out.array();
+    }
+
+    // ExpPtg, pointing at the first cell of a shared range
+    private static void makeSharedFormula(BiffRecord formulaRecord, int firstRow, int firstCol) {
+        ByteBuffer data = littleEndian(formulaRecord.data);
+        data.putShort(14, (short) (data.getShort(14) | FORMULA_SHARED_FLAG));
+        data.position(FORMULA_HEADER_SIZE);
+        data.putShort((short) 5).put((byte) 0x01).putShort((short) firstRow).putShort((short) firstCol);
+    }
+
+    // B1:B4 = A * 2, as a relative RefN times 2
+    private static BiffRecord createSharedFormulaRecord(int firstRow, int lastRow, int col) {
+        ByteBuffer data = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        data.putShort((short) firstRow).putShort((short) lastRow).put((byte) col).put((byte) col);
+        data.put((byte) 0).put((byte) (lastRow - firstRow + 1));
+        data.putShort((short) 9);
+        data.put((byte) 0x4c).putShort((short) 0).putShort((short) 0xc0ff);
+        data.put((byte) 0x1e).putShort((short) 2);
+        data.put((byte) 0x05);
+        return new BiffRecord(SharedFormulaRecord.sid, data.array(), -1);
+    }
+
+    private static byte[] patchWorkbookStream(byte[] stream) {
+        List<BiffRecord> records = new ArrayList<>();
+        int numBofs = 0;
+        for (BiffRecord record : readRecords(stream)) {
+            if (record.sid == BoundSheetRecord.sid && records.stream()
+                    .noneMatch(other -> other.sid == BoundSheetRecord.sid)) {
+                // The first sheet becomes a chart sheet
+                record.data[BOUND_SHEET_TYPE_OFFSET] = BOUND_SHEET_TYPE_CHART;
+            }
+            if (record.sid == BOFRecord.sid) {
+                numBofs += 1;
+                if (numBofs == 2) {
+                    littleEndian(record.data).putShort(BOF_TYPE_OFFSET, (short) BOFRecord.TYPE_CHART);
+                }
+            }
+            if (record.sid == FormulaRecord.sid && numBofs == 3) {
+                ByteBuffer data = littleEndian(record.data);
+                if (data.getShort(2) == 1) {
+                    makeSharedFormula(record, 0, 1);
+                }
+            }
+            records.add(record);
+
+            if (record.sid == BOFRecord.sid && numBofs == 3) {
+                // An empty chart embedded in the sheet
+                byte[] chartBof = record.data.clone();
+                littleEndian(chartBof).putShort(BOF_TYPE_OFFSET, (short) BOFRecord.TYPE_CHART);
+                records.add(new BiffRecord(BOFRecord.sid, chartBof, -1));
+                records.add(new BiffRecord(EOFRecord.sid, new byte[0], -1));
+            }
+            if (record.sid == FormulaRecord.sid && numBofs == 3
+                    && littleEndian(record.data).getShort(0) == 0 && littleEndian(record.data).getShort(2) == 1) {
+                records.add(createSharedFormulaRecord(0, numRows - 1, 1));
+            }
+        }
+        return writeRecords(records);
+    }
+
+    private static File createXLSSheet() throws IOException {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        workbook.createSheet(chartSheetName).createRow(0).createCell(0).setCellValue(1);
+        Sheet sheet = workbook.createSheet(sheetName);
+        for (int i = 0; i < numRows; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i + 1);
+            // Replaced by the shared formula
+            row.createCell(1).setCellFormula("A" + (i + 1) + "*2");
+        }
+        sheet.setArrayFormula("A1:A2*A4", CellRangeAddress.valueOf("C1:C2"));
+        Sheet lastSheet = workbook.createSheet(lastSheetName);
+        lastSheet.createRow(0).createCell(0).setCellValue(1);
+        lastSheet.createRow(1).createCell(0).setCellFormula("A1+1");
+
+        ByteArrayOutputStream bookBytes = new ByteArrayOutputStream();
+        workbook.write(bookBytes);
+        workbook.close();
+
+        File xlsTempFile = TestUtil.createXlsTempFile();
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(bookBytes.toByteArray()))) {
+            byte[] stream;
+            try (InputStream in = fs.createDocumentInputStream("Workbook")) {
+                stream = IOUtils.toByteArray(in);
+            }
+            fs.createOrUpdateDocument(new ByteArrayInputStream(patchWorkbookStream(stream)), "Workbook");
+            try (FileOutputStream outputStream = new FileOutputStream(xlsTempFile)) {
+                fs.writeFilesystem(outputStream);
+            }
+        }
+        return xlsTempFile;
+    }
+
+    @BeforeAll
+    public static void setUp() throws IOException, SheetNotSupportedException {
+        File xlsTempFile = createXLSSheet();
+        boolean isStreaming = true;
+        sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(xlsTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    private static void assertDependents(String sheet, Ref queryRef, Ref... groundTruth) {
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheet, queryRef);
+        Assertions.assertTrue(TestUtil.hasSameRefs(new HashSet<>(Arrays.asList(groundTruth)), queryResult),
+                queryRef + ": " + queryResult);
+    }
+
+    @Test
+    public void verifySheetNames() {
+        // The chart sheet has no cells, and the sheets after it keep their names
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(sheetName, lastSheetName)),
+                sheetAnalyzer.getSheetNames());
+        assertDependents(lastSheetName, new RefImpl(0, 0), new RefImpl(1, 0));
+    }
+
+    @Test
+    public void verifySharedFormula() {
+        // B = A * 2 from one SharedFormulaRecord after B1
+        assertDependents(sheetName, new RefImpl(2, 0), new RefImpl(2, 1));
+        for (int row = 0; row < numRows; row++) {
+            Assertions.assertEquals(new HashSet<>(Collections.singletonList(new RefImpl(row, 0))),
+                    sheetAnalyzer.getPrecedents(sheetName, new RefImpl(row, 1)));
+        }
+    }
+
+    @Test
+    public void verifyArrayFormula() {
+        // Both cells of C1:C2 depend on A1:A2 and A4
+        assertDependents(sheetName, new RefImpl(0, 0), new RefImpl(0, 1), new RefImpl(0, 2, 1, 2));
+        assertDependents(sheetName, new RefImpl(3, 0), new RefImpl(3, 1), new RefImpl(0, 2, 1, 2));
+    }
+
+    @Test
+    public void verifyCounts() {
+        // One reference in each cell of B, two in each of C, one in LastSheet
+        Assertions.assertEquals(numRows + 2 * 2 + 1, sheetAnalyzer.getNumEdges());
+    }
+}
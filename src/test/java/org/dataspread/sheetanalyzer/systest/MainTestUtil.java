@@ -7,9 +7,84 @@ import org.dataspread.sheetanalyzer.util.Ref;
 import org.dataspread.sheetanalyzer.util.RefImpl;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class MainTestUtil {
 
+    /**
+     * Shapes of the formula columns of the synthetic sheets the
+     * performance programs load, with A holding the values
+     */
+    public enum DepColumn {
+        RR,           // A[i]:A[i+1]
+        RF,           // A[i]:A[last]
+        FR,           // A[1]:A[i]
+        FF,           // A1:A2
+        RR_GAP,       // A[i]:A[i+1] on every third row
+        RR_CHAIN,     // the cell above, and A1 from the first row
+        RR_LEFT,      // the cell to the left
+        RANDOM,       // numRandomPrecs random cells of A
+        RANDOM_GAP    // a random cell of A on every fourth row
+    }
+
+    /**
+     * Creates the dependencies of a sheet whose columns B, C, ... have the
+     * given shapes over numRows rows, column by column. The random columns
+     * draw from one generator seeded with seed.
+     */
+    public static List<Pair<Ref, List<Ref>>> createDepPairs(int numRows, long seed, int numRandomPrecs,
+                                                            DepColumn... columns) {
+        Random random = new Random(seed);
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        int colA = 0;
+        for (int col = 1; col <= columns.length; col++) {
+            for (int i = 0; i < numRows; i++) {
+                List<Ref> precs = new ArrayList<>(numRandomPrecs);
+                switch (columns[col - 1]) {
+                    case RR:
+                        precs.add(new RefImpl(i, colA, Math.min(i + 1, numRows - 1), colA));
+                        break;
+                    case RF:
+                        precs.add(new RefImpl(i, colA, numRows - 1, colA));
+                        break;
+                    case FR:
+                        precs.add(new RefImpl(0, colA, i, colA));
+                        break;
+                    case FF:
+                        precs.add(new RefImpl(0, colA, 1, colA));
+                        break;
+                    case RR_GAP:
+                        if (i % 3 != 0) {
+                            continue;
+                        }
+                        precs.add(new RefImpl(i, colA, Math.min(i + 1, numRows - 1), colA));
+                        break;
+                    case RR_CHAIN:
+                        precs.add(i == 0 ? new RefImpl(0, colA) : new RefImpl(i - 1, col));
+                        break;
+                    case RR_LEFT:
+                        precs.add(new RefImpl(i, col - 1));
+                        break;
+                    case RANDOM:
+                        for (int j = 0; j < numRandomPrecs; j++) {
+                            precs.add(new RefImpl(random.nextInt(numRows), colA));
+                        }
+                        break;
+                    case RANDOM_GAP:
+                        if (i % 4 != 0) {
+                            continue;
+                        }
+                        precs.add(new RefImpl(random.nextInt(numRows), colA));
+                        break;
+                }
+                depPairs.add(new Pair<>(new RefImpl(i, col), precs));
+            }
+        }
+        return depPairs;
+    }
+
     public static void writePerSheetStat(SheetAnalyzer sheetAnalyzer,
                                          PrintWriter statPW) {
         String fileName = sheetAnalyzer.getFileName().replace(",", "-");
@@ -0,0 +1,90 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import com.github.davidmoten.rtree.Entries;
+import com.github.davidmoten.rtree.Entry;
+import com.github.davidmoten.rtree.RTree;
+import com.github.davidmoten.rtree.geometry.Rectangle;
+import org.dataspread.sheetanalyzer.dependency.util.PackedRange;
+import org.dataspread.sheetanalyzer.dependency.util.PatternTools;
+import org.dataspread.sheetanalyzer.dependency.util.RTreeIndex;
+import org.dataspread.sheetanalyzer.dependency.util.RefUtils;
+import org.dataspread.sheetanalyzer.dependency.util.SpatialIndex;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SpatialIndex} over the immutable davidmoten {@link RTree} with float
+ * rectangles, as the graph used to keep it. Kept for comparison with
+ * {@link RTreeIndex}.
+ */
+public class PersistentRTreeIndex implements SpatialIndex {
+
+    private RTree<Ref, Rectangle> rTree = RTree.create();
+
+    private static Ref toRef(long start, long end) {
+        return new RefImpl(PackedRange.row(start), PackedRange.col(start),
+                PackedRange.row(end), PackedRange.col(end));
+    }
+
+    @Override
+    public void add(long start, long end) {
+        Ref ref = toRef(start, end);
+        rTree = rTree.add(ref, RefUtils.refToRect(ref));
+    }
+
+    @Override
+    public void load(long[] starts, long[] ends) {
+        if (rTree.isEmpty()) {
+            List<Entry<Ref, Rectangle>> entries = new ArrayList<>(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                Ref ref = toRef(starts[i], ends[i]);
+                entries.add(Entries.entry(ref, RefUtils.refToRect(ref)));
+            }
+            if (!entries.isEmpty()) {
+                rTree = RTree.create(entries);
+            }
+        } else {
+            for (int i = 0; i < starts.length; i++) {
+                add(starts[i], ends[i]);
+            }
+        }
+    }
+
+    // The tree is immutable, so the copy shares it
+    @Override
+    public SpatialIndex copy() {
+        PersistentRTreeIndex copy = new PersistentRTreeIndex();
+        copy.rTree = rTree;
+        return copy;
+    }
+
+    @Override
+    public boolean delete(long start, long end) {
+        int oldSize = rTree.size();
+        Ref ref = toRef(start, end);
+        rTree = rTree.delete(ref, RefUtils.refToRect(ref));
+        return rTree.size() != oldSize;
+    }
+
+    @Override
+    public void search(long start, long end, Visitor visitor) {
+        rTree.search(PatternTools.getRectangleFromRef(toRef(start, end)))
+                .toBlocking().toIterable().forEach(entry -> {
+                    Ref ref = entry.value();
+                    visitor.visit(PackedRange.start(ref), PackedRange.end(ref));
+                });
+    }
+
+    @Override
+    public int size() {
+        return rTree.size();
+    }
+
+    @Override
+    public void clear() {
+        rTree = RTree.create();
+    }
+}
@@ -0,0 +1,49 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compares getDependents over a pasted block of column A, one call per
+ * cell against one batched call, on a sheet with RR, FR and RR-chain
+ * columns over A:
+ * java ... TestBatchDependentsPerformance [numRows] [pasteRows]
+ */
+public class TestBatchDependentsPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int pasteRows = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(MainTestUtil.createDepPairs(numRows, 0, 0,
+                DepColumn.RR_LEFT, DepColumn.RR_CHAIN, DepColumn.FR));
+
+        int pasteStart = numRows / 2;
+        List<Ref> pastedCells = new ArrayList<>(pasteRows);
+        for (int i = pasteStart; i < pasteStart + pasteRows; i++) {
+            pastedCells.add(new RefImpl(i, 0));
+        }
+
+        long start = System.currentTimeMillis();
+        Set<Ref> perCell = new HashSet<>();
+        pastedCells.forEach(cell -> perCell.addAll(depGraph.getDependents(cell)));
+        long perCellTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        Set<Ref> batched = depGraph.getDependents(pastedCells);
+        long batchedTime = System.currentTimeMillis() - start;
+
+        System.out.println(numRows + " rows," +
+                pasteRows + " pasted cells," +
+                "per cell " + perCellTime + " ms (" + perCell.size() + " ranges)," +
+                "batched " + batchedTime + " ms (" + batched.size() + " ranges)");
+    }
+}
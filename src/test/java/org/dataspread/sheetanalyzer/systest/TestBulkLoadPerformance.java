@@ -0,0 +1,42 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.List;
+
+/**
+ * Compares building a DependencyGraphTACO edge by edge against bulkLoad on
+ * a synthetic sheet with RR, RF, FR and FF columns:
+ * java ... TestBulkLoadPerformance [numRows] [incremental|bulk|both]
+ */
+public class TestBulkLoadPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 250000;
+        String mode = args.length > 1 ? args[1] : "both";
+        List<Pair<Ref, List<Ref>>> depPairs = MainTestUtil.createDepPairs(numRows, 0, 0,
+                DepColumn.RR, DepColumn.RF, DepColumn.FR, DepColumn.FF);
+
+        if (!mode.equals("bulk")) {
+            long start = System.currentTimeMillis();
+            DependencyGraphTACO depGraph = new DependencyGraphTACO();
+            depPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+            report("incremental", depGraph, System.currentTimeMillis() - start);
+        }
+        if (!mode.equals("incremental")) {
+            long start = System.currentTimeMillis();
+            DependencyGraphTACO depGraph = new DependencyGraphTACO();
+            depGraph.bulkLoad(depPairs);
+            report("bulk", depGraph, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static void report(String mode, DependencyGraphTACO depGraph, long elapsed) {
+        System.out.println(mode + "," +
+                depGraph.getNumEdges() + " compressed edges," +
+                elapsed + " ms");
+    }
+}
@@ -0,0 +1,43 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.List;
+
+/**
+ * Times deleting the formulae of column C, an RR column over column B
+ * which has a running total, as one range and cell by cell:
+ * java ... TestClearDependentsPerformance [numRows]
+ */
+public class TestClearDependentsPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        List<Pair<Ref, List<Ref>>> depPairs = MainTestUtil.createDepPairs(numRows, 0, 0,
+                DepColumn.RR_CHAIN, DepColumn.RR_LEFT);
+        Ref column = new RefImpl(0, 2, numRows - 1, 2);
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        long start = System.currentTimeMillis();
+        depGraph.clearDependents(column);
+        long rangeTime = System.currentTimeMillis() - start;
+        long rangeEdges = depGraph.getNumEdges();
+
+        depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        start = System.currentTimeMillis();
+        for (int row = 0; row < numRows; row++) {
+            depGraph.clearDependents(new RefImpl(row, 2));
+        }
+        long cellTime = System.currentTimeMillis() - start;
+
+        System.out.println(numRows + " rows," +
+                "range " + rangeTime + " ms (" + rangeEdges + " edges left)," +
+                "cells " + cellTime + " ms (" + depGraph.getNumEdges() + " edges left)");
+    }
+}
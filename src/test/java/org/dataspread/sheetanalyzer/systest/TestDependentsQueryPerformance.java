@@ -0,0 +1,60 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * Times getDependents and reports the bytes it allocates per query, on a
+ * running total (an RR-chain in column B) with an RR column next to it and
+ * a column of scattered references over column A:
+ * - chain: the dependents of A1 up to chainDepth edges away, which walks
+ *   down the chain one cell per level and collects two ranges per level
+ * - scattered: the dependents of all of column A, which come back as
+ *   many small ranges
+ * java ... TestDependentsQueryPerformance [numRows] [chainDepth] [numRounds]
+ */
+public class TestDependentsQueryPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int chainDepth = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int numRounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(MainTestUtil.createDepPairs(numRows, 0, 0,
+                DepColumn.RR_CHAIN, DepColumn.RR_LEFT, DepColumn.RANDOM_GAP));
+        Ref firstCell = new RefImpl(0, 0);
+        Ref columnA = new RefImpl(0, 0, numRows - 1, 0);
+
+        // The first rounds only warm up the JIT
+        for (int round = 0; round < numRounds; round++) {
+            report(round, "chain", () -> depGraph.getDependents(firstCell, chainDepth));
+            report(round, "scattered", () -> depGraph.getDependents(columnA));
+        }
+    }
+
+    private interface Query {
+        Set<Ref> run();
+    }
+
+    private static void report(int round, String name, Query query) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.currentTimeMillis();
+        Set<Ref> result = query.run();
+        long elapsed = System.currentTimeMillis() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.println("round " + round + "," +
+                name + "," +
+                result.size() + " ranges," +
+                elapsed + " ms," +
+                allocated / (1024 * 1024) + " MB allocated");
+    }
+}
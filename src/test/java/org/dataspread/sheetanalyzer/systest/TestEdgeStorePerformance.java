@@ -0,0 +1,50 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+
+import java.util.List;
+
+/**
+ * Builds a DependencyGraphTACO from the tacoTest sheets (RR, RF, FR, FF and
+ * RR with a gap of two) scaled up to numRows, next to a column of scattered
+ * references that cannot be compressed, and reports the build time and the
+ * heap retained per compressed edge. Run with a fixed heap, e.g. -Xmx4g:
+ * java ... TestEdgeStorePerformance [numRows] [numRounds]
+ */
+public class TestEdgeStorePerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<Pair<Ref, List<Ref>>> depPairs = MainTestUtil.createDepPairs(numRows, 0, 1,
+                DepColumn.RR, DepColumn.RF, DepColumn.FR, DepColumn.FF, DepColumn.RR_GAP, DepColumn.RANDOM);
+
+        // The first rounds only warm up the JIT
+        for (int round = 0; round < numRounds; round++) {
+            long heapBefore = usedHeap();
+            long start = System.currentTimeMillis();
+            DependencyGraphTACO depGraph = new DependencyGraphTACO();
+            depGraph.bulkLoad(depPairs);
+            long elapsed = System.currentTimeMillis() - start;
+            long retained = usedHeap() - heapBefore;
+
+            long numEdges = depGraph.getNumEdges();
+            System.out.println("round " + round + "," +
+                    numEdges + " compressed edges," +
+                    elapsed + " ms," +
+                    retained / (1024 * 1024) + " MB," +
+                    retained / Math.max(numEdges, 1) + " bytes per edge");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,57 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Times getRefWithLongestDepChain on a sheet with a running total (an
+ * RR-chain in column B), an FR column over column A and, with "exits", an
+ * RR column over B, which makes every chain cell a place to leave it:
+ * java ... TestLongestPathPerformance [numRows] [chain|exits]
+ */
+public class TestLongestPathPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        boolean hasExits = args.length > 1 && args[1].equals("exits");
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        long start = System.currentTimeMillis();
+        depGraph.bulkLoad(createDepPairs(numRows, hasExits));
+        long buildTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        Pair<Ref, Long> longest = depGraph.getRefWithLongestDepChain();
+        long queryTime = System.currentTimeMillis() - start;
+
+        System.out.println(numRows + " rows," +
+                depGraph.getNumEdges() + " compressed edges," +
+                "longest " + longest.second + " from " + longest.first + "," +
+                "build " + buildTime + " ms," +
+                "query " + queryTime + " ms");
+    }
+
+    private static List<Pair<Ref, List<Ref>>> createDepPairs(int numRows, boolean hasExits) {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        int colA = 0, colB = 1;
+        for (int i = 0; i < numRows; i++) {
+            Ref prec = i == 0 ? new RefImpl(0, colA) : new RefImpl(i - 1, colB);
+            depPairs.add(new Pair<>(new RefImpl(i, colB), Collections.singletonList(prec)));
+        }
+        if (hasExits) {
+            for (int i = 0; i < numRows; i++) {
+                depPairs.add(new Pair<>(new RefImpl(i, 2), Collections.singletonList(new RefImpl(i, colB))));
+            }
+        }
+        for (int i = 0; i < numRows; i++) {
+            depPairs.add(new Pair<>(new RefImpl(i, 3), Collections.singletonList(new RefImpl(0, colA, i, colA))));
+        }
+        return depPairs;
+    }
+}
@@ -0,0 +1,93 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraph;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.MappedDependencyGraph;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the heap taken by a graph and the time of dependents queries
+ * on it, on the heap and memory-mapped, for a sheet of random formulae
+ * that compress badly:
+ * java ... TestMappedGraphPerformance [numRows] [numQueries]
+ */
+public class TestMappedGraphPerformance {
+
+    public static void main(String[] args) throws IOException {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs(numRows);
+
+        long heapBefore = getUsedHeap();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        long heapTACO = getUsedHeap() - heapBefore;
+
+        Path path = Files.createTempFile("TestMappedGraph", ".tacm");
+        path.toFile().deleteOnExit();
+        MappedDependencyGraph.save(depGraph, path);
+
+        heapBefore = getUsedHeap();
+        long start = System.nanoTime();
+        MappedDependencyGraph mapped = MappedDependencyGraph.open(path);
+        long openTime = System.nanoTime() - start;
+        long heapMapped = getUsedHeap() - heapBefore;
+
+        System.out.println(numRows + " rows," + depGraph.getNumEdges() + " edges," +
+                Files.size(path) / 1024 + " KB file," +
+                "open " + openTime / 1000 + " us");
+        System.out.println("heap: TACO " + (heapTACO >> 10) + " KB,mapped " + (heapMapped >> 10) + " KB");
+        System.out.println("queries: TACO " + timeQueries(depGraph, numRows, numQueries) + " us," +
+                "mapped " + timeQueries(mapped, numRows, numQueries) + " us");
+    }
+
+    // Each formula in B refers to a few random cells of A and the cell
+    // above, and C sums a random range of B
+    private static List<Pair<Ref, List<Ref>>> createDepPairs(int numRows) {
+        Random random = new Random(21);
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int i = 0; i < numRows; i++) {
+            List<Ref> precs = new ArrayList<>();
+            precs.add(new RefImpl(random.nextInt(numRows), 0));
+            precs.add(new RefImpl(random.nextInt(numRows), 0));
+            if (i > 0) {
+                precs.add(new RefImpl(i - 1, 1));
+            }
+            depPairs.add(new Pair<>(new RefImpl(i, 1), precs));
+        }
+        for (int i = 0; i < numRows; i++) {
+            int row = random.nextInt(numRows);
+            Ref prec = new RefImpl(row, 1, Math.min(row + random.nextInt(100), numRows - 1), 1);
+            depPairs.add(new Pair<>(new RefImpl(i, 2), Collections.singletonList(prec)));
+        }
+        return depPairs;
+    }
+
+    // Average time of direct dependents queries on random cells of A
+    private static long timeQueries(DependencyGraph depGraph, int numRows, int numQueries) {
+        Random random = new Random(21);
+        long start = System.nanoTime();
+        long numDeps = 0;
+        for (int i = 0; i < numQueries; i++) {
+            numDeps += depGraph.getDirectDependents(new RefImpl(random.nextInt(numRows), 0)).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        return numDeps < 0 ? -1 : elapsed / numQueries / 1000;
+    }
+
+    private static long getUsedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a graph of random references that cannot be compressed, so every
+ * edge stays a NOTYPE edge, on the heap and off the heap, and reports the
+ * heap it retains, the time of a full collection with the graph alive and
+ * the collections while dependents queries run on it. Run with a heap
+ * large enough for the graph on the heap, e.g. -Xmx4g:
+ * java ... TestOffHeapGraphPerformance [numRows] [numQueries]
+ */
+public class TestOffHeapGraphPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        runOnce(false, numRows, numQueries);
+        runOnce(true, numRows, numQueries);
+    }
+
+    // The pairs are dropped after the build, so only the graph is left to
+    // collect
+    private static void runOnce(boolean isOffHeap, int numRows, int numQueries) {
+        long heapBefore = usedHeap();
+        List<Pair<Ref, List<Ref>>> depPairs = MainTestUtil.createDepPairs(numRows, 22, 3, DepColumn.RANDOM);
+        long start = System.currentTimeMillis();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO(isOffHeap);
+        depGraph.bulkLoad(depPairs);
+        long buildTime = System.currentTimeMillis() - start;
+        depPairs = null;
+        long retained = usedHeap() - heapBefore;
+
+        start = System.currentTimeMillis();
+        System.gc();
+        long fullGcTime = System.currentTimeMillis() - start;
+
+        Random random = new Random(22);
+        long gcCountBefore = gcCount(), gcTimeBefore = gcTime();
+        long numDeps = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < numQueries; i++) {
+            numDeps += depGraph.getDirectDependents(new RefImpl(random.nextInt(numRows), 0)).size();
+        }
+        long queryTime = (System.nanoTime() - start) / numQueries;
+
+        System.out.println((isOffHeap ? "off-heap," : "heap,") +
+                depGraph.getNumEdges() + " edges," +
+                "build " + buildTime + " ms," +
+                retained / 1024 + " KB retained," +
+                "full gc " + fullGcTime + " ms," +
+                "queries " + queryTime + " ns for " + numDeps + " dependents," +
+                (gcCount() - gcCountBefore) + " gcs in " + (gcTime() - gcTimeBefore) + " ms");
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += gc.getCollectionTime();
+        }
+        return time;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,67 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk loads one sheet of numCols columns of numRows formulae, once
+ * sequentially and once on a ForkJoinPool of each of the given numbers of
+ * threads with as many column blocks, and reports the time and the
+ * compressed edges of each next to those of the sequential load:
+ * java ... TestParallelBulkLoadPerformance [numRows] [numCols] [threads,...]
+ */
+public class TestParallelBulkLoadPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        String threads = args.length > 2 ? args[2] : "1,4,16,32";
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs(numRows, numCols);
+
+        long start = System.currentTimeMillis();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        long numEdges = depGraph.getNumEdges();
+        System.out.println("sequential," + numEdges + " edges," + (System.currentTimeMillis() - start) + " ms");
+
+        for (String numThreadsArg : threads.split(",")) {
+            int numThreads = Integer.parseInt(numThreadsArg);
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            start = System.currentTimeMillis();
+            depGraph = DependencyGraphTACO.bulkLoad(depPairs, numThreads, pool);
+            long time = System.currentTimeMillis() - start;
+            pool.shutdown();
+            System.out.println(numThreads + " threads," + depGraph.getNumEdges() + " edges (+" +
+                    (depGraph.getNumEdges() - numEdges) + ")," + time + " ms");
+        }
+    }
+
+    // Formulae copied down each column, a few random references to values
+    // in A every hundred rows, and a row of formulae copied across under
+    // the columns
+    private static List<Pair<Ref, List<Ref>>> createDepPairs(int numRows, int numCols) {
+        Random random = new Random(0);
+        SheetData sheetData = new SheetData("sheet");
+        for (int col = 1; col <= numCols; col++) {
+            for (int row = 0; row < numRows; row++) {
+                List<Ref> precs = new ArrayList<>(2);
+                precs.add(new RefImpl(row, col - 1));
+                if (row % 100 == 0) {
+                    precs.add(new RefImpl(random.nextInt(numRows), 0));
+                }
+                sheetData.addDeps(new RefImpl(row, col), precs);
+            }
+            sheetData.addDeps(new RefImpl(numRows, col), Collections.singletonList(new RefImpl(numRows - 1, col)));
+        }
+        return sheetData.getSortedDepPairs(false);
+    }
+}
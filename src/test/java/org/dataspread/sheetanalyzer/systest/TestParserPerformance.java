@@ -0,0 +1,73 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Compares parse time and peak heap of the user-model parser against the
+ * streaming parser. Run each mode in its own JVM to keep the peaks apart:
+ * java ... TestParserPerformance file.xlsx [usermodel|streaming]
+ */
+public class TestParserPerformance {
+
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+            System.out.println("Need arguments: \n" +
+                    "1) a xls(x) file \n" +
+                    "2) optional mode: usermodel, streaming or both (default) \n");
+            System.exit(-1);
+        }
+
+        String filePath = new File(args[0]).getAbsolutePath();
+        String mode = args.length > 1 ? args[1] : "both";
+        try {
+            if (!mode.equals("streaming")) {
+                runOnce(filePath, false);
+            }
+            if (!mode.equals("usermodel")) {
+                runOnce(filePath, true);
+            }
+        } catch (SheetNotSupportedException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static void runOnce(String filePath, boolean isStreaming) throws SheetNotSupportedException {
+        System.gc();
+        resetPeakHeap();
+        long start = System.currentTimeMillis();
+        SheetAnalyzer sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(filePath, isStreaming);
+        long elapsed = System.currentTimeMillis() - start;
+        long peakHeap = getPeakHeap();
+
+        System.out.println((isStreaming ? "streaming" : "usermodel") + "," +
+                sheetAnalyzer.getFileName() + "," +
+                sheetAnalyzer.getNumEdges() + " edges," +
+                elapsed + " ms," +
+                (peakHeap >> 20) + " MB peak heap");
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
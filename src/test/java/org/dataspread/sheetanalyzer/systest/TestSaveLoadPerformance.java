@@ -0,0 +1,54 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+
+import java.io.*;
+
+/**
+ * Compares building an analyzer from a spreadsheet file with the streaming
+ * parser against loading one saved from it:
+ * java ... TestSaveLoadPerformance file.xlsx
+ */
+public class TestSaveLoadPerformance {
+
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+            System.out.println("Need arguments: \n" +
+                    "1) a xls(x) file \n");
+            System.exit(-1);
+        }
+
+        String filePath = new File(args[0]).getAbsolutePath();
+        try {
+            boolean isStreaming = true;
+            long start = System.currentTimeMillis();
+            SheetAnalyzer sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(filePath, isStreaming);
+            long parseTime = System.currentTimeMillis() - start;
+
+            File savedFile = File.createTempFile("TestSaveLoad", ".taco");
+            savedFile.deleteOnExit();
+            start = System.currentTimeMillis();
+            try (OutputStream out = new FileOutputStream(savedFile)) {
+                sheetAnalyzer.save(out);
+            }
+            long saveTime = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            SheetAnalyzer loaded;
+            try (InputStream in = new FileInputStream(savedFile)) {
+                loaded = SheetAnalyzer.load(in);
+            }
+            long loadTime = System.currentTimeMillis() - start;
+
+            System.out.println(sheetAnalyzer.getFileName() + "," +
+                    loaded.getNumEdges() + " edges," +
+                    "parse " + parseTime + " ms," +
+                    "save " + saveTime + " ms (" + (savedFile.length() >> 10) + " KB)," +
+                    "load " + loadTime + " ms");
+        } catch (SheetNotSupportedException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
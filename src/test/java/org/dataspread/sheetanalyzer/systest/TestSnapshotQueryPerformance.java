@@ -0,0 +1,84 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.SnapshotDependencyGraph;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs direct dependents queries from numThreads threads on a graph of
+ * random references for a number of seconds, once on its own and once
+ * while another thread keeps publishing updates, and reports the queries
+ * per second and the time of an update:
+ * java ... TestSnapshotQueryPerformance [numRows] [numThreads] [numSeconds]
+ */
+public class TestSnapshotQueryPerformance {
+
+    public static void main(String[] args) throws InterruptedException {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int numSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(MainTestUtil.createDepPairs(numRows, 23, 2, DepColumn.RANDOM));
+        SnapshotDependencyGraph snapshotGraph = new SnapshotDependencyGraph(depGraph);
+
+        runOnce(snapshotGraph, numRows, numThreads, numSeconds, false);
+        runOnce(snapshotGraph, numRows, numThreads, numSeconds, true);
+    }
+
+    private static void runOnce(SnapshotDependencyGraph snapshotGraph, int numRows,
+                                int numThreads, int numSeconds, boolean isUpdating) throws InterruptedException {
+        AtomicBoolean isDone = new AtomicBoolean(false);
+        LongAdder numQueries = new LongAdder();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread reader = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!isDone.get()) {
+                    snapshotGraph.getDirectDependents(new RefImpl(random.nextInt(numRows), 0));
+                    numQueries.increment();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        long numUpdates = 0;
+        long updateTime = 0;
+        long end = System.currentTimeMillis() + numSeconds * 1000L;
+        Random random = new Random(23);
+        while (System.currentTimeMillis() < end) {
+            if (isUpdating) {
+                Ref dep = new RefImpl(random.nextInt(numRows), 1);
+                long start = System.nanoTime();
+                snapshotGraph.update(depGraph -> {
+                    depGraph.clearDependents(dep);
+                    depGraph.add(new RefImpl(random.nextInt(numRows), 0), dep);
+                });
+                updateTime += System.nanoTime() - start;
+                numUpdates += 1;
+            } else {
+                Thread.sleep(100);
+            }
+        }
+        isDone.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        System.out.println((isUpdating ? "updating," : "read-only,") +
+                numThreads + " threads," +
+                numQueries.sum() / numSeconds + " queries/s," +
+                numUpdates + " updates" +
+                (numUpdates == 0 ? "" : "," + updateTime / numUpdates / 1000000 + " ms per update"));
+    }
+}
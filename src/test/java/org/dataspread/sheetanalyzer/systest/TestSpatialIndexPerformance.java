@@ -0,0 +1,78 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.util.RTreeIndex;
+import org.dataspread.sheetanalyzer.dependency.util.SpatialIndex;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the mutable RTreeIndex against the persistent RTree the graph
+ * used before, on the workload the graph puts on it: inserts, point and
+ * small range searches, deletes and a bulk load.
+ * java ... TestSpatialIndexPerformance [numRefs] [numRounds]
+ */
+public class TestSpatialIndexPerformance {
+
+    public static void main(String[] args) {
+        int numRefs = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Random random = new Random(0);
+        List<Ref> refs = new ArrayList<>(numRefs);
+        List<Ref> queries = new ArrayList<>(numRefs);
+        for (int i = 0; i < numRefs; i++) {
+            refs.add(randomRef(random, numRefs));
+            queries.add(randomRef(random, numRefs));
+        }
+
+        // The first rounds only warm up the JIT
+        for (int round = 0; round < numRounds; round++) {
+            boolean isReported = round == numRounds - 1;
+            runOnce("rtree", PersistentRTreeIndex::new, refs, queries, isReported);
+            runOnce("mutable", RTreeIndex::new, refs, queries, isReported);
+        }
+    }
+
+    private static Ref randomRef(Random random, int maxRows) {
+        int row = random.nextInt(maxRows);
+        int col = random.nextInt(20);
+        return random.nextInt(4) == 0 ? new RefImpl(row, col, row + random.nextInt(50), col) : new RefImpl(row, col);
+    }
+
+    private static void runOnce(String name, Supplier<SpatialIndex> indexSupplier,
+                                List<Ref> refs, List<Ref> queries, boolean isReported) {
+        SpatialIndex index = indexSupplier.get();
+        long start = System.nanoTime();
+        refs.forEach(index::add);
+        long insertTime = System.nanoTime() - start;
+
+        long[] numResults = new long[1];
+        start = System.nanoTime();
+        queries.forEach(query -> index.search(query, ref -> numResults[0] += 1));
+        long searchTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        refs.forEach(index::delete);
+        long deleteTime = System.nanoTime() - start;
+
+        SpatialIndex loadedIndex = indexSupplier.get();
+        start = System.nanoTime();
+        loadedIndex.load(refs);
+        long loadTime = System.nanoTime() - start;
+
+        if (isReported) {
+            System.out.println(name + "," +
+                    refs.size() + " refs," +
+                    numResults[0] + " results," +
+                    "insert " + insertTime / 1000000 + " ms," +
+                    "search " + searchTime / 1000000 + " ms," +
+                    "delete " + deleteTime / 1000000 + " ms," +
+                    "load " + loadTime / 1000000 + " ms");
+        }
+    }
+}
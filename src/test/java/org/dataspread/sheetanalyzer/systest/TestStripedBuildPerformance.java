@@ -0,0 +1,84 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.StripedGraphBuilder;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the graph of one sheet of numCols columns of numRows formulae with
+ * a StripedGraphBuilder from 1, 2, 4, ... up to maxThreads threads, each
+ * adding a block of columns of its own, and reports the time of the adds,
+ * of the merge, and the compressed edges next to those of one graph built
+ * by add alone:
+ * java ... TestStripedBuildPerformance [numRows] [numCols] [maxThreads]
+ */
+public class TestStripedBuildPerformance {
+
+    public static void main(String[] args) throws InterruptedException {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int numCols = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        List<List<Pair<Ref, Ref>>> columns = new ArrayList<>(numCols);
+        for (int col = 1; col <= numCols; col++) {
+            columns.add(createColumn(numRows, col));
+        }
+
+        long start = System.currentTimeMillis();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        columns.forEach(depGraph::addBatch);
+        System.out.println("add," + depGraph.getNumEdges() + " edges," +
+                (System.currentTimeMillis() - start) + " ms");
+
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            runOnce(columns, numThreads);
+        }
+    }
+
+    // Formulae copied down the column, a few random references to values
+    // in A every hundred rows, and one formula under the column that the
+    // next column continues along the row
+    private static List<Pair<Ref, Ref>> createColumn(int numRows, int col) {
+        Random random = new Random(col);
+        List<Pair<Ref, Ref>> edges = new ArrayList<>(numRows + numRows / 100 + 1);
+        for (int row = 0; row < numRows; row++) {
+            Ref dep = new RefImpl(row, col);
+            edges.add(new Pair<>(new RefImpl(row, col - 1), dep));
+            if (row % 100 == 0) {
+                edges.add(new Pair<>(new RefImpl(random.nextInt(numRows), 0), dep));
+            }
+        }
+        edges.add(new Pair<>(new RefImpl(numRows - 1, col), new RefImpl(numRows, col)));
+        return edges;
+    }
+
+    private static void runOnce(List<List<Pair<Ref, Ref>>> columns, int numThreads) throws InterruptedException {
+        int stripeWidth = (columns.size() + numThreads - 1) / numThreads;
+        StripedGraphBuilder builder = new StripedGraphBuilder(stripeWidth);
+        List<Thread> workers = new ArrayList<>(numThreads);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numThreads; i++) {
+            List<List<Pair<Ref, Ref>>> block = columns.subList(Math.min(columns.size(), i * stripeWidth),
+                    Math.min(columns.size(), (i + 1) * stripeWidth));
+            Thread worker = new Thread(() -> block.forEach(builder::addBatch));
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long addTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        DependencyGraphTACO depGraph = builder.build();
+        long mergeTime = System.currentTimeMillis() - start;
+
+        System.out.println(numThreads + " threads," + depGraph.getNumEdges() + " edges," +
+                "add " + addTime + " ms,merge " + mergeTime + " ms");
+    }
+}
@@ -0,0 +1,36 @@
+package org.dataspread.sheetanalyzer.systest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.systest.MainTestUtil.DepColumn;
+
+/**
+ * Times inserting and deleting rows in the middle of a sheet with a
+ * running total in column B and an RR column over it in column C, against
+ * loading the graph of the edited sheet anew:
+ * java ... TestStructuralEditPerformance [numRows] [numEdits]
+ */
+public class TestStructuralEditPerformance {
+
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int numEdits = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        long start = System.currentTimeMillis();
+        depGraph.bulkLoad(MainTestUtil.createDepPairs(numRows, 0, 0,
+                DepColumn.RR_CHAIN, DepColumn.RR_LEFT));
+        long loadTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < numEdits; i++) {
+            depGraph.insertRows(numRows / 2, 1);
+            depGraph.deleteRows(numRows / 2, 1);
+        }
+        long editTime = System.currentTimeMillis() - start;
+
+        System.out.println(numRows + " rows," +
+                "load " + loadTime + " ms," +
+                "insert and delete " + (double) editTime / numEdits + " ms (" +
+                depGraph.getNumEdges() + " edges)");
+    }
+}
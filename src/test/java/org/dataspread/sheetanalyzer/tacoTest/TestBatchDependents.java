@@ -0,0 +1,72 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.util.RefUtils;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestBatchDependents {
+
+    private static final int maxRows = 40;
+
+    // Column-sorted, formulae in columns B to E over values in A
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int row = 0; row < maxRows; row++) {
+            depPairs.add(new Pair<>(new RefImpl(row, 1), Collections.singletonList(new RefImpl(row, 0))));
+        }
+        for (int row = 0; row < maxRows; row++) {
+            Ref prec = row == 0 ? new RefImpl(0, 1) : new RefImpl(row - 1, 2);
+            depPairs.add(new Pair<>(new RefImpl(row, 2), Collections.singletonList(prec)));
+        }
+        for (int row = 0; row < maxRows; row++) {
+            depPairs.add(new Pair<>(new RefImpl(row, 3), Collections.singletonList(new RefImpl(0, 0, row, 0))));
+        }
+        for (int row = 0; row < maxRows; row++) {
+            depPairs.add(new Pair<>(new RefImpl(row, 4), Collections.singletonList(new RefImpl(5, 3, 8, 3))));
+        }
+        return depPairs;
+    }
+
+    @Test
+    public void verifyBatchDependents() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(createDepPairs());
+
+        Random random = new Random(12);
+        for (int i = 0; i < 50; i++) {
+            List<Ref> precs = new ArrayList<>();
+            int numPrecs = 1 + random.nextInt(20);
+            for (int j = 0; j < numPrecs; j++) {
+                int row = random.nextInt(maxRows);
+                int col = random.nextInt(4);
+                precs.add(new RefImpl(row, col, Math.min(row + random.nextInt(3), maxRows - 1), col));
+            }
+            Set<Ref> expected = new HashSet<>();
+            precs.forEach(prec -> expected.addAll(TestUtil.toCells(depGraph.getDependents(prec))));
+            Assertions.assertEquals(expected, TestUtil.toCells(depGraph.getDependents(precs)));
+        }
+        Assertions.assertTrue(depGraph.getDependents(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void verifyCoalesceRefs() {
+        List<Ref> refs = new ArrayList<>();
+        for (int row = 0; row < 10; row++) {
+            refs.add(new RefImpl(row, 0));
+            refs.add(new RefImpl(row, 1));
+        }
+        refs.add(new RefImpl(5, 0, 12, 0));
+        refs.add(new RefImpl(20, 3));
+        List<Ref> coalesced = RefUtils.coalesceRefs(refs);
+        Assertions.assertEquals(TestUtil.toCells(refs), TestUtil.toCells(coalesced));
+        Assertions.assertEquals(3, coalesced.size());
+        Assertions.assertTrue(coalesced.contains(new RefImpl(20, 3)));
+    }
+}
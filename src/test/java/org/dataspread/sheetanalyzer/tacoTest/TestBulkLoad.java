@@ -0,0 +1,157 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestBulkLoad {
+
+    private static final int maxRows = 1000;
+
+    private static void addDep(Map<Ref, List<Ref>> depMap, Ref dep, Ref... precs) {
+        depMap.computeIfAbsent(dep, k -> new ArrayList<>()).addAll(Arrays.asList(precs));
+    }
+
+    private static List<Pair<Ref, List<Ref>>> sortColumnWise(Map<Ref, List<Ref>> depMap) {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        depMap.forEach((dep, precList) -> depPairs.add(new Pair<>(dep, precList)));
+        depPairs.sort(Comparator.comparingInt((Pair<Ref, List<Ref>> pair) -> pair.first.getColumn())
+                .thenComparingInt(pair -> pair.first.getRow()));
+        return depPairs;
+    }
+
+    private static DependencyGraphTACO buildIncrementally(List<Pair<Ref, List<Ref>>> depPairs) {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+        return depGraph;
+    }
+
+    private static DependencyGraphTACO buildInBulk(List<Pair<Ref, List<Ref>>> depPairs) {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        return depGraph;
+    }
+
+    private static Map<Ref, List<Ref>> createPatternSheet() {
+        Map<Ref, List<Ref>> depMap = new HashMap<>();
+        int colA = 0, colB = 1, colC = 2, colD = 3, colE = 4, colF = 5, colG = 6, colH = 7;
+        for (int i = 0; i < maxRows; i++) {
+            // RR, RF, FR and FF
+            addDep(depMap, new RefImpl(i, colB), new RefImpl(i, colA, i + 1, colA));
+            addDep(depMap, new RefImpl(i, colC), new RefImpl(i, colA, maxRows - 1, colA));
+            addDep(depMap, new RefImpl(i, colD), new RefImpl(0, colA, i, colA));
+            addDep(depMap, new RefImpl(i, colE), new RefImpl(0, colA, 1, colA));
+            // A chain down the column
+            if (i > 0) {
+                addDep(depMap, new RefImpl(i, colF), new RefImpl(i - 1, colF));
+            }
+            // Every other row
+            if (i % 2 == 0) {
+                addDep(depMap, new RefImpl(i, colG), new RefImpl(i, colA));
+            }
+            // Two references per cell
+            addDep(depMap, new RefImpl(i, colH), new RefImpl(i, colA), new RefImpl(i, colB));
+        }
+        // A row that references the columns above it
+        for (int col = colA; col <= colH; col++) {
+            addDep(depMap, new RefImpl(maxRows + 1, col), new RefImpl(0, col, 1, col));
+        }
+        return depMap;
+    }
+
+    @Test
+    public void verifySameCompressedGraph() {
+        List<Pair<Ref, List<Ref>>> depPairs = sortColumnWise(createPatternSheet());
+        DependencyGraphTACO incremental = buildIncrementally(depPairs);
+        DependencyGraphTACO bulk = buildInBulk(depPairs);
+
+        Assertions.assertEquals(incremental.getCompressedGraph().first, bulk.getCompressedGraph().first);
+        Assertions.assertEquals(incremental.getCompressedGraph().second, bulk.getCompressedGraph().second);
+        Assertions.assertEquals(incremental.getNumEdges(), bulk.getNumEdges());
+        Assertions.assertEquals(incremental.getCompressInfo(), bulk.getCompressInfo());
+    }
+
+    @Test
+    public void verifySameDependents() {
+        List<Pair<Ref, List<Ref>>> depPairs = sortColumnWise(createPatternSheet());
+        DependencyGraphTACO incremental = buildIncrementally(depPairs);
+        DependencyGraphTACO bulk = buildInBulk(depPairs);
+
+        for (int row = 0; row < maxRows; row += 97) {
+            for (int col = 0; col < 8; col++) {
+                Ref queryRef = new RefImpl(row, col);
+                Assertions.assertEquals(TestUtil.toCells(incremental.getDependents(queryRef)),
+                        TestUtil.toCells(bulk.getDependents(queryRef)));
+            }
+        }
+    }
+
+    @Test
+    public void verifyRandomSheet() {
+        Random random = new Random(42);
+        int numRows = 200, numCols = 10;
+        Map<Ref, List<Ref>> depMap = new HashMap<>();
+        for (int col = 1; col < numCols; col++) {
+            for (int row = 0; row < numRows; row++) {
+                if (random.nextInt(4) == 0) {
+                    continue;
+                }
+                int numPrecs = 1 + random.nextInt(3);
+                for (int i = 0; i < numPrecs; i++) {
+                    int precRow = random.nextInt(numRows);
+                    int precCol = random.nextInt(col);
+                    int lastRow = Math.min(numRows - 1, precRow + random.nextInt(3));
+                    addDep(depMap, new RefImpl(row, col), new RefImpl(precRow, precCol, lastRow, precCol));
+                }
+            }
+        }
+        List<Pair<Ref, List<Ref>>> depPairs = sortColumnWise(depMap);
+        DependencyGraphTACO incremental = buildIncrementally(depPairs);
+        DependencyGraphTACO bulk = buildInBulk(depPairs);
+
+        for (int row = 0; row < numRows; row += 7) {
+            for (int col = 0; col < numCols; col++) {
+                Ref queryRef = new RefImpl(row, col);
+                Assertions.assertEquals(TestUtil.toCells(incremental.getDependents(queryRef)),
+                        TestUtil.toCells(bulk.getDependents(queryRef)));
+            }
+        }
+    }
+
+    @Test
+    public void verifyUpdatesAfterBulkLoad() {
+        List<Pair<Ref, List<Ref>>> depPairs = sortColumnWise(createPatternSheet());
+        DependencyGraphTACO incremental = buildIncrementally(depPairs);
+        DependencyGraphTACO bulk = buildInBulk(depPairs);
+
+        // The packed R-tree has to support the incremental operations
+        Ref newPrec = new RefImpl(5, 0), newDep = new RefImpl(3, 10);
+        Ref clearedDep = new RefImpl(10, 1);
+        for (DependencyGraphTACO depGraph : new DependencyGraphTACO[]{incremental, bulk}) {
+            depGraph.add(newPrec, newDep);
+            depGraph.clearDependents(clearedDep);
+        }
+
+        Assertions.assertEquals(incremental.getCompressedGraph().second, bulk.getCompressedGraph().second);
+        Assertions.assertEquals(TestUtil.toCells(incremental.getDependents(newPrec)),
+                TestUtil.toCells(bulk.getDependents(newPrec)));
+        Assertions.assertFalse(TestUtil.toCells(bulk.getDependents(new RefImpl(10, 0))).contains(clearedDep));
+    }
+
+    @Test
+    public void verifyUnsortedInput() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        depPairs.add(new Pair<>(new RefImpl(0, 2), Collections.singletonList(new RefImpl(0, 0))));
+        depPairs.add(new Pair<>(new RefImpl(0, 1), Collections.singletonList(new RefImpl(0, 0))));
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> depGraph.bulkLoad(depPairs));
+        Assertions.assertEquals(0, depGraph.getNumEdges());
+    }
+}
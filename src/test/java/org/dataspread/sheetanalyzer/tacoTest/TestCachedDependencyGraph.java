@@ -0,0 +1,153 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.CachedDependencyGraph;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestCachedDependencyGraph {
+
+    private static final int maxRows = 30;
+
+    private static Ref randomCell(Random random) {
+        return new RefImpl(random.nextInt(maxRows), random.nextInt(4));
+    }
+
+    // Cell to cell edges, to check the graphs against
+    private static void addCellEdges(Map<Ref, Set<Ref>> cellDeps, Ref prec, Ref dep) {
+        for (int row = prec.getRow(); row <= prec.getLastRow(); row++) {
+            for (int col = prec.getColumn(); col <= prec.getLastColumn(); col++) {
+                cellDeps.computeIfAbsent(new RefImpl(row, col), cell -> new HashSet<>()).add(dep);
+            }
+        }
+    }
+
+    private static Set<Ref> bruteForceDependents(Map<Ref, Set<Ref>> cellDeps, Ref prec, int maxDepth) {
+        Set<Ref> visited = new HashSet<>();
+        List<Ref> level = Collections.singletonList(prec);
+        for (int depth = 0; depth < maxDepth && !level.isEmpty(); depth++) {
+            List<Ref> nextLevel = new ArrayList<>();
+            for (Ref cell : level) {
+                for (Ref dep : cellDeps.getOrDefault(cell, Collections.emptySet())) {
+                    if (visited.add(dep)) {
+                        nextLevel.add(dep);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return visited;
+    }
+
+    @Test
+    public void verifyAgainstUncachedGraph() {
+        DependencyGraphTACO uncached = new DependencyGraphTACO();
+        CachedDependencyGraph cached = new CachedDependencyGraph(new DependencyGraphTACO(), 20, 1000);
+        Map<Ref, Set<Ref>> cellDeps = new HashMap<>();
+        Random random = new Random(8);
+        for (int row = 0; row < maxRows; row++) {
+            Ref prec = row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, 1);
+            uncached.add(prec, new RefImpl(row, 1));
+            cached.add(prec, new RefImpl(row, 1));
+            addCellEdges(cellDeps, prec, new RefImpl(row, 1));
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(10);
+            if (operation == 0) {
+                Ref prec = randomCell(random);
+                Ref dep = new RefImpl(random.nextInt(maxRows), 2 + random.nextInt(2));
+                uncached.add(prec, dep);
+                cached.add(prec, dep);
+                addCellEdges(cellDeps, prec, dep);
+            } else if (operation == 1) {
+                List<Pair<Ref, Ref>> edgeBatch = new ArrayList<>();
+                for (int j = 0; j < 3; j++) {
+                    edgeBatch.add(new Pair<>(randomCell(random), new RefImpl(random.nextInt(maxRows), 3)));
+                }
+                uncached.addBatch(edgeBatch);
+                cached.addBatch(edgeBatch);
+                edgeBatch.forEach(edge -> addCellEdges(cellDeps, edge.first, edge.second));
+            } else if (operation == 2) {
+                Ref dep = randomCell(random);
+                uncached.clearDependents(dep);
+                cached.clearDependents(dep);
+                cellDeps.values().forEach(deps -> deps.remove(dep));
+            } else {
+                Ref prec = randomCell(random);
+                int maxDepth = random.nextInt(3);
+                Set<Ref> expected;
+                if (maxDepth == 0) {
+                    expected = uncached.getDependents(prec);
+                    Assertions.assertEquals(expected, cached.getDependents(prec));
+                } else {
+                    expected = uncached.getDependents(prec, maxDepth);
+                    Assertions.assertEquals(expected, cached.getDependents(prec, maxDepth));
+                }
+                Assertions.assertEquals(bruteForceDependents(cellDeps, prec,
+                        maxDepth == 0 ? Integer.MAX_VALUE : maxDepth), TestUtil.toCells(expected), prec.toString());
+            }
+        }
+        Assertions.assertTrue(cached.getHitCount() > 0);
+        Assertions.assertTrue(cached.getInvalidationCount() > 0);
+        Assertions.assertTrue(cached.getNumCachedAnswers() <= 20);
+    }
+
+    @Test
+    public void verifyInvalidationIsPrecise() {
+        CachedDependencyGraph cached = new CachedDependencyGraph(new DependencyGraphTACO(), 10, 100);
+        cached.add(new RefImpl(0, 0), new RefImpl(0, 1));
+        cached.add(new RefImpl(5, 0), new RefImpl(5, 1));
+
+        Ref first = new RefImpl(0, 0);
+        Ref second = new RefImpl(5, 0);
+        cached.getDependents(first);
+        cached.getDependents(second);
+        Assertions.assertEquals(2, cached.getMissCount());
+
+        // Only the answer for A1 contains B1
+        cached.add(new RefImpl(0, 1), new RefImpl(0, 2));
+        Assertions.assertEquals(1, cached.getInvalidationCount());
+        cached.getDependents(second);
+        Assertions.assertEquals(1, cached.getHitCount());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(new RefImpl(0, 1, 0, 2))), cached.getDependents(first));
+        Assertions.assertEquals(3, cached.getMissCount());
+
+        cached.clearDependents(new RefImpl(5, 1));
+        Assertions.assertEquals(2, cached.getInvalidationCount());
+        Assertions.assertTrue(cached.getDependents(second).isEmpty());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> cached.getDependents(first).add(new RefImpl(9, 9)));
+    }
+
+    @Test
+    public void verifyEviction() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        for (int row = 0; row < 10; row++) {
+            depGraph.add(new RefImpl(row, 0), new RefImpl(row, 1));
+        }
+        CachedDependencyGraph bySize = new CachedDependencyGraph(depGraph, 3, 1000);
+        for (int row = 0; row < 10; row++) {
+            bySize.getDependents(new RefImpl(row, 0));
+        }
+        Assertions.assertEquals(3, bySize.getNumCachedAnswers());
+        Assertions.assertEquals(7, bySize.getEvictionCount());
+
+        // Every answer weighs two, one answer and one range
+        CachedDependencyGraph byWeight = new CachedDependencyGraph(depGraph, 100, 9);
+        for (int row = 0; row < 10; row++) {
+            byWeight.getDependents(new RefImpl(row, 0));
+        }
+        Assertions.assertEquals(4, byWeight.getNumCachedAnswers());
+        Assertions.assertEquals(8, byWeight.getCachedWeight());
+        // The most recently used answers are kept
+        byWeight.getDependents(new RefImpl(9, 0));
+        Assertions.assertEquals(1, byWeight.getHitCount());
+    }
+}
@@ -0,0 +1,170 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestClearDependents {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 8;
+
+    private static Map<Ref, Set<Ref>> toCellDeps(List<Pair<Ref, List<Ref>>> depPairs) {
+        Map<Ref, Set<Ref>> cellDeps = new HashMap<>();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> {
+            for (int row = prec.getRow(); row <= prec.getLastRow(); row++) {
+                for (int col = prec.getColumn(); col <= prec.getLastColumn(); col++) {
+                    cellDeps.computeIfAbsent(new RefImpl(row, col), cell -> new HashSet<>()).add(depPair.first);
+                }
+            }
+        }));
+        return cellDeps;
+    }
+
+    private static void clearCellDeps(Map<Ref, Set<Ref>> cellDeps, Ref delDeps) {
+        cellDeps.values().forEach(deps -> deps.removeIf(dep ->
+                delDeps.getRow() <= dep.getRow() && dep.getRow() <= delDeps.getLastRow()
+                        && delDeps.getColumn() <= dep.getColumn() && dep.getColumn() <= delDeps.getLastColumn()));
+    }
+
+    private static void assertSameDirectDeps(Map<Ref, Set<Ref>> cellDeps, DependencyGraphTACO depGraph) {
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(cellDeps.getOrDefault(cell, Collections.emptySet()),
+                        TestUtil.toCells(depGraph.getDirectDependents(cell)), cell.toString());
+            }
+        }
+    }
+
+    private static DependencyGraphTACO buildAndClear(List<Pair<Ref, List<Ref>>> depPairs, Ref delDep) {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        depGraph.clearDependents(delDep);
+        Map<Ref, Set<Ref>> cellDeps = toCellDeps(depPairs);
+        clearCellDeps(cellDeps, delDep);
+        assertSameDirectDeps(cellDeps, depGraph);
+        return depGraph;
+    }
+
+    @Test
+    public void verifyClearRanges() {
+        List<Pair<Ref, List<Ref>>> depPairs = TestUtil.createDepPairs(maxRows, maxCols);
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        Map<Ref, Set<Ref>> cellDeps = toCellDeps(depPairs);
+
+        Random random = new Random(17);
+        for (int i = 0; i < 30; i++) {
+            int row = random.nextInt(maxRows), col = 1 + random.nextInt(maxCols - 1);
+            Ref delDeps = new RefImpl(row, col,
+                    Math.min(row + random.nextInt(10), maxRows - 1),
+                    Math.min(col + random.nextInt(3), maxCols - 1));
+            depGraph.clearDependents(delDeps);
+            clearCellDeps(cellDeps, delDeps);
+            assertSameDirectDeps(cellDeps, depGraph);
+        }
+    }
+
+    @Test
+    public void verifyClearColumn() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        long numEdges = depGraph.getNumEdges();
+
+        // The rows of a column are cleared without splitting the others
+        depGraph.clearDependents(new RefImpl(0, 3, maxRows - 1, 3));
+        Assertions.assertEquals(numEdges - 1, depGraph.getNumEdges());
+        Assertions.assertTrue(depGraph.getDirectDependents(new RefImpl(0, 0)).stream()
+                .noneMatch(dep -> dep.getColumn() == 3));
+
+        // Clearing the middle of a compressed column leaves its two ends
+        depGraph.clearDependents(new RefImpl(10, 1, 19, 1));
+        Assertions.assertEquals(numEdges, depGraph.getNumEdges());
+    }
+
+    @Test
+    public void verifyClearRangeLikeCells() {
+        List<Pair<Ref, List<Ref>>> depPairs = TestUtil.createDepPairs(maxRows, maxCols);
+        DependencyGraphTACO byRange = new DependencyGraphTACO();
+        byRange.bulkLoad(depPairs);
+        DependencyGraphTACO byCell = new DependencyGraphTACO();
+        byCell.bulkLoad(depPairs);
+
+        Ref delDeps = new RefImpl(5, 1, 25, 7);
+        byRange.clearDependents(delDeps);
+        for (int row = delDeps.getRow(); row <= delDeps.getLastRow(); row++) {
+            for (int col = delDeps.getColumn(); col <= delDeps.getLastColumn(); col++) {
+                byCell.clearDependents(new RefImpl(row, col));
+            }
+        }
+        Map<Ref, Set<Ref>> cellDeps = toCellDeps(depPairs);
+        clearCellDeps(cellDeps, delDeps);
+        assertSameDirectDeps(cellDeps, byRange);
+        assertSameDirectDeps(cellDeps, byCell);
+    }
+
+    @Test
+    public void verifyClearSingleCellDependent() {
+        // B1 = A1, on an edge of its own
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        depPairs.add(new Pair<>(new RefImpl(0, 1), Collections.singletonList(new RefImpl(0, 0))));
+        depPairs.add(new Pair<>(new RefImpl(9, 2), Collections.singletonList(new RefImpl(4, 0, 5, 0))));
+
+        DependencyGraphTACO depGraph = buildAndClear(depPairs, new RefImpl(0, 1));
+        Assertions.assertEquals(1, depGraph.getNumEdges());
+    }
+
+    @Test
+    public void verifyClearGapPattern() {
+        // B = A every gapSize + 1 rows, one gap edge each
+        for (int gapSize = 1; gapSize <= 3; gapSize++) {
+            List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+            for (int row = 0; row < 30; row += gapSize + 1) {
+                depPairs.add(new Pair<>(new RefImpl(row, 1), Collections.singletonList(new RefImpl(row, 0))));
+            }
+            DependencyGraphTACO depGraph = new DependencyGraphTACO();
+            depGraph.bulkLoad(depPairs);
+            Assertions.assertEquals(1, depGraph.getNumEdges(), "gap " + gapSize);
+
+            // The pieces above and below keep their own precedents
+            buildAndClear(depPairs, new RefImpl(3 * (gapSize + 1), 1));
+        }
+    }
+
+    @Test
+    public void verifyClearCellWithManyEdges() {
+        // B = A + SUM(A$1:A), an RR and an FR edge into each cell, which
+        // both reach A1 from B1
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int row = 0; row < 10; row++) {
+            depPairs.add(new Pair<>(new RefImpl(row, 1),
+                    Arrays.asList(new RefImpl(row, 0), new RefImpl(0, 0, row, 0))));
+        }
+        for (int row = 0; row < 10; row++) {
+            buildAndClear(depPairs, new RefImpl(row, 1));
+        }
+    }
+
+    @Test
+    public void verifyAddInsideRelativePattern() {
+        // B = A on the same row, and B5 also refers to A2, which lies in
+        // the bounding boxes of the RR edge but is not reached by it
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int row = 0; row < 10; row++) {
+            List<Ref> precs = row == 4
+                    ? Arrays.asList(new RefImpl(row, 0), new RefImpl(1, 0))
+                    : Collections.singletonList(new RefImpl(row, 0));
+            depPairs.add(new Pair<>(new RefImpl(row, 1), precs));
+        }
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        assertSameDirectDeps(toCellDeps(depPairs), depGraph);
+    }
+}
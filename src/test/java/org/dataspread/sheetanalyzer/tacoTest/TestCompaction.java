@@ -0,0 +1,154 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.CompactionStats;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestCompaction {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 8;
+
+    private static void assertSameDirectEdges(DependencyGraphTACO expected, DependencyGraphTACO actual) {
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(TestUtil.toCells(expected.getDirectDependents(cell)),
+                        TestUtil.toCells(actual.getDirectDependents(cell)), cell.toString());
+                Assertions.assertEquals(TestUtil.toCells(expected.getDirectPrecedents(cell)),
+                        TestUtil.toCells(actual.getDirectPrecedents(cell)), cell.toString());
+            }
+        }
+    }
+
+    // Adds the formulae of a region again, in random order, after clearing
+    // them cell by cell
+    private static void fragment(DependencyGraphTACO depGraph, List<Pair<Ref, List<Ref>>> depPairs, Ref region) {
+        List<Pair<Ref, List<Ref>>> regionPairs = new ArrayList<>();
+        depPairs.forEach(depPair -> {
+            Ref dep = depPair.first;
+            if (region.getRow() <= dep.getRow() && dep.getRow() <= region.getLastRow()
+                    && region.getColumn() <= dep.getColumn() && dep.getColumn() <= region.getLastColumn()) {
+                regionPairs.add(depPair);
+            }
+        });
+        regionPairs.forEach(depPair -> depGraph.clearDependents(depPair.first));
+        Collections.shuffle(regionPairs, new Random(19));
+        regionPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+    }
+
+    @Test
+    public void verifyCompactLikeBulkLoad() {
+        List<Pair<Ref, List<Ref>>> depPairs = TestUtil.createDepPairs(maxRows, maxCols);
+        DependencyGraphTACO bulkLoaded = new DependencyGraphTACO();
+        bulkLoaded.bulkLoad(depPairs);
+        Assertions.assertEquals(0.0, bulkLoaded.getFragmentation());
+
+        // In random order most cells find nothing to be compressed with
+        List<Pair<Ref, List<Ref>>> shuffledPairs = new ArrayList<>(depPairs);
+        Collections.shuffle(shuffledPairs, new Random(19));
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        shuffledPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+        long numEdges = depGraph.getNumEdges();
+        Assertions.assertTrue(numEdges > bulkLoaded.getNumEdges());
+
+        CompactionStats compactionStats = depGraph.compact();
+        Assertions.assertEquals(numEdges, compactionStats.numEdgesBefore);
+        Assertions.assertEquals(bulkLoaded.getNumEdges(), compactionStats.numEdgesAfter);
+        Assertions.assertEquals(bulkLoaded.getNumEdges(), depGraph.getNumEdges());
+        Assertions.assertEquals(bulkLoaded.getNumVertices(), compactionStats.numVerticesAfter);
+        Assertions.assertEquals(0.0, depGraph.getFragmentation());
+        assertSameDirectEdges(bulkLoaded, depGraph);
+    }
+
+    @Test
+    public void verifyCompactRegion() {
+        List<Pair<Ref, List<Ref>>> depPairs = TestUtil.createDepPairs(maxRows, maxCols);
+        DependencyGraphTACO bulkLoaded = new DependencyGraphTACO();
+        bulkLoaded.bulkLoad(depPairs);
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+
+        Ref region = new RefImpl(10, 1, 29, maxCols - 1);
+        fragment(depGraph, depPairs, region);
+        Assertions.assertTrue(depGraph.getFragmentation() > 0.0);
+        assertSameDirectEdges(bulkLoaded, depGraph);
+
+        CompactionStats compactionStats = depGraph.compact(region);
+        Assertions.assertTrue(compactionStats.numEdgesAfter < compactionStats.numEdgesBefore);
+        Assertions.assertEquals(compactionStats.numEdgesAfter, depGraph.getNumEdges());
+        assertSameDirectEdges(bulkLoaded, depGraph);
+
+        // The edges split at the borders of the region are joined only by
+        // compacting the whole graph
+        depGraph.compact();
+        Assertions.assertEquals(bulkLoaded.getNumEdges(), depGraph.getNumEdges());
+        assertSameDirectEdges(bulkLoaded, depGraph);
+    }
+
+    @Test
+    public void verifyFragmentation() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        long numEdges = depGraph.getNumEdges();
+
+        // New formulae grow the graph without fragmenting it
+        for (int row = 0; row < maxRows; row++) {
+            depGraph.add(new RefImpl(row * 2, 0), new RefImpl(row, maxCols + row % 7));
+        }
+        Assertions.assertTrue(depGraph.getNumEdges() > 2 * numEdges);
+        Assertions.assertEquals(0.0, depGraph.getFragmentation());
+
+        // Clearing the middle of the RR column in B splits it in two
+        depGraph.clearDependents(new RefImpl(10, 1));
+        Assertions.assertEquals(2.0 / numEdges, depGraph.getFragmentation());
+        depGraph.add(new RefImpl(10, 0, 11, 0), new RefImpl(10, 1));
+        Assertions.assertEquals(2.0 / numEdges, depGraph.getFragmentation());
+
+        depGraph.compact();
+        Assertions.assertEquals(0.0, depGraph.getFragmentation());
+    }
+
+    @Test
+    public void verifyCompactRegionOfCleanGraph() {
+        // Two RR columns of 100 rows, one compressed edge each
+        List<Pair<Ref, List<Ref>>> columnPairs = new ArrayList<>();
+        for (int col = 1; col <= 2; col++) {
+            for (int row = 0; row < 100; row++) {
+                columnPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(new RefImpl(row, 0))));
+            }
+        }
+        DependencyGraphTACO columns = new DependencyGraphTACO();
+        columns.bulkLoad(columnPairs);
+        CompactionStats compactionStats = columns.compact(new RefImpl(40, 1, 60, 2));
+        Assertions.assertEquals(2, compactionStats.numEdgesBefore);
+        Assertions.assertEquals(2, compactionStats.numEdgesAfter);
+        Assertions.assertEquals(0.0, columns.getFragmentation());
+
+        // Compacting a region never adds edges to a graph compressed as a whole
+        List<Pair<Ref, List<Ref>>> depPairs = TestUtil.createDepPairs(maxRows, maxCols);
+        DependencyGraphTACO bulkLoaded = new DependencyGraphTACO();
+        bulkLoaded.bulkLoad(depPairs);
+        Random random = new Random(23);
+        for (int i = 0; i < 50; i++) {
+            int row = random.nextInt(maxRows), col = random.nextInt(maxCols);
+            Ref region = new RefImpl(row, col,
+                    Math.min(row + random.nextInt(20), maxRows - 1),
+                    Math.min(col + random.nextInt(4), maxCols - 1));
+            DependencyGraphTACO depGraph = new DependencyGraphTACO();
+            depGraph.bulkLoad(depPairs);
+            compactionStats = depGraph.compact(region);
+            Assertions.assertTrue(compactionStats.numEdgesAfter <= compactionStats.numEdgesBefore,
+                    region + ": " + compactionStats.numEdgesBefore + "->" + compactionStats.numEdgesAfter);
+            Assertions.assertEquals(0.0, depGraph.getFragmentation());
+            assertSameDirectEdges(bulkLoaded, depGraph);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestDependentsDepth {
+
+    private static final int maxRows = 30;
+    private static final int maxCols = 6;
+
+    // Column-sorted, formulae in columns B to F over values in A
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col) {
+                    case 1: // RR-chain
+                        prec = row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, 1);
+                        break;
+                    case 2: // RR
+                        prec = new RefImpl(row, 1, Math.min(row + 1, maxRows - 1), 1);
+                        break;
+                    case 3: // FR
+                        prec = new RefImpl(0, 2, row, 2);
+                        break;
+                    case 4: // RF
+                        prec = new RefImpl(row, 0, maxRows - 1, 0);
+                        break;
+                    default: // FF
+                        prec = new RefImpl(2, 3, 4, 3);
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(prec)));
+            }
+        }
+        return depPairs;
+    }
+
+    private static Set<Ref> bruteForceDeps(Ref cell, Map<Ref, List<Ref>> cellDeps, int maxDepth) {
+        Set<Ref> visited = new HashSet<>();
+        List<Ref> level = Collections.singletonList(cell);
+        for (int depth = 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+            List<Ref> nextLevel = new ArrayList<>();
+            for (Ref ref : level) {
+                for (Ref dep : cellDeps.getOrDefault(ref, Collections.emptyList())) {
+                    if (visited.add(dep)) {
+                        nextLevel.add(dep);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return visited;
+    }
+
+    @Test
+    public void verifyDepths() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        Assertions.assertTrue(depGraph.getCompressInfo().contains("RR-Chain"));
+
+        Map<Ref, List<Ref>> cellDeps = new HashMap<>();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> {
+            for (int row = prec.getRow(); row <= prec.getLastRow(); row++) {
+                for (int col = prec.getColumn(); col <= prec.getLastColumn(); col++) {
+                    cellDeps.computeIfAbsent(new RefImpl(row, col), cell -> new ArrayList<>()).add(depPair.first);
+                }
+            }
+        }));
+
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(bruteForceDeps(cell, cellDeps, 1),
+                        TestUtil.toDisjointCells(depGraph.getDirectDependents(cell)), cell.toString());
+                for (int maxDepth : new int[]{2, 3, 7}) {
+                    Assertions.assertEquals(bruteForceDeps(cell, cellDeps, maxDepth),
+                            TestUtil.toDisjointCells(depGraph.getDependents(cell, maxDepth)), cell + " " + maxDepth);
+                }
+                Assertions.assertEquals(bruteForceDeps(cell, cellDeps, Integer.MAX_VALUE),
+                        TestUtil.toDisjointCells(depGraph.getDependents(cell)), cell.toString());
+            }
+        }
+        Assertions.assertTrue(depGraph.getDependents(new RefImpl(0, 0), 0).isEmpty());
+    }
+}
@@ -0,0 +1,55 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.util.EdgeList;
+import org.dataspread.sheetanalyzer.dependency.util.EdgeMeta;
+import org.dataspread.sheetanalyzer.dependency.util.Offset;
+import org.dataspread.sheetanalyzer.dependency.util.PatternType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestEdgeList {
+
+    private static List<String> toStrings(EdgeList edgeList) {
+        List<String> edges = new ArrayList<>();
+        for (int i = 0; i < edgeList.size(); i++) {
+            edges.add(edgeList.getStart(i) + ":" + edgeList.getEnd(i) + ":"
+                    + edgeList.getEdgeMeta(i).patternType);
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    @Test
+    public void verifyAddAndRemove() {
+        Random random = new Random(3);
+        EdgeMeta[] edgeMetas = {
+                new EdgeMeta(PatternType.NOTYPE, Offset.noOffset, Offset.noOffset),
+                new EdgeMeta(PatternType.TYPEONE, Offset.of(0, -1), Offset.of(0, -1))
+        };
+        EdgeList edgeList = new EdgeList();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(10);
+            long end = start + random.nextInt(3);
+            EdgeMeta edgeMeta = edgeMetas[random.nextInt(2)];
+            String edge = start + ":" + end + ":" + edgeMeta.patternType;
+            if (random.nextBoolean()) {
+                edgeList.add(start, end, edgeMeta);
+                expected.add(edge);
+            } else {
+                Assertions.assertEquals(expected.remove(edge), edgeList.remove(start, end, edgeMeta));
+            }
+            Collections.sort(expected);
+            Assertions.assertEquals(expected, toStrings(edgeList));
+        }
+    }
+
+    @Test
+    public void verifyOffsetCache() {
+        Assertions.assertSame(Offset.noOffset, Offset.of(0, 0));
+        Assertions.assertSame(Offset.of(-1, 5), Offset.of(-1, 5));
+        Assertions.assertEquals(new Offset(1000000, 0), Offset.of(1000000, 0));
+    }
+}
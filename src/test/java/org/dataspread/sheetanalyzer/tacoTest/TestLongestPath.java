@@ -0,0 +1,125 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestLongestPath {
+
+    private static final int maxRows = 60;
+    private static final int maxCols = 8;
+
+    // Column-sorted, one formula per cell of columns B to H over values in A
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        Random random = new Random(5);
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                List<Ref> precs = new ArrayList<>();
+                switch (col) {
+                    case 1: // RR-chain down
+                        precs.add(row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, 1));
+                        break;
+                    case 2: // RR
+                        precs.add(new RefImpl(row, 1));
+                        break;
+                    case 3: // FR
+                        precs.add(new RefImpl(0, 0, row, 0));
+                        break;
+                    case 4: // RF
+                        precs.add(new RefImpl(row, 2, maxRows - 1, 2));
+                        break;
+                    case 5: // RR-chain up
+                        precs.add(row == maxRows - 1 ? new RefImpl(row, 3) : new RefImpl(row + 1, 5));
+                        break;
+                    case 6: // RR with a gap of two
+                        if (row % 3 != 0) {
+                            continue;
+                        }
+                        precs.add(new RefImpl(row, 5, Math.min(row + 1, maxRows - 1), 5));
+                        break;
+                    default: // scattered references into the chains
+                        precs.add(new RefImpl(random.nextInt(maxRows), 1 + 4 * random.nextInt(2)));
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), precs));
+            }
+        }
+        return depPairs;
+    }
+
+    private static Map<Ref, Long> bruteForceLengths(List<Pair<Ref, List<Ref>>> depPairs) {
+        Map<Ref, List<Ref>> cellDeps = new HashMap<>();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> {
+            for (int row = prec.getRow(); row <= prec.getLastRow(); row++) {
+                for (int col = prec.getColumn(); col <= prec.getLastColumn(); col++) {
+                    cellDeps.computeIfAbsent(new RefImpl(row, col), cell -> new ArrayList<>()).add(depPair.first);
+                }
+            }
+        }));
+        Map<Ref, Long> lengths = new HashMap<>();
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                bruteForceLength(new RefImpl(row, col), cellDeps, lengths);
+            }
+        }
+        return lengths;
+    }
+
+    private static long bruteForceLength(Ref cell, Map<Ref, List<Ref>> cellDeps, Map<Ref, Long> lengths) {
+        Long length = lengths.get(cell);
+        if (length == null) {
+            length = 0L;
+            for (Ref dep : cellDeps.getOrDefault(cell, Collections.emptyList())) {
+                length = Math.max(length, 1 + bruteForceLength(dep, cellDeps, lengths));
+            }
+            lengths.put(cell, length);
+        }
+        return length;
+    }
+
+    private static void verifyLengths(DependencyGraphTACO depGraph, Map<Ref, Long> expected) {
+        expected.forEach((cell, length) ->
+                Assertions.assertEquals(length, depGraph.getLongestPathLength(cell), cell.toString()));
+
+        long columnLength = 0;
+        for (int row = 10; row < 30; row++) {
+            columnLength = Math.max(columnLength, expected.get(new RefImpl(row, 5)));
+        }
+        Assertions.assertEquals(columnLength, depGraph.getLongestPathLength(new RefImpl(10, 5, 29, 5)));
+
+        long longest = Collections.max(expected.values());
+        Pair<Ref, Long> refWithLongest = depGraph.getRefWithLongestDepChain();
+        Assertions.assertEquals(longest, refWithLongest.second);
+        Assertions.assertEquals(longest, expected.get(new RefImpl(refWithLongest.first.getRow(),
+                refWithLongest.first.getColumn())));
+    }
+
+    @Test
+    public void verifyBulkLoadedGraph() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        Assertions.assertTrue(depGraph.getCompressInfo().contains("RR-Chain"));
+        verifyLengths(depGraph, bruteForceLengths(depPairs));
+    }
+
+    @Test
+    public void verifyIncrementalGraph() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+        verifyLengths(depGraph, bruteForceLengths(depPairs));
+    }
+
+    @Test
+    public void verifyEmptyGraph() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        Assertions.assertNull(depGraph.getRefWithLongestDepChain());
+        Assertions.assertEquals(0, depGraph.getLongestPathLength(new RefImpl(0, 0)));
+    }
+}
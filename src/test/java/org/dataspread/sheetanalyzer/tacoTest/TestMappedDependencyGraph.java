@@ -0,0 +1,117 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.MappedDependencyGraph;
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class TestMappedDependencyGraph {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private MappedDependencyGraph saveAndOpen(DependencyGraphTACO depGraph) throws IOException {
+        Path path = Files.createTempFile(tempDir, "graph", ".tacm");
+        MappedDependencyGraph.save(depGraph, path);
+        return MappedDependencyGraph.open(path);
+    }
+
+    private static Map<Ref, Set<RefWithMeta>> toEdgeSets(Map<Ref, List<RefWithMeta>> edgeLists) {
+        Map<Ref, Set<RefWithMeta>> edgeSets = new HashMap<>();
+        edgeLists.forEach((ref, edges) -> edgeSets.put(ref, new HashSet<>(edges)));
+        return edgeSets;
+    }
+
+    private static void assertSameAnswers(DependencyGraphTACO expected, MappedDependencyGraph actual, Ref ref) {
+        Assertions.assertEquals(expected.getDependents(ref), actual.getDependents(ref), ref.toString());
+        Assertions.assertEquals(expected.getDirectDependents(ref), actual.getDirectDependents(ref), ref.toString());
+        Assertions.assertEquals(expected.getDependents(ref, 2), actual.getDependents(ref, 2), ref.toString());
+        Assertions.assertEquals(expected.getPrecedents(ref), actual.getPrecedents(ref), ref.toString());
+        Assertions.assertEquals(expected.getDirectPrecedents(ref), actual.getDirectPrecedents(ref), ref.toString());
+    }
+
+    @Test
+    public void verifySameAnswers() throws IOException {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        // Edges split by updates, and a range with several edges
+        depGraph.clearDependents(new RefImpl(10, 1, 19, 3));
+        depGraph.add(new RefImpl(0, 0, 9, 0), new RefImpl(5, 9));
+        depGraph.add(new RefImpl(5, 5), new RefImpl(5, 9));
+        MappedDependencyGraph mapped = saveAndOpen(depGraph);
+
+        Assertions.assertEquals(depGraph.getNumEdges(), mapped.getNumEdges());
+        Assertions.assertEquals(depGraph.getNumVertices(), mapped.getNumVertices());
+        Assertions.assertEquals(depGraph.getCompressInfo(), mapped.getCompressInfo());
+        Assertions.assertEquals(toEdgeSets(depGraph.getCompressedGraph().first),
+                toEdgeSets(mapped.getCompressedGraph().first));
+        Assertions.assertEquals(toEdgeSets(depGraph.getCompressedGraph().second),
+                toEdgeSets(mapped.getCompressedGraph().second));
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols + 2; col++) {
+                assertSameAnswers(depGraph, mapped, new RefImpl(row, col));
+            }
+        }
+        Random random = new Random(21);
+        for (int i = 0; i < 50; i++) {
+            int row = random.nextInt(maxRows), col = random.nextInt(maxCols);
+            assertSameAnswers(depGraph, mapped, new RefImpl(row, col,
+                    row + random.nextInt(10), col + random.nextInt(3)));
+        }
+        List<Ref> precs = Arrays.asList(new RefImpl(3, 0), new RefImpl(4, 0), new RefImpl(30, 1));
+        Assertions.assertEquals(depGraph.getDependents(precs), mapped.getDependents(precs));
+    }
+
+    @Test
+    public void verifyLargeGraph() throws IOException {
+        // Enough ranges for an R-tree of several levels
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        Random random = new Random(21);
+        for (int i = 0; i < 3000; i++) {
+            int row = random.nextInt(1000), col = random.nextInt(50);
+            depGraph.add(new RefImpl(row, col, row + random.nextInt(3), col), new RefImpl(random.nextInt(1000), 50));
+        }
+        MappedDependencyGraph mapped = saveAndOpen(depGraph);
+        for (int i = 0; i < 200; i++) {
+            int row = random.nextInt(1000), col = random.nextInt(51);
+            assertSameAnswers(depGraph, mapped, new RefImpl(row, col, row + random.nextInt(20), col));
+        }
+    }
+
+    @Test
+    public void verifyReadOnly() throws IOException {
+        MappedDependencyGraph mapped = saveAndOpen(new DependencyGraphTACO());
+        Assertions.assertTrue(mapped.getDependents(new RefImpl(0, 0)).isEmpty());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> mapped.add(new RefImpl(0, 0), new RefImpl(0, 1)));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> mapped.clearDependents(new RefImpl(0, 1)));
+    }
+
+    @Test
+    public void verifyBadFile() throws IOException {
+        Path path = Files.createTempFile(tempDir, "bad", ".tacm");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5});
+        Assertions.assertThrows(IOException.class, () -> MappedDependencyGraph.open(path));
+
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        MappedDependencyGraph.save(depGraph, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        Assertions.assertThrows(IOException.class, () -> MappedDependencyGraph.open(path));
+    }
+}
@@ -0,0 +1,157 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestMostDeps {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 7;
+
+    // Column-sorted, formulae in columns B to G over values in A
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col) {
+                    case 1: // RR window of five, peaks in the middle of A
+                        prec = new RefImpl(Math.max(row - 2, 0), 0, Math.min(row + 2, maxRows - 1), 0);
+                        break;
+                    case 2: // RR-chain over B
+                        prec = row == 0 ? new RefImpl(0, 1) : new RefImpl(row - 1, 2);
+                        break;
+                    case 3: // RF
+                        prec = new RefImpl(row, 2, maxRows - 1, 2);
+                        break;
+                    case 4: // FR
+                        prec = new RefImpl(0, 1, row, 1);
+                        break;
+                    case 5: // FF
+                        prec = new RefImpl(10, 0, 12, 0);
+                        break;
+                    default: // RR
+                        prec = new RefImpl(row, 3);
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(prec)));
+            }
+        }
+        return depPairs;
+    }
+
+    private static Map<Ref, Long> bruteForceCounts(List<Pair<Ref, List<Ref>>> depPairs) {
+        Map<Ref, List<Ref>> cellDeps = new HashMap<>();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> {
+            for (int row = prec.getRow(); row <= prec.getLastRow(); row++) {
+                for (int col = prec.getColumn(); col <= prec.getLastColumn(); col++) {
+                    cellDeps.computeIfAbsent(new RefImpl(row, col), cell -> new ArrayList<>()).add(depPair.first);
+                }
+            }
+        }));
+        Map<Ref, Long> counts = new HashMap<>();
+        cellDeps.keySet().forEach(cell -> {
+            Set<Ref> visited = new HashSet<>();
+            Deque<Ref> queue = new ArrayDeque<>(cellDeps.get(cell));
+            while (!queue.isEmpty()) {
+                Ref dep = queue.remove();
+                if (visited.add(dep)) {
+                    queue.addAll(cellDeps.getOrDefault(dep, Collections.emptyList()));
+                }
+            }
+            counts.put(cell, (long) visited.size());
+        });
+        return counts;
+    }
+
+    private static void assertMostDeps(List<Pair<Ref, List<Ref>>> depPairs, int k) {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        Map<Ref, Long> expected = bruteForceCounts(depPairs);
+
+        expected.forEach((cell, count) ->
+                Assertions.assertEquals(count, depGraph.getNumDependents(cell), cell.toString()));
+
+        List<Long> expectedTop = new ArrayList<>(expected.values());
+        expectedTop.sort(Comparator.reverseOrder());
+        List<Pair<Ref, Long>> mostDeps = depGraph.getRefsWithMostDeps(k);
+        Assertions.assertEquals(Math.min(k, expectedTop.size()), mostDeps.size());
+        for (int i = 0; i < mostDeps.size(); i++) {
+            Pair<Ref, Long> refWithCount = mostDeps.get(i);
+            Assertions.assertEquals(expectedTop.get(i), refWithCount.second);
+            Ref cell = new RefImpl(refWithCount.first.getRow(), refWithCount.first.getColumn());
+            Assertions.assertEquals(expected.get(cell), refWithCount.second);
+        }
+    }
+
+    @Test
+    public void verifyMostDeps() {
+        assertMostDeps(createDepPairs(), 5);
+    }
+
+    @Test
+    public void verifyBreakFurtherDown() {
+        // B = A on the same row, and C50 and C51 refer to B37, so A37 has
+        // one dependent more than the other cells of A
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int row = 0; row < 100; row++) {
+            depPairs.add(new Pair<>(new RefImpl(row, 1), Collections.singletonList(new RefImpl(row, 0))));
+        }
+        depPairs.add(new Pair<>(new RefImpl(49, 2), Collections.singletonList(new RefImpl(36, 1))));
+        depPairs.add(new Pair<>(new RefImpl(50, 2), Collections.singletonList(new RefImpl(36, 1))));
+        assertMostDeps(depPairs, 1);
+    }
+
+    @Test
+    public void verifyRandomSheets() {
+        // Runs of one pattern down each column, over the columns to the left
+        Random random = new Random(9);
+        for (int sheet = 0; sheet < 200; sheet++) {
+            List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+            for (int col = 1; col < 5; col++) {
+                for (int row = 0; row < 20; ) {
+                    int runLength = 1 + random.nextInt(8);
+                    int precCol = random.nextInt(col);
+                    int kind = random.nextInt(5);
+                    int rowOffset = random.nextInt(5) - 2;
+                    int fixedRow = random.nextInt(20);
+                    for (int i = row; i < Math.min(row + runLength, 20); i++) {
+                        int precRow = Math.max(0, Math.min(19, i + rowOffset));
+                        Ref prec;
+                        switch (kind) {
+                            case 0: // RR
+                                prec = new RefImpl(precRow, precCol);
+                                break;
+                            case 1: // RR window
+                                prec = new RefImpl(precRow, precCol, Math.min(precRow + 2, 19), precCol);
+                                break;
+                            case 2: // FR
+                                prec = new RefImpl(0, precCol, precRow, precCol);
+                                break;
+                            case 3: // RF
+                                prec = new RefImpl(precRow, precCol, 19, precCol);
+                                break;
+                            default: // FF
+                                prec = new RefImpl(fixedRow, precCol);
+                        }
+                        if (random.nextInt(10) != 0) {
+                            depPairs.add(new Pair<>(new RefImpl(i, col), Collections.singletonList(prec)));
+                        }
+                    }
+                    row += runLength;
+                }
+            }
+            assertMostDeps(depPairs, 3);
+        }
+    }
+
+    @Test
+    public void verifyEmptyGraph() {
+        Assertions.assertTrue(new DependencyGraphTACO().getRefsWithMostDeps(3).isEmpty());
+    }
+}
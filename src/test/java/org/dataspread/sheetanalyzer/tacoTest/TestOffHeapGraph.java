@@ -0,0 +1,89 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+public class TestOffHeapGraph {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 8;
+
+    private static void assertSameAnswers(DependencyGraphTACO expected, DependencyGraphTACO actual) {
+        Assertions.assertEquals(expected.getNumEdges(), actual.getNumEdges());
+        Assertions.assertEquals(expected.getNumVertices(), actual.getNumVertices());
+        Assertions.assertEquals(expected.getCompressInfo(), actual.getCompressInfo());
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols + 2; col++) {
+                Ref ref = new RefImpl(row, col);
+                Assertions.assertEquals(expected.getDependents(ref), actual.getDependents(ref), ref.toString());
+                Assertions.assertEquals(expected.getDependents(ref, 1), actual.getDependents(ref, 1), ref.toString());
+                Assertions.assertEquals(expected.getPrecedents(ref), actual.getPrecedents(ref), ref.toString());
+            }
+        }
+    }
+
+    @Test
+    public void verifyBulkLoadAndUpdates() {
+        DependencyGraphTACO heap = new DependencyGraphTACO();
+        DependencyGraphTACO offHeap = new DependencyGraphTACO(true);
+        Assertions.assertTrue(offHeap.isOffHeap());
+        heap.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        offHeap.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        assertSameAnswers(heap, offHeap);
+
+        for (DependencyGraphTACO depGraph : Arrays.asList(heap, offHeap)) {
+            depGraph.clearDependents(new RefImpl(10, 1, 19, 3));
+            depGraph.add(new RefImpl(0, 0, 9, 0), new RefImpl(5, 9));
+            depGraph.add(new RefImpl(5, 5), new RefImpl(5, 9));
+            depGraph.insertRows(12, 3);
+            depGraph.deleteColumns(4, 1);
+        }
+        assertSameAnswers(heap, offHeap);
+
+        heap.compact();
+        offHeap.compact();
+        Assertions.assertTrue(offHeap.isOffHeap());
+        assertSameAnswers(heap, offHeap);
+    }
+
+    @Test
+    public void verifyRandomEdges() {
+        // Uncompressible edges, added and cleared one by one
+        DependencyGraphTACO heap = new DependencyGraphTACO();
+        DependencyGraphTACO offHeap = new DependencyGraphTACO(true);
+        Random random = new Random(22);
+        for (int i = 0; i < 500; i++) {
+            Ref prec = new RefImpl(random.nextInt(maxRows), random.nextInt(maxCols));
+            Ref dep = new RefImpl(random.nextInt(maxRows), random.nextInt(maxCols));
+            if (random.nextInt(4) == 0) {
+                heap.clearDependents(dep);
+                offHeap.clearDependents(dep);
+            } else {
+                heap.add(prec, dep);
+                offHeap.add(prec, dep);
+            }
+        }
+        assertSameAnswers(heap, offHeap);
+    }
+
+    @Test
+    public void verifySaveLoad() throws IOException {
+        DependencyGraphTACO heap = new DependencyGraphTACO();
+        heap.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        heap.save(out);
+
+        DependencyGraphTACO offHeap = DependencyGraphTACO.load(new ByteArrayInputStream(out.toByteArray()), true);
+        Assertions.assertTrue(offHeap.isOffHeap());
+        assertSameAnswers(heap, offHeap);
+    }
+}
@@ -0,0 +1,102 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.data.SheetData;
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestParallelBulkLoad {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 12;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    // Columns of formulae copied down over values in A, and a row of
+    // formulae copied across under them
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        SheetData sheetData = new SheetData("sheet");
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col % 4) {
+                    case 0: // RR
+                        prec = new RefImpl(row, 0, Math.min(row + 1, maxRows - 1), 0);
+                        break;
+                    case 1: // RR-chain
+                        prec = row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, col);
+                        break;
+                    case 2: // FR
+                        prec = new RefImpl(0, 0, row, 0);
+                        break;
+                    default: // FF
+                        prec = new RefImpl(0, 0, 4, 0);
+                }
+                sheetData.addDeps(new RefImpl(row, col), Collections.singletonList(prec));
+            }
+            sheetData.addDeps(new RefImpl(maxRows, col), Collections.singletonList(new RefImpl(maxRows - 1, col)));
+        }
+        return sheetData.getSortedDepPairs(false);
+    }
+
+    private static void assertSameAnswers(DependencyGraphTACO expected, DependencyGraphTACO actual, String message) {
+        for (int row = 0; row <= maxRows; row++) {
+            for (int col = 0; col <= maxCols; col++) {
+                Ref ref = new RefImpl(row, col);
+                Assertions.assertEquals(expected.getDependents(ref), actual.getDependents(ref), message + " " + ref);
+                Assertions.assertEquals(expected.getDirectPrecedents(ref), actual.getDirectPrecedents(ref),
+                        message + " " + ref);
+            }
+        }
+    }
+
+    @Test
+    public void verifyBlocks() {
+        DependencyGraphTACO sequential = new DependencyGraphTACO();
+        sequential.bulkLoad(createDepPairs());
+
+        for (int numBlocks : new int[]{1, 2, 3, 5, 11, 50}) {
+            DependencyGraphTACO parallel = DependencyGraphTACO.bulkLoad(createDepPairs(), numBlocks, pool);
+            String message = numBlocks + " blocks";
+            assertSameAnswers(sequential, parallel, message);
+            // At most one more edge per pattern and border, see bulkLoad
+            int numBorders = Math.min(numBlocks, maxCols - 1) - 1;
+            Assertions.assertTrue(parallel.getNumEdges() <= sequential.getNumEdges() + 4L * numBorders,
+                    message + ": " + parallel.getNumEdges() + " edges");
+            if (numBlocks == 1) {
+                Assertions.assertEquals(sequential.getNumEdges(), parallel.getNumEdges());
+            }
+            Assertions.assertEquals(1, parallel.getDirectPrecedents(new RefImpl(maxRows, 1, maxRows, maxCols - 1))
+                    .size(), message);
+        }
+    }
+
+    @Test
+    public void verifyEmptyPairs() {
+        DependencyGraphTACO depGraph = DependencyGraphTACO.bulkLoad(new ArrayList<>(), 4, pool);
+        Assertions.assertEquals(0, depGraph.getNumEdges());
+    }
+
+    @Test
+    public void verifyBadNumBlocks() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> DependencyGraphTACO.bulkLoad(createDepPairs(), 0, pool));
+    }
+}
@@ -0,0 +1,107 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestPrecedents {
+
+    private static final int maxRows = 30;
+    private static final int maxCols = 8;
+
+    // Column-sorted, formulae in columns B to H over values in A
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col) {
+                    case 1: // RR-chain
+                        prec = row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, 1);
+                        break;
+                    case 2: // RR
+                        prec = new RefImpl(row, 0, Math.min(row + 1, maxRows - 1), 0);
+                        break;
+                    case 3: // RF
+                        prec = new RefImpl(row, 2, maxRows - 1, 2);
+                        break;
+                    case 4: // FR
+                        prec = new RefImpl(0, 3, row, 3);
+                        break;
+                    case 5: // FF
+                        prec = new RefImpl(3, 1, 5, 1);
+                        break;
+                    case 6: // RR with a gap of one
+                        if (row % 2 != 0) {
+                            continue;
+                        }
+                        prec = new RefImpl(row, 4);
+                        break;
+                    default: // RR over the gap column
+                        prec = new RefImpl(row, 6);
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(prec)));
+            }
+        }
+        return depPairs;
+    }
+
+    private static Map<Ref, Set<Ref>> bruteForcePrecs(List<Pair<Ref, List<Ref>>> depPairs) {
+        Map<Ref, Set<Ref>> cellPrecs = new HashMap<>();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec ->
+                cellPrecs.computeIfAbsent(depPair.first, cell -> new HashSet<>())
+                        .addAll(TestUtil.toCells(Collections.singleton(prec)))));
+        return cellPrecs;
+    }
+
+    private static Set<Ref> bruteForceTransitive(Ref cell, Map<Ref, Set<Ref>> cellPrecs) {
+        Set<Ref> visited = new HashSet<>();
+        Deque<Ref> queue = new ArrayDeque<>(cellPrecs.getOrDefault(cell, Collections.emptySet()));
+        while (!queue.isEmpty()) {
+            Ref prec = queue.remove();
+            if (visited.add(prec)) {
+                queue.addAll(cellPrecs.getOrDefault(prec, Collections.emptySet()));
+            }
+        }
+        return visited;
+    }
+
+    private static void verifyPrecs(DependencyGraphTACO depGraph, Map<Ref, Set<Ref>> cellPrecs) {
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(cellPrecs.getOrDefault(cell, Collections.emptySet()),
+                        TestUtil.toDisjointCells(depGraph.getDirectPrecedents(cell)), cell.toString());
+                Assertions.assertEquals(bruteForceTransitive(cell, cellPrecs),
+                        TestUtil.toDisjointCells(depGraph.getPrecedents(cell)), cell.toString());
+            }
+        }
+
+        Ref range = new RefImpl(10, 3, 12, 4);
+        Set<Ref> expected = new HashSet<>();
+        TestUtil.toCells(Collections.singleton(range)).forEach(cell -> expected.addAll(bruteForceTransitive(cell, cellPrecs)));
+        Assertions.assertEquals(expected, TestUtil.toDisjointCells(depGraph.getPrecedents(range)));
+    }
+
+    @Test
+    public void verifyBulkLoadedGraph() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        verifyPrecs(depGraph, bruteForcePrecs(depPairs));
+    }
+
+    @Test
+    public void verifyIncrementalGraph() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depPairs.forEach(depPair -> depPair.second.forEach(prec -> depGraph.add(prec, depPair.first)));
+        verifyPrecs(depGraph, bruteForcePrecs(depPairs));
+    }
+}
@@ -0,0 +1,154 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.util.RegionSet;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestRegionSet {
+
+    private static final int maxRows = 2000;
+    private static final int maxCols = 6;
+
+    private static Ref randomRef(Random random, boolean isLarge) {
+        int row = random.nextInt(maxRows);
+        int col = random.nextInt(maxCols);
+        int lastRow = Math.min(row + (isLarge ? random.nextInt(300) : random.nextInt(2)), maxRows - 1);
+        int lastCol = Math.min(col + random.nextInt(3), maxCols - 1);
+        return new RefImpl(row, col, lastRow, lastCol);
+    }
+
+    private static void assertSameCells(boolean[][] cells, RegionSet regionSet) {
+        Set<Ref> cellSet = new HashSet<>();
+        for (int r = 0; r < maxRows; r++) {
+            for (int c = 0; c < maxCols; c++) {
+                Assertions.assertEquals(cells[r][c], regionSet.contains(r, c), r + "," + c);
+                if (cells[r][c]) {
+                    cellSet.add(new RefImpl(r, c));
+                }
+            }
+        }
+        // toRefs covers the same cells with disjoint ranges
+        Assertions.assertEquals(cellSet, TestUtil.toDisjointCells(regionSet.toRefs()));
+    }
+
+    private static void setCells(boolean[][] cells, Ref ref, boolean value) {
+        for (int r = ref.getRow(); r <= ref.getLastRow(); r++) {
+            for (int c = ref.getColumn(); c <= ref.getLastColumn(); c++) {
+                cells[r][c] = value;
+            }
+        }
+    }
+
+    @Test
+    public void verifyAddAgainstCells() {
+        Random random = new Random(3);
+        RegionSet regionSet = new RegionSet();
+        boolean[][] cells = new boolean[maxRows][maxCols];
+        List<Ref> newRefs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Mostly single cells, which have to be split into many chunks
+            Ref ref = randomRef(random, i % 10 == 0);
+            Set<Ref> expected = new HashSet<>();
+            for (Ref cell : TestUtil.toDisjointCells(Collections.singletonList(ref))) {
+                if (!cells[cell.getRow()][cell.getColumn()]) {
+                    expected.add(cell);
+                }
+            }
+            setCells(cells, ref, true);
+
+            newRefs.clear();
+            regionSet.add(ref, newRefs);
+            Assertions.assertEquals(expected, TestUtil.toDisjointCells(newRefs), ref.toString());
+        }
+
+        assertSameCells(cells, regionSet);
+    }
+
+    @Test
+    public void verifyRemoveAgainstCells() {
+        Random random = new Random(4);
+        RegionSet regionSet = new RegionSet();
+        boolean[][] cells = new boolean[maxRows][maxCols];
+        for (int i = 0; i < 3000; i++) {
+            Ref ref = randomRef(random, i % 5 == 0);
+            boolean isAdd = random.nextInt(3) != 0;
+            setCells(cells, ref, isAdd);
+            if (isAdd) {
+                regionSet.add(ref);
+            } else {
+                regionSet.remove(ref);
+            }
+        }
+        assertSameCells(cells, regionSet);
+
+        RegionSet other = new RegionSet(Arrays.asList(new RefImpl(0, 0, 999, 2), new RefImpl(1500, 4, 1999, 5)));
+        RegionSet union = new RegionSet();
+        union.addAll(regionSet);
+        union.addAll(other);
+        setCells(cells, new RefImpl(0, 0, 999, 2), true);
+        setCells(cells, new RefImpl(1500, 4, 1999, 5), true);
+        assertSameCells(cells, union);
+
+        union.removeAll(other);
+        setCells(cells, new RefImpl(0, 0, 999, 2), false);
+        setCells(cells, new RefImpl(1500, 4, 1999, 5), false);
+        assertSameCells(cells, union);
+
+        union.clear();
+        Assertions.assertTrue(union.isEmpty());
+        Assertions.assertTrue(union.toRefs().isEmpty());
+    }
+
+    @Test
+    public void verifyNewRefsMerge() {
+        RegionSet regionSet = new RegionSet();
+        List<Ref> newRefs = new ArrayList<>();
+        regionSet.add(new RefImpl(5, 1, 5, 2), newRefs);
+        newRefs.clear();
+        regionSet.add(new RefImpl(0, 0, 9, 3), newRefs);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(
+                new RefImpl(0, 0, 9, 0),
+                new RefImpl(0, 1, 4, 2),
+                new RefImpl(6, 1, 9, 2),
+                new RefImpl(0, 3, 9, 3))), new HashSet<>(newRefs));
+    }
+
+    @Test
+    public void verifyCanonicalRefs() {
+        // The same cells added as rows, as columns and in pieces
+        RegionSet byRows = new RegionSet();
+        RegionSet byCols = new RegionSet();
+        RegionSet byPieces = new RegionSet();
+        for (int r = 0; r < 10; r++) {
+            byRows.add(new RefImpl(r, 0, r, 3));
+        }
+        for (int c = 0; c < 4; c++) {
+            byCols.add(new RefImpl(0, c, 9, c));
+        }
+        byPieces.add(new RefImpl(0, 0, 9, 3));
+        byPieces.remove(new RefImpl(4, 1, 5, 2));
+        byPieces.add(new RefImpl(5, 2));
+        byPieces.add(new RefImpl(4, 1, 5, 1));
+        byPieces.add(new RefImpl(4, 2));
+
+        List<Ref> expected = Collections.singletonList(new RefImpl(0, 0, 9, 3));
+        Assertions.assertEquals(expected, byRows.toRefs());
+        Assertions.assertEquals(expected, byCols.toRefs());
+        Assertions.assertEquals(expected, byPieces.toRefs());
+
+        // A hole leaves the same ranges, whatever order
+        byRows.remove(new RefImpl(5, 1));
+        byCols.remove(new RefImpl(5, 1));
+        Assertions.assertEquals(new HashSet<>(byRows.toRefs()), new HashSet<>(byCols.toRefs()));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(
+                new RefImpl(0, 0, 9, 0),
+                new RefImpl(0, 1, 4, 1),
+                new RefImpl(6, 1, 9, 1),
+                new RefImpl(0, 2, 9, 3))), new HashSet<>(byRows.toRefs()));
+    }
+}
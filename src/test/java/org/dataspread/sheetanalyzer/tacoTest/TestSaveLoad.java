@@ -0,0 +1,90 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.util.RefWithMeta;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+public class TestSaveLoad {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 8;
+
+    private static DependencyGraphTACO saveAndLoad(DependencyGraphTACO depGraph) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        depGraph.save(out);
+        return DependencyGraphTACO.load(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static Map<Ref, Set<RefWithMeta>> toEdgeSets(Map<Ref, List<RefWithMeta>> edgeLists) {
+        Map<Ref, Set<RefWithMeta>> edgeSets = new HashMap<>();
+        edgeLists.forEach((ref, edges) -> edgeSets.put(ref, new HashSet<>(edges)));
+        return edgeSets;
+    }
+
+    private static void assertSameGraph(DependencyGraphTACO expected, DependencyGraphTACO actual) {
+        Assertions.assertEquals(expected.getNumEdges(), actual.getNumEdges());
+        Assertions.assertEquals(expected.getNumVertices(), actual.getNumVertices());
+        Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> expectedGraph = expected.getCompressedGraph();
+        Pair<Map<Ref, List<RefWithMeta>>, Map<Ref, List<RefWithMeta>>> actualGraph = actual.getCompressedGraph();
+        Assertions.assertEquals(toEdgeSets(expectedGraph.first), toEdgeSets(actualGraph.first));
+        Assertions.assertEquals(toEdgeSets(expectedGraph.second), toEdgeSets(actualGraph.second));
+        for (int row = 0; row < maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(expected.getDependents(cell), actual.getDependents(cell), cell.toString());
+                Assertions.assertEquals(expected.getPrecedents(cell), actual.getPrecedents(cell), cell.toString());
+            }
+        }
+    }
+
+    @Test
+    public void verifySaveLoad() throws IOException {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        DependencyGraphTACO loaded = saveAndLoad(depGraph);
+        assertSameGraph(depGraph, loaded);
+        Assertions.assertEquals(0.0, loaded.getFragmentation());
+
+        // The loaded graph takes updates like the original
+        depGraph.clearDependents(new RefImpl(10, 1, 19, 3));
+        loaded.clearDependents(new RefImpl(10, 1, 19, 3));
+        depGraph.add(new RefImpl(0, 0), new RefImpl(maxRows - 1, 0));
+        loaded.add(new RefImpl(0, 0), new RefImpl(maxRows - 1, 0));
+        assertSameGraph(depGraph, loaded);
+
+        // Far offsets and the edges split by updates survive another round
+        depGraph.add(new RefImpl(100000, 200), new RefImpl(3, 3));
+        assertSameGraph(depGraph, saveAndLoad(depGraph));
+    }
+
+    @Test
+    public void verifyEmptyGraph() throws IOException {
+        DependencyGraphTACO loaded = saveAndLoad(new DependencyGraphTACO());
+        Assertions.assertEquals(0, loaded.getNumEdges());
+        Assertions.assertTrue(loaded.getDependents(new RefImpl(0, 0)).isEmpty());
+    }
+
+    @Test
+    public void verifyBadInput() throws IOException {
+        Assertions.assertThrows(IOException.class,
+                () -> DependencyGraphTACO.load(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(TestUtil.createDepPairs(maxRows, maxCols));
+        depGraph.save(out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+        Assertions.assertThrows(IOException.class,
+                () -> DependencyGraphTACO.load(new ByteArrayInputStream(truncated)));
+    }
+}
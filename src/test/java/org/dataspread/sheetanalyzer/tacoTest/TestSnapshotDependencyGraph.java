@@ -0,0 +1,117 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.SnapshotDependencyGraph;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestSnapshotDependencyGraph {
+
+    private static final int maxRows = 10;
+
+    private static long countCells(Set<Ref> refs) {
+        long numCells = 0;
+        for (Ref ref : refs) {
+            numCells += (long) (ref.getLastRow() - ref.getRow() + 1) * (ref.getLastColumn() - ref.getColumn() + 1);
+        }
+        return numCells;
+    }
+
+    // A1 feeds every cell of the column, which then sums A1 and the cell above
+    private static List<Pair<Ref, Ref>> createColumn(int col) {
+        List<Pair<Ref, Ref>> edges = new ArrayList<>();
+        for (int row = 0; row < maxRows; row++) {
+            edges.add(new Pair<>(new RefImpl(0, 0), new RefImpl(row, col)));
+            if (row > 0) {
+                edges.add(new Pair<>(new RefImpl(row - 1, col), new RefImpl(row, col)));
+            }
+        }
+        return edges;
+    }
+
+    @Test
+    public void verifySnapshotIsolation() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.addBatch(createColumn(1));
+        SnapshotDependencyGraph snapshotGraph = new SnapshotDependencyGraph(depGraph);
+
+        // Changes to the original graph do not reach the versions
+        depGraph.addBatch(createColumn(2));
+        Assertions.assertEquals(maxRows, countCells(snapshotGraph.getDependents(new RefImpl(0, 0))));
+
+        SnapshotDependencyGraph.Snapshot before = snapshotGraph.snapshot();
+        snapshotGraph.addBatch(createColumn(3));
+        SnapshotDependencyGraph.Snapshot after = snapshotGraph.snapshot();
+        Assertions.assertEquals(0, before.getVersion());
+        Assertions.assertEquals(1, after.getVersion());
+        Assertions.assertEquals(maxRows, countCells(before.getDependents(new RefImpl(0, 0))));
+        Assertions.assertEquals(2 * maxRows, countCells(after.getDependents(new RefImpl(0, 0))));
+        Assertions.assertEquals(2 * maxRows, countCells(snapshotGraph.getDependents(new RefImpl(0, 0))));
+
+        snapshotGraph.clearDependents(new RefImpl(0, 1, maxRows - 1, 1));
+        Assertions.assertEquals(maxRows, countCells(snapshotGraph.getDependents(new RefImpl(0, 0))));
+        Assertions.assertEquals(2 * maxRows, countCells(after.getDependents(new RefImpl(0, 0))));
+
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> before.add(new RefImpl(0, 0), new RefImpl(0, 5)));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> before.clearDependents(new RefImpl(0, 1)));
+    }
+
+    @Test
+    public void verifyFailedUpdate() {
+        SnapshotDependencyGraph snapshotGraph = new SnapshotDependencyGraph(new DependencyGraphTACO());
+        snapshotGraph.addBatch(createColumn(1));
+        SnapshotDependencyGraph.Snapshot before = snapshotGraph.snapshot();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> snapshotGraph.update(depGraph -> {
+            depGraph.addBatch(createColumn(2));
+            throw new IllegalStateException("Edit failed");
+        }));
+        Assertions.assertSame(before, snapshotGraph.snapshot());
+        Assertions.assertEquals(maxRows, countCells(snapshotGraph.getDependents(new RefImpl(0, 0))));
+    }
+
+    @Test
+    public void verifyConcurrentQueries() throws Exception {
+        SnapshotDependencyGraph snapshotGraph = new SnapshotDependencyGraph(new DependencyGraphTACO());
+        int numThreads = 4;
+        int numUpdates = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        AtomicBoolean isDone = new AtomicBoolean(false);
+        try {
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                readers.add(executor.submit(() -> {
+                    // Every version has whole columns, so the queries
+                    // never see part of an update
+                    long numQueries = 0;
+                    while (!isDone.get()) {
+                        SnapshotDependencyGraph.Snapshot snapshot = snapshotGraph.snapshot();
+                        long numCells = countCells(snapshot.getDependents(new RefImpl(0, 0)));
+                        Assertions.assertEquals(maxRows * snapshot.getVersion(), numCells);
+                        numQueries += 1;
+                    }
+                    return numQueries;
+                }));
+            }
+            for (int col = 1; col <= numUpdates; col++) {
+                snapshotGraph.addBatch(createColumn(col));
+            }
+            isDone.set(true);
+            for (Future<Long> reader : readers) {
+                Assertions.assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(numUpdates * maxRows, countCells(snapshotGraph.getDependents(new RefImpl(0, 0))));
+    }
+}
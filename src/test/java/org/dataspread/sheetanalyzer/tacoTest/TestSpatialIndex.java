@@ -0,0 +1,248 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.util.*;
+import org.dataspread.sheetanalyzer.systest.PersistentRTreeIndex;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestSpatialIndex {
+
+    private static final int maxRows = 2000;
+    private static final int maxCols = 50;
+
+    private static Ref randomRef(Random random) {
+        int row = random.nextInt(maxRows);
+        int col = random.nextInt(maxCols);
+        if (random.nextBoolean()) {
+            return new RefImpl(row, col);
+        }
+        return new RefImpl(row, col, row + random.nextInt(100), col + random.nextInt(3));
+    }
+
+    private static List<Ref> bruteForceSearch(List<Ref> refs, Ref area) {
+        List<Ref> result = new ArrayList<>();
+        refs.forEach(ref -> {
+            if (ref.getOverlap(area) != null) {
+                result.add(ref);
+            }
+        });
+        return result;
+    }
+
+    private static void assertSameSearch(SpatialIndex index, List<Ref> refs, Random random) {
+        Assertions.assertEquals(refs.size(), index.size());
+        for (int i = 0; i < 200; i++) {
+            Ref area = randomRef(random);
+            List<Ref> expected = bruteForceSearch(refs, area);
+            List<Ref> actual = new ArrayList<>();
+            index.search(area, actual::add);
+            Assertions.assertEquals(count(expected), count(actual));
+        }
+    }
+
+    // Multiset view of a list of refs
+    private static Map<Ref, Integer> count(List<Ref> refs) {
+        Map<Ref, Integer> counts = new HashMap<>();
+        refs.forEach(ref -> counts.merge(ref, 1, Integer::sum));
+        return counts;
+    }
+
+    @Test
+    public void verifyInsertAndDelete() {
+        verifyInsertAndDelete(new RTreeIndex());
+    }
+
+    @Test
+    public void verifyOffHeapInsertAndDelete() {
+        verifyInsertAndDelete(new OffHeapRTreeIndex());
+    }
+
+    private static void verifyInsertAndDelete(SpatialIndex index) {
+        Random random = new Random(7);
+        List<Ref> refs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Ref ref = randomRef(random);
+            index.add(ref);
+            refs.add(ref);
+            // Duplicates are kept
+            if (i % 10 == 0) {
+                index.add(ref);
+                refs.add(ref);
+            }
+        }
+        assertSameSearch(index, refs, random);
+
+        Collections.shuffle(refs, random);
+        for (int i = 0; i < 4000; i++) {
+            Ref ref = refs.remove(refs.size() - 1);
+            Assertions.assertTrue(index.delete(ref));
+        }
+        Assertions.assertFalse(index.delete(new RefImpl(maxRows + 1, 0)));
+        assertSameSearch(index, refs, random);
+
+        refs.forEach(index::delete);
+        Assertions.assertEquals(0, index.size());
+        List<Ref> result = new ArrayList<>();
+        index.search(new RefImpl(0, 0, maxRows, maxCols), result::add);
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void verifyLoad() {
+        verifyLoad(new RTreeIndex());
+    }
+
+    @Test
+    public void verifyOffHeapLoad() {
+        verifyLoad(new OffHeapRTreeIndex());
+    }
+
+    private static void verifyLoad(SpatialIndex index) {
+        Random random = new Random(11);
+        List<Ref> refs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            refs.add(randomRef(random));
+        }
+        index.load(refs);
+        assertSameSearch(index, refs, random);
+
+        // A packed tree is updated like any other
+        for (int i = 0; i < 1000; i++) {
+            Ref ref = randomRef(random);
+            index.add(ref);
+            refs.add(ref);
+        }
+        for (int i = 0; i < 3000; i++) {
+            Assertions.assertTrue(index.delete(refs.remove(i)));
+        }
+        assertSameSearch(index, refs, random);
+    }
+
+    @Test
+    public void verifyCopy() {
+        verifyCopy(new RTreeIndex());
+        verifyCopy(new OffHeapRTreeIndex());
+        verifyCopy(new PersistentRTreeIndex());
+    }
+
+    // A copy and its original change independently
+    private static void verifyCopy(SpatialIndex index) {
+        Random random = new Random(19);
+        List<Ref> refs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Ref ref = randomRef(random);
+            index.add(ref);
+            refs.add(ref);
+        }
+        SpatialIndex copy = index.copy();
+        List<Ref> copyRefs = new ArrayList<>(refs);
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertTrue(index.delete(refs.remove(refs.size() - 1)));
+            Ref ref = randomRef(random);
+            copy.add(ref);
+            copyRefs.add(ref);
+        }
+        assertSameSearch(index, refs, random);
+        assertSameSearch(copy, copyRefs, random);
+    }
+
+    @Test
+    public void verifyLargeCoordinates() {
+        // Float rectangles cannot tell these rows apart
+        int row = (1 << 24) + 1;
+        SpatialIndex index = new RTreeIndex();
+        index.add(new RefImpl(row, 0));
+
+        List<Ref> result = new ArrayList<>();
+        index.search(new RefImpl(row - 1, 0), result::add);
+        Assertions.assertTrue(result.isEmpty());
+        index.search(new RefImpl(row, 0), result::add);
+        Assertions.assertEquals(1, result.size());
+    }
+
+    @Test
+    public void verifyRangeMap() {
+        Random random = new Random(13);
+        RangeMap<Integer> rangeMap = new RangeMap<>();
+        Map<Ref, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            Ref ref = randomRef(random);
+            long start = PackedRange.start(ref), end = PackedRange.end(ref);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(ref), rangeMap.remove(start, end));
+            } else {
+                Assertions.assertEquals(expected.put(ref, i), rangeMap.put(start, end, i));
+            }
+        }
+        Assertions.assertEquals(expected.size(), rangeMap.size());
+
+        Map<Ref, Integer> actual = new HashMap<>();
+        rangeMap.forEach((start, end, value) ->
+                actual.put(PackedRange.toRef(new RefImpl(0, 0), start, end), value));
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void verifyEdgeStores() {
+        Random random = new Random(17);
+        EdgeStore heap = new HeapEdgeStore();
+        EdgeStore offHeap = new OffHeapEdgeStore();
+        List<EdgeMeta> edgeMetas = Arrays.asList(new EdgeMeta(PatternType.NOTYPE, Offset.of(0, 0), Offset.of(0, 0)),
+                new EdgeMeta(PatternType.TYPEONE, Offset.of(0, -1), Offset.of(0, -1)));
+        List<long[]> edges = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            if (random.nextInt(3) == 0 && !edges.isEmpty()) {
+                long[] edge = edges.remove(random.nextInt(edges.size()));
+                EdgeMeta edgeMeta = edgeMetas.get((int) edge[4]);
+                Assertions.assertTrue(heap.remove(edge[0], edge[1], edge[2], edge[3], edgeMeta));
+                Assertions.assertTrue(offHeap.remove(edge[0], edge[1], edge[2], edge[3], edgeMeta));
+            } else {
+                // Few ranges, so most have several edges
+                Ref ref = new RefImpl(random.nextInt(200), random.nextInt(5));
+                Ref other = randomRef(random);
+                long[] edge = {PackedRange.start(ref), PackedRange.end(ref),
+                        PackedRange.start(other), PackedRange.end(other), random.nextInt(2)};
+                EdgeMeta edgeMeta = edgeMetas.get((int) edge[4]);
+                Assertions.assertEquals(heap.add(edge[0], edge[1], edge[2], edge[3], edgeMeta),
+                        offHeap.add(edge[0], edge[1], edge[2], edge[3], edgeMeta));
+                edges.add(edge);
+            }
+        }
+        Assertions.assertFalse(offHeap.remove(0, 0, -1, -1, edgeMetas.get(0)));
+        Assertions.assertEquals(heap.size(), offHeap.size());
+        Assertions.assertEquals(toEdgeSets(heap), toEdgeSets(offHeap));
+        heap.forEach((start, end, edgeList) ->
+                Assertions.assertEquals(edgeList.size(), offHeap.get(start, end).size()));
+
+        // Copies change independently of the stores they come from
+        EdgeStore heapCopy = heap.copy();
+        EdgeStore offHeapCopy = offHeap.copy();
+        long[] edge = edges.get(0);
+        heap.remove(edge[0], edge[1], edge[2], edge[3], edgeMetas.get((int) edge[4]));
+        offHeap.remove(edge[0], edge[1], edge[2], edge[3], edgeMetas.get((int) edge[4]));
+        Assertions.assertEquals(toEdgeSets(heap), toEdgeSets(offHeap));
+        Assertions.assertEquals(toEdgeSets(heapCopy), toEdgeSets(offHeapCopy));
+        Assertions.assertNotEquals(toEdgeSets(heap), toEdgeSets(heapCopy));
+
+        offHeap.clear();
+        Assertions.assertTrue(offHeap.isEmpty());
+        Assertions.assertNull(offHeap.get(edge[0], edge[1]));
+        Assertions.assertEquals(heapCopy.size(), offHeapCopy.size());
+    }
+
+    // Multiset view of the edges
+    private static Map<List<Object>, Integer> toEdgeSets(EdgeStore edgeStore) {
+        Map<List<Object>, Integer> edgeSets = new HashMap<>();
+        edgeStore.forEach((start, end, edgeList) -> {
+            for (int i = 0; i < edgeList.size(); i++) {
+                edgeSets.merge(Arrays.asList(start, end, edgeList.getStart(i), edgeList.getEnd(i),
+                        edgeList.getEdgeMeta(i)), 1, Integer::sum);
+            }
+        });
+        return edgeSets;
+    }
+}
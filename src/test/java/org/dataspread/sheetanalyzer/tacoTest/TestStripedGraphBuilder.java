@@ -0,0 +1,192 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.dependency.StripedGraphBuilder;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TestStripedGraphBuilder {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 12;
+
+    // Columns of formulae copied down over values in A, and a row of
+    // formulae copied across under them
+    private static List<Pair<Ref, Ref>> createColumn(int col) {
+        List<Pair<Ref, Ref>> edges = new ArrayList<>();
+        for (int row = 0; row < maxRows; row++) {
+            Ref prec;
+            switch (col % 4) {
+                case 0: // RR
+                    prec = new RefImpl(row, 0, Math.min(row + 1, maxRows - 1), 0);
+                    break;
+                case 1: // RR-chain
+                    prec = row == 0 ? new RefImpl(0, 0) : new RefImpl(row - 1, col);
+                    break;
+                case 2: // FR
+                    prec = new RefImpl(0, 0, row, 0);
+                    break;
+                default: // FF
+                    prec = new RefImpl(0, 0, 4, 0);
+            }
+            edges.add(new Pair<>(prec, new RefImpl(row, col)));
+        }
+        edges.add(new Pair<>(new RefImpl(maxRows - 1, col), new RefImpl(maxRows, col)));
+        return edges;
+    }
+
+    // A column of one random shape: formulae copied down, or references to
+    // random cells to the left
+    private static List<Pair<Ref, Ref>> createRandomColumn(Random random, int col) {
+        List<Pair<Ref, Ref>> edges = new ArrayList<>();
+        int firstRow = random.nextInt(5);
+        int lastRow = Math.min(firstRow + random.nextInt(maxRows), maxRows);
+        int shape = random.nextInt(6);
+        for (int row = firstRow; row <= lastRow; row++) {
+            Ref prec;
+            switch (shape) {
+                case 0: // RR
+                    prec = new RefImpl(row, 0);
+                    break;
+                case 1: // RR-chain
+                    prec = row == firstRow ? new RefImpl(0, 0) : new RefImpl(row - 1, col);
+                    break;
+                case 2: // FR
+                    prec = new RefImpl(0, 0, row, 0);
+                    break;
+                case 3: // FF
+                    prec = new RefImpl(0, 0, 4, 0);
+                    break;
+                case 4: // RR on the column to the left
+                    prec = new RefImpl(row, col - 1);
+                    break;
+                default:
+                    prec = new RefImpl(random.nextInt(maxRows), random.nextInt(col));
+            }
+            edges.add(new Pair<>(prec, new RefImpl(row, col)));
+        }
+        return edges;
+    }
+
+    private static void assertSameAnswers(DependencyGraphTACO expected, DependencyGraphTACO actual) {
+        for (int row = 0; row <= maxRows; row++) {
+            for (int col = 0; col <= maxCols; col++) {
+                Ref ref = new RefImpl(row, col);
+                Assertions.assertEquals(expected.getDependents(ref), actual.getDependents(ref), ref.toString());
+                Assertions.assertEquals(expected.getDirectPrecedents(ref), actual.getDirectPrecedents(ref),
+                        ref.toString());
+            }
+        }
+    }
+
+    // Same answers, and at most one more edge per stripe border
+    private static void assertStitched(DependencyGraphTACO expected, DependencyGraphTACO actual, int stripeWidth,
+            String message) {
+        assertSameAnswers(expected, actual);
+        int numBorders = (maxCols - 1) / stripeWidth - 1 / stripeWidth;
+        Assertions.assertTrue(actual.getNumEdges() <= expected.getNumEdges() + numBorders,
+                message + ": " + actual.getNumEdges() + " edges, " + expected.getNumEdges() + " in one graph");
+    }
+
+    // Each thread takes every numThreads-th column, cell by cell, so threads
+    // share stripes too
+    private static void addConcurrently(ExecutorService executor, StripedGraphBuilder builder,
+            List<List<Pair<Ref, Ref>>> columns) throws Exception {
+        int numThreads = 4;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            int first = i;
+            workers.add(executor.submit(() -> {
+                for (int col = first; col < columns.size(); col += numThreads) {
+                    columns.get(col).forEach(edge -> builder.add(edge.first, edge.second));
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static DependencyGraphTACO buildSequentially() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        for (int col = 1; col < maxCols; col++) {
+            depGraph.addBatch(createColumn(col));
+        }
+        return depGraph;
+    }
+
+    @Test
+    public void verifyStitchedSeams() {
+        DependencyGraphTACO expected = buildSequentially();
+        for (int stripeWidth : new int[]{1, 2, 3, maxCols}) {
+            StripedGraphBuilder builder = new StripedGraphBuilder(stripeWidth);
+            for (int col = 1; col < maxCols; col++) {
+                builder.addBatch(createColumn(col));
+            }
+            DependencyGraphTACO depGraph = builder.build();
+            assertSameAnswers(expected, depGraph);
+            // The row under the columns is one edge again
+            Ref lastRow = new RefImpl(maxRows, 1, maxRows, maxCols - 1);
+            Assertions.assertEquals(Collections.singleton(lastRow),
+                    depGraph.getDirectDependents(new RefImpl(maxRows - 1, 1, maxRows - 1, maxCols - 1)),
+                    "Stripes of " + stripeWidth);
+            Assertions.assertEquals(expected.getNumEdges(), depGraph.getNumEdges(), "Stripes of " + stripeWidth);
+        }
+    }
+
+    @Test
+    public void verifyConcurrentAdds() throws Exception {
+        StripedGraphBuilder builder = new StripedGraphBuilder(2, true);
+        List<List<Pair<Ref, Ref>>> columns = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            columns.add(createColumn(col));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            addConcurrently(executor, builder, columns);
+        } finally {
+            executor.shutdownNow();
+        }
+        DependencyGraphTACO depGraph = builder.build();
+        Assertions.assertTrue(depGraph.isOffHeap());
+        assertSameAnswers(buildSequentially(), depGraph);
+    }
+
+    @Test
+    public void verifyRandomSheets() throws Exception {
+        Random random = new Random(11);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int sheet = 0; sheet < 200; sheet++) {
+                List<List<Pair<Ref, Ref>>> columns = new ArrayList<>();
+                for (int col = 1; col < maxCols; col++) {
+                    columns.add(createRandomColumn(random, col));
+                }
+                DependencyGraphTACO expected = new DependencyGraphTACO();
+                columns.forEach(expected::addBatch);
+                for (int stripeWidth : new int[]{1, 2, 3}) {
+                    StripedGraphBuilder builder = new StripedGraphBuilder(stripeWidth);
+                    columns.forEach(builder::addBatch);
+                    assertStitched(expected, builder.build(), stripeWidth,
+                            "Sheet " + sheet + ", stripes of " + stripeWidth);
+                }
+                StripedGraphBuilder builder = new StripedGraphBuilder(2);
+                addConcurrently(executor, builder, columns);
+                assertStitched(expected, builder.build(), 2, "Sheet " + sheet + ", concurrent adds");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void verifyBadStripeWidth() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StripedGraphBuilder(0));
+    }
+}
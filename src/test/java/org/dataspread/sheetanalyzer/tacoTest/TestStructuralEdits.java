@@ -0,0 +1,204 @@
+package org.dataspread.sheetanalyzer.tacoTest;
+
+import org.dataspread.sheetanalyzer.dependency.DependencyGraphTACO;
+import org.dataspread.sheetanalyzer.util.Pair;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestStructuralEdits {
+
+    private static final int maxRows = 40;
+    private static final int maxCols = 10;
+    // Inserts move cells past the original sheet
+    private static final int checkedRows = 100;
+    private static final int checkedCols = 20;
+
+    // Column-sorted, one compressible pattern per column and a row of RR
+    // formulae below them
+    private static List<Pair<Ref, List<Ref>>> createDepPairs() {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col) {
+                    case 1: // RR
+                        prec = new RefImpl(row, 0, Math.min(row + 1, maxRows - 1), 0);
+                        break;
+                    case 2: // RR-chain over B
+                        prec = row == 0 ? new RefImpl(0, 1) : new RefImpl(row - 1, 2);
+                        break;
+                    case 3: // FR
+                        prec = new RefImpl(0, 0, row, 0);
+                        break;
+                    case 4: // RF
+                        prec = new RefImpl(row, 1, maxRows - 1, 1);
+                        break;
+                    case 5: // FF
+                        prec = new RefImpl(2, 2, 6, 2);
+                        break;
+                    case 6: // RR with a gap of two
+                        if (row % 3 != 0) {
+                            continue;
+                        }
+                        prec = new RefImpl(row, 3);
+                        break;
+                    case 7: // RR over the rows above
+                        if (row < 3) {
+                            continue;
+                        }
+                        prec = new RefImpl(row - 3, 0, row - 1, 0);
+                        break;
+                    default: // RR over the row
+                        prec = new RefImpl(row, 0, row, 5);
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(prec)));
+            }
+            depPairs.add(new Pair<>(new RefImpl(maxRows + 2, col),
+                    Collections.singletonList(new RefImpl(maxRows - 2, col - 1, maxRows - 1, col))));
+        }
+        return depPairs;
+    }
+
+    private static Map<Ref, List<Ref>> toCellPrecs(List<Pair<Ref, List<Ref>>> depPairs) {
+        Map<Ref, List<Ref>> cellPrecs = new HashMap<>();
+        depPairs.forEach(depPair -> cellPrecs.put(depPair.first, new ArrayList<>(depPair.second)));
+        return cellPrecs;
+    }
+
+    // The same edit on the formulae themselves
+    private static int move(int x, int at, int count, boolean isDelete) {
+        if (x < at) {
+            return x;
+        }
+        return isDelete ? x - count : x + count;
+    }
+
+    private static Ref shift(Ref ref, boolean isRowAxis, int at, int count, boolean isDelete) {
+        int first = isRowAxis ? ref.getRow() : ref.getColumn();
+        int last = isRowAxis ? ref.getLastRow() : ref.getLastColumn();
+        boolean isFirstDeleted = isDelete && first >= at && first < at + count;
+        boolean isLastDeleted = isDelete && last >= at && last < at + count;
+        int newFirst = isFirstDeleted ? at : move(first, at, count, isDelete);
+        int newLast = isLastDeleted ? at - 1 : move(last, at, count, isDelete);
+        if (newFirst > newLast) {
+            return null;
+        }
+        return isRowAxis
+                ? new RefImpl(newFirst, ref.getColumn(), newLast, ref.getLastColumn())
+                : new RefImpl(ref.getRow(), newFirst, ref.getLastRow(), newLast);
+    }
+
+    private static Map<Ref, List<Ref>> shiftCellPrecs(Map<Ref, List<Ref>> cellPrecs,
+            boolean isRowAxis, int at, int count, boolean isDelete) {
+        Map<Ref, List<Ref>> newCellPrecs = new HashMap<>();
+        cellPrecs.forEach((dep, precs) -> {
+            Ref newDep = shift(dep, isRowAxis, at, count, isDelete);
+            if (newDep != null) {
+                List<Ref> newPrecs = new ArrayList<>();
+                precs.forEach(prec -> {
+                    Ref newPrec = shift(prec, isRowAxis, at, count, isDelete);
+                    if (newPrec != null) {
+                        newPrecs.add(newPrec);
+                    }
+                });
+                newCellPrecs.put(newDep, newPrecs);
+            }
+        });
+        return newCellPrecs;
+    }
+
+    private static void edit(DependencyGraphTACO depGraph, boolean isRowAxis, int at, int count, boolean isDelete) {
+        if (isRowAxis) {
+            if (isDelete) {
+                depGraph.deleteRows(at, count);
+            } else {
+                depGraph.insertRows(at, count);
+            }
+        } else {
+            if (isDelete) {
+                depGraph.deleteColumns(at, count);
+            } else {
+                depGraph.insertColumns(at, count);
+            }
+        }
+    }
+
+    private static void assertSameDirectEdges(Map<Ref, List<Ref>> cellPrecs, DependencyGraphTACO depGraph) {
+        Map<Ref, Set<Ref>> cellDeps = new HashMap<>();
+        cellPrecs.forEach((dep, precs) -> TestUtil.toCells(precs).forEach(cell ->
+                cellDeps.computeIfAbsent(cell, key -> new HashSet<>()).add(dep)));
+        for (int row = 0; row < checkedRows; row++) {
+            for (int col = 0; col < checkedCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(cellDeps.getOrDefault(cell, Collections.emptySet()),
+                        TestUtil.toCells(depGraph.getDirectDependents(cell)), cell.toString());
+                Assertions.assertEquals(TestUtil.toCells(cellPrecs.getOrDefault(cell, Collections.emptyList())),
+                        TestUtil.toCells(depGraph.getDirectPrecedents(cell)), cell.toString());
+            }
+        }
+    }
+
+    @Test
+    public void verifyRandomEdits() {
+        List<Pair<Ref, List<Ref>>> depPairs = createDepPairs();
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(depPairs);
+        Map<Ref, List<Ref>> cellPrecs = toCellPrecs(depPairs);
+
+        Random random = new Random(18);
+        for (int i = 0; i < 40; i++) {
+            boolean isRowAxis = random.nextInt(3) != 0;
+            boolean isDelete = random.nextBoolean();
+            int at = random.nextInt(isRowAxis ? maxRows : maxCols);
+            int count = 1 + random.nextInt(isRowAxis ? 6 : 2);
+            edit(depGraph, isRowAxis, at, count, isDelete);
+            cellPrecs = shiftCellPrecs(cellPrecs, isRowAxis, at, count, isDelete);
+            assertSameDirectEdges(cellPrecs, depGraph);
+        }
+    }
+
+    @Test
+    public void verifyEditsKeepCompression() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(createDepPairs());
+        long numEdges = depGraph.getNumEdges();
+
+        // Moving everything changes no pattern
+        depGraph.insertRows(0, 5);
+        depGraph.insertColumns(0, 2);
+        Assertions.assertEquals(numEdges, depGraph.getNumEdges());
+        depGraph.deleteColumns(0, 2);
+        depGraph.deleteRows(0, 5);
+        Assertions.assertEquals(numEdges, depGraph.getNumEdges());
+
+        // Rows inserted into the patterns split them, and deleting the rows
+        // joins them again
+        depGraph.insertRows(20, 3);
+        Assertions.assertTrue(depGraph.getNumEdges() <= 3 * numEdges);
+        depGraph.deleteRows(20, 3);
+        Assertions.assertEquals(numEdges, depGraph.getNumEdges());
+    }
+
+    @Test
+    public void verifyDeletedPrecedents() {
+        DependencyGraphTACO depGraph = new DependencyGraphTACO();
+        depGraph.bulkLoad(createDepPairs());
+
+        // Column A goes, and with it the edges from it alone
+        depGraph.deleteColumns(0, 1);
+        Assertions.assertTrue(depGraph.getDirectPrecedents(new RefImpl(5, 0)).isEmpty());
+        // The RF column over B is now one over A, in column D
+        Set<Ref> deps = TestUtil.toCells(depGraph.getDirectDependents(new RefImpl(0, 0, maxRows - 1, 0)));
+        for (int row = 0; row < maxRows; row++) {
+            Assertions.assertTrue(deps.contains(new RefImpl(row, 3)));
+        }
+        Assertions.assertEquals(new RefImpl(7, 0, maxRows - 1, 0),
+                depGraph.getDirectPrecedents(new RefImpl(7, 3)).iterator().next());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> depGraph.deleteRows(-1, 1));
+    }
+}
@@ -2,10 +2,10 @@ package org.dataspread.sheetanalyzer.util;
 
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Assertions;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.io.File;
 
 public class TestUtil {
@@ -57,4 +57,76 @@ public class TestUtil {
         row.createCell(colA);
         row.createCell(colB);
     }
+
+    /**
+     * The cells of the ranges.
+     */
+    public static Set<Ref> toCells(Collection<Ref> refs) {
+        Set<Ref> cells = new HashSet<>();
+        refs.forEach(ref -> {
+            for (int row = ref.getRow(); row <= ref.getLastRow(); row++) {
+                for (int col = ref.getColumn(); col <= ref.getLastColumn(); col++) {
+                    cells.add(new RefImpl(row, col));
+                }
+            }
+        });
+        return cells;
+    }
+
+    /**
+     * The cells of the ranges, which must not overlap, as in the answer to
+     * a query.
+     */
+    public static Set<Ref> toDisjointCells(Collection<Ref> refs) {
+        Set<Ref> cells = new HashSet<>();
+        refs.forEach(ref -> {
+            for (int row = ref.getRow(); row <= ref.getLastRow(); row++) {
+                for (int col = ref.getColumn(); col <= ref.getLastColumn(); col++) {
+                    Assertions.assertTrue(cells.add(new RefImpl(row, col)), ref + " overlaps another range");
+                }
+            }
+        });
+        return cells;
+    }
+
+    /**
+     * Column-sorted, one compressible pattern per column over values in A:
+     * RR, an RR-chain over B, FR, RF, FF, RR with a gap of two, and RR
+     * over the row in the columns after that.
+     */
+    public static List<Pair<Ref, List<Ref>>> createDepPairs(int maxRows, int maxCols) {
+        List<Pair<Ref, List<Ref>>> depPairs = new ArrayList<>();
+        for (int col = 1; col < maxCols; col++) {
+            for (int row = 0; row < maxRows; row++) {
+                Ref prec;
+                switch (col) {
+                    case 1: // RR
+                        prec = new RefImpl(row, 0, Math.min(row + 1, maxRows - 1), 0);
+                        break;
+                    case 2: // RR-chain over B
+                        prec = row == 0 ? new RefImpl(0, 1) : new RefImpl(row - 1, 2);
+                        break;
+                    case 3: // FR
+                        prec = new RefImpl(0, 0, row, 0);
+                        break;
+                    case 4: // RF
+                        prec = new RefImpl(row, 1, maxRows - 1, 1);
+                        break;
+                    case 5: // FF
+                        prec = new RefImpl(0, 2, 4, 2);
+                        break;
+                    case 6: // RR with a gap of two
+                        if (row % 3 != 0) {
+                            continue;
+                        }
+                        prec = new RefImpl(row, 3);
+                        break;
+                    default: // RR over the row
+                        prec = new RefImpl(row, 0, row, 5);
+                }
+                depPairs.add(new Pair<>(new RefImpl(row, col), Collections.singletonList(prec)));
+            }
+        }
+        return depPairs;
+    }
 }
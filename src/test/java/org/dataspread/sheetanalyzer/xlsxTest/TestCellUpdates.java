@@ -0,0 +1,195 @@
+package org.dataspread.sheetanalyzer.xlsxTest;
+
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.dependency.CompactionStats;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Cell;
+import org.junit.jupiter.api.Assertions;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.io.File;
+
+public class TestCellUpdates {
+    private static final String sheetName = "XLSXSheet";
+    private static final int maxRows = 50;
+    private static final int maxCols = 4;
+
+    private static Map<Ref, String> createContents() {
+        Map<Ref, String> contents = new HashMap<>();
+        for (int i = 0; i < maxRows; i++) {
+            contents.put(new RefImpl(i, 0), String.valueOf(i));
+            contents.put(new RefImpl(i, 1), "=A" + (i + 1) + "+A" + (i + 2));
+            contents.put(new RefImpl(i, 2), "=SUM(B$1:B" + (i + 1) + ")");
+        }
+        return contents;
+    }
+
+    private static File createSheet(Workbook workbook, File tempFile, Map<Ref, String> contents)
+            throws IOException {
+        Sheet sheet = workbook.createSheet(sheetName);
+        contents.forEach((ref, content) -> {
+            Row row = sheet.getRow(ref.getRow());
+            if (row == null) {
+                row = sheet.createRow(ref.getRow());
+            }
+            Cell cell = row.createCell(ref.getColumn());
+            if (content.startsWith("=")) {
+                cell.setCellFormula(content.substring(1));
+            } else {
+                cell.setCellValue(Double.parseDouble(content));
+            }
+        });
+
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+        workbook.write(outputStream);
+        workbook.close();
+
+        return tempFile;
+    }
+
+    private static SheetAnalyzer createAnalyzer(Map<Ref, String> contents)
+            throws IOException, SheetNotSupportedException {
+        boolean isStreaming = true;
+        File xlsxTempFile = createSheet(new XSSFWorkbook(), TestUtil.createXlsxTempFile(), contents);
+        return SheetAnalyzer.createSheetAnalyzer(xlsxTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    private static SheetAnalyzer createXlsAnalyzer(Map<Ref, String> contents)
+            throws IOException, SheetNotSupportedException {
+        boolean isStreaming = true;
+        File xlsTempFile = createSheet(new HSSFWorkbook(), TestUtil.createXlsTempFile(), contents);
+        return SheetAnalyzer.createSheetAnalyzer(xlsTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    // The edited analyzer must answer like one built from the edited sheet
+    private static void assertSameAnalysis(SheetAnalyzer expected, SheetAnalyzer actual) {
+        Assertions.assertEquals(expected.getNumEdges(), actual.getNumEdges());
+        Assertions.assertEquals(expected.getNumVertices(), actual.getNumVertices());
+        Assertions.assertEquals(expected.getNumOfFormulae(), actual.getNumOfFormulae());
+        for (int row = 0; row <= maxRows; row++) {
+            for (int col = 0; col < maxCols; col++) {
+                Ref cell = new RefImpl(row, col);
+                Assertions.assertEquals(TestUtil.toCells(expected.getDependents(sheetName, cell)),
+                        TestUtil.toCells(actual.getDependents(sheetName, cell)), cell.toString());
+                Assertions.assertEquals(TestUtil.toCells(expected.getPrecedents(sheetName, cell)),
+                        TestUtil.toCells(actual.getPrecedents(sheetName, cell)), cell.toString());
+            }
+        }
+    }
+
+    @Test
+    public void verifyUpdateCell() throws IOException, SheetNotSupportedException {
+        Map<Ref, String> contents = createContents();
+        SheetAnalyzer sheetAnalyzer = createAnalyzer(contents);
+        long numVertices = sheetAnalyzer.getNumVertices();
+
+        Map<Ref, String> edits = new HashMap<>();
+        edits.put(new RefImpl(4, 1), "=A1*2");
+        edits.put(new RefImpl(2, 2), "7");
+        edits.put(new RefImpl(1, 3), "=B2+C2+SUM(A40:A45)");
+        edits.put(new RefImpl(20, 0), "=D2");
+        for (Map.Entry<Ref, String> edit : edits.entrySet()) {
+            sheetAnalyzer.updateCell(sheetName, edit.getKey(), edit.getValue());
+            contents.put(edit.getKey(), edit.getValue());
+        }
+
+        Assertions.assertTrue(sheetAnalyzer.getNumVertices() > numVertices);
+        Assertions.assertTrue(TestUtil.toCells(sheetAnalyzer.getDependents(sheetName, new RefImpl(1, 1)))
+                .contains(new RefImpl(20, 0)));
+        assertSameAnalysis(createAnalyzer(contents), sheetAnalyzer);
+    }
+
+    @Test
+    public void verifyUpdateXlsCell() throws IOException, SheetNotSupportedException {
+        Map<Ref, String> contents = createContents();
+        SheetAnalyzer sheetAnalyzer = createXlsAnalyzer(contents);
+
+        Map<Ref, String> edits = new HashMap<>();
+        edits.put(new RefImpl(4, 1), "=A1*2");
+        edits.put(new RefImpl(1, 3), "=B2+C2+SUM(A40:A45)");
+        for (Map.Entry<Ref, String> edit : edits.entrySet()) {
+            sheetAnalyzer.updateCell(sheetName, edit.getKey(), edit.getValue());
+            contents.put(edit.getKey(), edit.getValue());
+        }
+        assertSameAnalysis(createXlsAnalyzer(contents), sheetAnalyzer);
+
+        // IW is past the last column of an .xls sheet, so this does not parse
+        Ref cell = new RefImpl(0, 3);
+        sheetAnalyzer.updateCell(sheetName, cell, "=IW1+A1");
+        Assertions.assertTrue(sheetAnalyzer.getPrecedents(sheetName, cell).isEmpty());
+    }
+
+    @Test
+    public void verifyUpdateCells() throws IOException, SheetNotSupportedException {
+        Map<Ref, String> contents = createContents();
+        SheetAnalyzer sheetAnalyzer = createAnalyzer(contents);
+
+        // Paste a column of values over the running sum, and new formulae next to it
+        Map<Ref, String> edits = new HashMap<>();
+        for (int i = 10; i < 30; i++) {
+            edits.put(new RefImpl(i, 2), String.valueOf(i));
+            edits.put(new RefImpl(i, 3), "=C" + (i + 1) + "*B" + (i + 1));
+        }
+        sheetAnalyzer.updateCells(sheetName, edits);
+        contents.putAll(edits);
+
+        assertSameAnalysis(createAnalyzer(contents), sheetAnalyzer);
+    }
+
+    // Formulae of column B, a cell at a time in random order
+    private static void updateColumnB(SheetAnalyzer sheetAnalyzer, Map<Ref, String> contents)
+            throws SheetNotSupportedException {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < maxRows; i++) {
+            rows.add(i);
+        }
+        Collections.shuffle(rows, new Random(19));
+        for (int i : rows) {
+            Ref cell = new RefImpl(i, 1);
+            String content = "=A" + (i + 1) + "*A" + (i + 2);
+            sheetAnalyzer.updateCell(sheetName, cell, content);
+            contents.put(cell, content);
+        }
+    }
+
+    @Test
+    public void verifyCompactionAfterUpdates() throws IOException, SheetNotSupportedException {
+        Map<Ref, String> contents = createContents();
+        SheetAnalyzer fragmented = createAnalyzer(contents);
+        updateColumnB(fragmented, new HashMap<>(contents));
+        SheetAnalyzer sheetAnalyzer = createAnalyzer(contents);
+        sheetAnalyzer.setMaxFragmentation(1.5);
+        updateColumnB(sheetAnalyzer, contents);
+
+        SheetAnalyzer expected = createAnalyzer(contents);
+        Assertions.assertTrue(sheetAnalyzer.getNumCompEdges() < fragmented.getNumCompEdges());
+        assertSameAnalysis(expected, sheetAnalyzer);
+
+        Map<String, CompactionStats> compactionStats = fragmented.compact();
+        Assertions.assertEquals(expected.getNumCompEdges(), compactionStats.get(sheetName).numEdgesAfter);
+        assertSameAnalysis(expected, fragmented);
+    }
+
+    @Test
+    public void verifyUnknownSheet() throws IOException, SheetNotSupportedException {
+        SheetAnalyzer sheetAnalyzer = createAnalyzer(createContents());
+        Assertions.assertThrows(SheetNotSupportedException.class,
+                () -> sheetAnalyzer.updateCell("NoSuchSheet", new RefImpl(0, 0), "1"));
+    }
+}
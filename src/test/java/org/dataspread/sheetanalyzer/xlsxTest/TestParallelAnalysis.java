@@ -0,0 +1,94 @@
+package org.dataspread.sheetanalyzer.xlsxTest;
+
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Assertions;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.io.File;
+
+public class TestParallelAnalysis {
+    private static SheetAnalyzer sequentialAnalyzer;
+    private static SheetAnalyzer parallelAnalyzer;
+    private static ForkJoinPool pool;
+    private static final String sheetPrefix = "Sheet";
+    private static final int numSheets = 8;
+    private static final int maxRows = 500;
+
+    private static File createXLSXSheets() throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        for (int s = 0; s < numSheets; s++) {
+            Sheet sheet = workbook.createSheet(sheetPrefix + s);
+            // Every sheet gets a different number of rows
+            int numRows = maxRows - s;
+            int colA = 0, colB = 1, colC = 2;
+            for (int i = 0; i < numRows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(colA).setCellValue(i);
+                row.createCell(colB).setCellFormula("A" + (i + 1) + "*2");
+                row.createCell(colC).setCellFormula("SUM(B$1:B" + (i + 1) + ")");
+            }
+        }
+
+        File xlsxTempFile = TestUtil.createXlsxTempFile();
+        FileOutputStream outputStream = new FileOutputStream(xlsxTempFile);
+        workbook.write(outputStream);
+        workbook.close();
+
+        return xlsxTempFile;
+    }
+
+    @BeforeAll
+    public static void setUp() throws IOException, SheetNotSupportedException {
+        String filePath = createXLSXSheets().getAbsolutePath();
+        pool = new ForkJoinPool(4);
+        boolean isStreaming = true;
+        sequentialAnalyzer = SheetAnalyzer.createSheetAnalyzer(filePath, isStreaming);
+        parallelAnalyzer = SheetAnalyzer.createSheetAnalyzer(filePath, isStreaming, pool);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void verifyCounts() {
+        Assertions.assertEquals(numSheets, parallelAnalyzer.getNumSheets());
+        Assertions.assertEquals(sequentialAnalyzer.getSheetNames(), parallelAnalyzer.getSheetNames());
+        Assertions.assertEquals(sequentialAnalyzer.getNumOfFormulae(), parallelAnalyzer.getNumOfFormulae());
+        Assertions.assertEquals(sequentialAnalyzer.getNumEdges(), parallelAnalyzer.getNumEdges());
+        Assertions.assertEquals(sequentialAnalyzer.getNumVertices(), parallelAnalyzer.getNumVertices());
+        Assertions.assertEquals(sequentialAnalyzer.getNumCompEdges(), parallelAnalyzer.getNumCompEdges());
+    }
+
+    @Test
+    public void verifyDependencies() {
+        for (int s = 0; s < numSheets; s++) {
+            String sheetName = sheetPrefix + s;
+            int numRows = maxRows - s;
+            Ref queryRef = new RefImpl(0, 0);
+
+            Set<Ref> groundTruth = new HashSet<>();
+            groundTruth.add(new RefImpl(0, 1));
+            groundTruth.add(new RefImpl(0, 2, numRows - 1, 2));
+
+            Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth,
+                    parallelAnalyzer.getDependents(sheetName, queryRef)));
+        }
+    }
+}
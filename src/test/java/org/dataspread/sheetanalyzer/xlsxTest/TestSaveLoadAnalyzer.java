@@ -0,0 +1,101 @@
+package org.dataspread.sheetanalyzer.xlsxTest;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestSaveLoadAnalyzer {
+    private static final List<String> sheetNames = Arrays.asList("Totals", "Ratios");
+    private static final int maxRows = 60;
+    private static final int maxCols = 4;
+
+    private static File createXLSXSheets() throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        for (String sheetName : sheetNames) {
+            Sheet sheet = workbook.createSheet(sheetName);
+            for (int i = 0; i < maxRows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                if (sheetName.equals("Totals")) {
+                    row.createCell(1).setCellFormula(i == 0 ? "A1" : "A" + (i + 1) + "+B" + i);
+                    row.createCell(2).setCellFormula("SUM(A$1:A" + (i + 1) + ")");
+                } else {
+                    row.createCell(1).setCellFormula("A" + (i + 1) + "/SUM($A$1:$A$" + maxRows + ")");
+                    row.createCell(2).setCellValue("note " + i);
+                }
+            }
+        }
+
+        File xlsxTempFile = TestUtil.createXlsxTempFile();
+        FileOutputStream outputStream = new FileOutputStream(xlsxTempFile);
+        workbook.write(outputStream);
+        workbook.close();
+
+        return xlsxTempFile;
+    }
+
+    private static SheetAnalyzer saveAndLoad(SheetAnalyzer sheetAnalyzer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sheetAnalyzer.save(out);
+        return SheetAnalyzer.load(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameAnalysis(SheetAnalyzer expected, SheetAnalyzer actual) {
+        Assertions.assertEquals(expected.getSheetNames(), actual.getSheetNames());
+        Assertions.assertEquals(expected.getNumEdges(), actual.getNumEdges());
+        Assertions.assertEquals(expected.getNumVertices(), actual.getNumVertices());
+        Assertions.assertEquals(expected.getNumCompEdges(), actual.getNumCompEdges());
+        Assertions.assertEquals(expected.getNumOfFormulae(), actual.getNumOfFormulae());
+        Assertions.assertEquals(expected.getRefDistribution(), actual.getRefDistribution());
+        for (String sheetName : sheetNames) {
+            for (int row = 0; row <= maxRows; row++) {
+                for (int col = 0; col < maxCols; col++) {
+                    Ref cell = new RefImpl(row, col);
+                    Assertions.assertEquals(TestUtil.toCells(expected.getDependents(sheetName, cell)),
+                            TestUtil.toCells(actual.getDependents(sheetName, cell)), cell.toString());
+                    Assertions.assertEquals(TestUtil.toCells(expected.getPrecedents(sheetName, cell)),
+                            TestUtil.toCells(actual.getPrecedents(sheetName, cell)), cell.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void verifySaveLoad() throws IOException, SheetNotSupportedException {
+        boolean isStreaming = true;
+        SheetAnalyzer sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(
+                createXLSXSheets().getAbsolutePath(), isStreaming);
+        SheetAnalyzer loaded = saveAndLoad(sheetAnalyzer);
+        Assertions.assertEquals(sheetAnalyzer.getFileName(), loaded.getFileName());
+        Assertions.assertEquals(sheetAnalyzer.getNumSheets(), loaded.getNumSheets());
+        Assertions.assertEquals(sheetAnalyzer.getCompressInfo(), loaded.getCompressInfo());
+        assertSameAnalysis(sheetAnalyzer, loaded);
+
+        // Cells of a loaded analyzer are parsed again when they are edited,
+        // and the edits are kept by the next save
+        for (SheetAnalyzer analyzer : Arrays.asList(sheetAnalyzer, loaded)) {
+            analyzer.updateCell("Totals", new RefImpl(30, 1), "=A31+C2");
+            analyzer.updateCell("Ratios", new RefImpl(5, 3), "=SUM(B1:B10)");
+        }
+        assertSameAnalysis(sheetAnalyzer, loaded);
+        assertSameAnalysis(sheetAnalyzer, saveAndLoad(loaded));
+    }
+
+    @Test
+    public void verifyNotAnAnalyzer() {
+        Assertions.assertThrows(IOException.class,
+                () -> SheetAnalyzer.load(new ByteArrayInputStream("not saved".getBytes())));
+    }
+}
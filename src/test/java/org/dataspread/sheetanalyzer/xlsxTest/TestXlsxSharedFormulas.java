@@ -0,0 +1,111 @@
+package org.dataspread.sheetanalyzer.xlsxTest;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * POI writes every formula in full, so the sheet XML is written by hand the
+ * way Excel saves it: B1:B4 and C1:C3 are shared formulae with the text
+ * only in their first cell, and D1:D2 is an array formula whose second
+ * cell holds just a value.
+ */
+public class TestXlsxSharedFormulas {
+    private static SheetAnalyzer sheetAnalyzer;
+    private static final String sheetName = "SharedSheet";
+    private static final String sheetEntry = "xl/worksheets/sheet1.xml";
+
+    private static final String sheetXml =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\"><v>1</v></c>"
+            + "<c r=\"B1\"><f t=\"shared\" ref=\"B1:B4\" si=\"0\">A1*2</f><v>2</v></c>"
+            + "<c r=\"C1\"><f t=\"shared\" ref=\"C1:C3\" si=\"1\">SUM(A$1:A1)</f><v>1</v></c>"
+            + "<c r=\"D1\"><f t=\"array\" ref=\"D1:D2\">A1:A2*A4</f><v>4</v></c></row>"
+            + "<row r=\"2\"><c r=\"A2\"><v>2</v></c>"
+            + "<c r=\"B2\"><f t=\"shared\" si=\"0\"/><v>4</v></c>"
+            + "<c r=\"C2\"><f t=\"shared\" si=\"1\"/><v>3</v></c>"
+            + "<c r=\"D2\"><v>8</v></c></row>"
+            + "<row r=\"3\"><c r=\"A3\"><v>3</v></c>"
+            + "<c r=\"B3\"><f t=\"shared\" si=\"0\"/><v>6</v></c>"
+            + "<c r=\"C3\"><f t=\"shared\" si=\"1\"/><v>6</v></c></row>"
+            + "<row r=\"4\"><c r=\"A4\"><v>4</v></c>"
+            + "<c r=\"B4\"><f t=\"shared\" si=\"0\"/><v>8</v></c></row>"
+            + "</sheetData></worksheet>";
+
+    private static File createSharedFormulaSheet() throws IOException {
+        ByteArrayOutputStream bookBytes = new ByteArrayOutputStream();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet(sheetName).createRow(0).createCell(0).setCellValue(1);
+            workbook.write(bookBytes);
+        }
+
+        // Copy the package, swapping in the hand-written sheet
+        File xlsxTempFile = TestUtil.createXlsxTempFile();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bookBytes.toByteArray()));
+             ZipOutputStream out = new ZipOutputStream(new FileOutputStream(xlsxTempFile))) {
+            byte[] buffer = new byte[4096];
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals(sheetEntry)) {
+                    out.write(sheetXml.getBytes(StandardCharsets.UTF_8));
+                } else {
+                    for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return xlsxTempFile;
+    }
+
+    @BeforeAll
+    public static void setUp() throws IOException, SheetNotSupportedException {
+        File xlsxTempFile = createSharedFormulaSheet();
+        boolean isStreaming = true;
+        sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(xlsxTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    private static void assertDependents(Ref queryRef, Ref... groundTruth) {
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheetName, queryRef);
+        Assertions.assertTrue(TestUtil.hasSameRefs(new HashSet<>(Arrays.asList(groundTruth)), queryResult),
+                queryRef + ": " + queryResult);
+    }
+
+    @Test
+    public void verifySharedFormulae() {
+        // B = A * 2 and C = SUM(A$1:A) down their shared ranges
+        assertDependents(new RefImpl(2, 0), new RefImpl(2, 1, 2, 2));
+        assertDependents(new RefImpl(1, 0), new RefImpl(1, 1), new RefImpl(1, 2, 2, 2), new RefImpl(0, 3, 1, 3));
+    }
+
+    @Test
+    public void verifyArrayFormula() {
+        // Both cells of D1:D2 depend on A1:A2 and A4
+        assertDependents(new RefImpl(0, 0), new RefImpl(0, 1), new RefImpl(0, 2, 2, 2), new RefImpl(0, 3, 1, 3));
+        assertDependents(new RefImpl(3, 0), new RefImpl(3, 1), new RefImpl(0, 3, 1, 3));
+    }
+
+    @Test
+    public void verifyCounts() {
+        // One reference in each cell of B and C, two in each of D
+        Assertions.assertEquals(4 + 3 + 2 * 2, sheetAnalyzer.getNumEdges());
+    }
+}
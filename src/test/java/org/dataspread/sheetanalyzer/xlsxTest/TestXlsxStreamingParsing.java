@@ -0,0 +1,102 @@
+package org.dataspread.sheetanalyzer.xlsxTest;
+
+import org.dataspread.sheetanalyzer.util.SheetNotSupportedException;
+import org.dataspread.sheetanalyzer.util.TestUtil;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dataspread.sheetanalyzer.SheetAnalyzer;
+import org.dataspread.sheetanalyzer.util.RefImpl;
+import org.dataspread.sheetanalyzer.util.Ref;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Assertions;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import java.io.File;
+
+public class TestXlsxStreamingParsing {
+    private static SheetAnalyzer sheetAnalyzer;
+    private static final String sheetName = "XLSXSheet";
+    private static final int maxRows = 1000;
+
+    private static File createXLSXSheet() throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet(sheetName);
+        int colA = 0, colB = 1, colC = 2;
+        for (int i = 0; i < maxRows; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(colA).setCellValue(1);
+            row.createCell(colB).setCellFormula("SUM(A" + (i + 1) + ":" + "A" + (i + 2) + ")");
+            row.createCell(colC).setCellFormula("SUM(A" + (i + 1) + ":" + "A$" + maxRows + ")");
+        }
+        Row row = sheet.createRow(maxRows);
+        row.createCell(colA).setCellValue("Let it parse a string");
+
+        File xlsxTempFile = TestUtil.createXlsxTempFile();
+        FileOutputStream outputStream = new FileOutputStream(xlsxTempFile);
+        workbook.write(outputStream);
+        workbook.close();
+
+        return xlsxTempFile;
+    }
+
+    @BeforeAll
+    public static void setUp() throws IOException, SheetNotSupportedException {
+        File xlsxTempFile = createXLSXSheet();
+        boolean isStreaming = true;
+        sheetAnalyzer = SheetAnalyzer.createSheetAnalyzer(xlsxTempFile.getAbsolutePath(), isStreaming);
+    }
+
+    @Test
+    public void verifyDependencyA() {
+        int queryRow = 1, queryColumn = 0;
+        Ref queryRef = new RefImpl(queryRow, queryColumn);
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheetName, queryRef);
+
+        Set<Ref> groundTruth = new HashSet<>();
+        groundTruth.add(new RefImpl(0, 1, 1, 2));
+
+        Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth, queryResult));
+    }
+
+    @Test
+    public void verifyDependencyB() {
+        int queryRow = maxRows - 1, queryColumn = 0;
+        Ref queryRef = new RefImpl(queryRow, queryColumn);
+        Set<Ref> queryResult = sheetAnalyzer.getDependents(sheetName, queryRef);
+
+        Set<Ref> groundTruth = new HashSet<>();
+        groundTruth.add(new RefImpl(maxRows - 2, 1, maxRows - 1, 1));
+        groundTruth.add(new RefImpl(0, 2, maxRows - 1, 2));
+
+        Assertions.assertTrue(TestUtil.hasSameRefs(groundTruth, queryResult));
+    }
+
+    @Test
+    public void verifyCounts() {
+        Assertions.assertEquals(1, sheetAnalyzer.getNumSheets());
+        // Two formula columns plus the value column and its trailing string
+        Assertions.assertEquals(3 * maxRows + 1, sheetAnalyzer.getNumOfFormulae());
+        Assertions.assertEquals(2 * maxRows, sheetAnalyzer.getNumEdges());
+    }
+
+    @Test
+    public void verifyBrokenWorkbook() throws IOException {
+        // A zip file, but not a workbook
+        File xlsxTempFile = TestUtil.createXlsxTempFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(xlsxTempFile))) {
+            out.putNextEntry(new ZipEntry("readme.txt"));
+            out.closeEntry();
+        }
+        SheetNotSupportedException e = Assertions.assertThrows(SheetNotSupportedException.class,
+                () -> SheetAnalyzer.createSheetAnalyzer(xlsxTempFile.getAbsolutePath(), true));
+        Assertions.assertNotNull(e.getCause(), e.getMessage());
+    }
+}